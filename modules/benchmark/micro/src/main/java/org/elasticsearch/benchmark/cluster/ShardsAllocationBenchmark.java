@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.cluster;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.MutableShardRouting;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.allocation.ShardsAllocation;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.cluster.ClusterState.*;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
+import static org.elasticsearch.cluster.metadata.MetaData.*;
+import static org.elasticsearch.cluster.node.DiscoveryNodes.*;
+import static org.elasticsearch.cluster.routing.RoutingBuilders.*;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
+import static org.elasticsearch.common.collect.Lists.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+
+/**
+ * Simulates a large routing table (many nodes and shards) and measures the time it takes to allocate it,
+ * and the time it takes to apply a single started shard (the common operation on a recovering cluster).
+ *
+ * @author kimchy (shay.banon)
+ */
+public class ShardsAllocationBenchmark {
+
+    public static void main(String[] args) {
+        int NUMBER_OF_NODES = 60;
+        int NUMBER_OF_INDICES = 1000;
+        int NUMBER_OF_SHARDS = 10;
+        int NUMBER_OF_REPLICAS = 1;
+        int NUMBER_OF_SINGLE_STARTS = 200;
+
+        ShardsAllocation strategy = new ShardsAllocation(settingsBuilder()
+                .put("cluster.routing.allocation.concurrent_recoveries", 10)
+                .put("cluster.routing.allocation.node_initial_primaries_recoveries", 10)
+                .build());
+
+        MetaData.Builder metaDataBuilder = newMetaDataBuilder();
+        RoutingTable.Builder routingTableBuilder = routingTable();
+        for (int i = 0; i < NUMBER_OF_INDICES; i++) {
+            metaDataBuilder.put(newIndexMetaDataBuilder("index" + i).numberOfShards(NUMBER_OF_SHARDS).numberOfReplicas(NUMBER_OF_REPLICAS));
+        }
+        MetaData metaData = metaDataBuilder.build();
+        for (int i = 0; i < NUMBER_OF_INDICES; i++) {
+            routingTableBuilder.add(indexRoutingTable("index" + i).initializeEmpty(metaData.index("index" + i)));
+        }
+        DiscoveryNodes.Builder nodes = newNodesBuilder();
+        for (int i = 0; i < NUMBER_OF_NODES; i++) {
+            nodes.put(new DiscoveryNode("node" + i, DummyTransportAddress.INSTANCE));
+        }
+        ClusterState clusterState = newClusterStateBuilder().metaData(metaData).routingTable(routingTableBuilder.build()).nodes(nodes).build();
+        System.out.println("Simulating [" + NUMBER_OF_NODES + "] nodes, [" + (NUMBER_OF_INDICES * NUMBER_OF_SHARDS * (NUMBER_OF_REPLICAS + 1)) + "] shards");
+
+        StopWatch stopWatch = new StopWatch().start();
+        RoutingTable routingTable = strategy.reroute(clusterState).routingTable();
+        clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+        stopWatch.stop();
+        System.out.println("Initial reroute took " + stopWatch.totalTime());
+
+        // start the shards in rounds (bulk), until all of them are started
+        stopWatch = new StopWatch().start();
+        int rounds = 0;
+        while (true) {
+            List<MutableShardRouting> initializing = clusterState.routingNodes().shardsWithState(INITIALIZING);
+            if (initializing.isEmpty()) {
+                break;
+            }
+            routingTable = strategy.applyStartedShards(clusterState, initializing).routingTable();
+            clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+            rounds++;
+        }
+        stopWatch.stop();
+        System.out.println("Started all shards in [" + rounds + "] rounds, took " + stopWatch.totalTime() + ", unassigned [" + clusterState.routingNodes().unassigned().size() + "]");
+
+        // now, fail and start single shards, each start is applied on its own as it would in a recovering cluster
+        long totalSingleStarts = 0;
+        long maxSingleStart = 0;
+        for (int i = 0; i < NUMBER_OF_SINGLE_STARTS; i++) {
+            MutableShardRouting shard = clusterState.routingNodes().shardsWithState(STARTED).get(i);
+            routingTable = strategy.applyFailedShard(clusterState, shard).routingTable();
+            clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+            List<MutableShardRouting> initializing = clusterState.routingNodes().shardsWithState(INITIALIZING);
+            if (initializing.isEmpty()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            routingTable = strategy.applyStartedShards(clusterState, newArrayList(initializing.get(0))).routingTable();
+            long took = System.nanoTime() - start;
+            clusterState = newClusterStateBuilder().state(clusterState).routingTable(routingTable).build();
+            totalSingleStarts += took;
+            maxSingleStart = Math.max(maxSingleStart, took);
+        }
+        System.out.println("Single shard start: avg " + new TimeValue(totalSingleStarts / NUMBER_OF_SINGLE_STARTS, TimeUnit.NANOSECONDS) + ", max " + new TimeValue(maxSingleStart, TimeUnit.NANOSECONDS));
+    }
+}
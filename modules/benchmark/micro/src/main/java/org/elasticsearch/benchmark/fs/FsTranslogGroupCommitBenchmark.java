@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.fs;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+
+/**
+ * Compares fsync on each operation translog writes with and without group commit.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class FsTranslogGroupCommitBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int THREADS = 20;
+        int OPERATIONS = 1000;
+        int SOURCE_SIZE = 1024;
+
+        run(false, THREADS, OPERATIONS, SOURCE_SIZE);
+        run(true, THREADS, OPERATIONS, SOURCE_SIZE);
+    }
+
+    private static void run(boolean groupCommit, int numberOfThreads, final int numberOfOperations, int sourceSize) throws Exception {
+        File location = new File("work/translog-benchmark");
+        FileSystemUtils.deleteRecursively(location);
+
+        final Translog translog = new FsTranslog(new ShardId(new Index("test"), 0), EMPTY_SETTINGS, location, false, groupCommit);
+        translog.newTranslog();
+        translog.syncOnEachOperation(true);
+
+        final byte[] source = new byte[sourceSize];
+        final CyclicBarrier barrier = new CyclicBarrier(numberOfThreads + 1);
+        final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            final int threadId = i;
+            new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        barrier.await();
+                        for (int j = 0; j < numberOfOperations; j++) {
+                            translog.add(new Translog.Index("type", threadId + "_" + j, source));
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }, "writer[" + i + "]").start();
+        }
+
+        barrier.await();
+        StopWatch watch = new StopWatch().start();
+        latch.await();
+        watch.stop();
+
+        long totalOperations = ((long) numberOfThreads) * numberOfOperations;
+        System.out.println("Group commit [" + groupCommit + "], threads [" + numberOfThreads + "], wrote [" + totalOperations + "] operations of size [" + sourceSize + "] in " + watch.totalTime() + ", " + (totalOperations * 1000 / Math.max(1, watch.totalTime().millis())) + " ops/sec");
+
+        translog.close(true);
+        FileSystemUtils.deleteRecursively(location);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index.engine.robin;
+
+import org.apache.lucene.index.Term;
+import org.elasticsearch.cache.memory.ByteBufferCache;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.cache.bloom.BloomCache;
+import org.elasticsearch.index.cache.bloom.none.NoneBloomCache;
+import org.elasticsearch.index.cache.bloom.simple.SimpleBloomCache;
+import org.elasticsearch.index.cache.query.result.none.NoneQueryResultCache;
+import org.elasticsearch.index.deletionpolicy.KeepOnlyLastDeletionPolicy;
+import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.robin.RobinEngine;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.merge.policy.LogByteSizeMergePolicyProvider;
+import org.elasticsearch.index.merge.scheduler.ConcurrentMergeSchedulerProvider;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.memory.ByteBufferStore;
+import org.elasticsearch.index.translog.fs.FsTranslog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+
+/**
+ * Measures the latency of index operations that need to resolve the current version of a uid
+ * from the index (not the in memory version map), with and without the bloom filter cache.
+ * Pass <tt>none</tt> as the first argument to run without the bloom cache.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class UidLookupBenchmark {
+
+    private static final int NUMBER_OF_DOCS = 200000;
+
+    private static final int NUMBER_OF_UPDATES = 100000;
+
+    // a refresh every so many updates, creating small segments the lookup needs to go through
+    private static final int REFRESH_EVERY = 5000;
+
+    // percentage of updates going to ids that do not exist yet (lookups that miss all segments)
+    private static final int NEW_ID_PERCENT = 30;
+
+    public static void main(String[] args) throws Exception {
+        boolean bloom = args.length == 0 || !"none".equals(args[0]);
+
+        ShardId shardId = new ShardId(new Index("index"), 1);
+        Settings settings = settingsBuilder()
+                .put("index.engine.robin.async_load_bloom", false)
+                .build();
+
+        Store store = new ByteBufferStore(shardId, settings, null, new ByteBufferCache(settings));
+        store.deleteContent();
+
+        ThreadPool threadPool = new ThreadPool();
+        BloomCache bloomCache = bloom ? new SimpleBloomCache(shardId.index(), settings, threadPool) : new NoneBloomCache(shardId.index());
+        SnapshotDeletionPolicy deletionPolicy = new SnapshotDeletionPolicy(new KeepOnlyLastDeletionPolicy(shardId, settings));
+        Engine engine = new RobinEngine(shardId, settings, threadPool, new IndexSettingsService(shardId.index(), settings), store, deletionPolicy, new FsTranslog(shardId, EMPTY_SETTINGS, new File("work/fs-translog"), false), new LogByteSizeMergePolicyProvider(store, new IndexSettingsService(shardId.index(), EMPTY_SETTINGS)),
+                new ConcurrentMergeSchedulerProvider(shardId, settings), new AnalysisService(shardId.index()), new SimilarityService(shardId.index()), bloomCache, new NoneQueryResultCache(shardId.index()));
+        engine.start();
+
+        System.out.println("Running with bloom cache [" + bloom + "]");
+
+        StopWatch stopWatch = new StopWatch().start();
+        for (int i = 0; i < NUMBER_OF_DOCS; i++) {
+            engine.create(new Engine.Create(null, new Term("_uid", "type#" + i), createDoc(Integer.toString(i))));
+            if (i % REFRESH_EVERY == 0) {
+                engine.refresh(new Engine.Refresh(true));
+            }
+        }
+        // flush so the version map is cleared and versions are loaded from the index
+        engine.flush(new Engine.Flush());
+        stopWatch.stop();
+        System.out.println("Indexed [" + NUMBER_OF_DOCS + "] in " + stopWatch.totalTime());
+
+        Random random = new Random(0);
+        long[] latencies = new long[NUMBER_OF_UPDATES];
+        int nextId = NUMBER_OF_DOCS;
+        stopWatch = new StopWatch().start();
+        for (int i = 0; i < NUMBER_OF_UPDATES; i++) {
+            String id;
+            if (random.nextInt(100) < NEW_ID_PERCENT) {
+                id = Integer.toString(nextId++);
+            } else {
+                id = Integer.toString(random.nextInt(NUMBER_OF_DOCS));
+            }
+            ParsedDocument doc = createDoc(id);
+            long start = System.nanoTime();
+            engine.index(new Engine.Index(null, new Term("_uid", "type#" + id), doc));
+            latencies[i] = System.nanoTime() - start;
+            if (i % REFRESH_EVERY == 0) {
+                engine.refresh(new Engine.Refresh(true));
+            }
+        }
+        stopWatch.stop();
+
+        Arrays.sort(latencies);
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        System.out.println("Updated [" + NUMBER_OF_UPDATES + "] in " + stopWatch.totalTime() + ", [" + (NUMBER_OF_UPDATES / stopWatch.totalTime().secondsFrac()) + "] ops/sec");
+        System.out.println("Latency avg [" + new TimeValue(total / latencies.length, TimeUnit.NANOSECONDS) + "], p50 [" + new TimeValue(latencies[latencies.length / 2], TimeUnit.NANOSECONDS) +
+                "], p99 [" + new TimeValue(latencies[(int) (latencies.length * 0.99)], TimeUnit.NANOSECONDS) + "], max [" + new TimeValue(latencies[latencies.length - 1], TimeUnit.NANOSECONDS) + "]");
+
+        engine.close();
+        store.close();
+        threadPool.shutdownNow();
+    }
+
+    private static ParsedDocument createDoc(String id) {
+        return new ParsedDocument("type#" + id, id, "type", null, doc().add(uidField("type#" + id)).add(field("content", "value" + id)).build(), Lucene.STANDARD_ANALYZER, new byte[]{1, 2, 3}, false);
+    }
+}
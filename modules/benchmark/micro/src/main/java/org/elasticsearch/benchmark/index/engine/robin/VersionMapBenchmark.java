@@ -0,0 +1,221 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.index.engine.robin;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.engine.robin.ConcurrentVersionMap;
+import org.elasticsearch.index.engine.robin.PackedVersionMap;
+import org.elasticsearch.index.engine.robin.RobinEngine;
+import org.elasticsearch.index.engine.robin.VersionMap;
+import org.elasticsearch.index.translog.Translog;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Same as {@link org.elasticsearch.benchmark.common.lucene.versioned.VersionedMapBenchmark}, but for the
+ * uid keyed {@link VersionMap} used by the robin engine.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class VersionMapBenchmark {
+
+    private final VersionMap versionMap;
+
+    private final String[] uids;
+
+    private final int readerIterations;
+
+    private final int writerIterations;
+
+    private final CountDownLatch latch;
+
+    private final Thread[] readerThreads;
+
+    private final Thread[] writerThreads;
+
+    private final CyclicBarrier barrier1;
+    private final CyclicBarrier barrier2;
+
+    public VersionMapBenchmark(VersionMap versionMap,
+                               int numberOfReaders, int readerIterations,
+                               int numberOfWriters, int writerIterations) {
+        this.versionMap = versionMap;
+        this.readerIterations = readerIterations;
+        this.writerIterations = writerIterations;
+
+        this.uids = new String[Math.max(readerIterations, writerIterations)];
+        for (int i = 0; i < uids.length; i++) {
+            uids[i] = "type1#" + Integer.toString(i);
+        }
+
+        readerThreads = new Thread[numberOfReaders];
+        for (int i = 0; i < numberOfReaders; i++) {
+            readerThreads[i] = new Thread(new ReaderThread(), "reader[" + i + "]");
+        }
+
+        writerThreads = new Thread[numberOfWriters];
+        for (int i = 0; i < numberOfWriters; i++) {
+            writerThreads[i] = new Thread(new WriterThread(i), "writer[" + i + "]");
+        }
+
+        latch = new CountDownLatch(numberOfReaders + numberOfWriters);
+        barrier1 = new CyclicBarrier(numberOfReaders + numberOfWriters + 1);
+        barrier2 = new CyclicBarrier(numberOfReaders + numberOfWriters + 1);
+
+        // now, warm up a bit
+        StopWatch stopWatch = new StopWatch("warmup");
+        stopWatch.start();
+        int warmupSize = Math.min(1000000, uids.length);
+        for (int i = 0; i < warmupSize; i++) {
+            versionMap.put(uids[i], new RobinEngine.VersionValue(i, false, i, new Translog.Location(1, i, 100)));
+            versionMap.get(uids[i]);
+        }
+        stopWatch.stop();
+        System.out.println("Warmup up of [" + warmupSize + "]: " + stopWatch.totalTime());
+        versionMap.clear();
+    }
+
+    public void run() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            MILLISECONDS.sleep(100);
+        }
+
+        long emptyUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        for (Thread t : readerThreads) {
+            t.start();
+        }
+        for (Thread t : writerThreads) {
+            t.start();
+        }
+        barrier1.await();
+
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        barrier2.await();
+
+        latch.await();
+        stopWatch.stop();
+
+        // verify that the writers wrote...
+        for (int i = 0; i < writerIterations; i++) {
+            if (versionMap.get(uids[i]) == null) {
+                System.out.println("Wrong value for [" + uids[i] + ']');
+            }
+        }
+
+        System.out.println("Total:");
+        System.out.println("   - [" + readerThreads.length + "] readers with [" + readerIterations + "] iterations");
+        System.out.println("   - [" + writerThreads.length + "] writers with [" + writerIterations + "] iterations");
+        System.out.println("   - Took: " + stopWatch.totalTime());
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            MILLISECONDS.sleep(100);
+        }
+
+        long bytesTaken = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() - emptyUsed;
+        System.out.println("Size of [" + versionMap.size() + "] entries is " + new ByteSizeValue(bytesTaken));
+
+        stopWatch = new StopWatch();
+        stopWatch.start();
+        versionMap.prune(System.currentTimeMillis(), 60000);
+        stopWatch.stop();
+        System.out.println("Prune took " + stopWatch.totalTime());
+    }
+
+    private class ReaderThread implements Runnable {
+        @Override public void run() {
+            try {
+                barrier1.await();
+                barrier2.await();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            for (int i = 0; i < readerIterations; i++) {
+                versionMap.get(uids[i]);
+            }
+            latch.countDown();
+        }
+    }
+
+    private class WriterThread implements Runnable {
+
+        private final int id;
+
+        private WriterThread(int id) {
+            this.id = id;
+        }
+
+        @Override public void run() {
+            try {
+                barrier1.await();
+                barrier2.await();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            for (int i = 0; i < writerIterations; i++) {
+                // a fresh uid string, like the one that comes with each indexing operation
+                String uid = new String(uids[i].toCharArray());
+                versionMap.put(uid, new RobinEngine.VersionValue(i, (i % 10) == 0, System.currentTimeMillis(), new Translog.Location(id, i, 100)));
+            }
+            latch.countDown();
+        }
+    }
+
+    // Some results: single core machine
+
+//    VersionMapBenchmark benchmark = new VersionMapBenchmark(
+//            versionMap, 30, 2000000, 10, 2000000
+//    );
+
+//        Running [packed] type
+//           - Took: 18s
+//        Size of [2000000] entries is 169.9mb
+//        Prune took 134ms
+
+//        Running [concurrent] type
+//           - Took: 10.4s
+//        Size of [2000000] entries is 334.1mb
+//        Prune took 178ms
+
+    public static void main(String[] args) throws Exception {
+        String type = args.length > 0 ? args[0] : "packed";
+        VersionMap versionMap;
+        if ("packed".equalsIgnoreCase(type)) {
+            versionMap = new PackedVersionMap(args.length > 1 ? Integer.parseInt(args[1]) : 16);
+        } else if ("concurrent".equalsIgnoreCase(type)) {
+            versionMap = new ConcurrentVersionMap();
+        } else {
+            throw new IllegalArgumentException("Type [" + type + "] unknown");
+        }
+        System.out.println("Running [" + type + "] type");
+        VersionMapBenchmark benchmark = new VersionMapBenchmark(
+                versionMap, 30, 2000000, 10, 2000000
+        );
+        benchmark.run();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.percolator;
+
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.inject.AbstractModule;
+import org.elasticsearch.common.inject.Injector;
+import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.settings.SettingsModule;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexNameModule;
+import org.elasticsearch.index.analysis.AnalysisModule;
+import org.elasticsearch.index.cache.IndexCacheModule;
+import org.elasticsearch.index.engine.IndexEngineModule;
+import org.elasticsearch.index.mapper.MapperServiceModule;
+import org.elasticsearch.index.percolator.PercolatorExecutor;
+import org.elasticsearch.index.query.IndexQueryParserModule;
+import org.elasticsearch.index.settings.IndexSettingsModule;
+import org.elasticsearch.index.similarity.SimilarityModule;
+import org.elasticsearch.script.ScriptModule;
+import org.elasticsearch.threadpool.ThreadPoolModule;
+
+import java.util.Map;
+
+import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
+
+/**
+ * Percolation throughput as the number of registered queries grows. Most queries can't match the doc, and
+ * are filtered out by the terms they require.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class PercolatorQueriesScaleBenchmark {
+
+    private static final int[] NUMBER_OF_QUERIES = new int[]{100, 1000, 10000, 100000};
+    private static final int NUMBER_OF_ITERATIONS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder()
+                .put("index.cache.filter.type", "none")
+                .build();
+        Index index = new Index("test");
+        Injector injector = new ModulesBuilder().add(
+                new SettingsModule(settings),
+                new ThreadPoolModule(settings),
+                new ScriptModule(settings),
+                new MapperServiceModule(),
+                new IndexSettingsModule(index, settings),
+                new IndexCacheModule(settings),
+                new AnalysisModule(settings),
+                new IndexEngineModule(settings),
+                new SimilarityModule(settings),
+                new IndexQueryParserModule(settings),
+                new IndexNameModule(index),
+                new AbstractModule() {
+                    @Override protected void configure() {
+                        bind(PercolatorExecutor.class).asEagerSingleton();
+                    }
+                }
+        ).createInjector();
+
+        PercolatorExecutor percolatorExecutor = injector.getInstance(PercolatorExecutor.class);
+
+        byte[] source = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                .field("field1", 1)
+                .field("field2", "value")
+                .field("field3", "the quick brown fox jumped over the lazy dog word1 word10 word100")
+                .endObject().endObject().copiedBytes();
+
+        // introduce the mappings
+        percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+
+        int registered = 0;
+        for (int numberOfQueries : NUMBER_OF_QUERIES) {
+            Map<String, Query> queries = Maps.newHashMap();
+            for (; registered < numberOfQueries; registered++) {
+                byte[] query = XContentFactory.smileBuilder().startObject()
+                        .field("query", boolQuery().must(termQuery("field3", "word" + registered)).must(termQuery("field2", "value")))
+                        .endObject().copiedBytes();
+                queries.put("test" + registered, percolatorExecutor.parseQuery("test" + registered, query, 0, query.length));
+            }
+            percolatorExecutor.addQueries(queries);
+
+            // warmup
+            PercolatorExecutor.Response percolate = null;
+            for (int i = 0; i < NUMBER_OF_ITERATIONS / 10; i++) {
+                percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+            }
+            StopWatch stopWatch = new StopWatch().start();
+            for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+                percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+            }
+            stopWatch.stop();
+            System.out.println("[" + numberOfQueries + "] queries, [" + percolate.matches().size() + "] matches, percolated [" + NUMBER_OF_ITERATIONS + "] in " + stopWatch.totalTime() + ", TPS " + (NUMBER_OF_ITERATIONS / stopWatch.totalTime().secondsFrac()));
+        }
+    }
+}
@@ -44,6 +44,8 @@ public class ClusterHealthResponse implements ActionResponse, Iterable<ClusterIn
 
     int numberOfDataNodes = 0;
 
+    int numberOfPendingTasks = 0;
+
     int activeShards = 0;
 
     int relocatingShards = 0;
@@ -167,6 +169,17 @@ public class ClusterHealthResponse implements ActionResponse, Iterable<ClusterIn
         return numberOfDataNodes();
     }
 
+    /**
+     * The number of cluster state update tasks waiting to be processed on the master node.
+     */
+    public int numberOfPendingTasks() {
+        return this.numberOfPendingTasks;
+    }
+
+    public int getNumberOfPendingTasks() {
+        return numberOfPendingTasks();
+    }
+
     /**
      * <tt>true</tt> if the waitForXXX has timeout out and did not match.
      */
@@ -207,6 +220,7 @@ public class ClusterHealthResponse implements ActionResponse, Iterable<ClusterIn
         unassignedShards = in.readVInt();
         numberOfNodes = in.readVInt();
         numberOfDataNodes = in.readVInt();
+        numberOfPendingTasks = in.readVInt();
         status = ClusterHealthStatus.fromValue(in.readByte());
         int size = in.readVInt();
         for (int i = 0; i < size; i++) {
@@ -233,6 +247,7 @@ public class ClusterHealthResponse implements ActionResponse, Iterable<ClusterIn
         out.writeVInt(unassignedShards);
         out.writeVInt(numberOfNodes);
         out.writeVInt(numberOfDataNodes);
+        out.writeVInt(numberOfPendingTasks);
         out.writeByte(status.value());
         out.writeVInt(indices.size());
         for (ClusterIndexHealth indexHealth : this) {
@@ -21,9 +21,11 @@ package org.elasticsearch.action.admin.cluster.node.stats;
 
 import org.elasticsearch.action.support.nodes.NodeOperationResponse;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.BytesRecyclerStats;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.indices.NodeIndicesStats;
+import org.elasticsearch.indices.memory.IndexingBufferStats;
 import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.network.NetworkStats;
 import org.elasticsearch.monitor.os.OsStats;
@@ -51,12 +53,16 @@ public class NodeStats extends NodeOperationResponse {
 
     private TransportStats transport;
 
+    private BytesRecyclerStats bytesRecycler;
+
+    private IndexingBufferStats indexingBuffer;
+
     NodeStats() {
     }
 
     public NodeStats(DiscoveryNode node, NodeIndicesStats indices,
                      OsStats os, ProcessStats process, JvmStats jvm, NetworkStats network,
-                     TransportStats transport) {
+                     TransportStats transport, BytesRecyclerStats bytesRecycler, IndexingBufferStats indexingBuffer) {
         super(node);
         this.indices = indices;
         this.os = os;
@@ -64,6 +70,8 @@ public class NodeStats extends NodeOperationResponse {
         this.jvm = jvm;
         this.network = network;
         this.transport = transport;
+        this.bytesRecycler = bytesRecycler;
+        this.indexingBuffer = indexingBuffer;
     }
 
     /**
@@ -144,6 +152,34 @@ public class NodeStats extends NodeOperationResponse {
         return transport();
     }
 
+    /**
+     * Bytes recycler (pooled buffers) statistics.
+     */
+    public BytesRecyclerStats bytesRecycler() {
+        return bytesRecycler;
+    }
+
+    /**
+     * Bytes recycler (pooled buffers) statistics.
+     */
+    public BytesRecyclerStats getBytesRecycler() {
+        return bytesRecycler();
+    }
+
+    /**
+     * How the indexing buffer is split between the shards allocated on the node.
+     */
+    public IndexingBufferStats indexingBuffer() {
+        return indexingBuffer;
+    }
+
+    /**
+     * How the indexing buffer is split between the shards allocated on the node.
+     */
+    public IndexingBufferStats getIndexingBuffer() {
+        return indexingBuffer();
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -170,6 +206,12 @@ public class NodeStats extends NodeOperationResponse {
         if (in.readBoolean()) {
             transport = TransportStats.readTransportStats(in);
         }
+        if (in.readBoolean()) {
+            bytesRecycler = BytesRecyclerStats.readBytesRecyclerStats(in);
+        }
+        if (in.readBoolean()) {
+            indexingBuffer = IndexingBufferStats.readIndexingBufferStats(in);
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -210,5 +252,17 @@ public class NodeStats extends NodeOperationResponse {
             out.writeBoolean(true);
             transport.writeTo(out);
         }
+        if (bytesRecycler == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            bytesRecycler.writeTo(out);
+        }
+        if (indexingBuffer == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            indexingBuffer.writeTo(out);
+        }
     }
 }
\ No newline at end of file
@@ -27,8 +27,10 @@ import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.BytesRecycler;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.memory.IndexingMemoryBufferController;
 import org.elasticsearch.monitor.MonitorService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
@@ -45,12 +47,16 @@ public class TransportNodesStatsAction extends TransportNodesOperationAction<Nod
 
     private final IndicesService indicesService;
 
+    private final IndexingMemoryBufferController indexingMemoryBufferController;
+
     @Inject public TransportNodesStatsAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
                                              ClusterService clusterService, TransportService transportService,
-                                             MonitorService monitorService, IndicesService indicesService) {
+                                             MonitorService monitorService, IndicesService indicesService,
+                                             IndexingMemoryBufferController indexingMemoryBufferController) {
         super(settings, clusterName, threadPool, clusterService, transportService);
         this.monitorService = monitorService;
         this.indicesService = indicesService;
+        this.indexingMemoryBufferController = indexingMemoryBufferController;
     }
 
     @Override protected String executor() {
@@ -96,7 +102,7 @@ public class TransportNodesStatsAction extends TransportNodesOperationAction<Nod
         return new NodeStats(clusterService.state().nodes().localNode(), indicesService.stats(),
                 monitorService.osService().stats(), monitorService.processService().stats(),
                 monitorService.jvmService().stats(), monitorService.networkService().stats(),
-                transportService.stats());
+                transportService.stats(), BytesRecycler.stats(), indexingMemoryBufferController.stats());
     }
 
     @Override protected boolean accumulateExceptions() {
@@ -73,16 +73,19 @@ public class GatewayRecoveryStatus {
 
     final long recoveredIndexSize;
 
+    final long indexThroughput;
+
     final long recoveredTranslogOperations;
 
     public GatewayRecoveryStatus(Stage stage, long startTime, long time, long indexSize, long reusedIndexSize,
-                                 long recoveredIndexSize, long recoveredTranslogOperations) {
+                                 long recoveredIndexSize, long indexThroughput, long recoveredTranslogOperations) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
         this.indexSize = indexSize;
         this.reusedIndexSize = reusedIndexSize;
         this.recoveredIndexSize = recoveredIndexSize;
+        this.indexThroughput = indexThroughput;
         this.recoveredTranslogOperations = recoveredTranslogOperations;
     }
 
@@ -144,6 +147,20 @@ public class GatewayRecoveryStatus {
         return recoveredIndexSize();
     }
 
+    /**
+     * The bytes per sec the index has been recovered at.
+     */
+    public ByteSizeValue indexThroughput() {
+        return new ByteSizeValue(indexThroughput);
+    }
+
+    /**
+     * The bytes per sec the index has been recovered at.
+     */
+    public ByteSizeValue getIndexThroughput() {
+        return indexThroughput();
+    }
+
     public int indexRecoveryProgress() {
         if (recoveredIndexSize == 0) {
             if (indexSize != 0 && indexSize == reusedIndexSize) {
@@ -72,13 +72,20 @@ public class GatewaySnapshotStatus {
 
     final long indexSize;
 
+    final long snapshottedIndexSize;
+
+    final long indexThroughput;
+
     final int expectedNumberOfOperations;
 
-    public GatewaySnapshotStatus(Stage stage, long startTime, long time, long indexSize, int expectedNumberOfOperations) {
+    public GatewaySnapshotStatus(Stage stage, long startTime, long time, long indexSize, long snapshottedIndexSize, long indexThroughput,
+                                 int expectedNumberOfOperations) {
         this.stage = stage;
         this.startTime = startTime;
         this.time = time;
         this.indexSize = indexSize;
+        this.snapshottedIndexSize = snapshottedIndexSize;
+        this.indexThroughput = indexThroughput;
         this.expectedNumberOfOperations = expectedNumberOfOperations;
     }
 
@@ -114,6 +121,34 @@ public class GatewaySnapshotStatus {
         return indexSize();
     }
 
+    /**
+     * How much of the index has been snapshotted.
+     */
+    public ByteSizeValue snapshottedIndexSize() {
+        return new ByteSizeValue(snapshottedIndexSize);
+    }
+
+    /**
+     * How much of the index has been snapshotted.
+     */
+    public ByteSizeValue getSnapshottedIndexSize() {
+        return snapshottedIndexSize();
+    }
+
+    /**
+     * The bytes per sec the index has been snapshotted at.
+     */
+    public ByteSizeValue indexThroughput() {
+        return new ByteSizeValue(indexThroughput);
+    }
+
+    /**
+     * The bytes per sec the index has been snapshotted at.
+     */
+    public ByteSizeValue getIndexThroughput() {
+        return indexThroughput();
+    }
+
     public int expectedNumberOfOperations() {
         return expectedNumberOfOperations;
     }
@@ -251,6 +251,8 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.field(Fields.EXPECTED_RECOVERED_SIZE_IN_BYTES, gatewayRecoveryStatus.expectedRecoveredIndexSize().bytes());
                         builder.field(Fields.RECOVERED_SIZE, gatewayRecoveryStatus.recoveredIndexSize());
                         builder.field(Fields.RECOVERED_SIZE_IN_BYTES, gatewayRecoveryStatus.recoveredIndexSize().bytes());
+                        builder.field(Fields.THROUGHPUT, gatewayRecoveryStatus.indexThroughput() + "/s");
+                        builder.field(Fields.THROUGHPUT_IN_BYTES_PER_SEC, gatewayRecoveryStatus.indexThroughput().bytes());
                         builder.endObject();
 
                         builder.startObject(Fields.TRANSLOG);
@@ -271,6 +273,10 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
                         builder.startObject(Fields.INDEX);
                         builder.field(Fields.SIZE, gatewaySnapshotStatus.indexSize());
                         builder.field(Fields.SIZE_IN_BYTES, gatewaySnapshotStatus.indexSize().bytes());
+                        builder.field(Fields.SNAPSHOTTED_SIZE, gatewaySnapshotStatus.snapshottedIndexSize());
+                        builder.field(Fields.SNAPSHOTTED_SIZE_IN_BYTES, gatewaySnapshotStatus.snapshottedIndexSize().bytes());
+                        builder.field(Fields.THROUGHPUT, gatewaySnapshotStatus.indexThroughput() + "/s");
+                        builder.field(Fields.THROUGHPUT_IN_BYTES_PER_SEC, gatewaySnapshotStatus.indexThroughput().bytes());
                         builder.endObject();
 
                         builder.startObject(Fields.TRANSLOG);
@@ -325,6 +331,10 @@ public class IndicesStatusResponse extends BroadcastOperationResponse implements
         static final XContentBuilderString EXPECTED_RECOVERED_SIZE_IN_BYTES = new XContentBuilderString("expected_recovered_size_in_bytes");
         static final XContentBuilderString RECOVERED_SIZE = new XContentBuilderString("recovered_size");
         static final XContentBuilderString RECOVERED_SIZE_IN_BYTES = new XContentBuilderString("recovered_size_in_bytes");
+        static final XContentBuilderString SNAPSHOTTED_SIZE = new XContentBuilderString("snapshotted_size");
+        static final XContentBuilderString SNAPSHOTTED_SIZE_IN_BYTES = new XContentBuilderString("snapshotted_size_in_bytes");
+        static final XContentBuilderString THROUGHPUT = new XContentBuilderString("throughput");
+        static final XContentBuilderString THROUGHPUT_IN_BYTES_PER_SEC = new XContentBuilderString("throughput_in_bytes_per_sec");
         static final XContentBuilderString RECOVERED = new XContentBuilderString("recovered");
         static final XContentBuilderString GATEWAY_RECOVERY = new XContentBuilderString("gateway_recovery");
         static final XContentBuilderString GATEWAY_SNAPSHOT = new XContentBuilderString("gateway_snapshot");
@@ -277,6 +277,7 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(gatewayRecoveryStatus.indexSize);
             out.writeVLong(gatewayRecoveryStatus.reusedIndexSize);
             out.writeVLong(gatewayRecoveryStatus.recoveredIndexSize);
+            out.writeVLong(gatewayRecoveryStatus.indexThroughput);
             out.writeVLong(gatewayRecoveryStatus.recoveredTranslogOperations);
         }
 
@@ -288,6 +289,8 @@ public class ShardStatus extends BroadcastShardOperationResponse {
             out.writeVLong(gatewaySnapshotStatus.startTime);
             out.writeVLong(gatewaySnapshotStatus.time);
             out.writeVLong(gatewaySnapshotStatus.indexSize);
+            out.writeVLong(gatewaySnapshotStatus.snapshottedIndexSize);
+            out.writeVLong(gatewaySnapshotStatus.indexThroughput);
             out.writeVInt(gatewaySnapshotStatus.expectedNumberOfOperations());
         }
 
@@ -327,12 +330,12 @@ public class ShardStatus extends BroadcastShardOperationResponse {
 
         if (in.readBoolean()) {
             gatewayRecoveryStatus = new GatewayRecoveryStatus(GatewayRecoveryStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong());
         }
 
         if (in.readBoolean()) {
             gatewaySnapshotStatus = new GatewaySnapshotStatus(GatewaySnapshotStatus.Stage.fromValue(in.readByte()),
-                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVInt());
+                    in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVLong(), in.readVInt());
         }
 
         if (in.readBoolean()) {
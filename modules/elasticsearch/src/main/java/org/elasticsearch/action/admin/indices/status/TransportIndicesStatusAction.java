@@ -226,7 +226,7 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                         stage = GatewayRecoveryStatus.Stage.INIT;
                 }
                 shardStatus.gatewayRecoveryStatus = new GatewayRecoveryStatus(stage, gatewayRecoveryStatus.startTime(), gatewayRecoveryStatus.time(),
-                        gatewayRecoveryStatus.index().totalSize(), gatewayRecoveryStatus.index().reusedTotalSize(), gatewayRecoveryStatus.index().currentFilesSize(), gatewayRecoveryStatus.translog().currentTranslogOperations());
+                        gatewayRecoveryStatus.index().totalSize(), gatewayRecoveryStatus.index().reusedTotalSize(), gatewayRecoveryStatus.index().currentFilesSize(), gatewayRecoveryStatus.index().throughput(), gatewayRecoveryStatus.translog().currentTranslogOperations());
             }
         }
 
@@ -256,7 +256,8 @@ public class TransportIndicesStatusAction extends TransportBroadcastOperationAct
                         break;
                 }
                 shardStatus.gatewaySnapshotStatus = new GatewaySnapshotStatus(stage, snapshotStatus.startTime(), snapshotStatus.time(),
-                        snapshotStatus.index().totalSize(), snapshotStatus.translog().expectedNumberOfOperations());
+                        snapshotStatus.index().totalSize(), snapshotStatus.index().currentFilesSize(), snapshotStatus.index().throughput(),
+                        snapshotStatus.translog().expectedNumberOfOperations());
             }
         }
 
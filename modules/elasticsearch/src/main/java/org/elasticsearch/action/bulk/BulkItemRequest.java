@@ -22,6 +22,7 @@ package org.elasticsearch.action.bulk;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -37,6 +38,8 @@ public class BulkItemRequest implements Streamable {
 
     private ActionRequest request;
 
+    private byte[] parsedDoc;
+
     BulkItemRequest() {
 
     }
@@ -54,6 +57,19 @@ public class BulkItemRequest implements Streamable {
         return request;
     }
 
+    /**
+     * The document as parsed on the primary (see {@link org.elasticsearch.index.mapper.ParsedDocumentStreams}),
+     * used by the replicas to apply the operation without parsing the source again.
+     */
+    @Nullable public byte[] parsedDoc() {
+        return parsedDoc;
+    }
+
+    public BulkItemRequest parsedDoc(@Nullable byte[] parsedDoc) {
+        this.parsedDoc = parsedDoc;
+        return this;
+    }
+
     public static BulkItemRequest readBulkItem(StreamInput in) throws IOException {
         BulkItemRequest item = new BulkItemRequest();
         item.readFrom(in);
@@ -69,6 +85,10 @@ public class BulkItemRequest implements Streamable {
             request = new DeleteRequest();
         }
         request.readFrom(in);
+        if (in.readBoolean()) {
+            parsedDoc = new byte[in.readVInt()];
+            in.readFully(parsedDoc);
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -79,5 +99,12 @@ public class BulkItemRequest implements Streamable {
             out.writeByte((byte) 1);
         }
         request.writeTo(out);
+        if (parsedDoc == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeVInt(parsedDoc.length);
+            out.writeBytes(parsedDoc);
+        }
     }
 }
@@ -36,10 +36,14 @@ import org.elasticsearch.cluster.metadata.MappingMetaData;
 import org.elasticsearch.cluster.routing.ShardIterator;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.ParsedDocumentStreams;
 import org.elasticsearch.index.mapper.SourceToParse;
 import org.elasticsearch.index.percolator.PercolatorExecutor;
 import org.elasticsearch.index.service.IndexService;
@@ -107,11 +111,15 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
 
         Engine.IndexingOperation[] ops = null;
 
+        // only bother with writing the parsed docs if there are replicas to apply them
+        boolean hasReplicas = clusterState.routingTable().index(request.index()).shard(request.shardId()).size() > 1;
+
         BulkItemResponse[] responses = new BulkItemResponse[request.items().length];
         for (int i = 0; i < request.items().length; i++) {
             BulkItemRequest item = request.items()[i];
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
+                item.parsedDoc(null);
                 try {
 
                     // validate, if routing is required, that we got routing
@@ -140,6 +148,18 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                     // update the version on request so it will happen on the replicas
                     indexRequest.version(version);
 
+                    // write the parsed doc now, parts of it (cached fields and streams) are reused when parsing the next one
+                    if (hasReplicas && ParsedDocumentStreams.canWrite(op.docMapper(), op.parsedDoc())) {
+                        try {
+                            BytesStreamOutput out = new BytesStreamOutput();
+                            ParsedDocumentStreams.writeParsedDocument(out, op.parsedDoc(), indexRequest.source());
+                            item.parsedDoc(out.copiedByteArray());
+                        } catch (Exception e) {
+                            // ignore, the replicas will parse the source
+                            item.parsedDoc(null);
+                        }
+                    }
+
                     // update mapping on master if needed, we won't update changes to the same type, since once its changed, it won't have mappers added
                     if (op.parsedDoc().mappersAdded()) {
                         updateMappingOnMaster(indexRequest);
@@ -230,11 +250,22 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
     @Override protected void shardOperationOnReplica(ShardOperationRequest shardRequest) {
         IndexShard indexShard = indexShard(shardRequest);
         final BulkShardRequest request = shardRequest.request;
+        MapperService mapperService = indicesService.indexServiceSafe(request.index()).mapperService();
         for (int i = 0; i < request.items().length; i++) {
             BulkItemRequest item = request.items()[i];
             if (item.request() instanceof IndexRequest) {
                 IndexRequest indexRequest = (IndexRequest) item.request();
                 try {
+                    DocumentMapper docMapper = mapperService.documentMapper(indexRequest.type());
+                    ParsedDocument doc = readParsedDoc(docMapper, item, indexRequest);
+                    if (doc != null) {
+                        if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
+                            indexShard.index(new Engine.Index(docMapper, docMapper.uidMapper().term(doc.uid()), doc).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA));
+                        } else {
+                            indexShard.create(new Engine.Create(docMapper, docMapper.uidMapper().term(doc.uid()), doc).version(indexRequest.version()).origin(Engine.Operation.Origin.REPLICA));
+                        }
+                        continue;
+                    }
                     SourceToParse sourceToParse = SourceToParse.source(indexRequest.source()).type(indexRequest.type()).id(indexRequest.id())
                             .routing(indexRequest.routing()).parent(indexRequest.parent());
                     if (indexRequest.opType() == IndexRequest.OpType.INDEX) {
@@ -267,6 +298,21 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         }
     }
 
+    /**
+     * Rebuilds the document parsed on the primary, returning <tt>null</tt> if the source needs to be parsed.
+     */
+    private ParsedDocument readParsedDoc(DocumentMapper docMapper, BulkItemRequest item, IndexRequest indexRequest) {
+        if (item.parsedDoc() == null || docMapper == null) {
+            return null;
+        }
+        try {
+            return ParsedDocumentStreams.readParsedDocument(new BytesStreamInput(item.parsedDoc()), docMapper, indexRequest.source());
+        } catch (Exception e) {
+            logger.debug("failed to read parsed doc for [{}], parsing the source", e, indexRequest);
+            return null;
+        }
+    }
+
     private void updateMappingOnMaster(final IndexRequest request) {
         try {
             MapperService mapperService = indicesService.indexServiceSafe(request.index()).mapperService();
@@ -22,23 +22,22 @@ package org.elasticsearch.action.get;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FieldSelector;
 import org.apache.lucene.document.Fieldable;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchParseException;
 import org.elasticsearch.action.TransportActions;
 import org.elasticsearch.action.support.single.shard.TransportShardSingleOperationAction;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.block.ClusterBlockLevel;
-import org.elasticsearch.common.Unicode;
-import org.elasticsearch.common.bloom.BloomFilter;
+import org.elasticsearch.common.compress.lzf.LZF;
+import org.elasticsearch.common.compress.lzf.LZFDecoder;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.uid.UidField;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.Index;
-import org.elasticsearch.index.cache.bloom.BloomCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.index.service.IndexService;
@@ -48,11 +47,13 @@ import org.elasticsearch.indices.TypeMissingException;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.script.SearchScript;
 import org.elasticsearch.search.lookup.SearchLookup;
+import org.elasticsearch.search.lookup.SourceLookup;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.common.collect.Maps.*;
@@ -93,7 +94,6 @@ public class TransportGetAction extends TransportShardSingleOperationAction<GetR
 
     @Override protected GetResponse shardOperation(GetRequest request, int shardId) throws ElasticSearchException {
         IndexService indexService = indicesService.indexServiceSafe(request.index());
-        BloomCache bloomCache = indexService.cache().bloomCache();
         IndexShard indexShard = indexService.shardSafe(shardId);
 
         DocumentMapper docMapper = indexService.mapperService().documentMapper(request.type());
@@ -105,94 +105,112 @@ public class TransportGetAction extends TransportShardSingleOperationAction<GetR
             indexShard.refresh(new Engine.Refresh(false));
         }
 
-        Engine.Searcher searcher = indexShard.searcher();
-        boolean exists = false;
+        Term uid = docMapper.uidMapper().term(request.type(), request.id());
+        Engine.GetResult get = indexShard.get(new Engine.Get(request.realtime(), uid));
+        if (get.exists() && get.source() != null && !canServeFromSource(request.fields())) {
+            // some of the requested fields can only be loaded from the index, refresh so the document is there
+            get.release();
+            indexShard.refresh(new Engine.Refresh(false));
+            get = indexShard.get(new Engine.Get(false, uid));
+        }
+
+        if (!get.exists()) {
+            get.release();
+            return new GetResponse(request.index(), request.type(), request.id(), -1, false, null, null);
+        }
+
+        if (get.source() != null) {
+            // the document was not refreshed yet, and we got it from the transaction log
+            try {
+                return getFromSource(request, docMapper, get);
+            } finally {
+                get.release();
+            }
+        }
+
         byte[] source = null;
         Map<String, GetField> fields = null;
         long version = -1;
         try {
-            UidField.DocIdAndVersion docIdAndVersion = loadCurrentVersionFromIndex(bloomCache, searcher, docMapper.uidMapper().term(request.type(), request.id()));
-            if (docIdAndVersion != null && docIdAndVersion.docId != Lucene.NO_DOC) {
-                if (docIdAndVersion.version > 0) {
-                    version = docIdAndVersion.version;
-                }
-                exists = true;
-                FieldSelector fieldSelector = buildFieldSelectors(docMapper, request.fields());
-                if (fieldSelector != null) {
-                    Document doc = docIdAndVersion.reader.document(docIdAndVersion.docId, fieldSelector);
-                    source = extractSource(doc, docMapper);
-
-                    for (Object oField : doc.getFields()) {
-                        Fieldable field = (Fieldable) oField;
-                        String name = field.name();
-                        Object value = null;
-                        FieldMappers fieldMappers = docMapper.mappers().indexName(field.name());
-                        if (fieldMappers != null) {
-                            FieldMapper mapper = fieldMappers.mapper();
-                            if (mapper != null) {
-                                name = mapper.names().fullName();
-                                value = mapper.valueForSearch(field);
-                            }
+            UidField.DocIdAndVersion docIdAndVersion = get.docIdAndVersion();
+            if (docIdAndVersion.version > 0) {
+                version = docIdAndVersion.version;
+            }
+            FieldSelector fieldSelector = buildFieldSelectors(docMapper, request.fields());
+            if (fieldSelector != null) {
+                Document doc = docIdAndVersion.reader.document(docIdAndVersion.docId, fieldSelector);
+                source = extractSource(doc, docMapper);
+
+                for (Object oField : doc.getFields()) {
+                    Fieldable field = (Fieldable) oField;
+                    String name = field.name();
+                    Object value = null;
+                    FieldMappers fieldMappers = docMapper.mappers().indexName(field.name());
+                    if (fieldMappers != null) {
+                        FieldMapper mapper = fieldMappers.mapper();
+                        if (mapper != null) {
+                            name = mapper.names().fullName();
+                            value = mapper.valueForSearch(field);
                         }
-                        if (value == null) {
-                            if (field.isBinary()) {
-                                value = field.getBinaryValue();
-                            } else {
-                                value = field.stringValue();
-                            }
+                    }
+                    if (value == null) {
+                        if (field.isBinary()) {
+                            value = field.getBinaryValue();
+                        } else {
+                            value = field.stringValue();
                         }
+                    }
 
-                        if (fields == null) {
-                            fields = newHashMapWithExpectedSize(2);
-                        }
+                    if (fields == null) {
+                        fields = newHashMapWithExpectedSize(2);
+                    }
 
-                        GetField getField = fields.get(name);
-                        if (getField == null) {
-                            getField = new GetField(name, new ArrayList<Object>(2));
-                            fields.put(name, getField);
-                        }
-                        getField.values().add(value);
+                    GetField getField = fields.get(name);
+                    if (getField == null) {
+                        getField = new GetField(name, new ArrayList<Object>(2));
+                        fields.put(name, getField);
                     }
+                    getField.values().add(value);
                 }
+            }
 
-                // now, go and do the script thingy if needed
-                if (request.fields() != null && request.fields().length > 0) {
-                    SearchLookup searchLookup = null;
-                    for (String field : request.fields()) {
-                        String script = null;
-                        if (field.contains("_source.") || field.contains("doc[")) {
-                            script = field;
-                        } else {
-                            FieldMappers x = docMapper.mappers().smartName(field);
-                            if (x != null && !x.mapper().stored()) {
-                                script = "_source." + x.mapper().names().fullName();
-                            }
+            // now, go and do the script thingy if needed
+            if (request.fields() != null && request.fields().length > 0) {
+                SearchLookup searchLookup = null;
+                for (String field : request.fields()) {
+                    String script = null;
+                    if (field.contains("_source.") || field.contains("doc[")) {
+                        script = field;
+                    } else {
+                        FieldMappers x = docMapper.mappers().smartName(field);
+                        if (x != null && !x.mapper().stored()) {
+                            script = "_source." + x.mapper().names().fullName();
+                        }
+                    }
+                    if (script != null) {
+                        if (searchLookup == null) {
+                            searchLookup = new SearchLookup(indexService.mapperService(), indexService.cache().fieldData());
                         }
-                        if (script != null) {
-                            if (searchLookup == null) {
-                                searchLookup = new SearchLookup(indexService.mapperService(), indexService.cache().fieldData());
+                        SearchScript searchScript = scriptService.search(searchLookup, "mvel", script, null);
+                        searchScript.setNextReader(docIdAndVersion.reader);
+                        searchScript.setNextDocId(docIdAndVersion.docId);
+
+                        try {
+                            Object value = searchScript.run();
+                            if (fields == null) {
+                                fields = newHashMapWithExpectedSize(2);
+                            }
+                            GetField getField = fields.get(field);
+                            if (getField == null) {
+                                getField = new GetField(field, new ArrayList<Object>(2));
+                                fields.put(field, getField);
                             }
-                            SearchScript searchScript = scriptService.search(searchLookup, "mvel", script, null);
-                            searchScript.setNextReader(docIdAndVersion.reader);
-                            searchScript.setNextDocId(docIdAndVersion.docId);
-
-                            try {
-                                Object value = searchScript.run();
-                                if (fields == null) {
-                                    fields = newHashMapWithExpectedSize(2);
-                                }
-                                GetField getField = fields.get(field);
-                                if (getField == null) {
-                                    getField = new GetField(field, new ArrayList<Object>(2));
-                                    fields.put(field, getField);
-                                }
-                                getField.values().add(value);
-                            } catch (RuntimeException e) {
-                                if (logger.isTraceEnabled()) {
-                                    logger.trace("failed to execute get request script field [{}]", e, script);
-                                }
-                                // ignore
+                            getField.values().add(value);
+                        } catch (RuntimeException e) {
+                            if (logger.isTraceEnabled()) {
+                                logger.trace("failed to execute get request script field [{}]", e, script);
                             }
+                            // ignore
                         }
                     }
                 }
@@ -200,9 +218,97 @@ public class TransportGetAction extends TransportShardSingleOperationAction<GetR
         } catch (IOException e) {
             throw new ElasticSearchException("Failed to get type [" + request.type() + "] and id [" + request.id() + "]", e);
         } finally {
-            searcher.release();
+            get.release();
+        }
+        return new GetResponse(request.index(), request.type(), request.id(), version, true, source, fields);
+    }
+
+    /**
+     * Can the requested fields be extracted from the source alone, without the document being in the index.
+     */
+    private boolean canServeFromSource(String[] fields) {
+        if (fields == null) {
+            return true;
+        }
+        for (String field : fields) {
+            if (field.equals(SourceFieldMapper.NAME) || field.startsWith("_source.")) {
+                continue;
+            }
+            // script on doc values, or internal stored fields that are not part of the source
+            if (field.contains("doc[") || field.startsWith("_")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private GetResponse getFromSource(GetRequest request, DocumentMapper docMapper, Engine.GetResult get) {
+        long version = get.version() > 0 ? get.version() : -1;
+        byte[] source = null;
+        Map<String, GetField> fields = null;
+
+        if (request.fields() == null) {
+            source = get.source();
+        } else if (request.fields().length > 0) {
+            SourceLookup sourceLookup = new SourceLookup();
+            sourceLookup.setNextSource(sourceAsMap(get.source()));
+            for (String field : request.fields()) {
+                if (field.equals(SourceFieldMapper.NAME)) {
+                    source = get.source();
+                    continue;
+                }
+                String name = field;
+                String path;
+                if (field.startsWith("_source.")) {
+                    path = field.substring("_source.".length());
+                } else {
+                    FieldMappers x = docMapper.mappers().smartName(field);
+                    if (x != null) {
+                        path = x.mapper().names().fullName();
+                        if (x.mapper().stored()) {
+                            // keep the same naming as when loading stored fields from the index
+                            name = path;
+                        }
+                    } else {
+                        path = field;
+                    }
+                }
+                List<Object> values = sourceLookup.getValues(path);
+                if (values.isEmpty()) {
+                    continue;
+                }
+                if (fields == null) {
+                    fields = newHashMapWithExpectedSize(2);
+                }
+                GetField getField = fields.get(name);
+                if (getField == null) {
+                    getField = new GetField(name, new ArrayList<Object>(values.size()));
+                    fields.put(name, getField);
+                }
+                getField.values().addAll(values);
+            }
+        }
+        if (!docMapper.sourceMapper().enabled()) {
+            source = null;
+        }
+        return new GetResponse(request.index(), request.type(), request.id(), version, true, source, fields);
+    }
+
+    private Map<String, Object> sourceAsMap(byte[] source) {
+        XContentParser parser = null;
+        try {
+            if (LZF.isCompressed(source)) {
+                source = LZFDecoder.decode(source);
+            }
+            parser = XContentFactory.xContent(source).createParser(source);
+            return parser.map();
+        } catch (Exception e) {
+            throw new ElasticSearchParseException("failed to parse source", e);
+        } finally {
+            if (parser != null) {
+                parser.close();
+            }
         }
-        return new GetResponse(request.index(), request.type(), request.id(), version, exists, source, fields);
     }
 
     private FieldSelector buildFieldSelectors(DocumentMapper docMapper, String... fields) {
@@ -239,23 +345,6 @@ public class TransportGetAction extends TransportShardSingleOperationAction<GetR
         return source;
     }
 
-    private UidField.DocIdAndVersion loadCurrentVersionFromIndex(BloomCache bloomCache, Engine.Searcher searcher, Term uid) {
-        UnicodeUtil.UTF8Result utf8 = Unicode.fromStringAsUtf8(uid.text());
-        for (IndexReader reader : searcher.searcher().subReaders()) {
-            BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, true);
-            // we know that its not there...
-            if (!filter.isPresent(utf8.result, 0, utf8.length)) {
-                continue;
-            }
-            UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(reader, uid);
-            // not null if it exists
-            if (docIdAndVersion != null) {
-                return docIdAndVersion;
-            }
-        }
-        return null;
-    }
-
     @Override protected GetRequest newRequest() {
         return new GetRequest();
     }
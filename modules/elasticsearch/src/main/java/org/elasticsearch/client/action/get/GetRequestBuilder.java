@@ -99,6 +99,15 @@ public class GetRequestBuilder extends BaseRequestBuilder<GetRequest, GetRespons
         return this;
     }
 
+    /**
+     * Should the get be realtime, returning the latest indexed value of the document even if it
+     * has not been refreshed yet. Defaults to <tt>true</tt>.
+     */
+    public GetRequestBuilder setRealtime(boolean realtime) {
+        request.realtime(realtime);
+        return this;
+    }
+
     /**
      * Should the listener be called on a separate thread if needed.
      */
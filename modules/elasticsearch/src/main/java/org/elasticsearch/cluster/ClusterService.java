@@ -73,4 +73,9 @@ public interface ClusterService extends LifecycleComponent<ClusterService> {
      * Submits a task that will update the cluster state.
      */
     void submitStateUpdateTask(final String source, final ClusterStateUpdateTask updateTask);
+
+    /**
+     * The number of submitted update tasks that are still waiting to be processed.
+     */
+    int numberOfPendingTasks();
 }
@@ -222,9 +222,14 @@ public class ClusterState {
         }
 
         public static byte[] toBytes(ClusterState state) throws IOException {
-            BytesStreamOutput os = CachedStreamOutput.cachedBytes();
-            writeTo(state, os);
-            return os.copiedByteArray();
+            CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+            try {
+                BytesStreamOutput os = cachedEntry.cachedBytes();
+                writeTo(state, os);
+                return os.copiedByteArray();
+            } finally {
+                CachedStreamOutput.pushEntry(cachedEntry);
+            }
         }
 
         public static ClusterState fromBytes(byte[] data, DiscoveryNode localNode) throws IOException {
@@ -240,6 +245,42 @@ public class ClusterState {
             state.allocationExplanation().writeTo(out);
         }
 
+        /**
+         * Writes the cluster state as a diff from the previous cluster state published by the same master,
+         * see {@link #readDiffFrom(StreamInput, ClusterState, DiscoveryNode)}.
+         */
+        public static void writeDiffTo(ClusterState previous, ClusterState state, StreamOutput out) throws IOException {
+            out.writeUTF(state.nodes().masterNodeId());
+            out.writeLong(previous.version());
+            out.writeLong(state.version());
+            MetaData.Builder.writeDiffTo(previous.metaData(), state.metaData(), out);
+            RoutingTable.Builder.writeDiffTo(previous.routingTable(), state.routingTable(), out);
+            DiscoveryNodes.Builder.writeTo(state.nodes(), out);
+            ClusterBlocks.Builder.writeClusterBlocks(state.blocks(), out);
+            state.allocationExplanation().writeTo(out);
+        }
+
+        /**
+         * Reads a cluster state diff, applying it on the previous cluster state. Fails with {@link IncompatibleClusterStateVersionException}
+         * if the diff was not computed against the previous cluster state (another version, or from another master).
+         */
+        public static ClusterState readDiffFrom(StreamInput in, @Nullable ClusterState previous, @Nullable DiscoveryNode localNode) throws IOException {
+            String masterNodeId = in.readUTF();
+            long previousVersion = in.readLong();
+            if (previous == null || previous.version() != previousVersion || !masterNodeId.equals(previous.nodes().masterNodeId())) {
+                throw new IncompatibleClusterStateVersionException("cluster state diff from [" + masterNodeId + "] is based on version [" + previousVersion + "], local version is [" +
+                        (previous == null ? "none" : previous.version() + "] from [" + previous.nodes().masterNodeId()) + "]");
+            }
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.metaData = MetaData.Builder.readDiffFrom(previous.metaData(), in);
+            builder.routingTable = RoutingTable.Builder.readDiffFrom(previous.routingTable(), in);
+            builder.nodes = DiscoveryNodes.Builder.readFrom(in, localNode);
+            builder.blocks = ClusterBlocks.Builder.readClusterBlocks(in);
+            builder.allocationExplanation = AllocationExplanation.readAllocationExplanation(in);
+            return builder.build();
+        }
+
         public static ClusterState readFrom(StreamInput in, @Nullable DiscoveryNode localNode) throws IOException {
             Builder builder = new Builder();
             builder.version = in.readLong();
@@ -37,14 +37,17 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.io.stream.VoidStreamable;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.jsr166y.LinkedTransferQueue;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
 
 import static org.elasticsearch.cluster.ClusterState.*;
 import static org.elasticsearch.cluster.routing.ImmutableShardRouting.*;
-import static org.elasticsearch.common.collect.Lists.*;
 
 /**
  * @author kimchy (Shay Banon)
@@ -59,6 +62,10 @@ public class ShardStateAction extends AbstractComponent {
 
     private final ThreadPool threadPool;
 
+    private final BlockingQueue<ShardRoutingEntry> startedShardsQueue = new LinkedTransferQueue<ShardRoutingEntry>();
+
+    private final BlockingQueue<ShardRoutingEntry> failedShardsQueue = new LinkedTransferQueue<ShardRoutingEntry>();
+
     @Inject public ShardStateAction(Settings settings, ClusterService clusterService, TransportService transportService,
                                     ShardsAllocation shardsAllocation, ThreadPool threadPool) {
         super(settings);
@@ -105,59 +112,102 @@ public class ShardStateAction extends AbstractComponent {
 
     private void innerShardFailed(final ShardRouting shardRouting, final String reason) {
         logger.warn("received shard failed for {}, reason [{}]", shardRouting, reason);
+        failedShardsQueue.add(new ShardRoutingEntry(shardRouting, reason));
         clusterService.submitStateUpdateTask("shard-failed (" + shardRouting + "), reason [" + reason + "]", new ClusterStateUpdateTask() {
             @Override public ClusterState execute(ClusterState currentState) {
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Received failed shard {}, reason [{}]", shardRouting, reason);
-                }
-                RoutingAllocation.Result routingResult = shardsAllocation.applyFailedShard(currentState, shardRouting);
-                if (!routingResult.changed()) {
+                // apply all the failed shards queued so far with a single reroute
+                List<ShardRoutingEntry> entries = new ArrayList<ShardRoutingEntry>(failedShardsQueue);
+                if (entries.isEmpty()) {
+                    // already applied by a previous task
                     return currentState;
                 }
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Applying failed shard {}, reason [{}]", shardRouting, reason);
-                }
-                return newClusterStateBuilder().state(currentState).routingResult(routingResult).build();
+                ClusterState newState = applyFailedShards(currentState, entries);
+                // only remove them once applied, so they are not lost if applying them failed
+                failedShardsQueue.removeAll(entries);
+                return newState;
             }
         });
     }
 
+    private ClusterState applyFailedShards(ClusterState currentState, List<ShardRoutingEntry> entries) {
+        List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<ShardRouting>(entries.size());
+        for (ShardRoutingEntry entry : entries) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Received failed shard {}, reason [{}]", entry.shardRouting, entry.reason);
+            }
+            shardRoutingsToBeApplied.add(entry.shardRouting);
+        }
+        RoutingAllocation.Result routingResult = shardsAllocation.applyFailedShards(currentState, shardRoutingsToBeApplied);
+        if (!routingResult.changed()) {
+            return currentState;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Applying [{}] failed shards", shardRoutingsToBeApplied.size());
+        }
+        return newClusterStateBuilder().state(currentState).routingResult(routingResult).build();
+    }
+
     private void innerShardStarted(final ShardRouting shardRouting, final String reason) {
         if (logger.isDebugEnabled()) {
             logger.debug("received shard started for {}, reason [{}]", shardRouting, reason);
         }
+        startedShardsQueue.add(new ShardRoutingEntry(shardRouting, reason));
         clusterService.submitStateUpdateTask("shard-started (" + shardRouting + "), reason [" + reason + "]", new ClusterStateUpdateTask() {
             @Override public ClusterState execute(ClusterState currentState) {
-                RoutingTable routingTable = currentState.routingTable();
-                IndexRoutingTable indexRoutingTable = routingTable.index(shardRouting.index());
-                // if there is no routing table, the index has been deleted while it was being allocated
-                // which is fine, we should just ignore this
-                if (indexRoutingTable == null) {
+                // apply all the started shards queued so far with a single reroute
+                List<ShardRoutingEntry> entries = new ArrayList<ShardRoutingEntry>(startedShardsQueue);
+                if (entries.isEmpty()) {
+                    // already applied by a previous task
                     return currentState;
                 }
-                // find the one that maps to us, if its already started, no need to do anything...
-                // the shard might already be started since the nodes that is starting the shards might get cluster events
-                // with the shard still initializing, and it will try and start it again (until the verification comes)
-                IndexShardRoutingTable indexShardRoutingTable = indexRoutingTable.shard(shardRouting.id());
-                for (ShardRouting entry : indexShardRoutingTable) {
-                    if (shardRouting.currentNodeId().equals(entry.currentNodeId())) {
-                        // we found the same shard that exists on the same node id
-                        if (entry.started()) {
-                            // already started, do nothing here...
-                            return currentState;
-                        }
+                ClusterState newState = applyStartedShards(currentState, entries);
+                // only remove them once applied, so they are not lost if applying them failed
+                startedShardsQueue.removeAll(entries);
+                return newState;
+            }
+        });
+    }
+
+    private ClusterState applyStartedShards(ClusterState currentState, List<ShardRoutingEntry> entries) {
+        RoutingTable routingTable = currentState.routingTable();
+        List<ShardRouting> shardRoutingsToBeApplied = new ArrayList<ShardRouting>(entries.size());
+        for (ShardRoutingEntry entry : entries) {
+            ShardRouting shardRouting = entry.shardRouting;
+            IndexRoutingTable indexRoutingTable = routingTable.index(shardRouting.index());
+            // if there is no routing table, the index has been deleted while it was being allocated
+            // which is fine, we should just ignore this
+            if (indexRoutingTable == null) {
+                continue;
+            }
+            // find the one that maps to us, if its already started, no need to do anything...
+            // the shard might already be started since the nodes that is starting the shards might get cluster events
+            // with the shard still initializing, and it will try and start it again (until the verification comes)
+            IndexShardRoutingTable indexShardRoutingTable = indexRoutingTable.shard(shardRouting.id());
+            boolean applyShardEvent = true;
+            for (ShardRouting shard : indexShardRoutingTable) {
+                if (shardRouting.currentNodeId().equals(shard.currentNodeId())) {
+                    // we found the same shard that exists on the same node id
+                    if (shard.started()) {
+                        // already started, do nothing here...
+                        applyShardEvent = false;
                     }
                 }
+            }
+            if (applyShardEvent) {
                 if (logger.isDebugEnabled()) {
-                    logger.debug("applying started shard {}, reason [{}]", shardRouting, reason);
+                    logger.debug("applying started shard {}, reason [{}]", shardRouting, entry.reason);
                 }
-                RoutingAllocation.Result routingResult = shardsAllocation.applyStartedShards(currentState, newArrayList(shardRouting));
-                if (!routingResult.changed()) {
-                    return currentState;
-                }
-                return newClusterStateBuilder().state(currentState).routingResult(routingResult).build();
+                shardRoutingsToBeApplied.add(shardRouting);
             }
-        });
+        }
+        if (shardRoutingsToBeApplied.isEmpty()) {
+            return currentState;
+        }
+        RoutingAllocation.Result routingResult = shardsAllocation.applyStartedShards(currentState, shardRoutingsToBeApplied);
+        if (!routingResult.changed()) {
+            return currentState;
+        }
+        return newClusterStateBuilder().state(currentState).routingResult(routingResult).build();
     }
 
     private class ShardFailedTransportHandler extends BaseTransportRequestHandler<ShardRoutingEntry> {
@@ -423,5 +423,55 @@ public class MetaData implements Iterable<IndexMetaData> {
                 IndexTemplateMetaData.Builder.writeTo(template, out);
             }
         }
+
+        /**
+         * Writes only the indices that changed compared to the previous meta data (index meta data is immutable and
+         * kept as is when not changed), the indices removed from it, and all the templates. Read using
+         * {@link #readDiffFrom(MetaData, StreamInput)}.
+         */
+        public static void writeDiffTo(MetaData previous, MetaData metaData, StreamOutput out) throws IOException {
+            List<IndexMetaData> changed = Lists.newArrayList();
+            for (IndexMetaData indexMetaData : metaData) {
+                if (previous.indices.get(indexMetaData.index()) != indexMetaData) {
+                    changed.add(indexMetaData);
+                }
+            }
+            out.writeVInt(changed.size());
+            for (IndexMetaData indexMetaData : changed) {
+                IndexMetaData.Builder.writeTo(indexMetaData, out);
+            }
+            List<String> removed = Lists.newArrayList();
+            for (String index : previous.indices.keySet()) {
+                if (!metaData.indices.containsKey(index)) {
+                    removed.add(index);
+                }
+            }
+            out.writeVInt(removed.size());
+            for (String index : removed) {
+                out.writeUTF(index);
+            }
+            out.writeVInt(metaData.templates.size());
+            for (IndexTemplateMetaData template : metaData.templates.values()) {
+                IndexTemplateMetaData.Builder.writeTo(template, out);
+            }
+        }
+
+        public static MetaData readDiffFrom(MetaData previous, StreamInput in) throws IOException {
+            Builder builder = new Builder();
+            builder.indices.putAll(previous.indices);
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexMetaData.Builder.readFrom(in));
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.remove(in.readUTF());
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexTemplateMetaData.Builder.readFrom(in));
+            }
+            return builder.build();
+        }
     }
 }
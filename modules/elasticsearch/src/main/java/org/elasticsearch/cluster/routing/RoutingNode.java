@@ -34,6 +34,13 @@ public class RoutingNode implements Iterable<MutableShardRouting> {
 
     private final List<MutableShardRouting> shards;
 
+    // counts of the recoveries on this node, computed lazily, see #resetShardCounts
+    private boolean shardCountsComputed = false;
+
+    private int recoveries;
+
+    private int initializingPrimaries;
+
     public RoutingNode(String nodeId) {
         this(nodeId, new ArrayList<MutableShardRouting>());
     }
@@ -58,6 +65,7 @@ public class RoutingNode implements Iterable<MutableShardRouting> {
     public void add(MutableShardRouting shard) {
         shards.add(shard);
         shard.assignToNode(nodeId);
+        resetShardCounts();
     }
 
     public void removeByShardId(int shardId) {
@@ -132,6 +140,50 @@ public class RoutingNode implements Iterable<MutableShardRouting> {
         return count;
     }
 
+    /**
+     * The number of shards recovering on this node, both as the target (INITIALIZING) and as the source
+     * (RELOCATING) of the recovery.
+     */
+    public int numberOfRecoveries() {
+        computeShardCounts();
+        return recoveries;
+    }
+
+    /**
+     * The number of primary shards initializing on this node.
+     */
+    public int numberOfInitializingPrimaries() {
+        computeShardCounts();
+        return initializingPrimaries;
+    }
+
+    /**
+     * The recovery counts are computed once and cached, shards added through {@link #add(MutableShardRouting)}
+     * reset them, other changes to the shards of this node should call this method for them to be recomputed.
+     */
+    public void resetShardCounts() {
+        shardCountsComputed = false;
+    }
+
+    private void computeShardCounts() {
+        if (shardCountsComputed) {
+            return;
+        }
+        recoveries = 0;
+        initializingPrimaries = 0;
+        for (MutableShardRouting shardEntry : shards) {
+            if (shardEntry.state() == ShardRoutingState.INITIALIZING) {
+                recoveries++;
+                if (shardEntry.primary()) {
+                    initializingPrimaries++;
+                }
+            } else if (shardEntry.state() == ShardRoutingState.RELOCATING) {
+                recoveries++;
+            }
+        }
+        shardCountsComputed = true;
+    }
+
     public String prettyPrint() {
         StringBuilder sb = new StringBuilder();
         sb.append("-----node_id[").append(nodeId).append("]\n");
@@ -22,6 +22,7 @@ package org.elasticsearch.cluster.routing;
 import org.elasticsearch.cluster.block.ClusterBlocks;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.trove.map.hash.TIntObjectHashMap;
 import org.elasticsearch.common.util.concurrent.NotThreadSafe;
 
 import java.util.*;
@@ -47,6 +48,23 @@ public class RoutingNodes implements Iterable<RoutingNode> {
 
     private final List<MutableShardRouting> ignoredUnassigned = newArrayList();
 
+    // all the shard routing instances (assigned or not) grouped by index and shard id, allowing to look up the copies
+    // of a shard without walking all the nodes, entries that are no longer part of the routing nodes are filtered on lookup
+    private final Map<String, TIntObjectHashMap<List<MutableShardRouting>>> shardsByIndex = newHashMap();
+
+    private int totalNumberOfShards = -1;
+
+    // cluster wide shard counts, computed lazily, see #resetShardCounts
+    private boolean shardCountsComputed = false;
+
+    private int relocatingShards;
+
+    private int inactiveShards;
+
+    private int inactivePrimaries;
+
+    private int unassignedPrimaries;
+
     public RoutingNodes(MetaData metaData, ClusterBlocks blocks, RoutingTable routingTable) {
         this.metaData = metaData;
         this.blocks = blocks;
@@ -61,7 +79,9 @@ public class RoutingNodes implements Iterable<RoutingNode> {
                             entries = newArrayList();
                             nodesToShards.put(shard.currentNodeId(), entries);
                         }
-                        entries.add(new MutableShardRouting(shard));
+                        MutableShardRouting mutableShard = new MutableShardRouting(shard);
+                        entries.add(mutableShard);
+                        registerShard(mutableShard);
                         if (shard.relocating()) {
                             entries = nodesToShards.get(shard.relocatingNodeId());
                             if (entries == null) {
@@ -70,11 +90,15 @@ public class RoutingNodes implements Iterable<RoutingNode> {
                             }
                             // add the counterpart shard with relocatingNodeId reflecting the source from which
                             // it's relocating from.
-                            entries.add(new MutableShardRouting(shard.index(), shard.id(), shard.relocatingNodeId(),
-                                    shard.currentNodeId(), shard.primary(), ShardRoutingState.INITIALIZING));
+                            MutableShardRouting targetShard = new MutableShardRouting(shard.index(), shard.id(), shard.relocatingNodeId(),
+                                    shard.currentNodeId(), shard.primary(), ShardRoutingState.INITIALIZING);
+                            entries.add(targetShard);
+                            registerShard(targetShard);
                         }
                     } else {
-                        unassigned.add(new MutableShardRouting(shard));
+                        MutableShardRouting mutableShard = new MutableShardRouting(shard);
+                        unassigned.add(mutableShard);
+                        registerShard(mutableShard);
                     }
                 }
             }
@@ -114,16 +138,92 @@ public class RoutingNodes implements Iterable<RoutingNode> {
     }
 
     public int requiredAverageNumberOfShardsPerNode() {
-        int totalNumberOfShards = 0;
-        // we need to recompute to take closed shards into account
-        for (IndexMetaData indexMetaData : metaData.indices().values()) {
-            if (indexMetaData.state() == IndexMetaData.State.OPEN) {
-                totalNumberOfShards += indexMetaData.totalNumberOfShards();
+        if (totalNumberOfShards == -1) {
+            // we need to compute it (and not use the routing table) to take closed shards into account,
+            // the meta data does not change for the lifetime of the routing nodes, so compute it once
+            int totalNumberOfShards = 0;
+            for (IndexMetaData indexMetaData : metaData.indices().values()) {
+                if (indexMetaData.state() == IndexMetaData.State.OPEN) {
+                    totalNumberOfShards += indexMetaData.totalNumberOfShards();
+                }
             }
+            this.totalNumberOfShards = totalNumberOfShards;
         }
         return totalNumberOfShards / nodesToShards.size();
     }
 
+    /**
+     * The number of shards in relocation (counting the source of the relocation).
+     */
+    public int relocatingShards() {
+        computeShardCounts();
+        return relocatingShards;
+    }
+
+    /**
+     * The number of assigned shards that are not active yet.
+     */
+    public int inactiveShards() {
+        computeShardCounts();
+        return inactiveShards;
+    }
+
+    /**
+     * The number of assigned primary shards that are not active yet.
+     */
+    public int inactivePrimaries() {
+        computeShardCounts();
+        return inactivePrimaries;
+    }
+
+    /**
+     * The number of unassigned primary shards.
+     */
+    public int unassignedPrimaries() {
+        computeShardCounts();
+        return unassignedPrimaries;
+    }
+
+    /**
+     * The cluster wide (and per node) shard counts are computed once and cached, this should be called after the
+     * routing nodes are changed in order for them to be recomputed.
+     */
+    public void resetShardCounts() {
+        shardCountsComputed = false;
+        for (RoutingNode routingNode : nodesToShards.values()) {
+            routingNode.resetShardCounts();
+        }
+    }
+
+    private void computeShardCounts() {
+        if (shardCountsComputed) {
+            return;
+        }
+        relocatingShards = 0;
+        inactiveShards = 0;
+        inactivePrimaries = 0;
+        unassignedPrimaries = 0;
+        for (RoutingNode routingNode : nodesToShards.values()) {
+            for (MutableShardRouting shard : routingNode) {
+                if (shard.state() == ShardRoutingState.RELOCATING) {
+                    relocatingShards++;
+                }
+                if (!shard.active()) {
+                    inactiveShards++;
+                    if (shard.primary()) {
+                        inactivePrimaries++;
+                    }
+                }
+            }
+        }
+        for (MutableShardRouting shard : unassigned) {
+            if (shard.primary()) {
+                unassignedPrimaries++;
+            }
+        }
+        shardCountsComputed = true;
+    }
+
     public boolean hasUnassigned() {
         return !unassigned.isEmpty();
     }
@@ -152,13 +252,33 @@ public class RoutingNodes implements Iterable<RoutingNode> {
         return nodesToShards.get(nodeId);
     }
 
+    /**
+     * Registers a shard routing instance created while allocating (for example, the target of a relocation
+     * or a failed shard moved back to unassigned), so it will be visible when looking up shards by their id.
+     */
+    public void registerShard(MutableShardRouting shard) {
+        TIntObjectHashMap<List<MutableShardRouting>> indexShards = shardsByIndex.get(shard.index());
+        if (indexShards == null) {
+            indexShards = new TIntObjectHashMap<List<MutableShardRouting>>();
+            shardsByIndex.put(shard.index(), indexShards);
+        }
+        List<MutableShardRouting> shards = indexShards.get(shard.id());
+        if (shards == null) {
+            shards = new ArrayList<MutableShardRouting>(2);
+            indexShards.put(shard.id(), shards);
+        }
+        shards.add(shard);
+    }
+
     public MutableShardRouting findPrimaryForReplica(ShardRouting shard) {
         assert !shard.primary();
-        for (RoutingNode routingNode : nodesToShards.values()) {
-            for (MutableShardRouting shardRouting : routingNode) {
-                if (shardRouting.shardId().equals(shard.shardId()) && shardRouting.primary()) {
-                    return shardRouting;
-                }
+        List<MutableShardRouting> shards = registeredShards(shard.index(), shard.id());
+        if (shards == null) {
+            return null;
+        }
+        for (MutableShardRouting shardRouting : shards) {
+            if (shardRouting.primary() && shardRouting.assignedToNode() && isRouted(shardRouting)) {
+                return shardRouting;
             }
         }
         return null;
@@ -169,20 +289,83 @@ public class RoutingNodes implements Iterable<RoutingNode> {
     }
 
     public List<MutableShardRouting> shardsRoutingFor(String index, int shardId) {
-        List<MutableShardRouting> shards = newArrayList();
-        for (RoutingNode routingNode : this) {
-            for (MutableShardRouting shardRouting : routingNode) {
-                if (shardRouting.index().equals(index) && shardRouting.id() == shardId) {
-                    shards.add(shardRouting);
+        List<MutableShardRouting> shards = registeredShards(index, shardId);
+        if (shards == null) {
+            return newArrayList();
+        }
+        List<MutableShardRouting> result = newArrayListWithCapacity(shards.size());
+        for (MutableShardRouting shardRouting : shards) {
+            if (isRouted(shardRouting)) {
+                result.add(shardRouting);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The copies of the provided shard that are assigned to a node.
+     */
+    public List<MutableShardRouting> assignedShards(ShardRouting shardRouting) {
+        List<MutableShardRouting> shards = registeredShards(shardRouting.index(), shardRouting.id());
+        if (shards == null) {
+            return newArrayList();
+        }
+        List<MutableShardRouting> result = newArrayListWithCapacity(shards.size());
+        for (MutableShardRouting shard : shards) {
+            if (shard.assignedToNode() && isRouted(shard)) {
+                result.add(shard);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Is there a copy of the provided shard allocated on the provided node.
+     */
+    public boolean hasShardOnNode(ShardRouting shardRouting, String nodeId) {
+        List<MutableShardRouting> shards = registeredShards(shardRouting.index(), shardRouting.id());
+        if (shards == null) {
+            return false;
+        }
+        for (MutableShardRouting shard : shards) {
+            if (shard.assignedToNode() && nodeId.equals(shard.currentNodeId()) && isRouted(shard)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<MutableShardRouting> registeredShards(String index, int shardId) {
+        TIntObjectHashMap<List<MutableShardRouting>> indexShards = shardsByIndex.get(index);
+        if (indexShards == null) {
+            return null;
+        }
+        return indexShards.get(shardId);
+    }
+
+    /**
+     * Is the shard routing instance still part of the routing nodes, either assigned to its node, or in the
+     * unassigned list.
+     */
+    private boolean isRouted(MutableShardRouting shard) {
+        if (shard.assignedToNode()) {
+            RoutingNode routingNode = nodesToShards.get(shard.currentNodeId());
+            if (routingNode == null) {
+                return false;
+            }
+            for (MutableShardRouting shardRouting : routingNode.shards()) {
+                if (shardRouting == shard) {
+                    return true;
                 }
             }
+            return false;
         }
         for (MutableShardRouting shardRouting : unassigned) {
-            if (shardRouting.index().equals(index) && shardRouting.id() == shardId) {
-                shards.add(shardRouting);
+            if (shardRouting == shard) {
+                return true;
             }
         }
-        return shards;
+        return false;
     }
 
     public int numberOfShardsOfType(ShardRoutingState state) {
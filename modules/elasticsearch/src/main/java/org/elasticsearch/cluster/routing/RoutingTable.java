@@ -319,6 +319,80 @@ public class RoutingTable implements Iterable<IndexRoutingTable> {
                 IndexRoutingTable.Builder.writeTo(index, out);
             }
         }
+
+        /**
+         * Writes only the index routing tables that changed compared to the previous routing table, and the
+         * indices removed from it. Read using {@link #readDiffFrom(RoutingTable, StreamInput)}.
+         */
+        public static void writeDiffTo(RoutingTable previous, RoutingTable table, StreamOutput out) throws IOException {
+            List<IndexRoutingTable> changed = newArrayList();
+            for (IndexRoutingTable index : table.indicesRouting.values()) {
+                IndexRoutingTable previousIndex = previous.indicesRouting.get(index.index());
+                if (previousIndex == null || !sameRouting(previousIndex, index)) {
+                    changed.add(index);
+                }
+            }
+            out.writeVInt(changed.size());
+            for (IndexRoutingTable index : changed) {
+                IndexRoutingTable.Builder.writeTo(index, out);
+            }
+            List<String> removed = newArrayList();
+            for (String index : previous.indicesRouting.keySet()) {
+                if (!table.indicesRouting.containsKey(index)) {
+                    removed.add(index);
+                }
+            }
+            out.writeVInt(removed.size());
+            for (String index : removed) {
+                out.writeUTF(index);
+            }
+        }
+
+        public static RoutingTable readDiffFrom(RoutingTable previous, StreamInput in) throws IOException {
+            Builder builder = new Builder().routingTable(previous);
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.add(IndexRoutingTable.Builder.readFrom(in));
+            }
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.remove(in.readUTF());
+            }
+            return builder.build();
+        }
+
+        /**
+         * Compares what gets serialized, the routing table is rebuilt on each allocation so instances can't be compared.
+         */
+        private static boolean sameRouting(IndexRoutingTable previous, IndexRoutingTable current) {
+            if (previous == current) {
+                return true;
+            }
+            if (previous.shards().size() != current.shards().size()) {
+                return false;
+            }
+            for (IndexShardRoutingTable indexShard : current) {
+                IndexShardRoutingTable previousIndexShard = previous.shard(indexShard.shardId().id());
+                if (previousIndexShard == null || previousIndexShard.allocatedPostApi() != indexShard.allocatedPostApi()
+                        || previousIndexShard.size() != indexShard.size()) {
+                    return false;
+                }
+                for (int i = 0; i < indexShard.size(); i++) {
+                    ShardRouting shard = indexShard.shards().get(i);
+                    ShardRouting previousShard = previousIndexShard.shards().get(i);
+                    if (shard.primary() != previousShard.primary() || shard.state() != previousShard.state()
+                            || !equals(shard.currentNodeId(), previousShard.currentNodeId())
+                            || !equals(shard.relocatingNodeId(), previousShard.relocatingNodeId())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private static boolean equals(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
     }
 
     public String prettyPrint() {
@@ -19,8 +19,6 @@
 
 package org.elasticsearch.cluster.routing.allocation;
 
-import org.elasticsearch.cluster.routing.MutableShardRouting;
-import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -53,31 +51,10 @@ public class ClusterRebalanceNodeAllocation extends NodeAllocation {
 
     @Override public boolean canRebalance(ShardRouting shardRouting, RoutingAllocation allocation) {
         if (type == ClusterRebalanceType.INDICES_PRIMARIES_ACTIVE) {
-            for (MutableShardRouting shard : allocation.routingNodes().unassigned()) {
-                if (shard.primary()) {
-                    return false;
-                }
-            }
-            for (RoutingNode node : allocation.routingNodes()) {
-                for (MutableShardRouting shard : node) {
-                    if (shard.primary() && !shard.active()) {
-                        return false;
-                    }
-                }
-            }
-            return true;
+            return allocation.routingNodes().unassignedPrimaries() == 0 && allocation.routingNodes().inactivePrimaries() == 0;
         }
         if (type == ClusterRebalanceType.INDICES_ALL_ACTIVE) {
-            if (!allocation.routingNodes().unassigned().isEmpty()) {
-                return false;
-            }
-            for (RoutingNode node : allocation.routingNodes()) {
-                for (MutableShardRouting shard : node) {
-                    if (!shard.active()) {
-                        return false;
-                    }
-                }
-            }
+            return allocation.routingNodes().unassigned().isEmpty() && allocation.routingNodes().inactiveShards() == 0;
         }
         // type == Type.ALWAYS
         return true;
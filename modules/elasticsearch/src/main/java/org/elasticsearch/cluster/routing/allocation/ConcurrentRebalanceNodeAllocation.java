@@ -19,10 +19,7 @@
 
 package org.elasticsearch.cluster.routing.allocation;
 
-import org.elasticsearch.cluster.routing.MutableShardRouting;
-import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
-import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 
@@ -40,14 +37,7 @@ public class ConcurrentRebalanceNodeAllocation extends NodeAllocation {
         if (clusterConcurrentRebalance == -1) {
             return true;
         }
-        int rebalance = 0;
-        for (RoutingNode node : allocation.routingNodes()) {
-            for (MutableShardRouting shard : node) {
-                if (shard.state() == ShardRoutingState.RELOCATING) {
-                    rebalance++;
-                }
-            }
-        }
+        int rebalance = allocation.routingNodes().relocatingShards();
         if (rebalance >= clusterConcurrentRebalance) {
             return false;
         }
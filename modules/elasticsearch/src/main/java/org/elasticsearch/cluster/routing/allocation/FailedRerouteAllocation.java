@@ -23,19 +23,21 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingNodes;
 import org.elasticsearch.cluster.routing.ShardRouting;
 
+import java.util.List;
+
 /**
  * @author kimchy (shay.banon)
  */
 public class FailedRerouteAllocation extends RoutingAllocation {
 
-    private final ShardRouting failedShard;
+    private final List<? extends ShardRouting> failedShards;
 
-    public FailedRerouteAllocation(RoutingNodes routingNodes, DiscoveryNodes nodes, ShardRouting failedShard) {
+    public FailedRerouteAllocation(RoutingNodes routingNodes, DiscoveryNodes nodes, List<? extends ShardRouting> failedShards) {
         super(routingNodes, nodes);
-        this.failedShard = failedShard;
+        this.failedShards = failedShards;
     }
 
-    public ShardRouting failedShard() {
-        return failedShard;
+    public List<? extends ShardRouting> failedShards() {
+        return failedShards;
     }
 }
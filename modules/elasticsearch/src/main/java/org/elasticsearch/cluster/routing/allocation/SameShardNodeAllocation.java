@@ -19,7 +19,6 @@
 
 package org.elasticsearch.cluster.routing.allocation;
 
-import org.elasticsearch.cluster.routing.MutableShardRouting;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.inject.Inject;
@@ -37,11 +36,9 @@ public class SameShardNodeAllocation extends NodeAllocation {
     }
 
     @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
-        for (MutableShardRouting current : node.shards()) {
-            // we do not allow for two shards of the same shard id to exists on the same node
-            if (current.shardId().equals(shardRouting.shardId())) {
-                return Decision.NO;
-            }
+        // we do not allow for two shards of the same shard id to exists on the same node
+        if (allocation.routingNodes().hasShardOnNode(shardRouting, node.nodeId())) {
+            return Decision.NO;
         }
         return Decision.YES;
     }
@@ -32,6 +32,7 @@ import java.util.List;
 import java.util.Set;
 
 import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
+import static org.elasticsearch.common.collect.Lists.*;
 import static org.elasticsearch.common.collect.Sets.*;
 
 /**
@@ -77,9 +78,21 @@ public class ShardsAllocation extends AbstractComponent {
      * <p>If the same instance of the routing table is returned, then no change has been made.
      */
     public RoutingAllocation.Result applyFailedShard(ClusterState clusterState, ShardRouting failedShard) {
+        return applyFailedShards(clusterState, newArrayList(failedShard));
+    }
+
+    /**
+     * Applies several failed shards at once, with a single reroute once all of them have been applied.
+     *
+     * <p>If the same instance of the routing table is returned, then no change has been made.
+     */
+    public RoutingAllocation.Result applyFailedShards(ClusterState clusterState, List<? extends ShardRouting> failedShards) {
         RoutingNodes routingNodes = clusterState.routingNodes();
-        FailedRerouteAllocation allocation = new FailedRerouteAllocation(routingNodes, clusterState.nodes(), failedShard);
-        boolean changed = applyFailedShard(allocation);
+        FailedRerouteAllocation allocation = new FailedRerouteAllocation(routingNodes, clusterState.nodes(), failedShards);
+        boolean changed = false;
+        for (ShardRouting failedShard : failedShards) {
+            changed |= applyFailedShard(allocation, failedShard);
+        }
         if (!changed) {
             return new RoutingAllocation.Result(false, clusterState.routingTable(), allocation.explanation());
         }
@@ -144,6 +157,8 @@ public class ShardsAllocation extends AbstractComponent {
 
         // now allocate all the unassigned to available nodes
         if (allocation.routingNodes().hasUnassigned()) {
+            // the shards might have changed state or moved by now, recompute the shard counts
+            allocation.routingNodes().resetShardCounts();
             changed |= nodeAllocations.allocateUnassigned(nodeAllocations, allocation);
             changed |= allocateUnassigned(allocation);
             // elect primaries again, in case this is needed with unassigned allocation
@@ -162,6 +177,8 @@ public class ShardsAllocation extends AbstractComponent {
         if (sortedNodesLeastToHigh.isEmpty()) {
             return false;
         }
+        // the routing nodes might have been changed by the allocation of unassigned shards
+        allocation.routingNodes().resetShardCounts();
         int lowIndex = 0;
         int highIndex = sortedNodesLeastToHigh.size() - 1;
         boolean relocationPerformed;
@@ -192,11 +209,14 @@ public class ShardsAllocation extends AbstractComponent {
 
                     if (nodeAllocations.canAllocate(startedShard, lowRoutingNode, allocation).allocate()) {
                         changed = true;
-                        lowRoutingNode.add(new MutableShardRouting(startedShard.index(), startedShard.id(),
+                        MutableShardRouting targetShard = new MutableShardRouting(startedShard.index(), startedShard.id(),
                                 lowRoutingNode.nodeId(), startedShard.currentNodeId(),
-                                startedShard.primary(), INITIALIZING));
+                                startedShard.primary(), INITIALIZING);
+                        lowRoutingNode.add(targetShard);
+                        allocation.routingNodes().registerShard(targetShard);
 
                         startedShard.relocate(lowRoutingNode.nodeId());
+                        allocation.routingNodes().resetShardCounts();
                         relocated = true;
                         relocationPerformed = true;
                         break;
@@ -215,24 +235,15 @@ public class ShardsAllocation extends AbstractComponent {
         boolean changed = false;
         for (MutableShardRouting shardEntry : routingNodes.unassigned()) {
             if (shardEntry.primary() && !shardEntry.assignedToNode()) {
-                boolean elected = false;
-                // primary and not assigned, go over and find a replica that is assigned and active (since it might be relocating)
-                for (RoutingNode routingNode : routingNodes.nodesToShards().values()) {
-
-                    for (MutableShardRouting shardEntry2 : routingNode.shards()) {
-                        if (shardEntry.shardId().equals(shardEntry2.shardId()) && shardEntry2.active()) {
-                            assert shardEntry2.assignedToNode();
-                            assert !shardEntry2.primary();
-
-                            changed = true;
-                            shardEntry.moveFromPrimary();
-                            shardEntry2.moveToPrimary();
-                            elected = true;
-                            break;
-                        }
-                    }
+                // primary and not assigned, go over the other copies of the shard and find a replica that
+                // is assigned and active (since it might be relocating)
+                for (MutableShardRouting shardEntry2 : routingNodes.assignedShards(shardEntry)) {
+                    if (shardEntry2.active()) {
+                        assert !shardEntry2.primary();
 
-                    if (elected) {
+                        changed = true;
+                        shardEntry.moveFromPrimary();
+                        shardEntry2.moveToPrimary();
                         break;
                     }
                 }
@@ -276,21 +287,41 @@ public class ShardsAllocation extends AbstractComponent {
         }
 
         // allocate all the unassigned shards above the average per node.
-        for (Iterator<MutableShardRouting> it = routingNodes.unassigned().iterator(); it.hasNext();) {
-            MutableShardRouting shard = it.next();
-            // go over the nodes and try and allocate the remaining ones
-            for (RoutingNode routingNode : routingNodes.sortedNodesLeastToHigh()) {
-                if (nodeAllocations.canAllocate(shard, routingNode, allocation).allocate()) {
-                    changed = true;
-                    routingNode.add(shard);
-                    it.remove();
-                    break;
+        if (routingNodes.hasUnassigned()) {
+            // sort once, and keep the nodes sorted as shards get allocated to them
+            nodes = routingNodes.sortedNodesLeastToHigh();
+            for (Iterator<MutableShardRouting> it = routingNodes.unassigned().iterator(); it.hasNext();) {
+                MutableShardRouting shard = it.next();
+                // go over the nodes and try and allocate the remaining ones
+                for (int i = 0; i < nodes.size(); i++) {
+                    RoutingNode routingNode = nodes.get(i);
+                    if (nodeAllocations.canAllocate(shard, routingNode, allocation).allocate()) {
+                        changed = true;
+                        routingNode.add(shard);
+                        it.remove();
+                        moveToSortedPosition(nodes, i);
+                        break;
+                    }
                 }
             }
         }
         return changed;
     }
 
+    /**
+     * The node at the provided index got one more shard, move it up the list of nodes (sorted from least
+     * number of shards to the highest) to its new position.
+     */
+    private void moveToSortedPosition(List<RoutingNode> sortedNodes, int index) {
+        RoutingNode routingNode = sortedNodes.get(index);
+        int size = routingNode.shards().size();
+        while (index + 1 < sortedNodes.size() && sortedNodes.get(index + 1).shards().size() < size) {
+            sortedNodes.set(index, sortedNodes.get(index + 1));
+            index++;
+        }
+        sortedNodes.set(index, routingNode);
+    }
+
     /**
      * Applies the new nodes to the routing nodes and returns them (just the
      * new nodes);
@@ -413,14 +444,12 @@ public class ShardsAllocation extends AbstractComponent {
      * Applies the relevant logic to handle a failed shard. Returns <tt>true</tt> if changes happened that
      * require relocation.
      */
-    private boolean applyFailedShard(FailedRerouteAllocation allocation) {
-        IndexRoutingTable indexRoutingTable = allocation.routingTable().index(allocation.failedShard().index());
+    private boolean applyFailedShard(FailedRerouteAllocation allocation, ShardRouting failedShard) {
+        IndexRoutingTable indexRoutingTable = allocation.routingTable().index(failedShard.index());
         if (indexRoutingTable == null) {
             return false;
         }
 
-        ShardRouting failedShard = allocation.failedShard();
-
         boolean shardDirty = false;
         boolean inRelocation = failedShard.relocatingNodeId() != null;
         if (inRelocation) {
@@ -475,8 +504,10 @@ public class ShardsAllocation extends AbstractComponent {
         }
 
         // add the failed shard to the unassigned shards
-        allocation.routingNodes().unassigned().add(new MutableShardRouting(failedShard.index(), failedShard.id(),
-                null, failedShard.primary(), ShardRoutingState.UNASSIGNED));
+        MutableShardRouting unassignedShard = new MutableShardRouting(failedShard.index(), failedShard.id(),
+                null, failedShard.primary(), ShardRoutingState.UNASSIGNED);
+        allocation.routingNodes().unassigned().add(unassignedShard);
+        allocation.routingNodes().registerShard(unassignedShard);
 
         return true;
     }
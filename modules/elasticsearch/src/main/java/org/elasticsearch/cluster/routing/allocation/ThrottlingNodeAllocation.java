@@ -22,7 +22,6 @@ package org.elasticsearch.cluster.routing.allocation;
 import org.elasticsearch.cluster.routing.MutableShardRouting;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
-import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
 
@@ -44,21 +43,20 @@ public class ThrottlingNodeAllocation extends NodeAllocation {
 
     @Override public Decision canAllocate(ShardRouting shardRouting, RoutingNode node, RoutingAllocation allocation) {
         if (shardRouting.primary()) {
-            boolean primaryUnassigned = false;
-            for (MutableShardRouting shard : allocation.routingNodes().unassigned()) {
-                if (shard.shardId().equals(shardRouting.shardId())) {
-                    primaryUnassigned = true;
+            // when allocating an unassigned primary, no need to go over all the unassigned shards to find it
+            boolean primaryUnassigned = !shardRouting.assignedToNode();
+            if (!primaryUnassigned) {
+                for (MutableShardRouting shard : allocation.routingNodes().unassigned()) {
+                    if (shard.shardId().equals(shardRouting.shardId())) {
+                        primaryUnassigned = true;
+                        break;
+                    }
                 }
             }
             if (primaryUnassigned) {
                 // primary is unassigned, means we are going to do recovery from gateway
                 // count *just the primary* currently doing recovery on the node and check against concurrent_recoveries
-                int primariesInRecovery = 0;
-                for (MutableShardRouting shard : node) {
-                    if (shard.state() == ShardRoutingState.INITIALIZING && shard.primary()) {
-                        primariesInRecovery++;
-                    }
-                }
+                int primariesInRecovery = node.numberOfInitializingPrimaries();
                 if (primariesInRecovery >= primariesInitialRecoveries) {
                     return Decision.THROTTLE;
                 } else {
@@ -70,12 +68,7 @@ public class ThrottlingNodeAllocation extends NodeAllocation {
         // either primary or replica doing recovery (from peer shard)
 
         // count the number of recoveries on the node, its for both target (INITIALIZING) and source (RELOCATING)
-        int currentRecoveries = 0;
-        for (MutableShardRouting shard : node) {
-            if (shard.state() == ShardRoutingState.INITIALIZING || shard.state() == ShardRoutingState.RELOCATING) {
-                currentRecoveries++;
-            }
-        }
+        int currentRecoveries = node.numberOfRecoveries();
 
         if (currentRecoveries >= concurrentRecoveries) {
             return Decision.THROTTLE;
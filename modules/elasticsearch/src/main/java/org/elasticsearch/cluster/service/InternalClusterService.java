@@ -36,9 +36,11 @@ import org.elasticsearch.discovery.DiscoveryService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -69,6 +71,15 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
 
     private final Queue<NotifyTimeout> onGoingTimeouts = new LinkedTransferQueue<NotifyTimeout>();
 
+    private final BlockingQueue<UpdateTask> pendingTasks = new LinkedTransferQueue<UpdateTask>();
+
+    // batch stats, only updated by the update tasks thread
+    private volatile long totalBatches;
+
+    private volatile long totalBatchedTasks;
+
+    private volatile long totalBatchTime;
+
     private volatile ClusterState clusterState = newClusterStateBuilder().build();
 
     private final ClusterBlocks.Builder initialBlocks = ClusterBlocks.builder();
@@ -163,98 +174,185 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
         if (!lifecycle.started()) {
             return;
         }
+        pendingTasks.add(new UpdateTask(source, updateTask));
         updateTasksExecutor.execute(new Runnable() {
             @Override public void run() {
-                if (!lifecycle.started()) {
-                    logger.debug("processing [{}]: ignoring, cluster_service not started", source);
-                    return;
-                }
-                logger.debug("processing [{}]: execute", source);
-                ClusterState previousClusterState = clusterState;
-                try {
-                    clusterState = updateTask.execute(previousClusterState);
-                } catch (Exception e) {
-                    StringBuilder sb = new StringBuilder("failed to execute cluster state update, state:\nversion [").append(clusterState.version()).append("], source [").append(source).append("]\n");
-                    sb.append(clusterState.nodes().prettyPrint());
-                    sb.append(clusterState.routingTable().prettyPrint());
-                    sb.append(clusterState.readOnlyRoutingNodes().prettyPrint());
-                    logger.warn(sb.toString(), e);
-                    return;
+                runPendingTasks();
+            }
+        });
+    }
+
+    @Override public int numberOfPendingTasks() {
+        return pendingTasks.size();
+    }
+
+    /**
+     * Drains all the pending update tasks and applies them in one pass against the current cluster state. Listeners
+     * are notified and the resulting state is published once for the whole batch (and not per task).
+     */
+    private void runPendingTasks() {
+        List<UpdateTask> tasks = new ArrayList<UpdateTask>();
+        pendingTasks.drainTo(tasks);
+        if (tasks.isEmpty()) {
+            // already processed as part of a previous batch
+            return;
+        }
+        if (!lifecycle.started()) {
+            for (UpdateTask task : tasks) {
+                logger.debug("processing [{}]: ignoring, cluster_service not started", task.source);
+            }
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        long maxWaitTime = startTime - tasks.get(0).submitTime;
+
+        ClusterState previousClusterState = clusterState;
+        ClusterState newClusterState = previousClusterState;
+        List<UpdateTask> changedTasks = new ArrayList<UpdateTask>(tasks.size());
+        for (UpdateTask task : tasks) {
+            logger.debug("processing [{}]: execute", task.source);
+            ClusterState taskClusterState;
+            try {
+                taskClusterState = task.updateTask.execute(newClusterState);
+            } catch (Exception e) {
+                StringBuilder sb = new StringBuilder("failed to execute cluster state update, state:\nversion [").append(newClusterState.version()).append("], source [").append(task.source).append("]\n");
+                sb.append(newClusterState.nodes().prettyPrint());
+                sb.append(newClusterState.routingTable().prettyPrint());
+                sb.append(newClusterState.readOnlyRoutingNodes().prettyPrint());
+                logger.warn(sb.toString(), e);
+                continue;
+            }
+            if (taskClusterState == newClusterState) {
+                logger.debug("processing [{}]: no change in cluster_state", task.source);
+                continue;
+            }
+            if (!taskClusterState.nodes().localNodeMaster() && taskClusterState.version() < newClusterState.version()) {
+                // we got this cluster state from the master, filter out based on versions (don't call listeners),
+                // but apply what was batched before it first so those changes are not lost
+                logger.debug("got old cluster state [" + taskClusterState.version() + "<" + newClusterState.version() + "] from source [" + task.source + "], ignoring");
+                if (!changedTasks.isEmpty()) {
+                    applyClusterState(previousClusterState, newClusterState, changedTasks);
+                    changedTasks.clear();
                 }
-                if (previousClusterState != clusterState) {
-                    if (clusterState.nodes().localNodeMaster()) {
-                        // only the master controls the version numbers
-                        clusterState = new ClusterState(clusterState.version() + 1, clusterState);
-                    } else {
-                        // we got this cluster state from the master, filter out based on versions (don't call listeners)
-                        if (clusterState.version() < previousClusterState.version()) {
-                            logger.debug("got old cluster state [" + clusterState.version() + "<" + previousClusterState.version() + "] from source [" + source + "], ignoring");
-                            return;
-                        }
-                    }
+                clusterState = taskClusterState;
+                previousClusterState = taskClusterState;
+                newClusterState = taskClusterState;
+                continue;
+            }
+            newClusterState = taskClusterState;
+            changedTasks.add(task);
+        }
+        if (!changedTasks.isEmpty()) {
+            applyClusterState(previousClusterState, newClusterState, changedTasks);
+        }
 
-                    if (logger.isTraceEnabled()) {
-                        StringBuilder sb = new StringBuilder("cluster state updated:\nversion [").append(clusterState.version()).append("], source [").append(source).append("]\n");
-                        sb.append(clusterState.nodes().prettyPrint());
-                        sb.append(clusterState.routingTable().prettyPrint());
-                        sb.append(clusterState.readOnlyRoutingNodes().prettyPrint());
-                        logger.trace(sb.toString());
-                    } else if (logger.isDebugEnabled()) {
-                        logger.debug("cluster state updated, version [{}], source [{}]", clusterState.version(), source);
-                    }
+        long took = System.currentTimeMillis() - startTime;
+        totalBatches++;
+        totalBatchedTasks += tasks.size();
+        totalBatchTime += took;
+        if (logger.isDebugEnabled()) {
+            logger.debug("processed batch of [{}] tasks ([{}] changed the cluster_state), took [{}], max queue wait [{}], pending [{}], total batches [{}], total tasks [{}], total time [{}]",
+                    tasks.size(), changedTasks.size(), TimeValue.timeValueMillis(took), TimeValue.timeValueMillis(maxWaitTime), pendingTasks.size(),
+                    totalBatches, totalBatchedTasks, TimeValue.timeValueMillis(totalBatchTime));
+        }
+    }
 
-                    ClusterChangedEvent clusterChangedEvent = new ClusterChangedEvent(source, clusterState, previousClusterState);
-                    // new cluster state, notify all listeners
-                    final DiscoveryNodes.Delta nodesDelta = clusterChangedEvent.nodesDelta();
-                    if (nodesDelta.hasChanges() && logger.isInfoEnabled()) {
-                        String summary = nodesDelta.shortSummary();
-                        if (summary.length() > 0) {
-                            logger.info("{}, reason: {}", summary, source);
-                        }
-                    }
+    private void applyClusterState(ClusterState previousClusterState, ClusterState newClusterState, List<UpdateTask> changedTasks) {
+        String source = batchSource(changedTasks);
+        if (newClusterState.nodes().localNodeMaster()) {
+            // only the master controls the version numbers, bump it once for the whole batch
+            newClusterState = new ClusterState(newClusterState.version() + 1, newClusterState);
+        }
+        clusterState = newClusterState;
+
+        if (logger.isTraceEnabled()) {
+            StringBuilder sb = new StringBuilder("cluster state updated:\nversion [").append(clusterState.version()).append("], source [").append(source).append("]\n");
+            sb.append(clusterState.nodes().prettyPrint());
+            sb.append(clusterState.routingTable().prettyPrint());
+            sb.append(clusterState.readOnlyRoutingNodes().prettyPrint());
+            logger.trace(sb.toString());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("cluster state updated, version [{}], source [{}]", clusterState.version(), source);
+        }
 
-                    // TODO, do this in parallel (and wait)
-                    for (DiscoveryNode node : nodesDelta.addedNodes()) {
-                        if (!nodeRequiresConnection(node)) {
-                            continue;
-                        }
-                        try {
-                            transportService.connectToNode(node);
-                        } catch (Exception e) {
-                            // the fault detection will detect it as failed as well
-                            logger.warn("failed to connect to node [" + node + "]", e);
-                        }
-                    }
+        ClusterChangedEvent clusterChangedEvent = new ClusterChangedEvent(source, clusterState, previousClusterState);
+        // new cluster state, notify all listeners
+        final DiscoveryNodes.Delta nodesDelta = clusterChangedEvent.nodesDelta();
+        if (nodesDelta.hasChanges() && logger.isInfoEnabled()) {
+            String summary = nodesDelta.shortSummary();
+            if (summary.length() > 0) {
+                logger.info("{}, reason: {}", summary, source);
+            }
+        }
 
-                    for (ClusterStateListener listener : clusterStateListeners) {
-                        listener.clusterChanged(clusterChangedEvent);
-                    }
+        // TODO, do this in parallel (and wait)
+        for (DiscoveryNode node : nodesDelta.addedNodes()) {
+            if (!nodeRequiresConnection(node)) {
+                continue;
+            }
+            try {
+                transportService.connectToNode(node);
+            } catch (Exception e) {
+                // the fault detection will detect it as failed as well
+                logger.warn("failed to connect to node [" + node + "]", e);
+            }
+        }
 
-                    if (!nodesDelta.removedNodes().isEmpty()) {
-                        threadPool.cached().execute(new Runnable() {
-                            @Override public void run() {
-                                for (DiscoveryNode node : nodesDelta.removedNodes()) {
-                                    transportService.disconnectFromNode(node);
-                                }
-                            }
-                        });
-                    }
+        for (ClusterStateListener listener : clusterStateListeners) {
+            listener.clusterChanged(clusterChangedEvent);
+        }
 
-                    // if we are the master, publish the new state to all nodes
-                    if (clusterState.nodes().localNodeMaster()) {
-                        discoveryService.publish(clusterState);
+        if (!nodesDelta.removedNodes().isEmpty()) {
+            threadPool.cached().execute(new Runnable() {
+                @Override public void run() {
+                    for (DiscoveryNode node : nodesDelta.removedNodes()) {
+                        transportService.disconnectFromNode(node);
                     }
+                }
+            });
+        }
 
-                    if (updateTask instanceof ProcessedClusterStateUpdateTask) {
-                        ((ProcessedClusterStateUpdateTask) updateTask).clusterStateProcessed(clusterState);
-                    }
+        // if we are the master, publish the new state to all nodes
+        if (clusterState.nodes().localNodeMaster()) {
+            discoveryService.publish(clusterState);
+        }
 
-                    logger.debug("processing [{}]: done applying updated cluster_state", source);
-                } else {
-                    logger.debug("processing [{}]: no change in cluster_state", source);
+        for (UpdateTask task : changedTasks) {
+            if (task.updateTask instanceof ProcessedClusterStateUpdateTask) {
+                try {
+                    ((ProcessedClusterStateUpdateTask) task.updateTask).clusterStateProcessed(clusterState);
+                } catch (Exception e) {
+                    logger.warn("failed to notify [{}] that the cluster_state was processed", e, task.source);
                 }
             }
-        });
+            logger.debug("processing [{}]: done applying updated cluster_state", task.source);
+        }
+    }
+
+    /**
+     * The source of a batch is the source of its tasks when they all share it (so listeners can still identify
+     * their own updates), otherwise the first source with the number of other tasks batched with it.
+     */
+    private static String batchSource(List<UpdateTask> tasks) {
+        String source = tasks.get(0).source;
+        for (int i = 1; i < tasks.size(); i++) {
+            if (!source.equals(tasks.get(i).source)) {
+                return source + " (batched with [" + (tasks.size() - 1) + "] more tasks)";
+            }
+        }
+        return source;
+    }
+
+    static class UpdateTask {
+        final String source;
+        final ClusterStateUpdateTask updateTask;
+        final long submitTime;
+
+        UpdateTask(String source, ClusterStateUpdateTask updateTask) {
+            this.source = source;
+            this.updateTask = updateTask;
+            this.submitTime = System.currentTimeMillis();
+        }
     }
 
     class NotifyTimeout implements Runnable {
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bloom;
+
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.ChecksumIndexOutput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.RamUsage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A bloom filter where all the bits of a key are set within a single block of 512 bits, the size of a cache line,
+ * so checking a key costs a single cache miss instead of one per hash function. The block is selected with one
+ * hash, and the bits within the block are derived from a second one.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class BlockedBloomFilter implements BloomFilter {
+
+    static final int BLOCK_SIZE_IN_BITS = 512;
+
+    static final int BLOCK_SIZE_IN_LONGS = BLOCK_SIZE_IN_BITS / 64;
+
+    private static final int CODEC_MAGIC = 0x3fd76c17;
+
+    private static final int VERSION = 2;
+
+    private final int hashCount;
+
+    private final int numBlocks;
+
+    private final long[] bits;
+
+    BlockedBloomFilter(int hashCount, int numBlocks) {
+        this(hashCount, new long[numBlocks * BLOCK_SIZE_IN_LONGS]);
+    }
+
+    BlockedBloomFilter(int hashCount, long[] bits) {
+        this.hashCount = hashCount;
+        this.bits = bits;
+        this.numBlocks = bits.length / BLOCK_SIZE_IN_LONGS;
+    }
+
+    public int hashCount() {
+        return this.hashCount;
+    }
+
+    public int numBlocks() {
+        return this.numBlocks;
+    }
+
+    @Override public void add(byte[] key, int offset, int length) {
+        long hash1 = MurmurHash.hash64(key, offset, length, 0L);
+        add(hash1, MurmurHash.hash64(key, offset, length, hash1));
+    }
+
+    @Override public void add(ByteBuffer key) {
+        long hash1 = MurmurHash.hash64(key, key.position(), key.remaining(), 0L);
+        add(hash1, MurmurHash.hash64(key, key.position(), key.remaining(), hash1));
+    }
+
+    @Override public boolean isPresent(byte[] key, int offset, int length) {
+        long hash1 = MurmurHash.hash64(key, offset, length, 0L);
+        return isPresent(hash1, MurmurHash.hash64(key, offset, length, hash1));
+    }
+
+    @Override public boolean isPresent(ByteBuffer key) {
+        long hash1 = MurmurHash.hash64(key, key.position(), key.remaining(), 0L);
+        return isPresent(hash1, MurmurHash.hash64(key, key.position(), key.remaining(), hash1));
+    }
+
+    private void add(long hash1, long hash2) {
+        int blockOffset = blockOffset(hash1);
+        int bit = (int) hash2;
+        int delta = ((int) (hash2 >>> 32)) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bitInBlock = bit & (BLOCK_SIZE_IN_BITS - 1);
+            bits[blockOffset + (bitInBlock >>> 6)] |= 1L << bitInBlock;
+            bit += delta;
+        }
+    }
+
+    private boolean isPresent(long hash1, long hash2) {
+        int blockOffset = blockOffset(hash1);
+        int bit = (int) hash2;
+        int delta = ((int) (hash2 >>> 32)) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bitInBlock = bit & (BLOCK_SIZE_IN_BITS - 1);
+            if ((bits[blockOffset + (bitInBlock >>> 6)] & (1L << bitInBlock)) == 0) {
+                return false;
+            }
+            bit += delta;
+        }
+        return true;
+    }
+
+    private int blockOffset(long hash) {
+        return (int) ((hash >>> 1) % numBlocks) * BLOCK_SIZE_IN_LONGS;
+    }
+
+    /**
+     * The false positive probability of this filter, computed from the actual fill of each of its blocks.
+     */
+    public double falsePositiveProbability() {
+        double fpp = 0;
+        for (int block = 0; block < numBlocks; block++) {
+            int bitsSet = 0;
+            for (int i = block * BLOCK_SIZE_IN_LONGS; i < (block + 1) * BLOCK_SIZE_IN_LONGS; i++) {
+                bitsSet += Long.bitCount(bits[i]);
+            }
+            fpp += Math.pow(((double) bitsSet) / BLOCK_SIZE_IN_BITS, hashCount);
+        }
+        return fpp / numBlocks;
+    }
+
+    @Override public long sizeInBytes() {
+        return bits.length * RamUsage.NUM_BYTES_LONG + RamUsage.NUM_BYTES_ARRAY_HEADER + RamUsage.NUM_BYTES_INT * 2;
+    }
+
+    /**
+     * Writes the filter along with the identity of what it was built from (for example, a segment), see
+     * {@link #readFrom(org.apache.lucene.store.IndexInput, long)}.
+     */
+    public void writeTo(IndexOutput output, long sourceId) throws IOException {
+        ChecksumIndexOutput out = new ChecksumIndexOutput(output);
+        out.writeInt(CODEC_MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(sourceId);
+        out.writeVInt(hashCount);
+        out.writeVInt(bits.length);
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+        output.writeLong(out.getChecksum());
+    }
+
+    /**
+     * Reads a filter written with {@link #writeTo(org.apache.lucene.store.IndexOutput, long)}, throws an
+     * {@link IOException} if it is corrupted or was built from a different source than the expected one.
+     */
+    public static BlockedBloomFilter readFrom(IndexInput input, long expectedSourceId) throws IOException {
+        ChecksumIndexInput in = new ChecksumIndexInput(input);
+        if (in.readInt() != CODEC_MAGIC) {
+            throw new IOException("not a bloom filter file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported bloom filter version [" + version + "]");
+        }
+        long sourceId = in.readLong();
+        if (sourceId != expectedSourceId) {
+            throw new IOException("bloom filter was built for a different source, expected [" + expectedSourceId + "], got [" + sourceId + "]");
+        }
+        int hashCount = in.readVInt();
+        long[] bits = new long[in.readVInt()];
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = in.readLong();
+        }
+        long checksum = in.getChecksum();
+        if (checksum != input.readLong()) {
+            throw new IOException("bloom filter checksum mismatch");
+        }
+        return new BlockedBloomFilter(hashCount, bits);
+    }
+}
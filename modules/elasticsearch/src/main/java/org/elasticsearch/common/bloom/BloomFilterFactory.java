@@ -66,6 +66,18 @@ public class BloomFilterFactory {
         return new ObsBloomFilter(spec.K, bucketsFor(numElements, spec.bucketsPerElement));
     }
 
+    /**
+     * @return A {@link BlockedBloomFilter} sized for the given false positive probability and number of elements.
+     */
+    public static BlockedBloomFilter getBlockedFilter(long numElements, double falsePositiveProbability) {
+        double bitsPerElement = -Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        int hashCount = Math.max(1, Math.min(16, (int) Math.round(bitsPerElement * Math.log(2))));
+        // keys are not spread evenly between the blocks, compensate with some more bits
+        bitsPerElement *= 1.2;
+        long numBlocks = (long) Math.ceil((Math.max(1, numElements) * bitsPerElement) / BlockedBloomFilter.BLOCK_SIZE_IN_BITS);
+        return new BlockedBloomFilter(hashCount, (int) Math.min(numBlocks, Integer.MAX_VALUE / BlockedBloomFilter.BLOCK_SIZE_IN_LONGS));
+    }
+
     private static OpenBitSet bucketsFor(long numElements, int bucketsPer) {
         long numBits = numElements * bucketsPer + EXCESS; //TODO overflow?
         return new OpenBitSet((long) Math.min(Long.MAX_VALUE, numBits));
@@ -19,12 +19,16 @@
 
 package org.elasticsearch.common.compress.lzf;
 
+import org.elasticsearch.common.io.BytesRecycler;
+
 import java.lang.ref.SoftReference;
 
 /**
  * Simple helper class to encapsulate details of basic buffer
  * recycling scheme, which helps a lot (as per profiling) for
- * smaller encoding cases.
+ * smaller encoding cases. Byte buffers are taken from (and
+ * released to) the node wide {@link BytesRecycler}, so they may
+ * be larger than the requested size.
  *
  * @author tatu
  */
@@ -36,18 +40,12 @@ public class BufferRecycler {
     /**
      * This <code>ThreadLocal</code> contains a {@link java.lang.ref.SoftRerefence}
      * to a {@link BufferRecycler} used to provide a low-cost
-     * buffer recycling for buffers we need for encoding, decoding.
+     * buffer recycling for the encoding hash.
      */
     final protected static ThreadLocal<SoftReference<BufferRecycler>> _recyclerRef
             = new ThreadLocal<SoftReference<BufferRecycler>>();
 
 
-    private byte[] _inputBuffer;
-    private byte[] _outputBuffer;
-
-    private byte[] _decodingBuffer;
-    private byte[] _encodingBuffer;
-
     private int[] _encodingHash;
 
 
@@ -75,35 +73,19 @@ public class BufferRecycler {
      */
 
     public byte[] allocEncodingBuffer(int minSize) {
-        byte[] buf = _encodingBuffer;
-        if (buf == null || buf.length < minSize) {
-            buf = new byte[Math.max(minSize, MIN_ENCODING_BUFFER)];
-        } else {
-            _encodingBuffer = null;
-        }
-        return buf;
+        return BytesRecycler.acquire(Math.max(minSize, MIN_ENCODING_BUFFER));
     }
 
     public void releaseEncodeBuffer(byte[] buffer) {
-        if (_encodingBuffer == null || buffer.length > _encodingBuffer.length) {
-            _encodingBuffer = buffer;
-        }
+        BytesRecycler.release(buffer);
     }
 
     public byte[] allocOutputBuffer(int minSize) {
-        byte[] buf = _outputBuffer;
-        if (buf == null || buf.length < minSize) {
-            buf = new byte[Math.max(minSize, MIN_OUTPUT_BUFFER)];
-        } else {
-            _outputBuffer = null;
-        }
-        return buf;
+        return BytesRecycler.acquire(Math.max(minSize, MIN_OUTPUT_BUFFER));
     }
 
     public void releaseOutputBuffer(byte[] buffer) {
-        if (_outputBuffer == null || buffer.length > _outputBuffer.length) {
-            _outputBuffer = buffer;
-        }
+        BytesRecycler.release(buffer);
     }
 
     public int[] allocEncodingHash(int suggestedSize) {
@@ -129,35 +111,19 @@ public class BufferRecycler {
      */
 
     public byte[] allocInputBuffer(int minSize) {
-        byte[] buf = _inputBuffer;
-        if (buf == null || buf.length < minSize) {
-            buf = new byte[Math.max(minSize, MIN_OUTPUT_BUFFER)];
-        } else {
-            _inputBuffer = null;
-        }
-        return buf;
+        return BytesRecycler.acquire(Math.max(minSize, MIN_OUTPUT_BUFFER));
     }
 
     public void releaseInputBuffer(byte[] buffer) {
-        if (_inputBuffer == null || buffer.length > _inputBuffer.length) {
-            _inputBuffer = buffer;
-        }
+        BytesRecycler.release(buffer);
     }
 
     public byte[] allocDecodeBuffer(int size) {
-        byte[] buf = _decodingBuffer;
-        if (buf == null || buf.length < size) {
-            buf = new byte[size];
-        } else {
-            _decodingBuffer = null;
-        }
-        return buf;
+        return BytesRecycler.acquire(size);
     }
 
     public void releaseDecodeBuffer(byte[] buffer) {
-        if (_decodingBuffer == null || buffer.length > _decodingBuffer.length) {
-            _decodingBuffer = buffer;
-        }
+        BytesRecycler.release(buffer);
     }
 
 }
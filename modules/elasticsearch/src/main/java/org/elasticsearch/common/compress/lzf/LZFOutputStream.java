@@ -8,7 +8,7 @@ import java.io.OutputStream;
  * @author tatu
  */
 public class LZFOutputStream extends OutputStream {
-    private static int OUTPUT_BUFFER_SIZE = LZFChunk.MAX_CHUNK_LEN;
+    private static final int OUTPUT_BUFFER_SIZE = LZFChunk.MAX_CHUNK_LEN;
 
     private final ChunkEncoder _encoder;
     private final BufferRecycler _recycler;
@@ -26,7 +26,7 @@ public class LZFOutputStream extends OutputStream {
 
     @Override
     public void write(final int singleByte) throws IOException {
-        if (_position >= _outputBuffer.length) {
+        if (_position >= OUTPUT_BUFFER_SIZE) {
             writeCompressedBlock();
         }
         _outputBuffer[_position++] = (byte) singleByte;
@@ -34,7 +34,7 @@ public class LZFOutputStream extends OutputStream {
 
     @Override
     public void write(final byte[] buffer, int offset, int length) throws IOException {
-        final int BUFFER_LEN = _outputBuffer.length;
+        final int BUFFER_LEN = OUTPUT_BUFFER_SIZE;
 
         // simple case first: buffering only (for trivially short writes)
         int free = BUFFER_LEN - _position;
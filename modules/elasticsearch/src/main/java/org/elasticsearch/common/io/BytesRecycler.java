@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.collect.ImmutableList;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.jsr166y.LinkedTransferQueue;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A node wide pool of byte arrays, bucketed into power of two size classes (from 1kb up to 1mb), and
+ * bounded by a total byte budget. Arrays are explicitly {@link #acquire(int) acquired} and
+ * {@link #release(byte[]) released}; sizes outside of the size classes, and arrays released while the
+ * pool is over its budget, are simply left to the GC.
+ *
+ * <p>Note, an array must not be used once released, and must be released only once.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class BytesRecycler {
+
+    public static final int MIN_SIZE_CLASS = 10;
+
+    public static final int MAX_SIZE_CLASS = 20;
+
+    public static final int MIN_SIZE = 1 << MIN_SIZE_CLASS;
+
+    public static final int MAX_SIZE = 1 << MAX_SIZE_CLASS;
+
+    private static final List<Queue<byte[]>> pools;
+
+    static {
+        ImmutableList.Builder<Queue<byte[]>> builder = ImmutableList.builder();
+        for (int sizeClass = MIN_SIZE_CLASS; sizeClass <= MAX_SIZE_CLASS; sizeClass++) {
+            builder.add(new LinkedTransferQueue<byte[]>());
+        }
+        pools = builder.build();
+    }
+
+    private static volatile long budget = defaultBudget();
+
+    private static final AtomicLong pooledSize = new AtomicLong();
+
+    private static final AtomicLong pooledCount = new AtomicLong();
+
+    private static final AtomicLong acquireCount = new AtomicLong();
+
+    private static final AtomicLong missCount = new AtomicLong();
+
+    private static final AtomicLong dropCount = new AtomicLong();
+
+    private BytesRecycler() {
+
+    }
+
+    private static long defaultBudget() {
+        long heapMax = Runtime.getRuntime().maxMemory();
+        if (heapMax == Long.MAX_VALUE) {
+            return new ByteSizeValue(32, ByteSizeUnit.MB).bytes();
+        }
+        return Math.min(heapMax / 20, new ByteSizeValue(128, ByteSizeUnit.MB).bytes());
+    }
+
+    /**
+     * Sets the budget based on the <tt>bytes_recycler.size</tt> setting (defaults to 5% of the heap, up to 128mb).
+     */
+    public static void configure(Settings settings) {
+        budget(settings.getAsBytesSize("bytes_recycler.size", new ByteSizeValue(defaultBudget())));
+    }
+
+    public static void budget(ByteSizeValue budget) {
+        BytesRecycler.budget = budget.bytes();
+        while (pooledSize.get() > BytesRecycler.budget && evictOne()) {
+            // keep on evicting
+        }
+    }
+
+    public static ByteSizeValue budget() {
+        return new ByteSizeValue(budget);
+    }
+
+    /**
+     * Returns a byte array of at least the given size. Sizes within the size classes are rounded up to the
+     * size class (so the array may be larger than asked for).
+     */
+    public static byte[] acquire(int size) {
+        acquireCount.incrementAndGet();
+        int sizeClass = sizeClass(size);
+        if (sizeClass > MAX_SIZE_CLASS) {
+            missCount.incrementAndGet();
+            return new byte[size];
+        }
+        byte[] bytes = pools.get(sizeClass - MIN_SIZE_CLASS).poll();
+        if (bytes == null) {
+            missCount.incrementAndGet();
+            return new byte[1 << sizeClass];
+        }
+        pooledSize.addAndGet(-bytes.length);
+        pooledCount.decrementAndGet();
+        return bytes;
+    }
+
+    /**
+     * Returns the array to the pool. Arrays not matching a size class are ignored.
+     */
+    public static void release(byte[] bytes) {
+        if (bytes == null) {
+            return;
+        }
+        int length = bytes.length;
+        if (length < MIN_SIZE || length > MAX_SIZE || (length & (length - 1)) != 0) {
+            return;
+        }
+        if (pooledSize.addAndGet(length) > budget) {
+            pooledSize.addAndGet(-length);
+            dropCount.incrementAndGet();
+            return;
+        }
+        pooledCount.incrementAndGet();
+        pools.get(Integer.numberOfTrailingZeros(length) - MIN_SIZE_CLASS).offer(bytes);
+    }
+
+    /**
+     * Returns the size class (the power of two) a request for the given size will be served from.
+     */
+    public static int sizeClass(int size) {
+        if (size <= MIN_SIZE) {
+            return MIN_SIZE_CLASS;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    public static void clear() {
+        while (evictOne()) {
+            // keep on evicting
+        }
+    }
+
+    public static BytesRecyclerStats stats() {
+        return new BytesRecyclerStats(pooledCount.get(), pooledSize.get(), budget, acquireCount.get(), missCount.get(), dropCount.get());
+    }
+
+    /**
+     * Evicts one array, starting with the larger size classes.
+     */
+    private static boolean evictOne() {
+        for (int i = pools.size() - 1; i >= 0; i--) {
+            byte[] bytes = pools.get(i).poll();
+            if (bytes != null) {
+                pooledSize.addAndGet(-bytes.length);
+                pooledCount.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Occupancy and usage statistics of the {@link BytesRecycler}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class BytesRecyclerStats implements Streamable, Serializable, ToXContent {
+
+    private long count;
+
+    private long size;
+
+    private long budget;
+
+    private long acquireCount;
+
+    private long missCount;
+
+    private long dropCount;
+
+    BytesRecyclerStats() {
+    }
+
+    public BytesRecyclerStats(long count, long size, long budget, long acquireCount, long missCount, long dropCount) {
+        this.count = count;
+        this.size = size;
+        this.budget = budget;
+        this.acquireCount = acquireCount;
+        this.missCount = missCount;
+        this.dropCount = dropCount;
+    }
+
+    /**
+     * The number of arrays currently pooled.
+     */
+    public long count() {
+        return count;
+    }
+
+    public long getCount() {
+        return count();
+    }
+
+    /**
+     * The total size of the arrays currently pooled.
+     */
+    public ByteSizeValue size() {
+        return new ByteSizeValue(size);
+    }
+
+    public ByteSizeValue getSize() {
+        return size();
+    }
+
+    public ByteSizeValue budget() {
+        return new ByteSizeValue(budget);
+    }
+
+    public ByteSizeValue getBudget() {
+        return budget();
+    }
+
+    public long acquireCount() {
+        return acquireCount;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount();
+    }
+
+    /**
+     * The number of acquires that had to allocate a new array.
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    public long getMissCount() {
+        return missCount();
+    }
+
+    /**
+     * The number of released arrays not pooled because the pool was over its budget.
+     */
+    public long dropCount() {
+        return dropCount;
+    }
+
+    public long getDropCount() {
+        return dropCount();
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("bytes_recycler");
+        builder.field("count", count);
+        builder.field("size", size().toString());
+        builder.field("size_in_bytes", size);
+        builder.field("budget", budget().toString());
+        builder.field("budget_in_bytes", budget);
+        builder.field("acquire_count", acquireCount);
+        builder.field("miss_count", missCount);
+        builder.field("drop_count", dropCount);
+        builder.endObject();
+        return builder;
+    }
+
+    public static BytesRecyclerStats readBytesRecyclerStats(StreamInput in) throws IOException {
+        BytesRecyclerStats stats = new BytesRecyclerStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        count = in.readVLong();
+        size = in.readVLong();
+        budget = in.readVLong();
+        acquireCount = in.readVLong();
+        missCount = in.readVLong();
+        dropCount = in.readVLong();
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(count);
+        out.writeVLong(size);
+        out.writeVLong(budget);
+        out.writeVLong(acquireCount);
+        out.writeVLong(missCount);
+        out.writeVLong(dropCount);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+/**
+ * Limits the rate of bytes streamed by all the threads sharing it to a configured bytes/sec. Each
+ * call to {@link #pause(long)} reserves the time slot its bytes take at the configured rate, and
+ * waits until the slot is over, so concurrent streams are throttled as one.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class RateLimiter {
+
+    /**
+     * Don't bother sleeping for less than this, the reservation is kept so the next pause makes up for it.
+     */
+    private static final long MIN_PAUSE_NANOS = 5 * 1000 * 1000;
+
+    private final long bytesPerSec;
+
+    private final double nanosPerByte;
+
+    private long lastNanos = System.nanoTime();
+
+    /**
+     * @param maxBytesPerSec the maximum bytes per sec, <tt>null</tt> or non positive for no limit
+     */
+    public RateLimiter(@Nullable ByteSizeValue maxBytesPerSec) {
+        this.bytesPerSec = maxBytesPerSec == null ? 0 : maxBytesPerSec.bytes();
+        this.nanosPerByte = bytesPerSec <= 0 ? 0 : 1000000000.0 / bytesPerSec;
+    }
+
+    public boolean enabled() {
+        return nanosPerByte > 0;
+    }
+
+    /**
+     * The limit in bytes per sec, <tt>0</tt> if not limited.
+     */
+    public long bytesPerSec() {
+        return bytesPerSec;
+    }
+
+    /**
+     * Accounts for the provided bytes, pausing the current thread if needed. Returns the time paused in nanos.
+     */
+    public long pause(long bytes) {
+        if (nanosPerByte == 0 || bytes <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long target;
+        synchronized (this) {
+            // don't let a stream that was idle accumulate credit
+            target = Math.max(lastNanos, now) + (long) (bytes * nanosPerByte);
+            lastNanos = target;
+        }
+        long pauseNanos = target - now;
+        if (pauseNanos < MIN_PAUSE_NANOS) {
+            return 0;
+        }
+        try {
+            Thread.sleep(pauseNanos / 1000000, (int) (pauseNanos % 1000000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return pauseNanos;
+    }
+
+    @Override public String toString() {
+        return enabled() ? new ByteSizeValue(bytesPerSec) + "/s" : "unlimited";
+    }
+}
@@ -45,10 +45,21 @@ public class BytesStreamOutput extends StreamOutput {
         this.buf = new byte[size];
     }
 
+    protected BytesStreamOutput(byte[] buf) {
+        this.buf = buf;
+    }
+
+    /**
+     * Grows the buffer so it can hold at least <tt>newcount</tt> bytes.
+     */
+    protected void grow(int newcount) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length << 1, newcount));
+    }
+
     @Override public void writeByte(byte b) throws IOException {
         int newcount = count + 1;
         if (newcount > buf.length) {
-            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, newcount));
+            grow(newcount);
         }
         buf[count] = b;
         count = newcount;
@@ -60,7 +71,7 @@ public class BytesStreamOutput extends StreamOutput {
         }
         int newcount = count + length;
         if (newcount > buf.length) {
-            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, newcount));
+            grow(newcount);
         }
         System.arraycopy(b, offset, buf, count, length);
         count = newcount;
@@ -137,7 +148,7 @@ public class BytesStreamOutput extends StreamOutput {
 
         int newcount = count + utflen + 4;
         if (newcount > buf.length) {
-            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, newcount));
+            grow(newcount);
         }
 
         byte[] bytearr = this.buf;
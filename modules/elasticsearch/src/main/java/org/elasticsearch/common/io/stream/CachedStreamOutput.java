@@ -19,71 +19,152 @@
 
 package org.elasticsearch.common.io.stream;
 
+import org.elasticsearch.common.io.BytesRecycler;
+import org.elasticsearch.common.util.concurrent.jsr166y.LinkedTransferQueue;
+
 import java.io.IOException;
-import java.lang.ref.SoftReference;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * A bounded pool of reusable output streams. An {@link Entry} is explicitly taken using {@link #popEntry()}
+ * and must be returned using {@link #pushEntry(Entry)} once the data written to it is no longer used.
+ *
+ * <p>The bytes streams draw their buffers from the {@link BytesRecycler}, and an entry only holds on to a
+ * buffer of up to {@link #MAX_RETAINED_SIZE} bytes while pooled, larger buffers are returned to the recycler.
+ *
  * @author kimchy (shay.banon)
  */
 public class CachedStreamOutput {
 
-    static class Entry {
-        final BytesStreamOutput bytes;
-        final HandlesStreamOutput handles;
-        final LZFStreamOutput lzf;
+    public static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private static final int MAX_ENTRIES = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    public static class Entry {
+        private final RecycledBytesStreamOutput bytes;
+        private final HandlesStreamOutput handles;
+        private LZFStreamOutput lzf;
+
+        Entry() {
+            this.bytes = new RecycledBytesStreamOutput();
+            this.handles = new HandlesStreamOutput(bytes);
+        }
+
+        /**
+         * Returns the entry byte stream, with its internal stream cleared.
+         */
+        public BytesStreamOutput cachedBytes() {
+            bytes.reset();
+            return bytes;
+        }
+
+        public LZFStreamOutput cachedLZFBytes() throws IOException {
+            LZFStreamOutput lzf = lzf();
+            lzf.reset(bytes);
+            return lzf;
+        }
+
+        public HandlesStreamOutput cachedHandlesLzfBytes() throws IOException {
+            LZFStreamOutput lzf = lzf();
+            lzf.reset(bytes);
+            handles.reset(lzf);
+            return handles;
+        }
+
+        public HandlesStreamOutput cachedHandlesBytes() throws IOException {
+            handles.reset(bytes);
+            return handles;
+        }
+
+        /**
+         * Returns the entry handles stream, writing into the provided stream (which gets reset).
+         */
+        public HandlesStreamOutput cachedHandles(StreamOutput out) throws IOException {
+            handles.reset(out);
+            return handles;
+        }
+
+        /**
+         * Returns the entry handles stream, compressing into the provided stream (which gets reset).
+         */
+        public HandlesStreamOutput cachedHandlesLzf(StreamOutput out) throws IOException {
+            LZFStreamOutput lzf = lzf();
+            lzf.reset(out);
+            handles.reset(lzf);
+            return handles;
+        }
 
-        Entry(BytesStreamOutput bytes, HandlesStreamOutput handles, LZFStreamOutput lzf) {
-            this.bytes = bytes;
-            this.handles = handles;
-            this.lzf = lzf;
+        private LZFStreamOutput lzf() {
+            if (lzf == null) {
+                lzf = new LZFStreamOutput(bytes, true);
+            }
+            return lzf;
         }
     }
 
-    private static final ThreadLocal<SoftReference<Entry>> cache = new ThreadLocal<SoftReference<Entry>>();
+    private static final Queue<Entry> cache = new LinkedTransferQueue<Entry>();
+
+    private static final AtomicInteger counter = new AtomicInteger();
 
-    static Entry instance() {
-        SoftReference<Entry> ref = cache.get();
-        Entry entry = ref == null ? null : ref.get();
+    public static Entry popEntry() {
+        Entry entry = cache.poll();
         if (entry == null) {
-            BytesStreamOutput bytes = new BytesStreamOutput();
-            HandlesStreamOutput handles = new HandlesStreamOutput(bytes);
-            LZFStreamOutput lzf = new LZFStreamOutput(bytes, true);
-            entry = new Entry(bytes, handles, lzf);
-            cache.set(new SoftReference<Entry>(entry));
+            return new Entry();
         }
+        counter.decrementAndGet();
         return entry;
     }
 
+    public static void pushEntry(Entry entry) {
+        entry.bytes.trim(MAX_RETAINED_SIZE);
+        if (counter.incrementAndGet() > MAX_ENTRIES) {
+            counter.decrementAndGet();
+            entry.bytes.release();
+            return;
+        }
+        cache.offer(entry);
+    }
+
     public static void clear() {
-        cache.remove();
+        Entry entry;
+        while ((entry = cache.poll()) != null) {
+            counter.decrementAndGet();
+            entry.bytes.release();
+        }
     }
 
     /**
-     * Returns the cached thread local byte stream, with its internal stream cleared.
+     * A bytes stream that grows using arrays from the {@link BytesRecycler}, returning the ones it outgrew.
      */
-    public static BytesStreamOutput cachedBytes() {
-        BytesStreamOutput os = instance().bytes;
-        os.reset();
-        return os;
-    }
+    static class RecycledBytesStreamOutput extends BytesStreamOutput {
 
-    public static LZFStreamOutput cachedLZFBytes() throws IOException {
-        LZFStreamOutput lzf = instance().lzf;
-        lzf.reset();
-        return lzf;
-    }
+        RecycledBytesStreamOutput() {
+            super(BytesRecycler.acquire(BytesRecycler.MIN_SIZE));
+        }
 
-    public static HandlesStreamOutput cachedHandlesLzfBytes() throws IOException {
-        Entry entry = instance();
-        HandlesStreamOutput os = entry.handles;
-        os.reset(entry.lzf);
-        return os;
-    }
+        @Override protected void grow(int newcount) {
+            byte[] newBuf = BytesRecycler.acquire(Math.max(buf.length << 1, newcount));
+            System.arraycopy(buf, 0, newBuf, 0, count);
+            BytesRecycler.release(buf);
+            buf = newBuf;
+        }
+
+        /**
+         * Resets the stream, returning its buffer to the recycler if it is larger than the provided size.
+         */
+        void trim(int maxSize) {
+            reset();
+            if (buf.length > maxSize) {
+                BytesRecycler.release(buf);
+                buf = BytesRecycler.acquire(BytesRecycler.MIN_SIZE);
+            }
+        }
 
-    public static HandlesStreamOutput cachedHandlesBytes() throws IOException {
-        Entry entry = instance();
-        HandlesStreamOutput os = entry.handles;
-        os.reset(entry.bytes);
-        return os;
+        void release() {
+            reset();
+            BytesRecycler.release(buf);
+            buf = null;
+        }
     }
 }
@@ -30,7 +30,7 @@ import java.io.IOException;
  */
 public class LZFStreamOutput extends StreamOutput {
 
-    private static int OUTPUT_BUFFER_SIZE = LZFChunk.MAX_CHUNK_LEN;
+    private static final int OUTPUT_BUFFER_SIZE = LZFChunk.MAX_CHUNK_LEN;
 
     private final ChunkEncoder _encoder;
     private final BufferRecycler _recycler;
@@ -50,21 +50,21 @@ public class LZFStreamOutput extends StreamOutput {
     }
 
     @Override public void write(final int singleByte) throws IOException {
-        if (_position >= _outputBuffer.length) {
+        if (_position >= OUTPUT_BUFFER_SIZE) {
             writeCompressedBlock();
         }
         _outputBuffer[_position++] = (byte) singleByte;
     }
 
     @Override public void writeByte(byte b) throws IOException {
-        if (_position >= _outputBuffer.length) {
+        if (_position >= OUTPUT_BUFFER_SIZE) {
             writeCompressedBlock();
         }
         _outputBuffer[_position++] = b;
     }
 
     @Override public void writeBytes(byte[] buffer, int offset, int length) throws IOException {
-        final int BUFFER_LEN = _outputBuffer.length;
+        final int BUFFER_LEN = OUTPUT_BUFFER_SIZE;
 
         // simple case first: buffering only (for trivially short writes)
         int free = BUFFER_LEN - _position;
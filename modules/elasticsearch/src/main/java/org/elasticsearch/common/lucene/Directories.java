@@ -31,6 +31,8 @@ import org.elasticsearch.index.store.support.ForceSyncDirectory;
 
 import java.io.*;
 import java.util.Collection;
+import java.util.zip.Adler32;
+import java.util.zip.Checksum;
 
 import static org.elasticsearch.common.io.FileSystemUtils.*;
 
@@ -57,6 +59,29 @@ public class Directories {
         return new ByteSizeValue(estimatedSize);
     }
 
+    /**
+     * Computes the checksum of the content of the first <tt>length</tt> bytes of the file. Unlike the checksum
+     * the store keeps for a file (of the bytes written to it), it can be computed for any file, and for a prefix
+     * of it.
+     */
+    public static String contentChecksum(Directory directory, String name, long length) throws IOException {
+        IndexInput indexInput = directory.openInput(name);
+        try {
+            Checksum digest = new Adler32();
+            byte[] buffer = new byte[8192];
+            long left = length;
+            while (left > 0) {
+                int size = (int) Math.min(buffer.length, left);
+                indexInput.readBytes(buffer, 0, size, false);
+                digest.update(buffer, 0, size);
+                left -= size;
+            }
+            return Long.toString(digest.getValue(), Character.MAX_RADIX);
+        } finally {
+            indexInput.close();
+        }
+    }
+
     /**
      * Lists all the commit point in a directory.
      */
@@ -430,6 +430,8 @@ public class Lucene {
         }
 
         @Override public void setNextReader(IndexReader reader, int docBase) throws IOException {
+            // the scorer is not set when no doc matches on the reader, reset here as well
+            this.exists = false;
         }
 
         @Override public boolean acceptsDocsOutOfOrder() {
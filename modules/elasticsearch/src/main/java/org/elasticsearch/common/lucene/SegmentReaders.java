@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene;
+
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.lang.reflect.Method;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public abstract class SegmentReaders {
+
+    private static ESLogger logger = Loggers.getLogger(SegmentReaders.class);
+
+    private static Method getSegmentInfoMethod;
+
+    static {
+        try {
+            getSegmentInfoMethod = SegmentReader.class.getDeclaredMethod("getSegmentInfo");
+            getSegmentInfoMethod.setAccessible(true);
+        } catch (Exception e) {
+            logger.warn("Failed to get segment info method", e);
+        }
+    }
+
+    /**
+     * The segment info of the reader, <tt>null</tt> if it can't be accessed.
+     */
+    @Nullable public static SegmentInfo segmentInfo(SegmentReader reader) {
+        if (getSegmentInfoMethod == null) {
+            return null;
+        }
+        try {
+            return (SegmentInfo) getSegmentInfoMethod.invoke(reader);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private SegmentReaders() {
+
+    }
+}
@@ -44,6 +44,14 @@ public class AllField extends AbstractField {
         this.analyzer = analyzer;
     }
 
+    public AllEntries allEntries() {
+        return allEntries;
+    }
+
+    public Analyzer analyzer() {
+        return analyzer;
+    }
+
     @Override public String stringValue() {
         if (isStored()) {
             return allEntries.buildText();
@@ -64,9 +64,64 @@ public class AndDocSet extends DocSet {
     }
 
     @Override public DocIdSetIterator iterator() throws IOException {
+        // if there is a sparse set, drive the iteration from the smallest one and check the other sets
+        // using random access, instead of leap frogging all the iterators
+        SortedIntDocSet sparsest = null;
+        for (DocSet set : sets) {
+            if (set instanceof SortedIntDocSet) {
+                if (sparsest == null || ((SortedIntDocSet) set).cardinality() < sparsest.cardinality()) {
+                    sparsest = (SortedIntDocSet) set;
+                }
+            }
+        }
+        if (sparsest != null) {
+            return new SparseAndDocIdSetIterator(sparsest);
+        }
         return new AndDocIdSetIterator();
     }
 
+    class SparseAndDocIdSetIterator extends DocIdSetIterator {
+
+        private final SortedIntDocSet driver;
+
+        private final DocIdSetIterator iterator;
+
+        private int doc = -1;
+
+        SparseAndDocIdSetIterator(SortedIntDocSet driver) throws IOException {
+            this.driver = driver;
+            this.iterator = driver.iterator();
+        }
+
+        @Override public int docID() {
+            return doc;
+        }
+
+        @Override public int nextDoc() throws IOException {
+            return doc = next(iterator.nextDoc());
+        }
+
+        @Override public int advance(int target) throws IOException {
+            return doc = next(iterator.advance(target));
+        }
+
+        private int next(int doc) throws IOException {
+            while (doc != NO_MORE_DOCS && !matchesOthers(doc)) {
+                doc = iterator.nextDoc();
+            }
+            return doc;
+        }
+
+        private boolean matchesOthers(int doc) throws IOException {
+            for (DocSet set : sets) {
+                if (set != driver && !set.get(doc)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     class AndDocIdSetIterator extends DocIdSetIterator {
         int lastReturn = -1;
         private DocIdSetIterator[] iterators = null;
@@ -0,0 +1,206 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.OpenBitSet;
+import org.elasticsearch.common.RamUsage;
+
+import java.io.IOException;
+
+/**
+ * A word aligned compressed bit set. The bits are split into blocks of 64 words (4096 bits), and for each block
+ * two masks mark which of its words are all ones and which are stored as is (literal words). Empty and full words
+ * take no space, and a doc lookup is still constant time (a bit count over the block mask to find its literal word).
+ *
+ * @author kimchy (shay.banon)
+ */
+public class CompressedBitDocSet extends DocSet {
+
+    private static final int BLOCK_SHIFT = 6; // 64 words in a block
+
+    private final int numBits;
+
+    private final long[] literalMasks;
+
+    private final long[] fullMasks;
+
+    private final int[] offsets;
+
+    private final long[] words;
+
+    public CompressedBitDocSet(OpenBitSet set, int numBits) {
+        this.numBits = numBits;
+        int numWords = Math.min(set.getNumWords(), OpenBitSet.bits2words(numBits));
+        long[] bits = set.getBits();
+        int numBlocks = (OpenBitSet.bits2words(numBits) + 63) >>> BLOCK_SHIFT;
+
+        this.literalMasks = new long[numBlocks];
+        this.fullMasks = new long[numBlocks];
+        this.offsets = new int[numBlocks];
+        this.words = new long[literalWords(set, numBits)];
+
+        int literalIndex = 0;
+        for (int block = 0; block < numBlocks; block++) {
+            offsets[block] = literalIndex;
+            int from = block << BLOCK_SHIFT;
+            int to = Math.min(from + 64, numWords);
+            for (int i = from; i < to; i++) {
+                long word = bits[i];
+                if (word == -1L) {
+                    fullMasks[block] |= 1L << (i - from);
+                } else if (word != 0) {
+                    literalMasks[block] |= 1L << (i - from);
+                    words[literalIndex++] = word;
+                }
+            }
+        }
+    }
+
+    /**
+     * The number of words that would be stored as literal words (not empty and not full) for the bit set.
+     */
+    public static int literalWords(OpenBitSet set, int numBits) {
+        int numWords = Math.min(set.getNumWords(), OpenBitSet.bits2words(numBits));
+        long[] bits = set.getBits();
+        int literalWords = 0;
+        for (int i = 0; i < numWords; i++) {
+            if (bits[i] != 0 && bits[i] != -1L) {
+                literalWords++;
+            }
+        }
+        return literalWords;
+    }
+
+    /**
+     * The size a compressed doc set with the provided number of bits and literal words takes.
+     */
+    public static long sizeInBytes(int numBits, int literalWords) {
+        int numBlocks = (OpenBitSet.bits2words(numBits) + 63) >>> BLOCK_SHIFT;
+        return (numBlocks * 2 + literalWords) * RamUsage.NUM_BYTES_LONG + numBlocks * RamUsage.NUM_BYTES_INT
+                + 4 * RamUsage.NUM_BYTES_ARRAY_HEADER + RamUsage.NUM_BYTES_INT /* numBits */;
+    }
+
+    @Override public boolean isCacheable() {
+        return true;
+    }
+
+    @Override public long sizeInBytes() {
+        return sizeInBytes(numBits, words.length);
+    }
+
+    @Override public boolean get(int doc) throws IOException {
+        if (doc >= numBits) {
+            return false;
+        }
+        int wordIndex = doc >>> 6;
+        int block = wordIndex >>> BLOCK_SHIFT;
+        long bit = 1L << wordIndex; // shifts are mod 64, so this is the word position within the block
+        if ((fullMasks[block] & bit) != 0) {
+            return true;
+        }
+        long literalMask = literalMasks[block];
+        if ((literalMask & bit) == 0) {
+            return false;
+        }
+        return (words[offsets[block] + Long.bitCount(literalMask & (bit - 1))] & (1L << doc)) != 0;
+    }
+
+    @Override public DocIdSetIterator iterator() throws IOException {
+        return new CompressedBitDocIdSetIterator();
+    }
+
+    /**
+     * Returns the index of the first word at or after the provided one that is not empty, or <tt>-1</tt>
+     * if there is none.
+     */
+    private int nextWord(int wordIndex) {
+        int block = wordIndex >>> BLOCK_SHIFT;
+        if (block >= literalMasks.length) {
+            return -1;
+        }
+        long present = (literalMasks[block] | fullMasks[block]) & (-1L << wordIndex);
+        while (present == 0) {
+            if (++block >= literalMasks.length) {
+                return -1;
+            }
+            present = literalMasks[block] | fullMasks[block];
+        }
+        return (block << BLOCK_SHIFT) + Long.numberOfTrailingZeros(present);
+    }
+
+    private long word(int wordIndex) {
+        int block = wordIndex >>> BLOCK_SHIFT;
+        long bit = 1L << wordIndex;
+        if ((fullMasks[block] & bit) != 0) {
+            return -1L;
+        }
+        return words[offsets[block] + Long.bitCount(literalMasks[block] & (bit - 1))];
+    }
+
+    class CompressedBitDocIdSetIterator extends DocIdSetIterator {
+
+        private int wordIndex = -1;
+
+        private long word;
+
+        private int doc = -1;
+
+        @Override public int docID() {
+            return doc;
+        }
+
+        @Override public int nextDoc() throws IOException {
+            while (word == 0) {
+                wordIndex = nextWord(wordIndex + 1);
+                if (wordIndex < 0) {
+                    wordIndex = Integer.MAX_VALUE >>> 6;
+                    return doc = NO_MORE_DOCS;
+                }
+                word = word(wordIndex);
+            }
+            int bit = Long.numberOfTrailingZeros(word);
+            word &= word - 1; // clear the lowest bit
+            return doc = (wordIndex << 6) + bit;
+        }
+
+        @Override public int advance(int target) throws IOException {
+            if (target >= numBits) {
+                word = 0;
+                wordIndex = Integer.MAX_VALUE >>> 6;
+                return doc = NO_MORE_DOCS;
+            }
+            int targetWord = target >>> 6;
+            if (targetWord > wordIndex) {
+                wordIndex = nextWord(targetWord);
+                if (wordIndex < 0) {
+                    word = 0;
+                    wordIndex = Integer.MAX_VALUE >>> 6;
+                    return doc = NO_MORE_DOCS;
+                }
+                word = word(wordIndex);
+            }
+            if (wordIndex == targetWord) {
+                word &= -1L << target;
+            }
+            return nextDoc();
+        }
+    }
+}
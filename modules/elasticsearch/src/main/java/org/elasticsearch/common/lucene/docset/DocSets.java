@@ -23,6 +23,8 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.OpenBitSetDISI;
+import org.elasticsearch.common.RamUsage;
 
 import java.io.IOException;
 
@@ -48,22 +50,61 @@ public class DocSets {
     }
 
     /**
-     * Returns a cacheable version of the doc id set (might be the same instance provided as a parameter).
+     * Returns a cacheable version of the doc id set (might be the same instance provided as a parameter). Bit sets
+     * are converted to the most compact representation for their cardinality, see {@link #compact(org.apache.lucene.util.OpenBitSet, int)}.
      */
     public static DocSet cacheable(IndexReader reader, DocIdSet docIdSet) throws IOException {
         if (docIdSet == null) {
             return DocSet.EMPTY_DOC_SET;
+        } else if (docIdSet instanceof OpenBitDocSet) {
+            return compact(((OpenBitDocSet) docIdSet).set(), reader.maxDoc());
         } else if (docIdSet.isCacheable() && (docIdSet instanceof DocSet)) {
             return (DocSet) docIdSet;
         } else if (docIdSet instanceof OpenBitSet) {
-            return new OpenBitDocSet((OpenBitSet) docIdSet);
+            return compact((OpenBitSet) docIdSet, reader.maxDoc());
         } else {
             final DocIdSetIterator it = docIdSet.iterator();
             // null is allowed to be returned by iterator(),
             // in this case we wrap with the empty set,
             // which is cacheable.
-            return (it == null) ? DocSet.EMPTY_DOC_SET : new OpenBitDocSet(it, reader.maxDoc());
+            return (it == null) ? DocSet.EMPTY_DOC_SET : compact(new OpenBitSetDISI(it, reader.maxDoc()), reader.maxDoc());
+        }
+    }
+
+    /**
+     * Returns the most compact doc set for the bit set, based on its cardinality: a {@link SortedIntDocSet} for sparse
+     * sets, a {@link CompressedBitDocSet} when compressing the bit set at least halves its size, and an
+     * {@link OpenBitDocSet} (wrapping the provided set) for dense sets.
+     */
+    public static DocSet compact(OpenBitSet set, int maxDoc) {
+        long cardinality = set.cardinality();
+        if (cardinality == 0) {
+            return DocSet.EMPTY_DOC_SET;
+        }
+        long bitSetSize = OpenBitSet.bits2words(maxDoc) * RamUsage.NUM_BYTES_LONG;
+        long sortedIntSize = cardinality * RamUsage.NUM_BYTES_INT;
+        if (sortedIntSize * 2 <= bitSetSize) {
+            long compressedSize = CompressedBitDocSet.sizeInBytes(maxDoc, CompressedBitDocSet.literalWords(set, maxDoc));
+            if (sortedIntSize <= compressedSize) {
+                int[] docs = new int[(int) cardinality];
+                DocIdSetIterator it = set.iterator();
+                int i = 0;
+                try {
+                    for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                        docs[i++] = doc;
+                    }
+                } catch (IOException e) {
+                    // can't happen, iterating over a bit set
+                }
+                return new SortedIntDocSet(docs);
+            }
+            return new CompressedBitDocSet(set, maxDoc);
+        }
+        long compressedSize = CompressedBitDocSet.sizeInBytes(maxDoc, CompressedBitDocSet.literalWords(set, maxDoc));
+        if (compressedSize * 2 <= bitSetSize) {
+            return new CompressedBitDocSet(set, maxDoc);
         }
+        return new OpenBitDocSet(set);
     }
 
     private DocSets() {
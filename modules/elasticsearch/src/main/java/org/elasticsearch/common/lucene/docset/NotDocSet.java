@@ -19,6 +19,8 @@
 
 package org.elasticsearch.common.lucene.docset;
 
+import org.apache.lucene.search.DocIdSetIterator;
+
 import java.io.IOException;
 
 /**
@@ -28,9 +30,12 @@ public class NotDocSet extends GetDocSet {
 
     private final DocSet set;
 
+    private final int max;
+
     public NotDocSet(DocSet set, int max) {
         super(max);
         this.set = set;
+        this.max = max;
     }
 
     @Override public boolean isCacheable() {
@@ -48,6 +53,59 @@ public class NotDocSet extends GetDocSet {
         return set.sizeInBytes();
     }
 
+    @Override public DocIdSetIterator iterator() throws IOException {
+        if (set instanceof SortedIntDocSet) {
+            // walk the excluded docs alongside, instead of a binary search for each doc
+            return new NotSortedIntDocIdSetIterator(((SortedIntDocSet) set).docs(), max);
+        }
+        return super.iterator();
+    }
+
+    static class NotSortedIntDocIdSetIterator extends DocIdSetIterator {
+
+        private final int[] excluded;
+
+        private final int max;
+
+        private int index = 0;
+
+        private int doc = -1;
+
+        NotSortedIntDocIdSetIterator(int[] excluded, int max) {
+            this.excluded = excluded;
+            this.max = max;
+        }
+
+        @Override public int docID() {
+            return doc;
+        }
+
+        @Override public int nextDoc() throws IOException {
+            if (doc == NO_MORE_DOCS) {
+                return NO_MORE_DOCS;
+            }
+            return advance(doc + 1);
+        }
+
+        @Override public int advance(int target) throws IOException {
+            if (target >= max) {
+                return doc = NO_MORE_DOCS;
+            }
+            doc = target;
+            while (index < excluded.length && excluded[index] < doc) {
+                index++;
+            }
+            while (index < excluded.length && excluded[index] == doc) {
+                doc++;
+                index++;
+            }
+            if (doc >= max) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc;
+        }
+    }
+
     // This seems like overhead compared to testing with get and iterating over docs
 //    @Override public DocIdSetIterator iterator() throws IOException {
 //        return new NotDocIdSetIterator();
@@ -23,6 +23,7 @@ import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -64,9 +65,46 @@ public class OrDocSet extends DocSet {
     }
 
     @Override public DocIdSetIterator iterator() throws IOException {
+        // all sparse sets, simply merge them instead of maintaining a heap of iterators
+        boolean allSparse = true;
+        int size = 0;
+        for (DocSet set : sets) {
+            if (!(set instanceof SortedIntDocSet)) {
+                allSparse = false;
+                break;
+            }
+            size += ((SortedIntDocSet) set).cardinality();
+        }
+        if (allSparse) {
+            return new SortedIntDocSet(merge(size)).iterator();
+        }
         return new OrDocIdSetIterator();
     }
 
+    private int[] merge(int size) {
+        int[] docs = new int[size];
+        int index = 0;
+        for (DocSet set : sets) {
+            int[] setDocs = ((SortedIntDocSet) set).docs();
+            System.arraycopy(setDocs, 0, docs, index, setDocs.length);
+            index += setDocs.length;
+        }
+        Arrays.sort(docs);
+        // remove duplicates
+        int unique = 0;
+        for (int i = 0; i < docs.length; i++) {
+            if (unique == 0 || docs[i] != docs[unique - 1]) {
+                docs[unique++] = docs[i];
+            }
+        }
+        if (unique == docs.length) {
+            return docs;
+        }
+        int[] uniqueDocs = new int[unique];
+        System.arraycopy(docs, 0, uniqueDocs, 0, unique);
+        return uniqueDocs;
+    }
+
     public class OrDocIdSetIterator extends DocIdSetIterator {
 
         private final class Item {
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.elasticsearch.common.RamUsage;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A doc set backed by a sorted array of doc ids, taking 4 bytes per matching doc. Useful for sparse sets,
+ * where a bit set would mostly hold zeros.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class SortedIntDocSet extends DocSet {
+
+    private final int[] docs;
+
+    /**
+     * @param docs The sorted (unique) doc ids.
+     */
+    public SortedIntDocSet(int[] docs) {
+        this.docs = docs;
+    }
+
+    public int[] docs() {
+        return docs;
+    }
+
+    public int cardinality() {
+        return docs.length;
+    }
+
+    @Override public boolean isCacheable() {
+        return true;
+    }
+
+    @Override public boolean get(int doc) throws IOException {
+        return Arrays.binarySearch(docs, doc) >= 0;
+    }
+
+    @Override public long sizeInBytes() {
+        return docs.length * RamUsage.NUM_BYTES_INT + RamUsage.NUM_BYTES_ARRAY_HEADER;
+    }
+
+    @Override public DocIdSetIterator iterator() throws IOException {
+        return new SortedIntDocIdSetIterator(docs);
+    }
+
+    static final class SortedIntDocIdSetIterator extends DocIdSetIterator {
+
+        private final int[] docs;
+
+        private int index = -1;
+
+        private int doc = -1;
+
+        SortedIntDocIdSetIterator(int[] docs) {
+            this.docs = docs;
+        }
+
+        @Override public int docID() {
+            return doc;
+        }
+
+        @Override public int nextDoc() throws IOException {
+            if (++index < docs.length) {
+                return doc = docs[index];
+            }
+            return doc = NO_MORE_DOCS;
+        }
+
+        @Override public int advance(int target) throws IOException {
+            // gallop forward from the current position, then binary search within the last step
+            int low = index + 1;
+            int step = 1;
+            int high = low;
+            while (high < docs.length && docs[high] < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            if (high >= docs.length) {
+                high = docs.length - 1;
+            }
+            if (low > high) {
+                index = docs.length;
+                return doc = NO_MORE_DOCS;
+            }
+            int found = Arrays.binarySearch(docs, low, high + 1, target);
+            index = found >= 0 ? found : -found - 1;
+            if (index >= docs.length) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = docs[index];
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory budget for cached entries of a known size. Once the entries go over the budget, the least recently used
+ * ones are evicted down to <tt>cleanRatio</tt> of the budget, so the next added entries won't need to evict (and
+ * sort the entries) again right away.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class LruMemoryBudget<T extends LruMemoryBudget.Entry> {
+
+    /**
+     * Parses a budget size, either a percentage of the heap (for example <tt>20%</tt>) or a byte size.
+     */
+    public static ByteSizeValue parseSize(String size) {
+        if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            return new ByteSizeValue((long) (((double) JvmInfo.jvmInfo().mem().heapMax().bytes()) * (percent / 100)));
+        }
+        return ByteSizeValue.parseBytesSizeValue(size, null);
+    }
+
+    private final ByteSizeValue size;
+
+    private final long cleanSizeInBytes;
+
+    private final Set<T> entries = ConcurrentCollections.newConcurrentSet();
+
+    private final AtomicLong sizeInBytes = new AtomicLong();
+
+    private final AtomicLong accessClock = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Object evictionMutex = new Object();
+
+    public LruMemoryBudget(ByteSizeValue size, float cleanRatio) {
+        this.size = size;
+        this.cleanSizeInBytes = (long) (size.bytes() * cleanRatio);
+    }
+
+    public ByteSizeValue size() {
+        return this.size;
+    }
+
+    /**
+     * The total size of the entries within the budget.
+     */
+    public long sizeInBytes() {
+        return sizeInBytes.get();
+    }
+
+    public long count() {
+        return entries.size();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Can an entry of the provided size be added at all, entries larger than the whole budget can't.
+     */
+    public boolean fits(long sizeInBytes) {
+        return sizeInBytes <= size.bytes();
+    }
+
+    /**
+     * Marks the entry as the most recently used one.
+     */
+    public void touch(T entry) {
+        entry.lastAccess = accessClock.incrementAndGet();
+    }
+
+    /**
+     * Adds a new entry, evicting the least recently used entries (never the added one) if the budget is exceeded.
+     */
+    public void add(T entry) {
+        entry.lastAccess = accessClock.incrementAndGet();
+        entries.add(entry);
+        if (sizeInBytes.addAndGet(entry.sizeInBytes()) > size.bytes()) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Removes the entry from the budget, called when the owning cache removes it. Returns <tt>false</tt> if it has
+     * already been removed (or evicted).
+     */
+    public boolean remove(T entry) {
+        if (entries.remove(entry)) {
+            sizeInBytes.addAndGet(-entry.sizeInBytes());
+            return true;
+        }
+        return false;
+    }
+
+    private void evict(T added) {
+        synchronized (evictionMutex) {
+            if (sizeInBytes.get() <= size.bytes()) {
+                // someone else already evicted
+                return;
+            }
+            List<T> lru = Lists.newArrayList(entries);
+            Collections.sort(lru, LRU_COMPARATOR);
+            for (T entry : lru) {
+                if (sizeInBytes.get() <= cleanSizeInBytes) {
+                    break;
+                }
+                if (entry != added && remove(entry)) {
+                    evictions.incrementAndGet();
+                    entry.onEviction();
+                }
+            }
+        }
+    }
+
+    private static final Comparator<Entry> LRU_COMPARATOR = new Comparator<Entry>() {
+        @Override public int compare(Entry o1, Entry o2) {
+            return o1.lastAccess < o2.lastAccess ? -1 : (o1.lastAccess == o2.lastAccess ? 0 : 1);
+        }
+    };
+
+    /**
+     * An entry within the budget, equality is identity based.
+     */
+    public static abstract class Entry {
+
+        private final long sizeInBytes;
+
+        volatile long lastAccess;
+
+        protected Entry(long sizeInBytes) {
+            this.sizeInBytes = sizeInBytes;
+        }
+
+        public long sizeInBytes() {
+            return this.sizeInBytes;
+        }
+
+        /**
+         * Called once the entry has been evicted from the budget, so the owning cache can drop it.
+         */
+        protected abstract void onEviction();
+    }
+}
@@ -219,8 +219,9 @@ public class MulticastZenPing extends AbstractLifecycleComponent<ZenPing> implem
 
     private void sendPingRequest(int id, boolean remove) {
         synchronized (sendMutex) {
+            CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
             try {
-                HandlesStreamOutput out = CachedStreamOutput.cachedHandlesBytes();
+                HandlesStreamOutput out = cachedEntry.cachedHandlesBytes();
                 out.writeInt(id);
                 clusterName.writeTo(out);
                 nodesProvider.nodes().localNode().writeTo(out);
@@ -230,6 +231,8 @@ public class MulticastZenPing extends AbstractLifecycleComponent<ZenPing> implem
                     receivedResponses.remove(id);
                 }
                 throw new ZenPingException("Failed to serialize ping request", e);
+            } finally {
+                CachedStreamOutput.pushEntry(cachedEntry);
             }
             try {
                 multicastSocket.send(datagramPacketSend);
@@ -20,17 +20,24 @@
 package org.elasticsearch.discovery.zen.publish;
 
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.io.stream.*;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Publishes the cluster state from the master to the other nodes. When a node got the previous cluster
+ * state published, only the diff from it is sent (changed indices meta data and routing), otherwise, or if
+ * the node fails to apply the diff, the full cluster state is sent.
+ *
  * @author kimchy (shay.banon)
  */
 public class PublishClusterStateAction extends AbstractComponent {
@@ -45,12 +52,25 @@ public class PublishClusterStateAction extends AbstractComponent {
 
     private final NewClusterStateListener listener;
 
+    private final boolean diff;
+
+    // master side, the last published cluster state, and the version last sent to each node
+    private volatile ClusterState lastPublishedState;
+
+    private final ConcurrentMap<String, Long> nodesVersion = ConcurrentCollections.newConcurrentMap();
+
+    // non master side, the last received cluster state, that diffs are applied on
+    private final Object receiveMutex = new Object();
+
+    private ClusterState lastReceivedState;
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener) {
         super(settings);
         this.transportService = transportService;
         this.nodesProvider = nodesProvider;
         this.listener = listener;
+        this.diff = componentSettings.getAsBoolean("diff", true);
 
         transportService.registerHandler(PublishClusterStateRequestHandler.ACTION, new PublishClusterStateRequestHandler());
     }
@@ -62,33 +82,121 @@ public class PublishClusterStateAction extends AbstractComponent {
     public void publish(ClusterState clusterState) {
         DiscoveryNode localNode = nodesProvider.nodes().localNode();
 
-        // serialize the cluster state here, so we won't do it several times per node
-        byte[] clusterStateInBytes;
-        try {
-            HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesLzfBytes();
-            ClusterState.Builder.writeTo(clusterState, stream);
-            stream.flush();
-            BytesStreamOutput wrapped = ((BytesStreamOutput) ((LZFStreamOutput) stream.wrappedOut()).wrappedOut());
-            clusterStateInBytes = wrapped.copiedByteArray();
-        } catch (Exception e) {
-            logger.warn("failed to serialize cluster_state before publishing it to nodes", e);
-            return;
+        ClusterState previousState = lastPublishedState;
+        if (previousState != null && !clusterState.nodes().masterNodeId().equals(previousState.nodes().masterNodeId())) {
+            previousState = null;
         }
+        lastPublishedState = clusterState;
+
+        // serialize the cluster state here, so we won't do it several times per node
+        SerializedClusterState serializedState = new SerializedClusterState(diff ? previousState : null, clusterState);
 
         for (final DiscoveryNode node : clusterState.nodes()) {
             if (node.equals(localNode)) {
                 // no need to send to our self
                 continue;
             }
-            transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
-                    new PublishClusterStateRequest(clusterStateInBytes),
-                    TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
+            Long nodeVersion = nodesVersion.get(node.id());
+            boolean sendDiff = diff && previousState != null && nodeVersion != null && nodeVersion == previousState.version();
+            byte[] bytes = sendDiff ? serializedState.diff() : serializedState.full();
+            if (bytes == null) {
+                // failed to serialize, logged already
+                return;
+            }
+            sendClusterState(node, clusterState, serializedState, bytes, sendDiff);
+        }
+
+        // cleanup nodes that are no longer part of the cluster
+        for (String nodeId : nodesVersion.keySet()) {
+            if (!clusterState.nodes().nodeExists(nodeId)) {
+                nodesVersion.remove(nodeId);
+            }
+        }
+    }
 
-                    new VoidTransportResponseHandler(ThreadPool.Names.SAME) {
-                        @Override public void handleException(TransportException exp) {
-                            logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
+    private void sendClusterState(final DiscoveryNode node, final ClusterState clusterState, final SerializedClusterState serializedState,
+                                  byte[] bytes, final boolean sentDiff) {
+        // optimistically mark the version, so the next cluster state can be sent as a diff without waiting for this one
+        nodesVersion.put(node.id(), clusterState.version());
+        transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
+                new PublishClusterStateRequest(bytes),
+                TransportRequestOptions.options().withHighType().withCompress(false), // no need to compress, we already compressed the bytes
+
+                new VoidTransportResponseHandler(ThreadPool.Names.SAME) {
+                    @Override public void handleException(TransportException exp) {
+                        if (sentDiff && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
+                            // the node does not have the previous cluster state, send it the full one, unless a newer one got published already
+                            // (it will either be applied as a diff, or fail and be sent as a full cluster state as well)
+                            if (lastPublishedState == clusterState) {
+                                logger.debug("failed to apply cluster state diff on [{}], sending full cluster state: {}", node, exp.unwrapCause().getMessage());
+                                byte[] fullBytes = serializedState.full();
+                                if (fullBytes != null) {
+                                    sendClusterState(node, clusterState, serializedState, fullBytes, false);
+                                }
+                            }
+                            return;
                         }
-                    });
+                        nodesVersion.remove(node.id());
+                        logger.debug("failed to send cluster state to [{}], should be detected as failed soon...", exp, node);
+                    }
+                });
+    }
+
+    /**
+     * Serializes (once) the full cluster state and/or the diff from the previous one, when needed.
+     */
+    private class SerializedClusterState {
+
+        private final ClusterState previousState;
+
+        private final ClusterState clusterState;
+
+        private byte[] full;
+
+        private byte[] diff;
+
+        private boolean failed;
+
+        SerializedClusterState(ClusterState previousState, ClusterState clusterState) {
+            this.previousState = previousState;
+            this.clusterState = clusterState;
+        }
+
+        synchronized byte[] full() {
+            if (full == null && !failed) {
+                full = serialize(null);
+            }
+            return full;
+        }
+
+        synchronized byte[] diff() {
+            if (diff == null && !failed) {
+                diff = serialize(previousState);
+            }
+            return diff;
+        }
+
+        private byte[] serialize(ClusterState previousState) {
+            CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+            try {
+                HandlesStreamOutput stream = cachedEntry.cachedHandlesLzfBytes();
+                if (previousState == null) {
+                    stream.writeBoolean(false);
+                    ClusterState.Builder.writeTo(clusterState, stream);
+                } else {
+                    stream.writeBoolean(true);
+                    ClusterState.Builder.writeDiffTo(previousState, clusterState, stream);
+                }
+                stream.flush();
+                BytesStreamOutput wrapped = ((BytesStreamOutput) ((LZFStreamOutput) stream.wrappedOut()).wrappedOut());
+                return wrapped.copiedByteArray();
+            } catch (Exception e) {
+                failed = true;
+                logger.warn("failed to serialize cluster_state before publishing it to nodes", e);
+                return null;
+            } finally {
+                CachedStreamOutput.pushEntry(cachedEntry);
+            }
         }
     }
 
@@ -124,7 +232,15 @@ public class PublishClusterStateAction extends AbstractComponent {
 
         @Override public void messageReceived(PublishClusterStateRequest request, TransportChannel channel) throws Exception {
             StreamInput in = CachedStreamInput.cachedHandlesLzf(new BytesStreamInput(request.clusterStateInBytes));
-            ClusterState clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+            ClusterState clusterState;
+            synchronized (receiveMutex) {
+                if (in.readBoolean()) {
+                    clusterState = ClusterState.Builder.readDiffFrom(in, lastReceivedState, nodesProvider.nodes().localNode());
+                } else {
+                    clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+                }
+                lastReceivedState = clusterState;
+            }
             listener.onNewClusterState(clusterState);
             channel.sendResponse(VoidStreamable.INSTANCE);
         }
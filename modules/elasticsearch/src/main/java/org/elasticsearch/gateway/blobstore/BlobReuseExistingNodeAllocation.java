@@ -80,8 +80,10 @@ public class BlobReuseExistingNodeAllocation extends NodeAllocation {
     }
 
     @Override public void applyFailedShards(NodeAllocations nodeAllocations, FailedRerouteAllocation allocation) {
-        cachedCommitPoints.remove(allocation.failedShard().shardId());
-        cachedStores.remove(allocation.failedShard().shardId());
+        for (ShardRouting failedShard : allocation.failedShards()) {
+            cachedCommitPoints.remove(failedShard.shardId());
+            cachedStores.remove(failedShard.shardId());
+        }
     }
 
     @Override public boolean allocateUnassigned(NodeAllocations nodeAllocations, RoutingAllocation allocation) {
@@ -28,6 +28,7 @@ import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.compress.lzf.LZF;
 import org.elasticsearch.common.compress.lzf.LZFEncoder;
+import org.elasticsearch.common.io.RateLimiter;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.CachedStreamInput;
 import org.elasticsearch.common.io.stream.LZFStreamInput;
@@ -60,6 +61,10 @@ public abstract class BlobStoreGateway extends SharedStorageGateway {
 
     private boolean compress;
 
+    private RateLimiter snapshotRateLimiter;
+
+    private RateLimiter restoreRateLimiter;
+
     private volatile int currentIndex;
 
     protected BlobStoreGateway(Settings settings, ThreadPool threadPool, ClusterService clusterService) {
@@ -73,7 +78,11 @@ public abstract class BlobStoreGateway extends SharedStorageGateway {
         this.metaDataBlobContainer = blobStore.immutableBlobContainer(basePath.add("metadata"));
         this.currentIndex = findLatestIndex();
         this.compress = componentSettings.getAsBoolean("compress", true);
+        // shared by all the shards allocated on this node
+        this.snapshotRateLimiter = new RateLimiter(componentSettings.getAsBytesSize("max_snapshot_bytes_per_sec", null));
+        this.restoreRateLimiter = new RateLimiter(componentSettings.getAsBytesSize("max_restore_bytes_per_sec", null));
         logger.debug("Latest metadata found at index [" + currentIndex + "]");
+        logger.debug("using max_snapshot_bytes_per_sec [{}], max_restore_bytes_per_sec [{}]", snapshotRateLimiter, restoreRateLimiter);
     }
 
     @Override public String toString() {
@@ -92,6 +101,20 @@ public abstract class BlobStoreGateway extends SharedStorageGateway {
         return this.chunkSize;
     }
 
+    /**
+     * The node level limiter of bytes written to the blob store by shard snapshots.
+     */
+    public RateLimiter snapshotRateLimiter() {
+        return this.snapshotRateLimiter;
+    }
+
+    /**
+     * The node level limiter of bytes read from the blob store by shard recoveries.
+     */
+    public RateLimiter restoreRateLimiter() {
+        return this.restoreRateLimiter;
+    }
+
     @Override public void reset() throws Exception {
         blobStore.delete(BlobPath.cleanPath());
     }
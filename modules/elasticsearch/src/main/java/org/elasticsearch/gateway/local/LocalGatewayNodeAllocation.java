@@ -82,9 +82,10 @@ public class LocalGatewayNodeAllocation extends NodeAllocation {
     }
 
     @Override public void applyFailedShards(NodeAllocations nodeAllocations, FailedRerouteAllocation allocation) {
-        ShardRouting failedShard = allocation.failedShard();
-        cachedStores.remove(failedShard.shardId());
-        cachedShardsState.remove(failedShard.shardId());
+        for (ShardRouting failedShard : allocation.failedShards()) {
+            cachedStores.remove(failedShard.shardId());
+            cachedShardsState.remove(failedShard.shardId());
+        }
     }
 
     @Override public boolean allocateUnassigned(NodeAllocations nodeAllocations, RoutingAllocation allocation) {
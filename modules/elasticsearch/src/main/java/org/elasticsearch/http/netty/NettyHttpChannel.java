@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http.netty;
 
+import org.elasticsearch.common.io.BytesRecycler;
 import org.elasticsearch.common.netty.buffer.ChannelBuffer;
 import org.elasticsearch.common.netty.buffer.ChannelBuffers;
 import org.elasticsearch.common.netty.channel.Channel;
@@ -27,8 +28,10 @@ import org.elasticsearch.common.netty.channel.ChannelFutureListener;
 import org.elasticsearch.common.netty.handler.codec.http.*;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.HttpException;
+import org.elasticsearch.rest.RestChunkedStream;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.StreamingRestChannel;
 
 import java.io.IOException;
 import java.util.Set;
@@ -36,7 +39,7 @@ import java.util.Set;
 /**
  * @author kimchy (shay.banon)
  */
-public class NettyHttpChannel implements HttpChannel {
+public class NettyHttpChannel implements HttpChannel, StreamingRestChannel {
     private final Channel channel;
     private final org.elasticsearch.common.netty.handler.codec.http.HttpRequest request;
 
@@ -48,38 +51,23 @@ public class NettyHttpChannel implements HttpChannel {
     @Override public void sendResponse(RestResponse response) {
 
         // Decide whether to close the connection or not.
-        boolean http10 = request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
-        boolean close =
-                HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)) ||
-                        (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)));
+        boolean http10 = isHttp10();
+        boolean close = shouldClose(http10);
 
         // Build the response object.
-        HttpResponseStatus status = getStatus(response.status());
-        org.elasticsearch.common.netty.handler.codec.http.HttpResponse resp;
-        if (http10) {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
-            if (!close) {
-                resp.addHeader(HttpHeaders.Names.CONNECTION, "Keep-Alive");
-            }
-        } else {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
-        }
-        // add support for cross origin
-        resp.addHeader("Access-Control-Allow-Origin", "*");
-        if (request.getMethod() == HttpMethod.OPTIONS) {
-            // also add more access control parameters
-            resp.addHeader("Access-Control-Max-Age", 1728000);
-            resp.addHeader("Access-Control-Allow-Methods", "PUT, DELETE");
-            resp.addHeader("Access-Control-Allow-Headers", "X-Requested-With");
-        }
+        org.elasticsearch.common.netty.handler.codec.http.HttpResponse resp = createResponse(response.status(), http10, close);
 
         // Convert the response content to a ChannelBuffer.
         ChannelBuffer buf;
+        byte[] recycled = null;
         try {
             if (response.contentThreadSafe()) {
                 buf = ChannelBuffers.wrappedBuffer(response.content(), 0, response.contentLength());
             } else {
-                buf = ChannelBuffers.copiedBuffer(response.content(), 0, response.contentLength());
+                // copy into a recycled array, released once the response has been written
+                recycled = BytesRecycler.acquire(response.contentLength());
+                System.arraycopy(response.content(), 0, recycled, 0, response.contentLength());
+                buf = ChannelBuffers.wrappedBuffer(recycled, 0, response.contentLength());
             }
         } catch (IOException e) {
             throw new HttpException("Failed to convert response to bytes", e);
@@ -117,12 +105,105 @@ public class NettyHttpChannel implements HttpChannel {
         // Write the response.
         ChannelFuture future = channel.write(resp);
 
+        if (recycled != null) {
+            final byte[] toRelease = recycled;
+            future.addListener(new ChannelFutureListener() {
+                @Override public void operationComplete(ChannelFuture future) throws Exception {
+                    BytesRecycler.release(toRelease);
+                }
+            });
+        }
+
         // Close the connection after the write operation is done if necessary.
         if (close) {
             future.addListener(ChannelFutureListener.CLOSE);
         }
     }
 
+    @Override public RestChunkedStream startChunkedResponse(RestStatus status, String contentType) {
+        boolean http10 = isHttp10();
+        // http 1.0 has no chunked encoding, the end of the content is marked by closing the connection
+        boolean close = http10 || shouldClose(false);
+        org.elasticsearch.common.netty.handler.codec.http.HttpResponse resp = createResponse(status, http10, close);
+        resp.setHeader(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        if (!http10) {
+            resp.setChunked(true);
+            resp.setHeader(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        }
+        channel.write(resp);
+        return new NettyChunkedStream(!http10, close);
+    }
+
+    private boolean isHttp10() {
+        return request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
+    }
+
+    private boolean shouldClose(boolean http10) {
+        return HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)) ||
+                (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.getHeader(HttpHeaders.Names.CONNECTION)));
+    }
+
+    private org.elasticsearch.common.netty.handler.codec.http.HttpResponse createResponse(RestStatus restStatus, boolean http10, boolean close) {
+        HttpResponseStatus status = getStatus(restStatus);
+        org.elasticsearch.common.netty.handler.codec.http.HttpResponse resp;
+        if (http10) {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
+            if (!close) {
+                resp.addHeader(HttpHeaders.Names.CONNECTION, "Keep-Alive");
+            }
+        } else {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        }
+        // add support for cross origin
+        resp.addHeader("Access-Control-Allow-Origin", "*");
+        if (request.getMethod() == HttpMethod.OPTIONS) {
+            // also add more access control parameters
+            resp.addHeader("Access-Control-Max-Age", 1728000);
+            resp.addHeader("Access-Control-Allow-Methods", "PUT, DELETE");
+            resp.addHeader("Access-Control-Allow-Headers", "X-Requested-With");
+        }
+        return resp;
+    }
+
+    private class NettyChunkedStream implements RestChunkedStream {
+
+        private final boolean chunked;
+
+        private final boolean close;
+
+        private NettyChunkedStream(boolean chunked, boolean close) {
+            this.chunked = chunked;
+            this.close = close;
+        }
+
+        @Override public void write(byte[] bytes, int offset, int length, final WriteListener listener) {
+            ChannelBuffer buf = ChannelBuffers.wrappedBuffer(bytes, offset, length);
+            ChannelFuture future = channel.write(chunked ? new DefaultHttpChunk(buf) : buf);
+            // the future is done once the data has been handed to the socket, which is what throttles the producer
+            future.addListener(new ChannelFutureListener() {
+                @Override public void operationComplete(ChannelFuture future) throws Exception {
+                    if (future.isSuccess()) {
+                        listener.onWritten();
+                    } else {
+                        listener.onFailure(future.getCause());
+                    }
+                }
+            });
+        }
+
+        @Override public void close() {
+            ChannelFuture future;
+            if (chunked) {
+                future = channel.write(HttpChunk.LAST_CHUNK);
+            } else {
+                future = channel.write(ChannelBuffers.EMPTY_BUFFER);
+            }
+            if (close) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+    }
+
     private HttpResponseStatus getStatus(RestStatus status) {
         switch (status) {
             case CONTINUE:
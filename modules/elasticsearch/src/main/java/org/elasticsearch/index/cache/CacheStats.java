@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.cache;
 
+import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -26,8 +27,10 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.index.cache.field.data.FieldDataStats;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  *
@@ -35,34 +38,81 @@ import java.io.IOException;
 public class CacheStats implements Streamable, ToXContent {
 
     long fieldEvictions;
+    long fieldHits;
+    long fieldMisses;
     long filterEvictions;
     long filterMemEvictions;
+    long filterHits;
+    long filterMisses;
     long filterCount;
     long fieldSize = 0;
     long filterSize = 0;
     long bloomSize = 0;
+    long idCacheSize = 0;
+    long queryResultEvictions;
+    long queryResultHits;
+    long queryResultMisses;
+    long queryResultCount;
+    long queryResultSize = 0;
+    Map<String, FieldDataStats> fields = Maps.newHashMap();
 
     public CacheStats() {
     }
 
-    public CacheStats(long fieldEvictions, long filterEvictions, long filterMemEvictions, long fieldSize, long filterSize, long filterCount, long bloomSize) {
+    public CacheStats(long fieldEvictions, long fieldHits, long fieldMisses, long filterEvictions, long filterMemEvictions, long filterHits, long filterMisses, long fieldSize, long filterSize, long filterCount, long bloomSize, long idCacheSize,
+                      long queryResultEvictions, long queryResultHits, long queryResultMisses, long queryResultCount, long queryResultSize, Map<String, FieldDataStats> fields) {
         this.fieldEvictions = fieldEvictions;
+        this.fieldHits = fieldHits;
+        this.fieldMisses = fieldMisses;
         this.filterEvictions = filterEvictions;
         this.filterMemEvictions = filterMemEvictions;
+        this.filterHits = filterHits;
+        this.filterMisses = filterMisses;
         this.fieldSize = fieldSize;
         this.filterSize = filterSize;
         this.filterCount = filterCount;
         this.bloomSize = bloomSize;
+        this.idCacheSize = idCacheSize;
+        this.queryResultEvictions = queryResultEvictions;
+        this.queryResultHits = queryResultHits;
+        this.queryResultMisses = queryResultMisses;
+        this.queryResultCount = queryResultCount;
+        this.queryResultSize = queryResultSize;
+        for (Map.Entry<String, FieldDataStats> entry : fields.entrySet()) {
+            addField(entry.getKey(), entry.getValue());
+        }
     }
 
     public void add(CacheStats stats) {
         this.fieldEvictions += stats.fieldEvictions;
+        this.fieldHits += stats.fieldHits;
+        this.fieldMisses += stats.fieldMisses;
         this.filterEvictions += stats.filterEvictions;
         this.filterMemEvictions += stats.filterMemEvictions;
+        this.filterHits += stats.filterHits;
+        this.filterMisses += stats.filterMisses;
         this.fieldSize += stats.fieldSize;
         this.filterSize += stats.filterSize;
         this.filterCount += stats.filterCount;
         this.bloomSize += stats.bloomSize;
+        this.idCacheSize += stats.idCacheSize;
+        this.queryResultEvictions += stats.queryResultEvictions;
+        this.queryResultHits += stats.queryResultHits;
+        this.queryResultMisses += stats.queryResultMisses;
+        this.queryResultCount += stats.queryResultCount;
+        this.queryResultSize += stats.queryResultSize;
+        for (Map.Entry<String, FieldDataStats> entry : stats.fields.entrySet()) {
+            addField(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void addField(String fieldName, FieldDataStats stats) {
+        FieldDataStats existing = fields.get(fieldName);
+        if (existing == null) {
+            fields.put(fieldName, new FieldDataStats(stats.loadCount(), stats.loadTimeInMillis(), stats.sizeInBytes()));
+        } else {
+            existing.add(stats);
+        }
     }
 
     public long fieldEvictions() {
@@ -73,6 +123,22 @@ public class CacheStats implements Streamable, ToXContent {
         return this.fieldEvictions();
     }
 
+    public long fieldHits() {
+        return this.fieldHits;
+    }
+
+    public long getFieldHits() {
+        return fieldHits();
+    }
+
+    public long fieldMisses() {
+        return this.fieldMisses;
+    }
+
+    public long getFieldMisses() {
+        return fieldMisses();
+    }
+
     public long filterEvictions() {
         return this.filterEvictions;
     }
@@ -82,11 +148,27 @@ public class CacheStats implements Streamable, ToXContent {
     }
 
     public long filterMemEvictions() {
-        return this.filterEvictions;
+        return this.filterMemEvictions;
     }
 
     public long getFilterMemEvictions() {
-        return this.filterEvictions;
+        return this.filterMemEvictions;
+    }
+
+    public long filterHits() {
+        return this.filterHits;
+    }
+
+    public long getFilterHits() {
+        return filterHits();
+    }
+
+    public long filterMisses() {
+        return this.filterMisses;
+    }
+
+    public long getFilterMisses() {
+        return filterMisses();
     }
 
     public long filterCount() {
@@ -145,16 +227,112 @@ public class CacheStats implements Streamable, ToXContent {
         return bloomSize();
     }
 
+    public long idCacheSizeInBytes() {
+        return this.idCacheSize;
+    }
+
+    public long getIdCacheSizeInBytes() {
+        return this.idCacheSize;
+    }
+
+    public ByteSizeValue idCacheSize() {
+        return new ByteSizeValue(idCacheSize);
+    }
+
+    public ByteSizeValue getIdCacheSize() {
+        return idCacheSize();
+    }
+
+    public long queryResultEvictions() {
+        return this.queryResultEvictions;
+    }
+
+    public long getQueryResultEvictions() {
+        return queryResultEvictions();
+    }
+
+    public long queryResultHits() {
+        return this.queryResultHits;
+    }
+
+    public long getQueryResultHits() {
+        return queryResultHits();
+    }
+
+    public long queryResultMisses() {
+        return this.queryResultMisses;
+    }
+
+    public long getQueryResultMisses() {
+        return queryResultMisses();
+    }
+
+    public long queryResultCount() {
+        return this.queryResultCount;
+    }
+
+    public long getQueryResultCount() {
+        return queryResultCount();
+    }
+
+    public long queryResultSizeInBytes() {
+        return this.queryResultSize;
+    }
+
+    public long getQueryResultSizeInBytes() {
+        return queryResultSizeInBytes();
+    }
+
+    public ByteSizeValue queryResultSize() {
+        return new ByteSizeValue(queryResultSize);
+    }
+
+    public ByteSizeValue getQueryResultSize() {
+        return queryResultSize();
+    }
+
+    /**
+     * Field data load count, load time and size per field.
+     */
+    public Map<String, FieldDataStats> fields() {
+        return this.fields;
+    }
+
+    public Map<String, FieldDataStats> getFields() {
+        return fields();
+    }
+
     @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.CACHE);
         builder.field(Fields.FIELD_EVICTIONS, fieldEvictions);
+        builder.field(Fields.FIELD_HITS, fieldHits);
+        builder.field(Fields.FIELD_MISSES, fieldMisses);
         builder.field(Fields.FIELD_SIZE, fieldSize().toString());
         builder.field(Fields.FIELD_SIZE_IN_BYTES, fieldSize);
         builder.field(Fields.FILTER_COUNT, filterCount);
         builder.field(Fields.FILTER_EVICTIONS, filterEvictions);
         builder.field(Fields.FILTER_MEM_EVICTIONS, filterMemEvictions);
+        builder.field(Fields.FILTER_HITS, filterHits);
+        builder.field(Fields.FILTER_MISSES, filterMisses);
         builder.field(Fields.FILTER_SIZE, filterSize().toString());
         builder.field(Fields.FILTER_SIZE_IN_BYTES, filterSize);
+        builder.field(Fields.ID_CACHE_SIZE, idCacheSize().toString());
+        builder.field(Fields.ID_CACHE_SIZE_IN_BYTES, idCacheSize);
+        builder.field(Fields.QUERY_RESULT_COUNT, queryResultCount);
+        builder.field(Fields.QUERY_RESULT_EVICTIONS, queryResultEvictions);
+        builder.field(Fields.QUERY_RESULT_HITS, queryResultHits);
+        builder.field(Fields.QUERY_RESULT_MISSES, queryResultMisses);
+        builder.field(Fields.QUERY_RESULT_SIZE, queryResultSize().toString());
+        builder.field(Fields.QUERY_RESULT_SIZE_IN_BYTES, queryResultSize);
+        if (!fields.isEmpty()) {
+            builder.startObject(Fields.FIELDS);
+            for (Map.Entry<String, FieldDataStats> entry : fields.entrySet()) {
+                builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -164,11 +342,24 @@ public class CacheStats implements Streamable, ToXContent {
         static final XContentBuilderString FIELD_SIZE = new XContentBuilderString("field_size");
         static final XContentBuilderString FIELD_SIZE_IN_BYTES = new XContentBuilderString("field_size_in_bytes");
         static final XContentBuilderString FIELD_EVICTIONS = new XContentBuilderString("field_evictions");
+        static final XContentBuilderString FIELD_HITS = new XContentBuilderString("field_hits");
+        static final XContentBuilderString FIELD_MISSES = new XContentBuilderString("field_misses");
         static final XContentBuilderString FILTER_EVICTIONS = new XContentBuilderString("filter_evictions");
         static final XContentBuilderString FILTER_MEM_EVICTIONS = new XContentBuilderString("filter_mem_evictions");
+        static final XContentBuilderString FILTER_HITS = new XContentBuilderString("filter_hits");
+        static final XContentBuilderString FILTER_MISSES = new XContentBuilderString("filter_misses");
         static final XContentBuilderString FILTER_COUNT = new XContentBuilderString("filter_count");
         static final XContentBuilderString FILTER_SIZE = new XContentBuilderString("filter_size");
         static final XContentBuilderString FILTER_SIZE_IN_BYTES = new XContentBuilderString("filter_size_in_bytes");
+        static final XContentBuilderString ID_CACHE_SIZE = new XContentBuilderString("id_cache_size");
+        static final XContentBuilderString ID_CACHE_SIZE_IN_BYTES = new XContentBuilderString("id_cache_size_in_bytes");
+        static final XContentBuilderString QUERY_RESULT_COUNT = new XContentBuilderString("query_result_count");
+        static final XContentBuilderString QUERY_RESULT_EVICTIONS = new XContentBuilderString("query_result_evictions");
+        static final XContentBuilderString QUERY_RESULT_HITS = new XContentBuilderString("query_result_hits");
+        static final XContentBuilderString QUERY_RESULT_MISSES = new XContentBuilderString("query_result_misses");
+        static final XContentBuilderString QUERY_RESULT_SIZE = new XContentBuilderString("query_result_size");
+        static final XContentBuilderString QUERY_RESULT_SIZE_IN_BYTES = new XContentBuilderString("query_result_size_in_bytes");
+        static final XContentBuilderString FIELDS = new XContentBuilderString("fields");
     }
 
     public static CacheStats readCacheStats(StreamInput in) throws IOException {
@@ -179,21 +370,50 @@ public class CacheStats implements Streamable, ToXContent {
 
     @Override public void readFrom(StreamInput in) throws IOException {
         fieldEvictions = in.readVLong();
+        fieldHits = in.readVLong();
+        fieldMisses = in.readVLong();
         filterEvictions = in.readVLong();
         filterMemEvictions = in.readVLong();
+        filterHits = in.readVLong();
+        filterMisses = in.readVLong();
         fieldSize = in.readVLong();
         filterSize = in.readVLong();
         filterCount = in.readVLong();
         bloomSize = in.readVLong();
+        idCacheSize = in.readVLong();
+        queryResultEvictions = in.readVLong();
+        queryResultHits = in.readVLong();
+        queryResultMisses = in.readVLong();
+        queryResultCount = in.readVLong();
+        queryResultSize = in.readVLong();
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            fields.put(in.readUTF(), FieldDataStats.readFieldDataStats(in));
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(fieldEvictions);
+        out.writeVLong(fieldHits);
+        out.writeVLong(fieldMisses);
         out.writeVLong(filterEvictions);
         out.writeVLong(filterMemEvictions);
+        out.writeVLong(filterHits);
+        out.writeVLong(filterMisses);
         out.writeVLong(fieldSize);
         out.writeVLong(filterSize);
         out.writeVLong(filterCount);
         out.writeVLong(bloomSize);
+        out.writeVLong(idCacheSize);
+        out.writeVLong(queryResultEvictions);
+        out.writeVLong(queryResultHits);
+        out.writeVLong(queryResultMisses);
+        out.writeVLong(queryResultCount);
+        out.writeVLong(queryResultSize);
+        out.writeVInt(fields.size());
+        for (Map.Entry<String, FieldDataStats> entry : fields.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
     }
 }
\ No newline at end of file
@@ -35,6 +35,7 @@ import org.elasticsearch.index.cache.field.data.FieldDataCache;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
 import org.elasticsearch.index.cache.query.parser.QueryParserCache;
+import org.elasticsearch.index.cache.query.result.QueryResultCache;
 import org.elasticsearch.index.settings.IndexSettings;
 
 /**
@@ -52,16 +53,19 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
 
     private final BloomCache bloomCache;
 
+    private final QueryResultCache queryResultCache;
+
     private ClusterService clusterService;
 
     @Inject public IndexCache(Index index, @IndexSettings Settings indexSettings, FilterCache filterCache, FieldDataCache fieldDataCache,
-                              QueryParserCache queryParserCache, IdCache idCache, BloomCache bloomCache) {
+                              QueryParserCache queryParserCache, IdCache idCache, BloomCache bloomCache, QueryResultCache queryResultCache) {
         super(index, indexSettings);
         this.filterCache = filterCache;
         this.fieldDataCache = fieldDataCache;
         this.queryParserCache = queryParserCache;
         this.idCache = idCache;
         this.bloomCache = bloomCache;
+        this.queryResultCache = queryResultCache;
     }
 
     @Inject(optional = true)
@@ -73,7 +77,8 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
     }
 
     public CacheStats stats() {
-        return new CacheStats(fieldDataCache.evictions(), filterCache.evictions(), filterCache.memEvictions(), fieldDataCache.sizeInBytes(), filterCache.sizeInBytes(), filterCache.count(), bloomCache.sizeInBytes());
+        return new CacheStats(fieldDataCache.evictions(), fieldDataCache.hits(), fieldDataCache.misses(), filterCache.evictions(), filterCache.memEvictions(), filterCache.hits(), filterCache.misses(), fieldDataCache.sizeInBytes(), filterCache.sizeInBytes(), filterCache.count(), bloomCache.sizeInBytes(), idCache.sizeInBytes(),
+                queryResultCache.evictions(), queryResultCache.hits(), queryResultCache.misses(), queryResultCache.count(), queryResultCache.sizeInBytes(), fieldDataCache.fieldsStats());
     }
 
     public FilterCache filter() {
@@ -96,12 +101,17 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         return this.queryParserCache;
     }
 
+    public QueryResultCache queryResult() {
+        return this.queryResultCache;
+    }
+
     @Override public void close() throws ElasticSearchException {
         filterCache.close();
         fieldDataCache.close();
         idCache.close();
         queryParserCache.close();
         bloomCache.close();
+        queryResultCache.close();
         if (clusterService != null) {
             clusterService.remove(this);
         }
@@ -112,6 +122,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         fieldDataCache.clear(reader);
         idCache.clear(reader);
         bloomCache.clear(reader);
+        queryResultCache.clear(reader);
     }
 
     public void clear() {
@@ -120,6 +131,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         idCache.clear();
         queryParserCache.clear();
         bloomCache.clear();
+        queryResultCache.clear();
     }
 
     @Override public void clusterChanged(ClusterChangedEvent event) {
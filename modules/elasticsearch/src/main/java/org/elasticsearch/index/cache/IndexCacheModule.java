@@ -26,6 +26,7 @@ import org.elasticsearch.index.cache.field.data.FieldDataCacheModule;
 import org.elasticsearch.index.cache.filter.FilterCacheModule;
 import org.elasticsearch.index.cache.id.IdCacheModule;
 import org.elasticsearch.index.cache.query.parser.QueryParserCacheModule;
+import org.elasticsearch.index.cache.query.result.QueryResultCacheModule;
 
 /**
  * @author kimchy (shay.banon)
@@ -44,6 +45,7 @@ public class IndexCacheModule extends AbstractModule {
         new IdCacheModule(settings).configure(binder());
         new QueryParserCacheModule(settings).configure(binder());
         new BloomCacheModule(settings).configure(binder());
+        new QueryResultCacheModule(settings).configure(binder());
 
         bind(IndexCache.class).asEagerSingleton();
     }
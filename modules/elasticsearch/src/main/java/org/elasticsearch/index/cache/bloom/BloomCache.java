@@ -20,6 +20,7 @@
 package org.elasticsearch.index.cache.bloom;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
 import org.elasticsearch.common.bloom.BloomFilter;
 import org.elasticsearch.common.component.CloseableComponent;
 import org.elasticsearch.index.IndexComponent;
@@ -35,6 +36,12 @@ public interface BloomCache extends IndexComponent, CloseableComponent {
      */
     BloomFilter filter(IndexReader reader, String fieldName, boolean asyncLoad);
 
+    /**
+     * Deletes persisted filters that do not belong to a segment of the last commit point of the directory. Called
+     * when the engine starts and after a commit.
+     */
+    void deleteUnusedFilters(Directory directory);
+
     void clear();
 
     void clear(IndexReader reader);
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.cache.bloom.none;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.bloom.BloomFilter;
 import org.elasticsearch.common.inject.Inject;
@@ -47,6 +48,9 @@ public class NoneBloomCache extends AbstractIndexComponent implements BloomCache
         return BloomFilter.NONE;
     }
 
+    @Override public void deleteUnusedFilters(Directory directory) {
+    }
+
     @Override public void clear() {
     }
 
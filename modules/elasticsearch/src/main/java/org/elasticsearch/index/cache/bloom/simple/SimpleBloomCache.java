@@ -20,18 +20,28 @@
 package org.elasticsearch.index.cache.bloom.simple;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.index.TermDocs;
 import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.Unicode;
+import org.elasticsearch.common.bloom.BlockedBloomFilter;
 import org.elasticsearch.common.bloom.BloomFilter;
 import org.elasticsearch.common.bloom.BloomFilterFactory;
+import org.elasticsearch.common.collect.ImmutableSet;
+import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.MapMaker;
+import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.SegmentReaders;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.SizeUnit;
 import org.elasticsearch.common.unit.SizeValue;
@@ -43,18 +53,35 @@ import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 /**
+ * A per segment bloom filter cache. Since a segment never changes, its filter is built once out of all the terms
+ * of the field (including the ones of deleted docs) and, by default, persisted next to the segment files so it can
+ * be loaded instead of rebuilt once the segment is opened again (after a restart for example). A persisted filter
+ * records the identity of the segment it was built from, since segment names can be reused (for example, when
+ * uncommitted segments are rolled back and the translog is replayed), and is only loaded for that same segment.
+ *
  * @author kimchy (shay.banon)
  */
 public class SimpleBloomCache extends AbstractIndexComponent implements BloomCache, IndexReader.ReaderFinishedListener {
 
+    public static final String BLOOM_FILE_EXTENSION = ".bloom";
+
+    private static final ImmutableSet<String> DOC_STORE_EXTENSIONS = ImmutableSet.of("fdt", "fdx", "tvx", "tvd", "tvf", "cfx");
+
     private final ThreadPool threadPool;
 
     private final long maxSize;
 
+    private final double falsePositiveProbability;
+
+    private final boolean persist;
+
     private final ConcurrentMap<Object, ConcurrentMap<String, BloomFilterEntry>> cache;
 
     private final Object creationMutex = new Object();
@@ -64,6 +91,8 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
         this.threadPool = threadPool;
 
         this.maxSize = indexSettings.getAsSize("index.cache.bloom.max_size", new SizeValue(500, SizeUnit.MEGA)).singles();
+        this.falsePositiveProbability = indexSettings.getAsDouble("index.cache.bloom.fpp", 0.002);
+        this.persist = indexSettings.getAsBoolean("index.cache.bloom.persist", true);
 
         // weak keys is fine, it will only be cleared once IndexReader references will be removed
         // (assuming clear(...) will not be called)
@@ -112,6 +141,31 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
         return sizeInBytes;
     }
 
+    /**
+     * Lucene does not know about the filter files, so we delete the ones of segments that are not part of the
+     * last commit point, including segments that were rolled back and whose names might get reused.
+     */
+    @Override public void deleteUnusedFilters(Directory directory) {
+        if (!persist) {
+            return;
+        }
+        try {
+            SegmentInfos segmentInfos = new SegmentInfos();
+            segmentInfos.read(directory);
+            Set<String> segmentNames = Sets.newHashSet();
+            for (SegmentInfo segmentInfo : segmentInfos) {
+                segmentNames.add(segmentInfo.name);
+            }
+            for (String file : directory.listAll()) {
+                if (file.endsWith(BLOOM_FILE_EXTENSION) && !segmentNames.contains(file.substring(0, file.indexOf('.')))) {
+                    directory.deleteFile(file);
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("failed to delete unused bloom filters", e);
+        }
+    }
+
     @Override public BloomFilter filter(IndexReader reader, String fieldName, boolean asyncLoad) {
         int currentNumDocs = reader.numDocs();
         if (currentNumDocs == 0) {
@@ -133,35 +187,24 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
             synchronized (fieldCache) {
                 filter = fieldCache.get(fieldName);
                 if (filter == null) {
-                    filter = new BloomFilterEntry(currentNumDocs, BloomFilter.NONE);
+                    filter = new BloomFilterEntry(BloomFilter.NONE);
                     fieldCache.put(fieldName, filter);
                     // now, do the async load of it...
-                    if (currentNumDocs < maxSize) {
-                        filter.loading.set(true);
+                    if (reader.maxDoc() < maxSize) {
                         BloomFilterLoader loader = new BloomFilterLoader(reader, fieldName);
                         if (asyncLoad) {
                             threadPool.cached().execute(loader);
                         } else {
                             loader.run();
-                            filter = fieldCache.get(fieldName);
+                            BloomFilterEntry loaded = fieldCache.get(fieldName);
+                            if (loaded != null) {
+                                filter = loaded;
+                            }
                         }
                     }
                 }
             }
         }
-        // if we too many deletes, we need to reload the bloom filter so it will be more effective
-        if (filter.numDocs > 1000 && filter.numDocs < maxSize && (currentNumDocs / filter.numDocs) < 0.6) {
-            if (filter.loading.compareAndSet(false, true)) {
-                // do the async loading
-                BloomFilterLoader loader = new BloomFilterLoader(reader, fieldName);
-                if (asyncLoad) {
-                    threadPool.cached().execute(loader);
-                } else {
-                    loader.run();
-                    filter = fieldCache.get(fieldName);
-                }
-            }
-        }
         return filter.filter;
     }
 
@@ -174,53 +217,122 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
             this.field = StringHelper.intern(field);
         }
 
-        @SuppressWarnings({"StringEquality"})
         @Override public void run() {
-            TermDocs termDocs = null;
-            TermEnum termEnum = null;
             try {
-                BloomFilter filter = BloomFilterFactory.getFilter(reader.numDocs(), 15);
-                termDocs = reader.termDocs();
-                termEnum = reader.terms(new Term(field));
-                do {
-                    Term term = termEnum.term();
-                    if (term == null || term.field() != field) break;
-
-                    // LUCENE MONITOR: 4.0, move to use bytes!
-                    UnicodeUtil.UTF8Result utf8Result = Unicode.fromStringAsUtf8(term.text());
-                    termDocs.seek(termEnum);
-                    while (termDocs.next()) {
-                        // when traversing, make sure to ignore deleted docs, so the key->docId will be correct
-                        if (!reader.isDeleted(termDocs.doc())) {
-                            filter.add(utf8Result.result, 0, utf8Result.length);
-                        }
+                String fileName = null;
+                long segmentId = 0;
+                BlockedBloomFilter filter = null;
+                if (persist && reader instanceof SegmentReader) {
+                    SegmentInfo segmentInfo = SegmentReaders.segmentInfo((SegmentReader) reader);
+                    if (segmentInfo != null) {
+                        fileName = segmentInfo.name + "." + field + BLOOM_FILE_EXTENSION;
+                        segmentId = segmentId(segmentInfo);
+                        filter = readFilter(reader.directory(), fileName, segmentId);
                     }
-                } while (termEnum.next());
+                }
+                if (filter == null) {
+                    filter = buildFilter(falsePositiveProbability);
+                    double measuredFalsePositiveProbability = filter.falsePositiveProbability();
+                    if (measuredFalsePositiveProbability > falsePositiveProbability * 2) {
+                        // more terms than docs (or a poor spread of them), size it again based on what we measured
+                        filter = buildFilter(falsePositiveProbability * (falsePositiveProbability / measuredFalsePositiveProbability));
+                    }
+                    if (fileName != null) {
+                        writeFilter(reader.directory(), fileName, segmentId, filter);
+                    }
+                }
                 ConcurrentMap<String, BloomFilterEntry> fieldCache = cache.get(reader.getCoreCacheKey());
                 if (fieldCache != null) {
                     if (fieldCache.containsKey(field)) {
-                        BloomFilterEntry filterEntry = new BloomFilterEntry(reader.numDocs(), filter);
-                        filterEntry.loading.set(false);
-                        fieldCache.put(field, filterEntry);
+                        fieldCache.put(field, new BloomFilterEntry(filter));
                     }
                 }
             } catch (AlreadyClosedException e) {
                 // ignore, we are getting closed
             } catch (Exception e) {
                 logger.warn("failed to load bloom filter for [{}]", e, field);
+            }
+        }
+
+        @SuppressWarnings({"StringEquality"})
+        private BlockedBloomFilter buildFilter(double falsePositiveProbability) throws IOException {
+            // we add the terms of deleted docs as well, so the filter of a segment never changes
+            BlockedBloomFilter filter = BloomFilterFactory.getBlockedFilter(reader.maxDoc(), falsePositiveProbability);
+            TermEnum termEnum = reader.terms(new Term(field));
+            try {
+                do {
+                    Term term = termEnum.term();
+                    if (term == null || term.field() != field) break;
+
+                    // LUCENE MONITOR: 4.0, move to use bytes!
+                    UnicodeUtil.UTF8Result utf8Result = Unicode.fromStringAsUtf8(term.text());
+                    filter.add(utf8Result.result, 0, utf8Result.length);
+                } while (termEnum.next());
             } finally {
-                try {
-                    if (termDocs != null) {
-                        termDocs.close();
+                termEnum.close();
+            }
+            return filter;
+        }
+
+        /**
+         * The identity of the segment the filter is built from: its number of docs and the names and lengths of
+         * its own files (excluding deletes, separate norms and shared doc stores, which do not change its terms).
+         */
+        private long segmentId(SegmentInfo segmentInfo) throws IOException {
+            List<String> files = Lists.newArrayList();
+            for (String file : segmentInfo.files()) {
+                if (file.startsWith(segmentInfo.name + ".") && !DOC_STORE_EXTENSIONS.contains(file.substring(file.lastIndexOf('.') + 1))) {
+                    files.add(file);
+                }
+            }
+            Collections.sort(files);
+            CRC32 digest = new CRC32();
+            for (String file : files) {
+                byte[] name = Unicode.fromStringAsBytes(file);
+                digest.update(name, 0, name.length);
+                long length = segmentInfo.dir.fileLength(file);
+                for (int i = 0; i < 8; i++) {
+                    digest.update((int) (length >>> (i * 8)));
+                }
+            }
+            return (((long) segmentInfo.docCount) << 32) | digest.getValue();
+        }
+
+        private BlockedBloomFilter readFilter(Directory directory, String fileName, long segmentId) {
+            IndexInput input = null;
+            try {
+                if (!directory.fileExists(fileName)) {
+                    return null;
+                }
+                input = directory.openInput(fileName);
+                return BlockedBloomFilter.readFrom(input, segmentId);
+            } catch (Exception e) {
+                logger.debug("failed to read bloom filter [{}], rebuilding it", e, fileName);
+                return null;
+            } finally {
+                if (input != null) {
+                    try {
+                        input.close();
+                    } catch (IOException e) {
+                        // ignore
                     }
-                } catch (IOException e) {
-                    // ignore
                 }
+            }
+        }
+
+        private void writeFilter(Directory directory, String fileName, long segmentId, BlockedBloomFilter filter) {
+            try {
+                IndexOutput output = directory.createOutput(fileName);
                 try {
-                    if (termEnum != null) {
-                        termEnum.close();
-                    }
-                } catch (IOException e) {
+                    filter.writeTo(output, segmentId);
+                } finally {
+                    output.close();
+                }
+            } catch (Exception e) {
+                logger.debug("failed to write bloom filter [{}]", e, fileName);
+                try {
+                    directory.deleteFile(fileName);
+                } catch (Exception e1) {
                     // ignore
                 }
             }
@@ -228,13 +340,10 @@ public class SimpleBloomCache extends AbstractIndexComponent implements BloomCac
     }
 
     static class BloomFilterEntry {
-        final int numDocs;
         final BloomFilter filter;
-        final AtomicBoolean loading = new AtomicBoolean();
 
-        public BloomFilterEntry(int numDocs, BloomFilter filter) {
-            this.numDocs = numDocs;
+        public BloomFilterEntry(BloomFilter filter) {
             this.filter = filter;
         }
     }
-}
\ No newline at end of file
+}
@@ -26,6 +26,7 @@ import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * @author kimchy (shay.banon)
@@ -34,6 +35,13 @@ public interface FieldDataCache extends IndexComponent, CloseableComponent {
 
     FieldData cache(FieldDataType type, IndexReader reader, String fieldName) throws IOException;
 
+    /**
+     * Same as {@link #cache(FieldDataType, org.apache.lucene.index.IndexReader, String)}, and when the field
+     * needs to be loaded, also loads it in the background for the provided (segment) readers, usually the other
+     * segments of the searcher the reader belongs to. The readers are not kept by the cache.
+     */
+    FieldData cache(FieldDataType type, IndexReader reader, String fieldName, IndexReader[] prefetchReaders) throws IOException;
+
     String type();
 
     void clear();
@@ -42,7 +50,16 @@ public interface FieldDataCache extends IndexComponent, CloseableComponent {
 
     long evictions();
 
+    long hits();
+
+    long misses();
+
     long sizeInBytes();
 
     long sizeInBytes(String fieldName);
+
+    /**
+     * Per field load count, load time and size.
+     */
+    Map<String, FieldDataStats> fieldsStats();
 }
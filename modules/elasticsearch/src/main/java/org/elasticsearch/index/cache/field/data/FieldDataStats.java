@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.field.data;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Field data stats of a single field, the number of times it was loaded (across segments), the
+ * time it took to load it, and its current size in the cache.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class FieldDataStats implements Streamable, ToXContent {
+
+    long loadCount;
+
+    long loadTimeInMillis;
+
+    long sizeInBytes;
+
+    FieldDataStats() {
+    }
+
+    public FieldDataStats(long loadCount, long loadTimeInMillis, long sizeInBytes) {
+        this.loadCount = loadCount;
+        this.loadTimeInMillis = loadTimeInMillis;
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    public void add(FieldDataStats stats) {
+        this.loadCount += stats.loadCount;
+        this.loadTimeInMillis += stats.loadTimeInMillis;
+        this.sizeInBytes += stats.sizeInBytes;
+    }
+
+    /**
+     * The number of times the field data was loaded (a load is per segment).
+     */
+    public long loadCount() {
+        return this.loadCount;
+    }
+
+    public long getLoadCount() {
+        return loadCount();
+    }
+
+    /**
+     * The total time spent loading the field data (in milliseconds).
+     */
+    public long loadTimeInMillis() {
+        return this.loadTimeInMillis;
+    }
+
+    public long getLoadTimeInMillis() {
+        return loadTimeInMillis();
+    }
+
+    public TimeValue loadTime() {
+        return new TimeValue(loadTimeInMillis);
+    }
+
+    public TimeValue getLoadTime() {
+        return loadTime();
+    }
+
+    public long sizeInBytes() {
+        return this.sizeInBytes;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes();
+    }
+
+    public ByteSizeValue size() {
+        return new ByteSizeValue(sizeInBytes);
+    }
+
+    public ByteSizeValue getSize() {
+        return size();
+    }
+
+    public static FieldDataStats readFieldDataStats(StreamInput in) throws IOException {
+        FieldDataStats stats = new FieldDataStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.LOAD_COUNT, loadCount);
+        builder.field(Fields.LOAD_TIME, loadTime().toString());
+        builder.field(Fields.LOAD_TIME_IN_MILLIS, loadTimeInMillis);
+        builder.field(Fields.SIZE, size().toString());
+        builder.field(Fields.SIZE_IN_BYTES, sizeInBytes);
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString LOAD_COUNT = new XContentBuilderString("load_count");
+        static final XContentBuilderString LOAD_TIME = new XContentBuilderString("load_time");
+        static final XContentBuilderString LOAD_TIME_IN_MILLIS = new XContentBuilderString("load_time_in_millis");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        loadCount = in.readVLong();
+        loadTimeInMillis = in.readVLong();
+        sizeInBytes = in.readVLong();
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(loadCount);
+        out.writeVLong(loadTimeInMillis);
+        out.writeVLong(sizeInBytes);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.field.data.lru;
+
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.field.data.FieldDataCache;
+import org.elasticsearch.index.cache.field.data.FieldDataStats;
+import org.elasticsearch.index.cache.field.data.support.FieldDataLoadCounter;
+import org.elasticsearch.index.field.data.FieldData;
+import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.cache.field.data.IndicesFieldDataCache;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A field data cache bounded by the (estimated) size of the field data it holds. The field data of all the indices
+ * using the <tt>lru</tt> cache is accounted against the node level {@link IndicesFieldDataCache} budget, and the
+ * least recently used reader / field entries are evicted once it is exceeded. An index can further bound its own
+ * field data with <tt>max_size</tt> (either a byte size, or a percentage of the heap, unbounded by default).
+ *
+ * @author kimchy (shay.banon)
+ */
+public class LruFieldDataCache extends AbstractIndexComponent implements FieldDataCache, IndicesFieldDataCache.Listener, IndexReader.ReaderFinishedListener {
+
+    private final IndicesFieldDataCache indicesFieldDataCache;
+
+    private final long maxSizeInBytes;
+
+    private final boolean direct;
+
+    // access ordered, guarded by itself
+    private final LinkedHashMap<Key, IndicesFieldDataCache.Entry> cache = new LinkedHashMap<Key, IndicesFieldDataCache.Entry>(16, 0.75f, true);
+
+    private long sizeInBytes;
+
+    private final ConcurrentMap<Object, Boolean> readers = ConcurrentCollections.newConcurrentMap();
+
+    // guard the loading of the same field on the same reader concurrently
+    private final Object[] loadingMutexes;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final FieldDataLoadCounter loadCounter = new FieldDataLoadCounter();
+
+    @Inject public LruFieldDataCache(Index index, @IndexSettings Settings indexSettings, IndicesFieldDataCache indicesFieldDataCache) {
+        super(index, indexSettings);
+        this.indicesFieldDataCache = indicesFieldDataCache;
+        String maxSize = indexSettings.get("index.cache.field.max_size", componentSettings.get("max_size"));
+        if (maxSize == null) {
+            this.maxSizeInBytes = -1;
+        } else if (maxSize.endsWith("%")) {
+            double percent = Double.parseDouble(maxSize.substring(0, maxSize.length() - 1));
+            this.maxSizeInBytes = (long) (((double) JvmInfo.jvmInfo().mem().heapMax().bytes()) * (percent / 100));
+        } else {
+            this.maxSizeInBytes = ByteSizeValue.parseBytesSizeValue(maxSize).bytes();
+        }
+        this.direct = indexSettings.getAsBoolean("index.cache.field.direct", false);
+        this.loadingMutexes = new Object[32];
+        for (int i = 0; i < loadingMutexes.length; i++) {
+            loadingMutexes[i] = new Object();
+        }
+        logger.debug("using [lru] field cache with max_size [{}], node size [{}], direct [{}]", maxSizeInBytes == -1 ? "unbounded" : new ByteSizeValue(maxSizeInBytes), indicesFieldDataCache.size(), direct);
+    }
+
+    @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName) throws IOException {
+        Key key = new Key(reader.getCoreCacheKey(), fieldName);
+        FieldData fieldData = get(key);
+        if (fieldData != null) {
+            hits.incrementAndGet();
+            return fieldData;
+        }
+        // load outside of the cache lock, so other fields can be served while loading
+        synchronized (loadingMutexes[Math.abs(key.hashCode() % loadingMutexes.length)]) {
+            fieldData = get(key);
+            if (fieldData != null) {
+                hits.incrementAndGet();
+                return fieldData;
+            }
+            misses.incrementAndGet();
+            if (readers.putIfAbsent(key.readerKey, Boolean.TRUE) == null) {
+                reader.addReaderFinishedListener(this);
+            }
+            long start = System.currentTimeMillis();
+            fieldData = FieldData.load(type, reader, fieldName);
+            if (direct) {
+                fieldData = fieldData.direct();
+            }
+            loadCounter.onLoad(fieldName, System.currentTimeMillis() - start);
+            put(key, fieldData);
+        }
+        return fieldData;
+    }
+
+    @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName, IndexReader[] prefetchReaders) throws IOException {
+        // no prefetching, loading fields that were not requested might evict ones that are used
+        return cache(type, reader, fieldName);
+    }
+
+    private FieldData get(Key key) {
+        IndicesFieldDataCache.Entry entry;
+        synchronized (cache) {
+            entry = cache.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        indicesFieldDataCache.touch(entry);
+        return entry.fieldData();
+    }
+
+    private void put(Key key, FieldData fieldData) {
+        IndicesFieldDataCache.Entry entry = new IndicesFieldDataCache.Entry(this, key.readerKey, key.fieldName, fieldData);
+        synchronized (cache) {
+            cache.put(key, entry);
+            sizeInBytes += entry.sizeInBytes();
+            if (maxSizeInBytes != -1) {
+                // evict the least recently used, but never the one we just loaded
+                Iterator<Map.Entry<Key, IndicesFieldDataCache.Entry>> it = cache.entrySet().iterator();
+                while (sizeInBytes > maxSizeInBytes && cache.size() > 1) {
+                    IndicesFieldDataCache.Entry eldest = it.next().getValue();
+                    it.remove();
+                    sizeInBytes -= eldest.sizeInBytes();
+                    indicesFieldDataCache.remove(eldest);
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+        // added to the node level budget outside of the cache lock, since it might evict entries of this cache
+        indicesFieldDataCache.add(entry);
+        synchronized (cache) {
+            if (cache.get(key) != entry) {
+                // removed while it was added to the budget, remove it from it as well
+                indicesFieldDataCache.remove(entry);
+            }
+        }
+    }
+
+    @Override public void onEviction(IndicesFieldDataCache.Entry entry) {
+        synchronized (cache) {
+            Key key = new Key(entry.readerKey(), entry.fieldName());
+            if (cache.get(key) == entry) {
+                cache.remove(key);
+                sizeInBytes -= entry.sizeInBytes();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    @Override public String type() {
+        return "lru";
+    }
+
+    @Override public void clear() {
+        synchronized (cache) {
+            for (IndicesFieldDataCache.Entry entry : cache.values()) {
+                indicesFieldDataCache.remove(entry);
+            }
+            cache.clear();
+            sizeInBytes = 0;
+        }
+    }
+
+    @Override public void finished(IndexReader reader) {
+        clear(reader);
+    }
+
+    @Override public void clear(IndexReader reader) {
+        Object readerKey = reader.getCoreCacheKey();
+        readers.remove(readerKey);
+        synchronized (cache) {
+            for (Iterator<Map.Entry<Key, IndicesFieldDataCache.Entry>> it = cache.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Key, IndicesFieldDataCache.Entry> entry = it.next();
+                if (entry.getKey().readerKey == readerKey) {
+                    it.remove();
+                    sizeInBytes -= entry.getValue().sizeInBytes();
+                    indicesFieldDataCache.remove(entry.getValue());
+                }
+            }
+        }
+    }
+
+    @Override public void close() throws ElasticSearchException {
+        clear();
+    }
+
+    @Override public long evictions() {
+        return evictions.get();
+    }
+
+    @Override public long hits() {
+        return hits.get();
+    }
+
+    @Override public long misses() {
+        return misses.get();
+    }
+
+    @Override public Map<String, FieldDataStats> fieldsStats() {
+        return loadCounter.stats(this);
+    }
+
+    @Override public long sizeInBytes() {
+        synchronized (cache) {
+            return sizeInBytes;
+        }
+    }
+
+    @Override public long sizeInBytes(String fieldName) {
+        long size = 0;
+        synchronized (cache) {
+            for (Map.Entry<Key, IndicesFieldDataCache.Entry> entry : cache.entrySet()) {
+                if (entry.getKey().fieldName.equals(fieldName)) {
+                    size += entry.getValue().sizeInBytes();
+                }
+            }
+        }
+        return size;
+    }
+
+    static class Key {
+        final Object readerKey;
+        final String fieldName;
+
+        Key(Object readerKey, String fieldName) {
+            this.readerKey = readerKey;
+            this.fieldName = fieldName;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            return readerKey == key.readerKey && fieldName.equals(key.fieldName);
+        }
+
+        @Override public int hashCode() {
+            return 31 * System.identityHashCode(readerKey) + fieldName.hashCode();
+        }
+    }
+}
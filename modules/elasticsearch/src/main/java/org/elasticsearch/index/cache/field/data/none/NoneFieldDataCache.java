@@ -26,24 +26,41 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.field.data.FieldDataCache;
+import org.elasticsearch.index.cache.field.data.FieldDataStats;
+import org.elasticsearch.index.cache.field.data.support.FieldDataLoadCounter;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.settings.IndexSettings;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author kimchy (shay.banon)
  */
 public class NoneFieldDataCache extends AbstractIndexComponent implements FieldDataCache {
 
+    private final AtomicLong misses = new AtomicLong();
+
+    private final FieldDataLoadCounter loadCounter = new FieldDataLoadCounter();
+
     @Inject public NoneFieldDataCache(Index index, @IndexSettings Settings indexSettings) {
         super(index, indexSettings);
         logger.debug("Using no field cache");
     }
 
     @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName) throws IOException {
-        return FieldData.load(type, reader, fieldName);
+        misses.incrementAndGet();
+        long start = System.currentTimeMillis();
+        FieldData fieldData = FieldData.load(type, reader, fieldName);
+        loadCounter.onLoad(fieldName, System.currentTimeMillis() - start);
+        return fieldData;
+    }
+
+    @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName, IndexReader[] prefetchReaders) throws IOException {
+        // nothing is cached, so there is nothing to prefetch
+        return cache(type, reader, fieldName);
     }
 
     @Override public String type() {
@@ -70,4 +87,16 @@ public class NoneFieldDataCache extends AbstractIndexComponent implements FieldD
     @Override public long evictions() {
         return 0;
     }
+
+    @Override public long hits() {
+        return 0;
+    }
+
+    @Override public long misses() {
+        return misses.get();
+    }
+
+    @Override public Map<String, FieldDataStats> fieldsStats() {
+        return loadCounter.stats(this);
+    }
 }
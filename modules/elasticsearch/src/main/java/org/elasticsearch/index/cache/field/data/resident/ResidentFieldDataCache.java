@@ -25,6 +25,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.field.data.support.AbstractConcurrentMapFieldDataCache;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -34,8 +35,8 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class ResidentFieldDataCache extends AbstractConcurrentMapFieldDataCache {
 
-    @Inject public ResidentFieldDataCache(Index index, @IndexSettings Settings indexSettings) {
-        super(index, indexSettings);
+    @Inject public ResidentFieldDataCache(Index index, @IndexSettings Settings indexSettings, ThreadPool threadPool) {
+        super(index, indexSettings, threadPool);
     }
 
     @Override protected ConcurrentMap<String, FieldData> buildFieldDataMap() {
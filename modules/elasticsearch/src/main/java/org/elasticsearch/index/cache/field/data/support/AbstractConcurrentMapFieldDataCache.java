@@ -16,10 +16,10 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package org.elasticsearch.index.cache.field.data.support;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.collect.MapMaker;
 import org.elasticsearch.common.settings.Settings;
@@ -27,14 +27,28 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.field.data.FieldDataCache;
+import org.elasticsearch.index.cache.field.data.FieldDataStats;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * A field data cache based on a concurrent map per reader. Field data is loaded once per reader and field,
+ * concurrent requests for the same one wait on the in flight load. When a field is loaded for a reader,
+ * it can also be loaded in the background, using the <tt>field_data</tt> thread pool, for the other segment
+ * readers of the searcher (see {@link #cache(FieldDataType, IndexReader, String, IndexReader[])}).
+ *
  * @author kimchy (shay.banon)
  */
 public abstract class AbstractConcurrentMapFieldDataCache extends AbstractIndexComponent implements FieldDataCache, IndexReader.ReaderFinishedListener {
@@ -43,11 +57,25 @@ public abstract class AbstractConcurrentMapFieldDataCache extends AbstractIndexC
 
     private final Object creationMutex = new Object();
 
-    protected AbstractConcurrentMapFieldDataCache(Index index, @IndexSettings Settings indexSettings) {
+    private final ConcurrentMap<LoadKey, FutureTask<FieldData>> loading = ConcurrentCollections.newConcurrentMap();
+
+    private final Executor loadExecutor;
+
+    private final FieldDataLoadCounter loadCounter = new FieldDataLoadCounter();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final boolean direct;
+
+    protected AbstractConcurrentMapFieldDataCache(Index index, @IndexSettings Settings indexSettings, ThreadPool threadPool) {
         super(index, indexSettings);
         // weak keys is fine, it will only be cleared once IndexReader references will be removed
         // (assuming clear(...) will not be called)
         this.cache = new MapMaker().weakKeys().makeMap();
+        this.direct = indexSettings.getAsBoolean("index.cache.field.direct", false);
+        this.loadExecutor = threadPool.executor(ThreadPool.Names.FIELD_DATA);
     }
 
     @Override public void close() throws ElasticSearchException {
@@ -70,6 +98,18 @@ public abstract class AbstractConcurrentMapFieldDataCache extends AbstractIndexC
         }
     }
 
+    @Override public long hits() {
+        return hits.get();
+    }
+
+    @Override public long misses() {
+        return misses.get();
+    }
+
+    @Override public Map<String, FieldDataStats> fieldsStats() {
+        return loadCounter.stats(this);
+    }
+
     @Override public long sizeInBytes() {
         // the overhead of the map is not really relevant...
         long sizeInBytes = 0;
@@ -93,6 +133,72 @@ public abstract class AbstractConcurrentMapFieldDataCache extends AbstractIndexC
     }
 
     @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName) throws IOException {
+        return cache(type, reader, fieldName, null);
+    }
+
+    @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName, IndexReader[] prefetchReaders) throws IOException {
+        ConcurrentMap<String, FieldData> fieldDataCache = fieldDataMap(reader);
+        FieldData fieldData = fieldDataCache.get(fieldName);
+        if (fieldData != null) {
+            hits.incrementAndGet();
+            return fieldData;
+        }
+        misses.incrementAndGet();
+        FutureTask<FieldData> task = loadTask(type, reader, fieldName, fieldDataCache);
+        if (prefetchReaders != null) {
+            // load the same field on the other segments in the background, they are most likely to be
+            // requested next (for example, when collecting facets over all the segments)
+            for (IndexReader otherReader : prefetchReaders) {
+                if (otherReader.getCoreCacheKey() == reader.getCoreCacheKey()) {
+                    continue;
+                }
+                ConcurrentMap<String, FieldData> otherFieldDataCache = fieldDataMap(otherReader);
+                if (otherFieldDataCache.containsKey(fieldName)) {
+                    continue;
+                }
+                try {
+                    loadExecutor.execute(loadTask(type, otherReader, fieldName, otherFieldDataCache));
+                } catch (RejectedExecutionException e) {
+                    // shutting down, the field will be loaded when requested
+                }
+            }
+        }
+        try {
+            return load(task, fieldName);
+        } catch (AlreadyClosedException e) {
+            // the in flight load used another reader of the same segment, closed since (its searcher was released)
+            return load(loadTask(type, reader, fieldName, fieldDataCache), fieldName);
+        }
+    }
+
+    private FieldData load(FutureTask<FieldData> task, String fieldName) throws IOException {
+        // if the task is already running (or done), this will not execute it again
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading field data for [" + fieldName + "]");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ElasticSearchException("Failed to load field data for [" + fieldName + "]", cause);
+        }
+    }
+
+    protected ConcurrentMap<String, FieldData> buildFieldDataMap() {
+        return ConcurrentCollections.newConcurrentMap();
+    }
+
+    private ConcurrentMap<String, FieldData> fieldDataMap(IndexReader reader) {
         ConcurrentMap<String, FieldData> fieldDataCache = cache.get(reader.getCoreCacheKey());
         if (fieldDataCache == null) {
             synchronized (creationMutex) {
@@ -104,20 +210,64 @@ public abstract class AbstractConcurrentMapFieldDataCache extends AbstractIndexC
                 }
             }
         }
-        FieldData fieldData = fieldDataCache.get(fieldName);
-        if (fieldData == null) {
-            synchronized (fieldDataCache) {
-                fieldData = fieldDataCache.get(fieldName);
-                if (fieldData == null) {
+        return fieldDataCache;
+    }
+
+    /**
+     * Returns the in flight load task of the field for the reader, creating a new one if there is none.
+     */
+    private FutureTask<FieldData> loadTask(final FieldDataType type, final IndexReader reader, final String fieldName,
+                                           final ConcurrentMap<String, FieldData> fieldDataCache) {
+        final LoadKey key = new LoadKey(reader.getCoreCacheKey(), fieldName);
+        FutureTask<FieldData> task = loading.get(key);
+        if (task != null) {
+            return task;
+        }
+        task = new FutureTask<FieldData>(new Callable<FieldData>() {
+            @Override public FieldData call() throws Exception {
+                try {
+                    // it might have been loaded by a previous task while this one was created
+                    FieldData fieldData = fieldDataCache.get(fieldName);
+                    if (fieldData != null) {
+                        return fieldData;
+                    }
+                    long start = System.currentTimeMillis();
                     fieldData = FieldData.load(type, reader, fieldName);
+                    if (direct) {
+                        fieldData = fieldData.direct();
+                    }
+                    loadCounter.onLoad(fieldName, System.currentTimeMillis() - start);
                     fieldDataCache.put(fieldName, fieldData);
+                    return fieldData;
+                } finally {
+                    loading.remove(key);
                 }
             }
+        });
+        FutureTask<FieldData> existing = loading.putIfAbsent(key, task);
+        if (existing != null) {
+            return existing;
         }
-        return fieldData;
+        return task;
     }
 
-    protected ConcurrentMap<String, FieldData> buildFieldDataMap() {
-        return ConcurrentCollections.newConcurrentMap();
+    static class LoadKey {
+        final Object readerKey;
+        final String fieldName;
+
+        LoadKey(Object readerKey, String fieldName) {
+            this.readerKey = readerKey;
+            this.fieldName = fieldName;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) return true;
+            LoadKey key = (LoadKey) o;
+            return readerKey == key.readerKey && fieldName.equals(key.fieldName);
+        }
+
+        @Override public int hashCode() {
+            return 31 * System.identityHashCode(readerKey) + fieldName.hashCode();
+        }
     }
 }
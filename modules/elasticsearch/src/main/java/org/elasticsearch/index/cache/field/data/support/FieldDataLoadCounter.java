@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.field.data.support;
+
+import org.elasticsearch.common.collect.ImmutableMap;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.cache.field.data.FieldDataCache;
+import org.elasticsearch.index.cache.field.data.FieldDataStats;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts field data loads (and the time they took) per field.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class FieldDataLoadCounter {
+
+    private final ConcurrentMap<String, Counter> counters = ConcurrentCollections.newConcurrentMap();
+
+    public void onLoad(String fieldName, long timeInMillis) {
+        Counter counter = counters.get(fieldName);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = counters.putIfAbsent(fieldName, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        counter.count.incrementAndGet();
+        counter.timeInMillis.addAndGet(timeInMillis);
+    }
+
+    /**
+     * The stats of all the fields loaded so far, with their current size in the provided cache.
+     */
+    public Map<String, FieldDataStats> stats(FieldDataCache cache) {
+        ImmutableMap.Builder<String, FieldDataStats> stats = ImmutableMap.builder();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            stats.put(entry.getKey(), new FieldDataStats(entry.getValue().count.get(), entry.getValue().timeInMillis.get(), cache.sizeInBytes(entry.getKey())));
+        }
+        return stats.build();
+    }
+
+    static class Counter {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong timeInMillis = new AtomicLong();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.field.data.support;
+
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.field.data.FieldDataCache;
+import org.elasticsearch.index.cache.field.data.FieldDataStats;
+import org.elasticsearch.index.field.data.FieldData;
+import org.elasticsearch.index.field.data.FieldDataType;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A view of a field data cache, for a single searcher, that when a field is loaded for one of the searcher
+ * (segment) readers, loads it in the background for its other readers as well. The readers are only held by
+ * the view, which lives as long as the search using it.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class PrefetchingFieldDataCache implements FieldDataCache {
+
+    private final FieldDataCache fieldDataCache;
+
+    private final IndexReader[] prefetchReaders;
+
+    public PrefetchingFieldDataCache(FieldDataCache fieldDataCache, IndexReader[] prefetchReaders) {
+        this.fieldDataCache = fieldDataCache;
+        this.prefetchReaders = prefetchReaders;
+    }
+
+    @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName) throws IOException {
+        return fieldDataCache.cache(type, reader, fieldName, prefetchReaders);
+    }
+
+    @Override public FieldData cache(FieldDataType type, IndexReader reader, String fieldName, IndexReader[] prefetchReaders) throws IOException {
+        return fieldDataCache.cache(type, reader, fieldName, prefetchReaders);
+    }
+
+    @Override public Index index() {
+        return fieldDataCache.index();
+    }
+
+    @Override public String type() {
+        return fieldDataCache.type();
+    }
+
+    @Override public void clear() {
+        fieldDataCache.clear();
+    }
+
+    @Override public void clear(IndexReader reader) {
+        fieldDataCache.clear(reader);
+    }
+
+    @Override public long evictions() {
+        return fieldDataCache.evictions();
+    }
+
+    @Override public long hits() {
+        return fieldDataCache.hits();
+    }
+
+    @Override public long misses() {
+        return fieldDataCache.misses();
+    }
+
+    @Override public long sizeInBytes() {
+        return fieldDataCache.sizeInBytes();
+    }
+
+    @Override public long sizeInBytes(String fieldName) {
+        return fieldDataCache.sizeInBytes(fieldName);
+    }
+
+    @Override public Map<String, FieldDataStats> fieldsStats() {
+        return fieldDataCache.fieldsStats();
+    }
+
+    @Override public void close() throws ElasticSearchException {
+        // the view does not own the cache
+    }
+}
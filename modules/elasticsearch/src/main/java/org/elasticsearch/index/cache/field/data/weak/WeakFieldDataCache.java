@@ -28,6 +28,7 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.field.data.support.AbstractConcurrentMapFieldDataCache;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -39,8 +40,8 @@ public class WeakFieldDataCache extends AbstractConcurrentMapFieldDataCache impl
 
     private final AtomicLong evictions = new AtomicLong();
 
-    @Inject public WeakFieldDataCache(Index index, @IndexSettings Settings indexSettings) {
-        super(index, indexSettings);
+    @Inject public WeakFieldDataCache(Index index, @IndexSettings Settings indexSettings, ThreadPool threadPool) {
+        super(index, indexSettings, threadPool);
     }
 
     @Override protected ConcurrentMap<String, FieldData> buildFieldDataMap() {
@@ -46,4 +46,8 @@ public interface FilterCache extends IndexComponent, CloseableComponent {
     long evictions();
 
     long memEvictions();
+
+    long hits();
+
+    long misses();
 }
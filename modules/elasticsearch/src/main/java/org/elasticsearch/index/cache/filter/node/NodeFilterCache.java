@@ -0,0 +1,275 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter.node;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.elasticsearch.common.collect.MapEvictionListener;
+import org.elasticsearch.common.collect.MapMaker;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.DocSet;
+import org.elasticsearch.common.lucene.docset.DocSets;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.filter.FilterCache;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.cache.filter.IndicesFilterCache;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A filter cache that accounts its cached filters against the node level {@link IndicesFilterCache} budget, with
+ * least recently used filters evicted across all the indices on the node once the budget is exceeded.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class NodeFilterCache extends AbstractIndexComponent implements FilterCache, IndicesFilterCache.Listener, IndexReader.ReaderFinishedListener, MapEvictionListener<Object, NodeFilterCache.ReaderValue> {
+
+    private final IndicesFilterCache indicesFilterCache;
+
+    private final ConcurrentMap<Object, ReaderValue> cache;
+
+    private final int maxCandidates;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong memEvictions = new AtomicLong();
+
+    private final Object creationMutex = new Object();
+
+    @Inject public NodeFilterCache(Index index, @IndexSettings Settings indexSettings, IndicesFilterCache indicesFilterCache) {
+        super(index, indexSettings);
+        this.indicesFilterCache = indicesFilterCache;
+        // weak keys is fine, it will only be cleared once IndexReader references will be removed
+        // (assuming clear(...) will not be called), the filters of a reader dropped this way are released from the
+        // node level budget in onEviction
+        this.cache = new MapMaker().weakKeys().evictionListener(this).makeMap();
+        // the number of not (yet) cached filters we count executions for per segment
+        this.maxCandidates = componentSettings.getAsInt("max_candidates", 1000);
+        logger.debug("using [node] filter cache with max_candidates [{}]", maxCandidates);
+    }
+
+    @Override public String type() {
+        return "node";
+    }
+
+    @Override public void close() {
+        clear();
+    }
+
+    @Override public void clear() {
+        for (Object readerKey : cache.keySet()) {
+            clear(readerKey);
+        }
+    }
+
+    @Override public void finished(IndexReader reader) {
+        clear(reader);
+    }
+
+    @Override public void clear(IndexReader reader) {
+        clear(reader.getCoreCacheKey());
+    }
+
+    private void clear(Object readerKey) {
+        ReaderValue readerValue = cache.remove(readerKey);
+        if (readerValue == null) {
+            return;
+        }
+        release(readerValue);
+    }
+
+    private void release(ReaderValue readerValue) {
+        for (IndicesFilterCache.Entry entry : readerValue.filters.values()) {
+            indicesFilterCache.remove(entry);
+        }
+        readerValue.filters.clear();
+        readerValue.candidates.clear();
+    }
+
+    @Override public void onEviction(Object readerKey, ReaderValue readerValue) {
+        memEvictions.incrementAndGet();
+        if (readerValue != null) {
+            release(readerValue);
+        }
+    }
+
+    @Override public void onEviction(IndicesFilterCache.Entry entry) {
+        evictions.incrementAndGet();
+        ReaderValue readerValue = cache.get(entry.readerKey());
+        if (readerValue != null) {
+            readerValue.filters.remove(entry.filter(), entry);
+        }
+    }
+
+    @Override public long count() {
+        long entries = 0;
+        for (ReaderValue readerValue : cache.values()) {
+            entries += readerValue.filters.size();
+        }
+        return entries;
+    }
+
+    @Override public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (ReaderValue readerValue : cache.values()) {
+            for (IndicesFilterCache.Entry entry : readerValue.filters.values()) {
+                sizeInBytes += entry.sizeInBytes();
+            }
+        }
+        return sizeInBytes;
+    }
+
+    @Override public long evictions() {
+        return evictions.get();
+    }
+
+    @Override public long memEvictions() {
+        return memEvictions.get();
+    }
+
+    @Override public long hits() {
+        return hits.get();
+    }
+
+    @Override public long misses() {
+        return misses.get();
+    }
+
+    @Override public Filter cache(Filter filterToCache) {
+        if (isCached(filterToCache)) {
+            return filterToCache;
+        }
+        return new NodeFilterCacheFilterWrapper(filterToCache, this);
+    }
+
+    @Override public boolean isCached(Filter filter) {
+        return filter instanceof NodeFilterCacheFilterWrapper;
+    }
+
+    ReaderValue readerValue(IndexReader reader) {
+        ReaderValue readerValue = cache.get(reader.getCoreCacheKey());
+        if (readerValue == null) {
+            synchronized (creationMutex) {
+                readerValue = cache.get(reader.getCoreCacheKey());
+                if (readerValue == null) {
+                    reader.addReaderFinishedListener(this);
+                    readerValue = new ReaderValue();
+                    cache.put(reader.getCoreCacheKey(), readerValue);
+                }
+            }
+        }
+        return readerValue;
+    }
+
+    static class NodeFilterCacheFilterWrapper extends Filter {
+
+        private final Filter filter;
+
+        private final NodeFilterCache cache;
+
+        NodeFilterCacheFilterWrapper(Filter filter, NodeFilterCache cache) {
+            this.filter = filter;
+            this.cache = cache;
+        }
+
+        @Override public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+            ReaderValue readerValue = cache.readerValue(reader);
+            IndicesFilterCache.Entry entry = readerValue.filters.get(filter);
+            if (entry != null) {
+                cache.hits.incrementAndGet();
+                cache.indicesFilterCache.touch(entry);
+                return entry.docSet();
+            }
+            cache.misses.incrementAndGet();
+
+            long start = System.nanoTime();
+            DocIdSet docIdSet = filter.getDocIdSet(reader);
+            long cost = System.nanoTime() - start;
+
+            if (!cache.indicesFilterCache.shouldCache(readerValue.executed(filter, cache.maxCandidates), cost)) {
+                // not (yet) worth caching, use it as is without building a cacheable doc set out of it
+                return docIdSet;
+            }
+            DocSet docSet = DocSets.cacheable(reader, docIdSet);
+            if (!cache.indicesFilterCache.canCache(docSet.sizeInBytes())) {
+                return docSet;
+            }
+            entry = new IndicesFilterCache.Entry(cache, reader.getCoreCacheKey(), filter, docSet);
+            IndicesFilterCache.Entry prev = readerValue.filters.putIfAbsent(filter, entry);
+            if (prev != null) {
+                return prev.docSet();
+            }
+            readerValue.candidates.remove(filter);
+            cache.indicesFilterCache.add(entry);
+            if (cache.cache.get(reader.getCoreCacheKey()) != readerValue) {
+                // the reader has been cleared while we were caching the filter, its entries have already been
+                // released, so release this one as well, otherwise it would be accounted against the budget forever
+                readerValue.filters.remove(filter, entry);
+                cache.indicesFilterCache.remove(entry);
+            }
+            return docSet;
+        }
+
+        public String toString() {
+            return "NodeFilterCacheFilterWrapper(" + filter + ")";
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof NodeFilterCacheFilterWrapper)) return false;
+            return this.filter.equals(((NodeFilterCacheFilterWrapper) o).filter);
+        }
+
+        public int hashCode() {
+            return filter.hashCode() ^ 0x1117BF25;
+        }
+    }
+
+    static class ReaderValue {
+
+        final ConcurrentMap<Filter, IndicesFilterCache.Entry> filters = ConcurrentCollections.newConcurrentMap();
+
+        // execution counts of filters that are not cached yet
+        final ConcurrentMap<Filter, AtomicInteger> candidates = ConcurrentCollections.newConcurrentMap();
+
+        int executed(Filter filter, int maxCandidates) {
+            AtomicInteger count = candidates.get(filter);
+            if (count == null) {
+                if (candidates.size() >= maxCandidates) {
+                    // mostly one off filters (with a changing "now" for example), start counting from scratch
+                    candidates.clear();
+                }
+                count = new AtomicInteger();
+                AtomicInteger prev = candidates.putIfAbsent(filter, count);
+                if (prev != null) {
+                    count = prev;
+                }
+            }
+            return count.incrementAndGet();
+        }
+    }
+}
@@ -77,4 +77,12 @@ public class NoneFilterCache extends AbstractIndexComponent implements FilterCac
     @Override public long memEvictions() {
         return 0;
     }
+
+    @Override public long hits() {
+        return 0;
+    }
+
+    @Override public long misses() {
+        return 0;
+    }
 }
\ No newline at end of file
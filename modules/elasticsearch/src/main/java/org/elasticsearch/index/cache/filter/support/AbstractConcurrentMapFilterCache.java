@@ -62,6 +62,9 @@ public abstract class AbstractConcurrentMapFilterCache extends AbstractIndexComp
     final int labMaxAllocBytes;
     final int labChunkSizeBytes;
 
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
     protected AbstractConcurrentMapFilterCache(Index index, @IndexSettings Settings indexSettings) {
         super(index, indexSettings);
         // weak keys is fine, it will only be cleared once IndexReader references will be removed
@@ -125,6 +128,14 @@ public abstract class AbstractConcurrentMapFilterCache extends AbstractIndexComp
         return entries;
     }
 
+    @Override public long hits() {
+        return hits.get();
+    }
+
+    @Override public long misses() {
+        return misses.get();
+    }
+
     @Override public Filter cache(Filter filterToCache) {
         if (isCached(filterToCache)) {
             return filterToCache;
@@ -166,8 +177,10 @@ public abstract class AbstractConcurrentMapFilterCache extends AbstractIndexComp
             }
             DocSet docSet = readerValue.filters().get(filter);
             if (docSet != null) {
+                cache.hits.incrementAndGet();
                 return docSet;
             }
+            cache.misses.incrementAndGet();
             DocIdSet docIdSet = filter.getDocIdSet(reader);
             docSet = cacheable(reader, readerValue, docIdSet);
             DocSet prev = readerValue.filters().putIfAbsent(filter, docSet);
@@ -207,29 +220,19 @@ public abstract class AbstractConcurrentMapFilterCache extends AbstractIndexComp
                 return DocSet.EMPTY_DOC_SET;
             }
 
-            // we have a LAB, check if can be used...
-            if (readerValue.longsLAB() == null) {
-                return DocSets.cacheable(reader, set);
-            }
+            DocSet docSet = DocSets.cacheable(reader, set);
 
+            // we have a LAB, check if can be used for a bit set...
+            if (readerValue.longsLAB() == null || !(docSet instanceof OpenBitDocSet)) {
+                return docSet;
+            }
             int numOfWords = OpenBitSet.bits2words(reader.maxDoc());
             LongsLAB.Allocation allocation = readerValue.longsLAB().allocateLongs(numOfWords);
             if (allocation == null) {
-                return DocSets.cacheable(reader, set);
+                return docSet;
             }
             // we have an allocation, use it to create SlicedOpenBitSet
-            if (set instanceof OpenBitSet) {
-                return new SlicedOpenBitSet(allocation.getData(), allocation.getOffset(), (OpenBitSet) set);
-            } else if (set instanceof OpenBitDocSet) {
-                return new SlicedOpenBitSet(allocation.getData(), allocation.getOffset(), ((OpenBitDocSet) set).set());
-            } else {
-                SlicedOpenBitSet slicedSet = new SlicedOpenBitSet(allocation.getData(), numOfWords, allocation.getOffset());
-                slicedSet.fastSet(doc); // we already have an open iterator, so use it, and don't forget to set the initial one
-                while ((doc = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-                    slicedSet.fastSet(doc);
-                }
-                return slicedSet;
-            }
+            return new SlicedOpenBitSet(allocation.getData(), allocation.getOffset(), ((OpenBitDocSet) docSet).set());
         }
     }
 
@@ -35,4 +35,9 @@ public interface IdCache extends IndexComponent, CloseableComponent, Iterable<Id
     void refresh(IndexReader[] readers) throws Exception;
 
     IdReaderCache reader(IndexReader reader);
+
+    /**
+     * The (estimated) memory used by the cached ids.
+     */
+    long sizeInBytes();
 }
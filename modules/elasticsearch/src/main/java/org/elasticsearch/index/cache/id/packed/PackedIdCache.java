@@ -0,0 +1,209 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.packed;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.UnicodeUtil;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.collect.MapMaker;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.mapper.ParentFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.mapper.UidFieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An id cache storing the ids of each reader and type as deduplicated utf8 bytes in packed arrays, with
+ * ordinal based lookups (see {@link PackedIdReaderTypeCache}), instead of an object per id. Readers are
+ * cached by their core key, so segments that did not change are not reloaded on refresh.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class PackedIdCache extends AbstractIndexComponent implements IdCache, IndexReader.ReaderFinishedListener {
+
+    private final ConcurrentMap<Object, PackedIdReaderCache> idReaders;
+
+    @Inject public PackedIdCache(Index index, @IndexSettings Settings indexSettings) {
+        super(index, indexSettings);
+        idReaders = new MapMaker().weakKeys().makeMap();
+    }
+
+    @Override public void close() throws ElasticSearchException {
+        clear();
+    }
+
+    @Override public void clear() {
+        idReaders.clear();
+    }
+
+    @Override public void finished(IndexReader reader) {
+        clear(reader);
+    }
+
+    @Override public void clear(IndexReader reader) {
+        idReaders.remove(reader.getCoreCacheKey());
+    }
+
+    @Override public IdReaderCache reader(IndexReader reader) {
+        return idReaders.get(reader.getCoreCacheKey());
+    }
+
+    @SuppressWarnings({"unchecked"}) @Override public Iterator<IdReaderCache> iterator() {
+        return (Iterator) idReaders.values().iterator();
+    }
+
+    @Override public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (PackedIdReaderCache readerCache : idReaders.values()) {
+            sizeInBytes += readerCache.sizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
+    @Override public void refresh(IndexReader[] readers) throws Exception {
+        // do a quick check for the common case, that all are there
+        if (!refreshNeeded(readers)) {
+            return;
+        }
+        synchronized (idReaders) {
+            for (IndexReader reader : readers) {
+                if (idReaders.containsKey(reader.getCoreCacheKey())) {
+                    // already loaded, the segment did not change
+                    continue;
+                }
+                reader.addReaderFinishedListener(this);
+                PackedIdReaderCache readerCache = load(reader);
+                idReaders.put(readerCache.readerCacheKey(), readerCache);
+            }
+        }
+    }
+
+    private PackedIdReaderCache load(IndexReader reader) throws IOException {
+        Map<String, PackedIdReaderTypeCache.Builder> builders = new HashMap<String, PackedIdReaderTypeCache.Builder>();
+        UnicodeUtil.UTF8Result utf8 = new UnicodeUtil.UTF8Result();
+
+        // first, the id of each (live) doc
+        String field = StringHelper.intern(UidFieldMapper.NAME);
+        TermDocs termDocs = reader.termDocs();
+        TermEnum termEnum = reader.terms(new Term(field));
+        try {
+            PackedIdReaderTypeCache.Builder builder = null;
+            do {
+                Term term = termEnum.term();
+                if (term == null || term.field() != field) break;
+                String text = term.text();
+                // terms are sorted, so all the ids of a type come one after the other
+                builder = builder(builders, builder, reader, text);
+                int delimiter = text.indexOf(Uid.DELIMITER);
+                UnicodeUtil.UTF16toUTF8(text, delimiter + 1, text.length() - delimiter - 1, utf8);
+                int ord = builder.add(utf8.result, 0, utf8.length);
+                termDocs.seek(termEnum);
+                while (termDocs.next()) {
+                    // when traversing, make sure to ignore deleted docs, so the key->docId will be correct
+                    if (!reader.isDeleted(termDocs.doc())) {
+                        builder.doc(ord, termDocs.doc());
+                    }
+                }
+            } while (termEnum.next());
+        } finally {
+            termDocs.close();
+            termEnum.close();
+        }
+
+        // now, the parent id of each doc, reusing the ordinals of the parent type ids
+        field = StringHelper.intern(ParentFieldMapper.NAME);
+        termDocs = reader.termDocs();
+        termEnum = reader.terms(new Term(field));
+        try {
+            PackedIdReaderTypeCache.Builder builder = null;
+            do {
+                Term term = termEnum.term();
+                if (term == null || term.field() != field) break;
+                String text = term.text();
+                builder = builder(builders, builder, reader, text);
+                int delimiter = text.indexOf(Uid.DELIMITER);
+                UnicodeUtil.UTF16toUTF8(text, delimiter + 1, text.length() - delimiter - 1, utf8);
+                int ord = -1;
+                termDocs.seek(termEnum);
+                while (termDocs.next()) {
+                    // ignore deleted docs while we are at it
+                    if (!reader.isDeleted(termDocs.doc())) {
+                        if (ord == -1) {
+                            ord = builder.add(utf8.result, 0, utf8.length);
+                        }
+                        builder.parent(termDocs.doc(), ord);
+                    }
+                }
+            } while (termEnum.next());
+        } finally {
+            termDocs.close();
+            termEnum.close();
+        }
+
+        MapBuilder<String, PackedIdReaderTypeCache> types = MapBuilder.newMapBuilder();
+        for (Map.Entry<String, PackedIdReaderTypeCache.Builder> entry : builders.entrySet()) {
+            types.put(entry.getKey(), entry.getValue().build());
+        }
+        return new PackedIdReaderCache(reader.getCoreCacheKey(), types.immutableMap());
+    }
+
+    /**
+     * Returns the builder for the type of the uid, reusing the current one when the type did not change.
+     */
+    private PackedIdReaderTypeCache.Builder builder(Map<String, PackedIdReaderTypeCache.Builder> builders, PackedIdReaderTypeCache.Builder current,
+                                                    IndexReader reader, String uid) {
+        int delimiter = uid.indexOf(Uid.DELIMITER);
+        if (current != null && current.type().length() == delimiter && uid.startsWith(current.type())) {
+            return current;
+        }
+        String type = uid.substring(0, delimiter);
+        PackedIdReaderTypeCache.Builder builder = builders.get(type);
+        if (builder == null) {
+            builder = new PackedIdReaderTypeCache.Builder(StringHelper.intern(type), reader.maxDoc());
+            builders.put(builder.type(), builder);
+        }
+        return builder;
+    }
+
+    private boolean refreshNeeded(IndexReader[] readers) {
+        for (IndexReader reader : readers) {
+            if (!idReaders.containsKey(reader.getCoreCacheKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.packed;
+
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.collect.ImmutableMap;
+import org.elasticsearch.index.cache.id.IdReaderCache;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class PackedIdReaderCache implements IdReaderCache {
+
+    private final Object readerCacheKey;
+
+    private final ImmutableMap<String, PackedIdReaderTypeCache> types;
+
+    private final long sizeInBytes;
+
+    public PackedIdReaderCache(Object readerCacheKey, ImmutableMap<String, PackedIdReaderTypeCache> types) {
+        this.readerCacheKey = readerCacheKey;
+        this.types = types;
+        long sizeInBytes = 0;
+        for (PackedIdReaderTypeCache typeCache : types.values()) {
+            sizeInBytes += typeCache.sizeInBytes();
+        }
+        this.sizeInBytes = sizeInBytes;
+    }
+
+    @Override public Object readerCacheKey() {
+        return this.readerCacheKey;
+    }
+
+    @Override public IdReaderTypeCache type(String type) {
+        return types.get(type);
+    }
+
+    @Override public BytesWrap parentIdByDoc(String type, int docId) {
+        PackedIdReaderTypeCache typeCache = types.get(type);
+        if (typeCache != null) {
+            return typeCache.parentIdByDoc(docId);
+        }
+        return null;
+    }
+
+    @Override public int docById(String type, BytesWrap id) {
+        PackedIdReaderTypeCache typeCache = types.get(type);
+        if (typeCache != null) {
+            return typeCache.docById(id);
+        }
+        return -1;
+    }
+
+    public long sizeInBytes() {
+        return this.sizeInBytes;
+    }
+}
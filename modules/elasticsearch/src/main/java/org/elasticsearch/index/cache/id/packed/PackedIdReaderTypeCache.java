@@ -0,0 +1,352 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id.packed;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+
+/**
+ * An id cache of a single type within a reader. Ids are stored once (deduplicated) as utf8 bytes
+ * in a single packed byte array, and referenced by their ordinal. Lookups by id go through an open
+ * addressing hash table of ordinals, and the parent id of each doc is stored as an ordinal packed
+ * to the smallest width that can hold the number of ids.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class PackedIdReaderTypeCache implements IdReaderTypeCache {
+
+    private final String type;
+
+    private final byte[] idBytes;
+
+    // the start offset of each ordinal within idBytes, with an extra end offset
+    private final int[] idOffsets;
+
+    // the (live) doc of each ordinal in this type, -1 if the id is only referenced as a parent
+    private final int[] docByOrd;
+
+    // open addressing table of ordinal + 1 (0 marks an empty slot)
+    private final int[] table;
+
+    private final int mask;
+
+    // parent ordinal + 1 per doc (0 for no parent), null if no doc in this reader has a parent of this type
+    private final Ordinals parentOrdinals;
+
+    // lazily created parent ids by ordinal, so each parent id is materialized once and shared across lookups
+    private final BytesWrap[] parentIdByOrd;
+
+    private final long sizeInBytes;
+
+    PackedIdReaderTypeCache(String type, byte[] idBytes, int[] idOffsets, int[] docByOrd, int[] table, Ordinals parentOrdinals) {
+        this.type = type;
+        this.idBytes = idBytes;
+        this.idOffsets = idOffsets;
+        this.docByOrd = docByOrd;
+        this.table = table;
+        this.mask = table.length - 1;
+        this.parentOrdinals = parentOrdinals;
+        this.parentIdByOrd = parentOrdinals == null ? null : new BytesWrap[docByOrd.length];
+        long size = RamUsage.NUM_BYTES_ARRAY_HEADER * 4 + idBytes.length + (idOffsets.length + docByOrd.length + table.length) * RamUsage.NUM_BYTES_INT;
+        if (parentOrdinals != null) {
+            size += parentOrdinals.sizeInBytes() + RamUsage.NUM_BYTES_ARRAY_HEADER + parentIdByOrd.length * RamUsage.NUM_BYTES_OBJECT_REF;
+        }
+        this.sizeInBytes = size;
+    }
+
+    public String type() {
+        return this.type;
+    }
+
+    /**
+     * The number of unique ids stored for this type.
+     */
+    public int size() {
+        return docByOrd.length;
+    }
+
+    public long sizeInBytes() {
+        return this.sizeInBytes;
+    }
+
+    @Override public BytesWrap parentIdByDoc(int docId) {
+        if (parentOrdinals == null) {
+            return null;
+        }
+        int ord = parentOrdinals.get(docId) - 1;
+        if (ord < 0) {
+            return null;
+        }
+        BytesWrap parentId = parentIdByOrd[ord];
+        if (parentId == null) {
+            // racy but safe, BytesWrap is immutable, at worst the same id is created more than once
+            int offset = idOffsets[ord];
+            byte[] id = new byte[idOffsets[ord + 1] - offset];
+            System.arraycopy(idBytes, offset, id, 0, id.length);
+            parentId = new BytesWrap(id);
+            parentIdByOrd[ord] = parentId;
+        }
+        return parentId;
+    }
+
+    @Override public int docById(BytesWrap id) {
+        byte[] bytes = id.bytes();
+        int ord = find(idBytes, idOffsets, table, mask, bytes, 0, bytes.length, id.hashCode());
+        if (ord < 0) {
+            return -1;
+        }
+        return docByOrd[ord];
+    }
+
+    /**
+     * Same as {@link java.util.Arrays#hashCode(byte[])}, so lookups can use {@link BytesWrap#hashCode()}.
+     */
+    static int hash(byte[] bytes, int offset, int length) {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    private static int slot(int hash, int mask) {
+        // spread the bits, the low bits of the array hash code are weak for short ids
+        hash ^= (hash >>> 20) ^ (hash >>> 12);
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return hash & mask;
+    }
+
+    private static int find(byte[] idBytes, int[] idOffsets, int[] table, int mask, byte[] bytes, int offset, int length, int hash) {
+        int slot = slot(hash, mask);
+        while (true) {
+            int ord = table[slot] - 1;
+            if (ord < 0) {
+                return -1;
+            }
+            if (equals(idBytes, idOffsets[ord], idOffsets[ord + 1] - idOffsets[ord], bytes, offset, length)) {
+                return ord;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static boolean equals(byte[] a, int aOffset, int aLength, byte[] b, int bOffset, int bLength) {
+        if (aLength != bLength) {
+            return false;
+        }
+        for (int i = 0; i < aLength; i++) {
+            if (a[aOffset + i] != b[bOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] buildTable(int[] hashes, int count) {
+        int size = 2;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+        int[] table = new int[size];
+        int mask = size - 1;
+        for (int ord = 0; ord < count; ord++) {
+            int slot = slot(hashes[ord], mask);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = ord + 1;
+        }
+        return table;
+    }
+
+    /**
+     * Builds a {@link PackedIdReaderTypeCache} while iterating over the terms of a reader.
+     */
+    static class Builder {
+
+        private final String type;
+
+        private final int maxDoc;
+
+        private byte[] idBytes = new byte[128];
+
+        private int[] idOffsets = new int[16];
+
+        private int[] hashes = new int[16];
+
+        private int[] docByOrd = new int[16];
+
+        private int count;
+
+        private int[] table = new int[32];
+
+        private int[] parentOrdinals;
+
+        Builder(String type, int maxDoc) {
+            this.type = type;
+            this.maxDoc = maxDoc;
+        }
+
+        String type() {
+            return this.type;
+        }
+
+        /**
+         * Adds the id (if not already added) and returns its ordinal.
+         */
+        int add(byte[] bytes, int offset, int length) {
+            int hash = hash(bytes, offset, length);
+            int ord = find(idBytes, idOffsets, table, table.length - 1, bytes, offset, length, hash);
+            if (ord >= 0) {
+                return ord;
+            }
+            ord = count++;
+            int start = idOffsets[ord];
+            if (start + length > idBytes.length) {
+                idBytes = ArrayUtil.grow(idBytes, start + length);
+            }
+            System.arraycopy(bytes, offset, idBytes, start, length);
+            if (count + 1 > idOffsets.length) {
+                idOffsets = ArrayUtil.grow(idOffsets, count + 1);
+            }
+            if (count > hashes.length) {
+                hashes = ArrayUtil.grow(hashes, count);
+                docByOrd = ArrayUtil.grow(docByOrd, count);
+            }
+            idOffsets[count] = start + length;
+            hashes[ord] = hash;
+            docByOrd[ord] = -1;
+            if (count * 2 > table.length) {
+                table = buildTable(hashes, count);
+            } else {
+                int mask = table.length - 1;
+                int slot = slot(hash, mask);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = ord + 1;
+            }
+            return ord;
+        }
+
+        void doc(int ord, int doc) {
+            docByOrd[ord] = doc;
+        }
+
+        void parent(int doc, int ord) {
+            if (parentOrdinals == null) {
+                parentOrdinals = new int[maxDoc];
+            }
+            parentOrdinals[doc] = ord + 1;
+        }
+
+        PackedIdReaderTypeCache build() {
+            int[] offsets = new int[count + 1];
+            System.arraycopy(idOffsets, 0, offsets, 0, count + 1);
+            byte[] bytes = new byte[offsets[count]];
+            System.arraycopy(idBytes, 0, bytes, 0, bytes.length);
+            int[] docs = new int[count];
+            System.arraycopy(docByOrd, 0, docs, 0, count);
+            Ordinals ordinals = parentOrdinals == null ? null : Ordinals.pack(parentOrdinals, count);
+            return new PackedIdReaderTypeCache(type, bytes, offsets, docs, buildTable(hashes, count), ordinals);
+        }
+    }
+
+    /**
+     * Per doc ordinals, stored using the smallest primitive that can hold the max ordinal.
+     */
+    static abstract class Ordinals {
+
+        abstract int get(int doc);
+
+        abstract long sizeInBytes();
+
+        static Ordinals pack(int[] ordinals, int maxOrd) {
+            if (maxOrd <= 0xFF) {
+                byte[] packed = new byte[ordinals.length];
+                for (int i = 0; i < ordinals.length; i++) {
+                    packed[i] = (byte) ordinals[i];
+                }
+                return new ByteOrdinals(packed);
+            }
+            if (maxOrd <= 0xFFFF) {
+                char[] packed = new char[ordinals.length];
+                for (int i = 0; i < ordinals.length; i++) {
+                    packed[i] = (char) ordinals[i];
+                }
+                return new CharOrdinals(packed);
+            }
+            return new IntOrdinals(ordinals);
+        }
+    }
+
+    static class ByteOrdinals extends Ordinals {
+
+        private final byte[] ordinals;
+
+        ByteOrdinals(byte[] ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        @Override int get(int doc) {
+            return ordinals[doc] & 0xFF;
+        }
+
+        @Override long sizeInBytes() {
+            return RamUsage.NUM_BYTES_ARRAY_HEADER + ordinals.length;
+        }
+    }
+
+    static class CharOrdinals extends Ordinals {
+
+        private final char[] ordinals;
+
+        CharOrdinals(char[] ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        @Override int get(int doc) {
+            return ordinals[doc];
+        }
+
+        @Override long sizeInBytes() {
+            return RamUsage.NUM_BYTES_ARRAY_HEADER + ordinals.length * RamUsage.NUM_BYTES_CHAR;
+        }
+    }
+
+    static class IntOrdinals extends Ordinals {
+
+        private final int[] ordinals;
+
+        IntOrdinals(int[] ordinals) {
+            this.ordinals = ordinals;
+        }
+
+        @Override int get(int doc) {
+            return ordinals[doc];
+        }
+
+        @Override long sizeInBytes() {
+            return RamUsage.NUM_BYTES_ARRAY_HEADER + ordinals.length * RamUsage.NUM_BYTES_INT;
+        }
+    }
+}
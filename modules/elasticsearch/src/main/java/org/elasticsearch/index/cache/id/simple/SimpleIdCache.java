@@ -79,6 +79,14 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, In
         return idReaders.get(reader.getCoreCacheKey());
     }
 
+    @Override public long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (SimpleIdReaderCache readerCache : idReaders.values()) {
+            sizeInBytes += readerCache.sizeInBytes();
+        }
+        return sizeInBytes;
+    }
+
     @SuppressWarnings({"unchecked"}) @Override public Iterator<IdReaderCache> iterator() {
         return (Iterator<IdReaderCache>) idReaders.values();
     }
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.cache.id.simple;
 
 import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.trove.ExtTObjectIntHasMap;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 
@@ -36,6 +37,8 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
 
     private final int[] parentIdsOrdinals;
 
+    private final long sizeInBytes;
+
     public SimpleIdReaderTypeCache(String type, ExtTObjectIntHasMap<BytesWrap> idToDoc,
                                    BytesWrap[] parentIdsValues, int[] parentIdsOrdinals) {
         this.type = type;
@@ -43,12 +46,17 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
         this.idToDoc.trimToSize();
         this.parentIdsValues = parentIdsValues;
         this.parentIdsOrdinals = parentIdsOrdinals;
+        this.sizeInBytes = computeSizeInBytes();
     }
 
     public String type() {
         return this.type;
     }
 
+    public long sizeInBytes() {
+        return this.sizeInBytes;
+    }
+
     public BytesWrap parentIdByDoc(int docId) {
         return parentIdsValues[parentIdsOrdinals[docId]];
     }
@@ -63,4 +71,17 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
     public BytesWrap canReuse(BytesWrap id) {
         return idToDoc.key(id);
     }
+
+    /**
+     * An estimation, ids shared with other readers are counted for each one of them.
+     */
+    private long computeSizeInBytes() {
+        long sizeInBytes = idToDoc.capacity() * (RamUsage.NUM_BYTES_OBJECT_REF + RamUsage.NUM_BYTES_INT);
+        for (Object id : idToDoc.keys()) {
+            sizeInBytes += RamUsage.NUM_BYTES_OBJECT_HEADER + RamUsage.NUM_BYTES_OBJECT_REF + RamUsage.NUM_BYTES_INT + RamUsage.NUM_BYTES_ARRAY_HEADER + ((BytesWrap) id).bytes().length;
+        }
+        sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + parentIdsValues.length * RamUsage.NUM_BYTES_OBJECT_REF;
+        sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + parentIdsOrdinals.length * RamUsage.NUM_BYTES_INT;
+        return sizeInBytes;
+    }
 }
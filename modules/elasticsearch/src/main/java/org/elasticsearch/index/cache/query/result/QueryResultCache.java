@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.query.result;
+
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.CloseableComponent;
+import org.elasticsearch.index.IndexComponent;
+
+/**
+ * Caches the serialized shard level query phase results of search requests that don't return any hits (count
+ * and facet only searches). Entries are associated with the top level reader they were executed on, and are
+ * cleared once the engine refreshes to a new reader.
+ *
+ * @author kimchy (shay.banon)
+ */
+public interface QueryResultCache extends IndexComponent, CloseableComponent {
+
+    String type();
+
+    /**
+     * Should query results be cached at all.
+     */
+    boolean enabled();
+
+    @Nullable byte[] get(IndexReader reader, BytesWrap key);
+
+    void put(IndexReader reader, BytesWrap key, byte[] result);
+
+    void clear(IndexReader reader);
+
+    void clear();
+
+    long count();
+
+    long sizeInBytes();
+
+    long hits();
+
+    long misses();
+
+    long evictions();
+}
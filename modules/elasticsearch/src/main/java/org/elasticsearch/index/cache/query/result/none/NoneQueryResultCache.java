@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.query.result.none;
+
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.query.result.QueryResultCache;
+import org.elasticsearch.index.settings.IndexSettings;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class NoneQueryResultCache extends AbstractIndexComponent implements QueryResultCache {
+
+    public NoneQueryResultCache(Index index) {
+        super(index, ImmutableSettings.Builder.EMPTY_SETTINGS);
+    }
+
+    @Inject public NoneQueryResultCache(Index index, @IndexSettings Settings indexSettings) {
+        super(index, indexSettings);
+    }
+
+    @Override public String type() {
+        return "none";
+    }
+
+    @Override public boolean enabled() {
+        return false;
+    }
+
+    @Override public byte[] get(IndexReader reader, BytesWrap key) {
+        return null;
+    }
+
+    @Override public void put(IndexReader reader, BytesWrap key, byte[] result) {
+    }
+
+    @Override public void clear(IndexReader reader) {
+    }
+
+    @Override public void clear() {
+    }
+
+    @Override public long count() {
+        return 0;
+    }
+
+    @Override public long sizeInBytes() {
+        return 0;
+    }
+
+    @Override public long hits() {
+        return 0;
+    }
+
+    @Override public long misses() {
+        return 0;
+    }
+
+    @Override public long evictions() {
+        return 0;
+    }
+
+    @Override public void close() throws ElasticSearchException {
+    }
+}
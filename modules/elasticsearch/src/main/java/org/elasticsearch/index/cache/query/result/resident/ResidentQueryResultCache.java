@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.query.result.resident;
+
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.collect.MapEvictionListener;
+import org.elasticsearch.common.collect.MapMaker;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.LruMemoryBudget;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.query.result.QueryResultCache;
+import org.elasticsearch.index.settings.IndexSettings;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A query result cache bounded by the total size of the cached results (<tt>index.cache.query.result.max_size</tt>),
+ * evicting the least recently used results once it is exceeded, down to <tt>index.cache.query.result.clean_ratio</tt>
+ * (defaults to <tt>0.9</tt>) of it.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class ResidentQueryResultCache extends AbstractIndexComponent implements QueryResultCache, MapEvictionListener<Object, ConcurrentMap<BytesWrap, ResidentQueryResultCache.CachedResult>> {
+
+    private final ConcurrentMap<Object, ConcurrentMap<BytesWrap, CachedResult>> cache;
+
+    private final LruMemoryBudget<CachedResult> budget;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Inject public ResidentQueryResultCache(Index index, @IndexSettings Settings indexSettings) {
+        super(index, indexSettings);
+        ByteSizeValue maxSize = indexSettings.getAsBytesSize("index.cache.query.result.max_size", componentSettings.getAsBytesSize("max_size", new ByteSizeValue(10, ByteSizeUnit.MB)));
+        float cleanRatio = indexSettings.getAsFloat("index.cache.query.result.clean_ratio", componentSettings.getAsFloat("clean_ratio", 0.9f));
+        this.budget = new LruMemoryBudget<CachedResult>(maxSize, cleanRatio);
+        // weak keys, so results of readers that were not explicitly cleared will be released once the reader is
+        this.cache = new MapMaker().weakKeys().evictionListener(this).makeMap();
+        logger.debug("using [resident] query result cache with max_size [{}], clean_ratio [{}]", maxSize, cleanRatio);
+    }
+
+    @Override public String type() {
+        return "resident";
+    }
+
+    @Override public boolean enabled() {
+        return true;
+    }
+
+    @Override public byte[] get(IndexReader reader, BytesWrap key) {
+        ConcurrentMap<BytesWrap, CachedResult> results = cache.get(reader.getCoreCacheKey());
+        CachedResult result = results == null ? null : results.get(key);
+        if (result == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        budget.touch(result);
+        return result.bytes;
+    }
+
+    @Override public void put(IndexReader reader, BytesWrap key, byte[] result) {
+        if (!budget.fits(key.bytes().length + result.length)) {
+            return;
+        }
+        ConcurrentMap<BytesWrap, CachedResult> results = cache.get(reader.getCoreCacheKey());
+        if (results == null) {
+            results = ConcurrentCollections.newConcurrentMap();
+            ConcurrentMap<BytesWrap, CachedResult> prev = cache.putIfAbsent(reader.getCoreCacheKey(), results);
+            if (prev != null) {
+                results = prev;
+            }
+        }
+        CachedResult cachedResult = new CachedResult(results, key, result);
+        if (results.putIfAbsent(key, cachedResult) != null) {
+            return;
+        }
+        budget.add(cachedResult);
+        if (cache.get(reader.getCoreCacheKey()) != results) {
+            // the reader has been cleared while we were caching the result, release it as well
+            results.remove(key, cachedResult);
+            budget.remove(cachedResult);
+        }
+    }
+
+    @Override public void clear(IndexReader reader) {
+        ConcurrentMap<BytesWrap, CachedResult> results = cache.remove(reader.getCoreCacheKey());
+        if (results != null) {
+            release(results);
+        }
+    }
+
+    @Override public void clear() {
+        for (Object readerKey : cache.keySet()) {
+            ConcurrentMap<BytesWrap, CachedResult> results = cache.remove(readerKey);
+            if (results != null) {
+                release(results);
+            }
+        }
+    }
+
+    @Override public void close() throws ElasticSearchException {
+        clear();
+    }
+
+    @Override public void onEviction(Object readerKey, ConcurrentMap<BytesWrap, CachedResult> results) {
+        // the reader was garbage collected
+        if (results != null) {
+            release(results);
+        }
+    }
+
+    private void release(ConcurrentMap<BytesWrap, CachedResult> results) {
+        for (CachedResult result : results.values()) {
+            if (results.remove(result.key, result)) {
+                budget.remove(result);
+            }
+        }
+    }
+
+    @Override public long count() {
+        return budget.count();
+    }
+
+    @Override public long sizeInBytes() {
+        return budget.sizeInBytes();
+    }
+
+    @Override public long hits() {
+        return hits.get();
+    }
+
+    @Override public long misses() {
+        return misses.get();
+    }
+
+    @Override public long evictions() {
+        return budget.evictions();
+    }
+
+    static class CachedResult extends LruMemoryBudget.Entry {
+
+        final ConcurrentMap<BytesWrap, CachedResult> results;
+
+        final BytesWrap key;
+
+        final byte[] bytes;
+
+        CachedResult(ConcurrentMap<BytesWrap, CachedResult> results, BytesWrap key, byte[] bytes) {
+            super(key.bytes().length + bytes.length);
+            this.results = results;
+            this.key = key;
+            this.bytes = bytes;
+        }
+
+        @Override protected void onEviction() {
+            results.remove(key, this);
+        }
+    }
+}
@@ -57,6 +57,11 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void updateIndexingBufferSize(ByteSizeValue indexingBufferSize);
 
+    /**
+     * The number of indexing operations (create, index and delete) done on the engine since it was created.
+     */
+    long indexingOperations();
+
     void addFailedEngineListener(FailedEngineListener listener);
 
     /**
@@ -75,6 +80,12 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
 
     void delete(DeleteByQuery delete) throws EngineException;
 
+    /**
+     * Gets the current version of a document, and when realtime and the document has not been refreshed
+     * yet, its source from the transaction log. Note, the result must be released.
+     */
+    GetResult get(Get get) throws EngineException;
+
     Searcher searcher() throws EngineException;
 
     /**
@@ -578,4 +589,85 @@ public interface Engine extends IndexShardComponent, CloseableComponent {
             return this.types;
         }
     }
+
+    static class Get {
+        private final boolean realtime;
+        private final Term uid;
+
+        public Get(boolean realtime, Term uid) {
+            this.realtime = realtime;
+            this.uid = uid;
+        }
+
+        public boolean realtime() {
+            return this.realtime;
+        }
+
+        public Term uid() {
+            return uid;
+        }
+    }
+
+    static class GetResult implements Releasable {
+        public static final GetResult NOT_EXISTS = new GetResult(false, -1, null);
+
+        private final boolean exists;
+        private final long version;
+        private final byte[] source;
+        private final UidField.DocIdAndVersion docIdAndVersion;
+        private final Searcher searcher;
+
+        /**
+         * A result served from the transaction log.
+         */
+        public GetResult(boolean exists, long version, @Nullable byte[] source) {
+            this.exists = exists;
+            this.version = version;
+            this.source = source;
+            this.docIdAndVersion = null;
+            this.searcher = null;
+        }
+
+        /**
+         * A result served from the index, the searcher is released when the result is released.
+         */
+        public GetResult(Searcher searcher, UidField.DocIdAndVersion docIdAndVersion) {
+            this.exists = true;
+            this.source = null;
+            this.version = docIdAndVersion.version;
+            this.docIdAndVersion = docIdAndVersion;
+            this.searcher = searcher;
+        }
+
+        public boolean exists() {
+            return exists;
+        }
+
+        public long version() {
+            return this.version;
+        }
+
+        /**
+         * The source of the document when it was read from the transaction log, <tt>null</tt> if it
+         * should be loaded from the index using {@link #docIdAndVersion()}.
+         */
+        @Nullable public byte[] source() {
+            return source;
+        }
+
+        public Searcher searcher() {
+            return this.searcher;
+        }
+
+        public UidField.DocIdAndVersion docIdAndVersion() {
+            return docIdAndVersion;
+        }
+
+        @Override public boolean release() throws ElasticSearchException {
+            if (searcher != null) {
+                searcher.release();
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link VersionMap} backed by a concurrent map of uid to {@link RobinEngine.VersionValue}.
+ *
+ * @author kimchy (shay.banon)
+ */
+@ThreadSafe
+public class ConcurrentVersionMap implements VersionMap {
+
+    private final ConcurrentMap<String, RobinEngine.VersionValue> map = ConcurrentCollections.newConcurrentMap();
+
+    @Override public RobinEngine.VersionValue get(String uid) {
+        return map.get(uid);
+    }
+
+    @Override public void put(String uid, RobinEngine.VersionValue versionValue) {
+        map.put(uid, versionValue);
+    }
+
+    @Override public void prune(long time, long gcDeletesInMillis) {
+        for (Map.Entry<String, RobinEngine.VersionValue> entry : map.entrySet()) {
+            if (entry.getValue().delete()) {
+                if ((time - entry.getValue().time()) > gcDeletesInMillis) {
+                    map.remove(entry.getKey());
+                }
+            } else {
+                map.remove(entry.getKey());
+            }
+        }
+    }
+
+    @Override public int size() {
+        return map.size();
+    }
+
+    @Override public void clear() {
+        map.clear();
+    }
+}
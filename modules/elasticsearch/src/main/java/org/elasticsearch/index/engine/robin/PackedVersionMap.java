@@ -0,0 +1,359 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.elasticsearch.common.util.concurrent.ThreadSafe;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.Arrays;
+
+/**
+ * A {@link VersionMap} that keeps its entries in packed primitive arrays (an open addressing hash
+ * table per segment), instead of a map entry, uid string, version value and translog location object
+ * per uid. The uid chars are appended to a shared per segment char array, which is compacted when
+ * the segment is pruned.
+ *
+ * <p>Under heavy indexing the version map can grow to millions of entries between flushes, and
+ * keeping them in a handful of primitive arrays means there is close to nothing for the GC to trace.
+ *
+ * @author kimchy (shay.banon)
+ */
+@ThreadSafe
+public class PackedVersionMap implements VersionMap {
+
+    /**
+     * Mask value for indexing into segments. The upper bits of a
+     * key's hash code are used to choose the segment.
+     */
+    private final int segmentMask;
+
+    /**
+     * Shift value for indexing within segments.
+     */
+    private final int segmentShift;
+
+    private final Segment[] segments;
+
+    public PackedVersionMap() {
+        this(16);
+    }
+
+    public PackedVersionMap(int concurrencyLevel) {
+        // Find power-of-two sizes best matching arguments
+        int sshift = 0;
+        int ssize = 1;
+        while (ssize < concurrencyLevel) {
+            ++sshift;
+            ssize <<= 1;
+        }
+        segmentShift = 32 - sshift;
+        segmentMask = ssize - 1;
+        this.segments = new Segment[ssize];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override public RobinEngine.VersionValue get(String uid) {
+        int hash = hash(uid.hashCode());
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            return segment.get(uid, hash);
+        }
+    }
+
+    @Override public void put(String uid, RobinEngine.VersionValue versionValue) {
+        int hash = hash(uid.hashCode());
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            segment.put(uid, hash, versionValue);
+        }
+    }
+
+    @Override public void prune(long time, long gcDeletesInMillis) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.prune(time, gcDeletesInMillis);
+            }
+        }
+    }
+
+    @Override public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    @Override public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies a supplemental hash function to a given hashCode, which
+     * defends against poor quality hash functions.
+     */
+    private static int hash(int h) {
+        // Spread bits to regularize both segment and index locations,
+        // using variant of single-word Wang/Jenkins hash.
+        h += (h << 15) ^ 0xffffcd7d;
+        h ^= (h >>> 10);
+        h += (h << 3);
+        h ^= (h >>> 6);
+        h += (h << 2) + (h << 14);
+        return h ^ (h >>> 16);
+    }
+
+    final Segment segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    /**
+     * An open addressing (linear probing) table of entry ordinals, with the entries themselves appended to
+     * packed arrays. Entries are never removed one by one, only by pruning, which rebuilds the segment.
+     */
+    static class Segment {
+
+        static final int INITIAL_TABLE_SIZE = 16;
+
+        static final int INITIAL_ENTRIES = 8;
+
+        static final int INITIAL_KEYS = 128;
+
+        static final int NO_LOCATION = -1;
+
+        // entry ordinal + 1, 0 marks an empty slot
+        int[] table;
+        int threshold;
+
+        int size;
+        int[] hashes;
+        // the uid of entry i is keys[keyOffsets[i]..keyOffsets[i + 1]) (keysSize for the last one)
+        int[] keyOffsets;
+        long[] versions;
+        long[] times;
+        boolean[] deletes;
+        long[] translogIds;
+        long[] translogLocations;
+        int[] translogSizes;
+
+        char[] keys;
+        int keysSize;
+
+        Segment() {
+            reset(INITIAL_TABLE_SIZE, INITIAL_ENTRIES, INITIAL_KEYS);
+        }
+
+        void clear() {
+            reset(INITIAL_TABLE_SIZE, INITIAL_ENTRIES, INITIAL_KEYS);
+        }
+
+        private void reset(int tableSize, int entries, int keysCapacity) {
+            table = new int[tableSize];
+            threshold = (int) (tableSize * 0.75f);
+            size = 0;
+            hashes = new int[entries];
+            keyOffsets = new int[entries];
+            versions = new long[entries];
+            times = new long[entries];
+            deletes = new boolean[entries];
+            translogIds = new long[entries];
+            translogLocations = new long[entries];
+            translogSizes = new int[entries];
+            keys = new char[keysCapacity];
+            keysSize = 0;
+        }
+
+        RobinEngine.VersionValue get(String uid, int hash) {
+            int entry = table[slot(uid, hash)] - 1;
+            if (entry < 0) {
+                return null;
+            }
+            Translog.Location location = null;
+            if (translogSizes[entry] != NO_LOCATION) {
+                location = new Translog.Location(translogIds[entry], translogLocations[entry], translogSizes[entry]);
+            }
+            return new RobinEngine.VersionValue(versions[entry], deletes[entry], times[entry], location);
+        }
+
+        void put(String uid, int hash, RobinEngine.VersionValue versionValue) {
+            int slot = slot(uid, hash);
+            int entry = table[slot] - 1;
+            if (entry < 0) {
+                entry = size;
+                if (entry == hashes.length) {
+                    growEntries(entry + (entry >> 1));
+                }
+                hashes[entry] = hash;
+                keyOffsets[entry] = appendKey(uid);
+                table[slot] = entry + 1;
+                size++;
+                if (size > threshold) {
+                    rehash(table.length << 1);
+                }
+            }
+            versions[entry] = versionValue.version();
+            times[entry] = versionValue.time();
+            deletes[entry] = versionValue.delete();
+            Translog.Location location = versionValue.translogLocation();
+            if (location == null) {
+                translogIds[entry] = 0;
+                translogLocations[entry] = 0;
+                translogSizes[entry] = NO_LOCATION;
+            } else {
+                translogIds[entry] = location.translogId;
+                translogLocations[entry] = location.translogLocation;
+                translogSizes[entry] = location.size;
+            }
+        }
+
+        /**
+         * Rebuilds the segment with only the non expired deletes, compacting the entries and the keys.
+         */
+        void prune(long time, long gcDeletesInMillis) {
+            int retained = 0;
+            int retainedKeys = 0;
+            for (int i = 0; i < size; i++) {
+                if (deletes[i] && (time - times[i]) <= gcDeletesInMillis) {
+                    retained++;
+                    retainedKeys += keyLength(i);
+                }
+            }
+            if (retained == size) {
+                return;
+            }
+            int tableSize = INITIAL_TABLE_SIZE;
+            while (retained > (int) (tableSize * 0.75f)) {
+                tableSize <<= 1;
+            }
+
+            int oldSize = size;
+            int[] oldHashes = hashes;
+            int[] oldKeyOffsets = keyOffsets;
+            long[] oldVersions = versions;
+            long[] oldTimes = times;
+            boolean[] oldDeletes = deletes;
+            long[] oldTranslogIds = translogIds;
+            long[] oldTranslogLocations = translogLocations;
+            int[] oldTranslogSizes = translogSizes;
+            char[] oldKeys = keys;
+            int oldKeysSize = keysSize;
+
+            reset(tableSize, Math.max(INITIAL_ENTRIES, retained), Math.max(INITIAL_KEYS, retainedKeys));
+            for (int i = 0; i < oldSize; i++) {
+                if (!oldDeletes[i] || (time - oldTimes[i]) > gcDeletesInMillis) {
+                    continue;
+                }
+                int entry = size++;
+                hashes[entry] = oldHashes[i];
+                int keyLength = (i + 1 < oldSize ? oldKeyOffsets[i + 1] : oldKeysSize) - oldKeyOffsets[i];
+                System.arraycopy(oldKeys, oldKeyOffsets[i], keys, keysSize, keyLength);
+                keyOffsets[entry] = keysSize;
+                keysSize += keyLength;
+                versions[entry] = oldVersions[i];
+                times[entry] = oldTimes[i];
+                deletes[entry] = oldDeletes[i];
+                translogIds[entry] = oldTranslogIds[i];
+                translogLocations[entry] = oldTranslogLocations[i];
+                translogSizes[entry] = oldTranslogSizes[i];
+                table[emptySlot(hashes[entry])] = entry + 1;
+            }
+        }
+
+        private void rehash(int tableSize) {
+            table = new int[tableSize];
+            threshold = (int) (tableSize * 0.75f);
+            for (int i = 0; i < size; i++) {
+                table[emptySlot(hashes[i])] = i + 1;
+            }
+        }
+
+        private void growEntries(int entries) {
+            hashes = Arrays.copyOf(hashes, entries);
+            keyOffsets = Arrays.copyOf(keyOffsets, entries);
+            versions = Arrays.copyOf(versions, entries);
+            times = Arrays.copyOf(times, entries);
+            deletes = Arrays.copyOf(deletes, entries);
+            translogIds = Arrays.copyOf(translogIds, entries);
+            translogLocations = Arrays.copyOf(translogLocations, entries);
+            translogSizes = Arrays.copyOf(translogSizes, entries);
+        }
+
+        /**
+         * Returns the slot holding the uid, or the empty slot it should be placed at.
+         */
+        private int slot(String uid, int hash) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (true) {
+                int entry = table[slot] - 1;
+                if (entry < 0 || (hashes[entry] == hash && keyEquals(entry, uid))) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private int emptySlot(int hash) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private int keyLength(int entry) {
+            return (entry + 1 < size ? keyOffsets[entry + 1] : keysSize) - keyOffsets[entry];
+        }
+
+        private boolean keyEquals(int entry, String uid) {
+            int length = keyLength(entry);
+            if (length != uid.length()) {
+                return false;
+            }
+            int offset = keyOffsets[entry];
+            for (int i = 0; i < length; i++) {
+                if (keys[offset + i] != uid.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int appendKey(String uid) {
+            int length = uid.length();
+            if (keysSize + length > keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(keys.length + (keys.length >> 1), keysSize + length));
+            }
+            int offset = keysSize;
+            uid.getChars(0, length, keys, offset);
+            keysSize += length;
+            return offset;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.lucene.index.*;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.bloom.BloomFilter;
@@ -42,6 +43,7 @@ import org.elasticsearch.common.util.concurrent.resource.AcquirableResource;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.bloom.BloomCache;
+import org.elasticsearch.index.cache.query.result.QueryResultCache;
 import org.elasticsearch.index.deletionpolicy.SnapshotDeletionPolicy;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.*;
@@ -60,12 +62,10 @@ import org.elasticsearch.monitor.parfait.ParfaitService;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -80,6 +80,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private volatile ByteSizeValue indexingBufferSize;
 
+    private final AtomicLong indexingOperations = new AtomicLong();
+
     private volatile int termIndexInterval;
 
     private volatile int termIndexDivisor;
@@ -112,6 +114,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final BloomCache bloomCache;
 
+    private final QueryResultCache queryResultCache;
+
     private final boolean asyncLoadBloomFilter;
 
     // no need for volatile, its always used under a lock
@@ -126,6 +130,14 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private volatile boolean possibleMergeNeeded = false;
 
+    // the translog location of the last delete by query, versions written before it can't be used for realtime get
+    // since we don't know which documents it deleted
+    private volatile Translog.Location lastDeleteByQueryLocation;
+
+    // flag indicating if a delete by query has occurred since the last refresh, so realtime get needs to refresh
+    // before going to the index
+    private volatile boolean deleteByQuerySinceRefresh = false;
+
     private volatile int disableFlushCounter = 0;
 
     // indexing searcher is initialized
@@ -133,7 +145,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     private final AtomicBoolean flushing = new AtomicBoolean();
 
-    private final ConcurrentMap<String, VersionValue> versionMap;
+    private final VersionMap versionMap;
 
     private final Object[] dirtyLocks;
 
@@ -150,7 +162,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                                Store store, SnapshotDeletionPolicy deletionPolicy, Translog translog,
                                MergePolicyProvider mergePolicyProvider, MergeSchedulerProvider mergeScheduler,
                                AnalysisService analysisService, SimilarityService similarityService,
-                               BloomCache bloomCache) throws EngineException {
+                               BloomCache bloomCache, QueryResultCache queryResultCache) throws EngineException {
         super(shardId, indexSettings);
         Preconditions.checkNotNull(store, "Store must be provided to the engine");
         Preconditions.checkNotNull(deletionPolicy, "Snapshot deletion policy must be provided to the engine");
@@ -172,9 +184,17 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         this.analysisService = analysisService;
         this.similarityService = similarityService;
         this.bloomCache = bloomCache;
+        this.queryResultCache = queryResultCache;
 
         this.indexConcurrency = indexSettings.getAsInt("index.index_concurrency", IndexWriterConfig.DEFAULT_MAX_THREAD_STATES);
-        this.versionMap = new ConcurrentHashMap<String, VersionValue>();
+        String versionMapType = componentSettings.get("version_map.type", "packed");
+        if ("packed".equals(versionMapType)) {
+            this.versionMap = new PackedVersionMap();
+        } else if ("concurrent".equals(versionMapType)) {
+            this.versionMap = new ConcurrentVersionMap();
+        } else {
+            throw new ElasticSearchIllegalArgumentException("No version map type [" + versionMapType + "] found");
+        }
         this.dirtyLocks = new Object[indexConcurrency * 10]; // we multiply it by 10 to have enough...
         for (int i = 0; i < dirtyLocks.length; i++) {
             dirtyLocks[i] = new Object();
@@ -184,6 +204,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
 
     }
 
+    @Override public long indexingOperations() {
+        return indexingOperations.get();
+    }
+
     @Override public void updateIndexingBufferSize(ByteSizeValue indexingBufferSize) {
         ByteSizeValue preValue = this.indexingBufferSize;
         rwl.readLock().lock();
@@ -230,6 +254,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             } catch (IOException e) {
                 throw new EngineCreationFailureException(shardId, "Failed to create engine", e);
             }
+            // uncommitted segments were rolled back, their names will be reused, so drop their persisted filters
+            bloomCache.deleteUnusedFilters(store.directory());
 
             try {
                 translog.newTranslog(newTransactionLogId());
@@ -269,6 +295,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerCreate(create, writer);
+            indexingOperations.incrementAndGet();
             dirty = true;
             possibleMergeNeeded = true;
         } catch (IOException e) {
@@ -286,12 +313,12 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             UidField uidField = create.uidField();
             if (create.origin() == Operation.Origin.RECOVERY) {
                 // on recovery, we get the actual version we want to use
-                if (create.version() != 0) {
-                    versionMap.put(create.uid().text(), new VersionValue(create.version(), false, threadPool.estimatedTimeInMillis()));
-                }
                 uidField.version(create.version());
                 writer.addDocument(create.doc(), create.analyzer());
-                translog.add(new Translog.Create(create));
+                Translog.Location translogLocation = translog.add(new Translog.Create(create));
+                if (create.version() != 0) {
+                    versionMap.put(create.uid().text(), new VersionValue(create.version(), false, threadPool.estimatedTimeInMillis(), translogLocation));
+                }
             } else {
                 long currentVersion;
                 VersionValue versionValue = versionMap.get(create.uid().text());
@@ -358,12 +385,13 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     throw new DocumentAlreadyExistsEngineException(shardId, create.type(), create.id());
                 }
 
-                versionMap.put(create.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis()));
                 uidField.version(updatedVersion);
                 create.version(updatedVersion);
 
                 writer.addDocument(create.doc(), create.analyzer());
-                translog.add(new Translog.Create(create));
+                Translog.Location translogLocation = translog.add(new Translog.Create(create));
+
+                versionMap.put(create.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
             }
         }
     }
@@ -376,6 +404,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerIndex(index, writer);
+            indexingOperations.incrementAndGet();
             dirty = true;
             possibleMergeNeeded = true;
         } catch (IOException e) {
@@ -393,12 +422,12 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
             UidField uidField = index.uidField();
             if (index.origin() == Operation.Origin.RECOVERY) {
                 // on recovery, we get the actual version we want to use
-                if (index.version() != 0) {
-                    versionMap.put(index.uid().text(), new VersionValue(index.version(), false, threadPool.estimatedTimeInMillis()));
-                }
                 uidField.version(index.version());
                 writer.updateDocument(index.uid(), index.doc(), index.analyzer());
-                translog.add(new Translog.Index(index));
+                Translog.Location translogLocation = translog.add(new Translog.Index(index));
+                if (index.version() != 0) {
+                    versionMap.put(index.uid().text(), new VersionValue(index.version(), false, threadPool.estimatedTimeInMillis(), translogLocation));
+                }
             } else {
                 long currentVersion;
                 VersionValue versionValue = versionMap.get(index.uid().text());
@@ -454,7 +483,6 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     updatedVersion = index.version();
                 }
 
-                versionMap.put(index.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis()));
                 uidField.version(updatedVersion);
                 index.version(updatedVersion);
 
@@ -464,7 +492,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 } else {
                     writer.updateDocument(index.uid(), index.doc(), index.analyzer());
                 }
-                translog.add(new Translog.Index(index));
+                Translog.Location translogLocation = translog.add(new Translog.Index(index));
+
+                versionMap.put(index.uid().text(), new VersionValue(updatedVersion, false, threadPool.estimatedTimeInMillis(), translogLocation));
             }
         }
     }
@@ -478,6 +508,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId, failedEngine);
             }
             innerDelete(delete, writer);
+            indexingOperations.incrementAndGet();
             dirty = true;
             possibleMergeNeeded = true;
         } catch (IOException e) {
@@ -494,12 +525,12 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         synchronized (dirtyLock(delete.uid())) {
             if (delete.origin() == Operation.Origin.RECOVERY) {
                 // update the version with the exact version from recovery, assuming we have it
+                writer.deleteDocuments(delete.uid());
+                Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
+
                 if (delete.version() != 0) {
-                    versionMap.put(delete.uid().text(), new VersionValue(delete.version(), true, threadPool.estimatedTimeInMillis()));
+                    versionMap.put(delete.uid().text(), new VersionValue(delete.version(), true, threadPool.estimatedTimeInMillis(), translogLocation));
                 }
-
-                writer.deleteDocuments(delete.uid());
-                translog.add(new Translog.Delete(delete));
             } else {
                 long currentVersion;
                 VersionValue versionValue = versionMap.get(delete.uid().text());
@@ -557,10 +588,10 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     // if its a delete on delete and we have the current delete version, return it
                     delete.version(versionValue.version()).notFound(true);
                 } else {
-                    versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis()));
                     delete.version(updatedVersion);
                     writer.deleteDocuments(delete.uid());
-                    translog.add(new Translog.Delete(delete));
+                    Translog.Location translogLocation = translog.add(new Translog.Delete(delete));
+                    versionMap.put(delete.uid().text(), new VersionValue(updatedVersion, true, threadPool.estimatedTimeInMillis(), translogLocation));
                 }
             }
         }
@@ -575,7 +606,8 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 throw new EngineClosedException(shardId);
             }
             writer.deleteDocuments(delete.query());
-            translog.add(new Translog.DeleteByQuery(delete));
+            deleteByQuerySinceRefresh = true;
+            lastDeleteByQueryLocation = translog.add(new Translog.DeleteByQuery(delete));
             dirty = true;
             possibleMergeNeeded = true;
         } catch (IOException e) {
@@ -585,6 +617,51 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    @Override public GetResult get(Get get) throws EngineException {
+        rwl.readLock().lock();
+        try {
+            if (get.realtime()) {
+                VersionValue versionValue = versionMap.get(get.uid().text());
+                if (versionValue != null && !writtenBeforeLastDeleteByQuery(versionValue)) {
+                    if (versionValue.delete()) {
+                        return GetResult.NOT_EXISTS;
+                    }
+                    byte[] source = null;
+                    if (versionValue.translogLocation() != null) {
+                        Translog.Operation operation = translog.read(versionValue.translogLocation());
+                        if (operation instanceof Translog.Index) {
+                            source = ((Translog.Index) operation).source();
+                        } else if (operation instanceof Translog.Create) {
+                            source = ((Translog.Create) operation).source();
+                        }
+                    }
+                    if (source != null) {
+                        return new GetResult(true, versionValue.version(), source);
+                    }
+                    // the translog moved on (we flushed), so the document is in the index, go and load it
+                }
+                if (deleteByQuerySinceRefresh) {
+                    // make the documents deleted by the query visible before we go to the index
+                    refresh(new Refresh(true));
+                }
+            }
+
+            Searcher searcher = searcher();
+            UidField.DocIdAndVersion docIdAndVersion = loadCurrentDocIdAndVersionFromIndex(searcher, get.uid());
+            if (docIdAndVersion == null || docIdAndVersion.docId == Lucene.NO_DOC) {
+                searcher.release();
+                return GetResult.NOT_EXISTS;
+            }
+            return new GetResult(searcher, docIdAndVersion);
+        } catch (EngineException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new GetFailedEngineException(shardId, get, e);
+        } finally {
+            rwl.readLock().unlock();
+        }
+    }
+
     @Override public Searcher searcher() throws EngineException {
         AcquirableResource<ReaderSearcherHolder> holder;
         for (; ;) {
@@ -625,6 +702,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 synchronized (refreshMutex) {
                     if (dirty || refresh.force()) {
                         dirty = false;
+                        deleteByQuerySinceRefresh = false;
                         AcquirableResource<ReaderSearcherHolder> current = nrtResource;
                         IndexReader newReader = current.resource().reader().reopen(true);
                         if (newReader != current.resource().reader()) {
@@ -632,6 +710,12 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                             indexSearcher.setSimilarity(similarityService.defaultSearchSimilarity());
                             nrtResource = newAcquirableResource(new ReaderSearcherHolder(indexSearcher));
                             current.markForClose();
+                            // results cached for the previous reader will not be used anymore
+                            queryResultCache.clear(current.resource().reader());
+                            // load the uid bloom filters of new segments now and not on the first version lookup
+                            for (IndexReader subReader : indexSearcher.subReaders()) {
+                                bloomCache.filter(subReader, UidFieldMapper.NAME, asyncLoadBloomFilter);
+                            }
                         }
                     }
                 }
@@ -693,6 +777,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     AcquirableResource<ReaderSearcherHolder> current = nrtResource;
                     nrtResource = buildNrtResource(indexWriter);
                     current.markForClose();
+                    queryResultCache.clear(current.resource().reader());
                     translog.newTranslog(newTransactionLogId());
                 } catch (Exception e) {
                     throw new FlushFailedEngineException(shardId, e);
@@ -711,17 +796,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                     throw new FlushFailedEngineException(shardId, e);
                 }
             }
+            bloomCache.deleteUnusedFilters(store.directory());
             // remove all version except for deletes, which we expire based on GC value
-            long time = threadPool.estimatedTimeInMillis();
-            for (Map.Entry<String, VersionValue> entry : versionMap.entrySet()) {
-                if (entry.getValue().delete()) {
-                    if ((time - entry.getValue().time()) > gcDeletesInMillis) {
-                        versionMap.remove(entry.getKey());
-                    }
-                } else {
-                    versionMap.remove(entry.getKey());
-                }
-            }
+            versionMap.prune(threadPool.estimatedTimeInMillis(), gcDeletesInMillis);
             dirty = true; // force a refresh
             // we need to do a refresh here so we sync versioning support
             refresh(new Refresh(true).force(true));
@@ -933,6 +1010,7 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
                 indexingSearcher.set(null);
             }
             if (nrtResource != null) {
+                queryResultCache.clear(nrtResource.resource().reader());
                 this.nrtResource.forceClose();
             }
             // no need to commit in this case!, we snapshot before we close the shard, so translog and all sync'ed
@@ -950,6 +1028,22 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
+    private boolean writtenBeforeLastDeleteByQuery(VersionValue versionValue) {
+        Translog.Location deleteByQueryLocation = lastDeleteByQueryLocation;
+        if (deleteByQueryLocation == null || versionValue.delete()) {
+            // a delete by query can't bring a deleted document back
+            return false;
+        }
+        Translog.Location location = versionValue.translogLocation();
+        if (location == null) {
+            return true;
+        }
+        if (location.translogId != deleteByQueryLocation.translogId) {
+            return location.translogId < deleteByQueryLocation.translogId;
+        }
+        return location.translogLocation < deleteByQueryLocation.translogLocation;
+    }
+
     private Object dirtyLock(Term uid) {
         return dirtyLocks[Math.abs(uid.hashCode()) % dirtyLocks.length];
     }
@@ -983,6 +1077,23 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         return -1;
     }
 
+    private UidField.DocIdAndVersion loadCurrentDocIdAndVersionFromIndex(Searcher searcher, Term uid) {
+        UnicodeUtil.UTF8Result utf8 = Unicode.fromStringAsUtf8(uid.text());
+        for (IndexReader reader : searcher.searcher().subReaders()) {
+            BloomFilter filter = bloomCache.filter(reader, UidFieldMapper.NAME, asyncLoadBloomFilter);
+            // we know that its not there...
+            if (!filter.isPresent(utf8.result, 0, utf8.length)) {
+                continue;
+            }
+            UidField.DocIdAndVersion docIdAndVersion = UidField.loadDocIdAndVersion(reader, uid);
+            // not null if it exists
+            if (docIdAndVersion != null) {
+                return docIdAndVersion;
+            }
+        }
+        return null;
+    }
+
     private IndexWriter createWriter() throws IOException {
         IndexWriter indexWriter = null;
         try {
@@ -1091,15 +1202,17 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         }
     }
 
-    static class VersionValue {
+    public static class VersionValue {
         private final long version;
         private final boolean delete;
         private final long time;
+        private final Translog.Location translogLocation;
 
-        VersionValue(long version, boolean delete, long time) {
+        public VersionValue(long version, boolean delete, long time, Translog.Location translogLocation) {
             this.version = version;
             this.delete = delete;
             this.time = time;
+            this.translogLocation = translogLocation;
         }
 
         public long time() {
@@ -1113,5 +1226,9 @@ public class RobinEngine extends AbstractIndexShardComponent implements Engine {
         public boolean delete() {
             return delete;
         }
+
+        public Translog.Location translogLocation() {
+            return this.translogLocation;
+        }
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.elasticsearch.common.util.concurrent.ThreadSafe;
+
+/**
+ * Holds the latest version (and delete marker) of each uid that was changed since the last flush,
+ * used for version conflict detection and realtime get.
+ *
+ * @author kimchy (shay.banon)
+ */
+@ThreadSafe
+public interface VersionMap {
+
+    /**
+     * Returns the version value associated with the uid, <tt>null</tt> if there is none.
+     */
+    RobinEngine.VersionValue get(String uid);
+
+    /**
+     * Puts (and replaces if it exists) the version value associated with the uid.
+     */
+    void put(String uid, RobinEngine.VersionValue versionValue);
+
+    /**
+     * Removes all the non delete versions, and the delete versions that are older than
+     * <tt>gcDeletesInMillis</tt> (relative to the provided time).
+     */
+    void prune(long time, long gcDeletesInMillis);
+
+    /**
+     * The number of versions held by the map.
+     */
+    int size();
+
+    /**
+     * Clears the map.
+     */
+    void clear();
+}
@@ -67,6 +67,14 @@ public abstract class FieldData<Doc extends DocFieldData> {
 
     protected abstract long computeSizeInBytes();
 
+    /**
+     * Returns a version of this field data that keeps its ordinals and values outside of the java heap,
+     * or this field data if there is no such version for it.
+     */
+    public FieldData direct() {
+        return this;
+    }
+
     protected abstract Doc createFieldData();
 
     /**
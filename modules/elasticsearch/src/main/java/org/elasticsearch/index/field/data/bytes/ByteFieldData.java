@@ -26,6 +26,7 @@ import org.elasticsearch.common.trove.list.array.TByteArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 
@@ -141,7 +142,7 @@ public abstract class ByteFieldData extends NumericFieldData<ByteDocFieldData> {
             return new SingleValueByteFieldData(field, ordinals, terms.toArray());
         }
 
-        @Override public ByteFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public ByteFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueByteFieldData(field, ordinals, terms.toArray());
         }
     }
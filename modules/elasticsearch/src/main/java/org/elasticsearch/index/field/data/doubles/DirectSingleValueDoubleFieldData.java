@@ -0,0 +1,173 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.doubles;
+
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.thread.ThreadLocals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A single valued double field data that keeps both its ordinals and its values in direct buffers,
+ * outside of the java heap. The buffers are released once the field data is garbage collected.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class DirectSingleValueDoubleFieldData extends DoubleFieldData {
+
+    private ThreadLocal<ThreadLocals.CleanableValue<double[]>> valuesCache = new ThreadLocal<ThreadLocals.CleanableValue<double[]>>() {
+        @Override protected ThreadLocals.CleanableValue<double[]> initialValue() {
+            return new ThreadLocals.CleanableValue<double[]>(new double[1]);
+        }
+    };
+
+    // order with value 0 indicates no value
+    private final IntBuffer ordinals;
+
+    private final DoubleBuffer directValues;
+
+    public DirectSingleValueDoubleFieldData(String fieldName, int[] ordinals, double[] values) {
+        super(fieldName, EMPTY_DOUBLE_ARRAY);
+        this.ordinals = ByteBuffer.allocateDirect(ordinals.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.ordinals.put(ordinals);
+        this.directValues = ByteBuffer.allocateDirect(values.length * 8).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        this.directValues.put(values);
+    }
+
+    @Override protected long computeSizeInBytes() {
+        return RamUsage.NUM_BYTES_INT * ordinals.capacity() + RamUsage.NUM_BYTES_DOUBLE * directValues.capacity();
+    }
+
+    /**
+     * Returns a heap copy of the values, use {@link #numValues()} and {@link #valueByOrdinal(int)} instead.
+     */
+    @Override public double[] values() {
+        double[] values = new double[directValues.capacity()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = directValues.get(i);
+        }
+        return values;
+    }
+
+    @Override public int numValues() {
+        return directValues.capacity();
+    }
+
+    @Override public double valueByOrdinal(int ordinal) {
+        return directValues.get(ordinal);
+    }
+
+    @Override public void forEachValue(StringValueProc proc) {
+        for (int i = 1; i < directValues.capacity(); i++) {
+            proc.onValue(Double.toString(directValues.get(i)));
+        }
+    }
+
+    @Override public void forEachValue(ValueProc proc) {
+        for (int i = 1; i < directValues.capacity(); i++) {
+            proc.onValue(directValues.get(i));
+        }
+    }
+
+    @Override public boolean multiValued() {
+        return false;
+    }
+
+    @Override public boolean hasValue(int docId) {
+        return ordinals.get(docId) != 0;
+    }
+
+    @Override public void forEachValueInDoc(int docId, StringValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, Double.toString(directValues.get(loc)));
+    }
+
+    @Override public void forEachValueInDoc(int docId, DoubleValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, LongValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return;
+        }
+        proc.onValue(docId, (long) directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, MissingDoubleValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, MissingLongValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, (long) directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
+        proc.onOrdinal(docId, ordinals.get(docId));
+    }
+
+    @Override public double[] doubleValues(int docId) {
+        return values(docId);
+    }
+
+    @Override public double value(int docId) {
+        return directValues.get(ordinals.get(docId));
+    }
+
+    @Override public double[] values(int docId) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return EMPTY_DOUBLE_ARRAY;
+        }
+        double[] ret = valuesCache.get().get();
+        ret[0] = directValues.get(loc);
+        return ret;
+    }
+}
\ No newline at end of file
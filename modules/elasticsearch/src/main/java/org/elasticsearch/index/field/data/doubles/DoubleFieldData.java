@@ -26,6 +26,7 @@ import org.elasticsearch.common.trove.list.array.TDoubleArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 
@@ -47,10 +48,24 @@ public abstract class DoubleFieldData extends NumericFieldData<DoubleDocFieldDat
         return RamUsage.NUM_BYTES_DOUBLE * values.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
     }
 
-    public final double[] values() {
+    public double[] values() {
         return this.values;
     }
 
+    /**
+     * The number of values, the first one is reserved for docs with no value. Ordinals index into them.
+     */
+    public int numValues() {
+        return values.length;
+    }
+
+    /**
+     * The value of the provided ordinal.
+     */
+    public double valueByOrdinal(int ordinal) {
+        return values[ordinal];
+    }
+
     abstract public double value(int docId);
 
     abstract public double[] values(int docId);
@@ -141,7 +156,7 @@ public abstract class DoubleFieldData extends NumericFieldData<DoubleDocFieldDat
             return new SingleValueDoubleFieldData(field, ordinals, terms.toArray());
         }
 
-        @Override public DoubleFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public DoubleFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueDoubleFieldData(field, ordinals, terms.toArray());
         }
     }
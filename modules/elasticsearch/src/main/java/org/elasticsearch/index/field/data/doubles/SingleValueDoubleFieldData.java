@@ -21,6 +21,7 @@ package org.elasticsearch.index.field.data.doubles;
 
 import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.thread.ThreadLocals;
+import org.elasticsearch.index.field.data.FieldData;
 
 /**
  * @author kimchy (shay.banon)
@@ -46,6 +47,10 @@ public class SingleValueDoubleFieldData extends DoubleFieldData {
                 RamUsage.NUM_BYTES_INT * ordinals.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
     }
 
+    @Override public FieldData direct() {
+        return new DirectSingleValueDoubleFieldData(fieldName(), ordinals, values);
+    }
+
     @Override public boolean multiValued() {
         return false;
     }
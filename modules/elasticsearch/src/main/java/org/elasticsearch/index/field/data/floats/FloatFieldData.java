@@ -26,6 +26,7 @@ import org.elasticsearch.common.trove.list.array.TFloatArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 
@@ -141,7 +142,7 @@ public abstract class FloatFieldData extends NumericFieldData<FloatDocFieldData>
             return new SingleValueFloatFieldData(field, ordinals, terms.toArray());
         }
 
-        @Override public FloatFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public FloatFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueFloatFieldData(field, ordinals, terms.toArray());
         }
     }
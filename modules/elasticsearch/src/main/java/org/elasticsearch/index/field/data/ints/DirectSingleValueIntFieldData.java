@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.ints;
+
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.thread.ThreadLocals;
+import org.elasticsearch.index.field.data.doubles.DoubleFieldData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A single valued int field data that keeps both its ordinals and its values in direct buffers,
+ * outside of the java heap. The buffers are released once the field data is garbage collected.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class DirectSingleValueIntFieldData extends IntFieldData {
+
+    private ThreadLocal<ThreadLocals.CleanableValue<double[]>> doublesValuesCache = new ThreadLocal<ThreadLocals.CleanableValue<double[]>>() {
+        @Override protected ThreadLocals.CleanableValue<double[]> initialValue() {
+            return new ThreadLocals.CleanableValue<double[]>(new double[1]);
+        }
+    };
+
+    private ThreadLocal<ThreadLocals.CleanableValue<int[]>> valuesCache = new ThreadLocal<ThreadLocals.CleanableValue<int[]>>() {
+        @Override protected ThreadLocals.CleanableValue<int[]> initialValue() {
+            return new ThreadLocals.CleanableValue<int[]>(new int[1]);
+        }
+    };
+
+    // order with value 0 indicates no value
+    private final IntBuffer ordinals;
+
+    private final IntBuffer directValues;
+
+    public DirectSingleValueIntFieldData(String fieldName, int[] ordinals, int[] values) {
+        super(fieldName, EMPTY_INT_ARRAY);
+        this.ordinals = ByteBuffer.allocateDirect(ordinals.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.ordinals.put(ordinals);
+        this.directValues = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        this.directValues.put(values);
+    }
+
+    @Override protected long computeSizeInBytes() {
+        return RamUsage.NUM_BYTES_INT * ordinals.capacity() + RamUsage.NUM_BYTES_INT * directValues.capacity();
+    }
+
+    /**
+     * Returns a heap copy of the values, use {@link #numValues()} and {@link #valueByOrdinal(int)} instead.
+     */
+    @Override public int[] values() {
+        int[] values = new int[directValues.capacity()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = directValues.get(i);
+        }
+        return values;
+    }
+
+    @Override public int numValues() {
+        return directValues.capacity();
+    }
+
+    @Override public int valueByOrdinal(int ordinal) {
+        return directValues.get(ordinal);
+    }
+
+    @Override public void forEachValue(StringValueProc proc) {
+        for (int i = 1; i < directValues.capacity(); i++) {
+            proc.onValue(Integer.toString(directValues.get(i)));
+        }
+    }
+
+    @Override public void forEachValue(ValueProc proc) {
+        for (int i = 1; i < directValues.capacity(); i++) {
+            proc.onValue(directValues.get(i));
+        }
+    }
+
+    @Override public boolean multiValued() {
+        return false;
+    }
+
+    @Override public boolean hasValue(int docId) {
+        return ordinals.get(docId) != 0;
+    }
+
+    @Override public void forEachValueInDoc(int docId, StringValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, Integer.toString(directValues.get(loc)));
+    }
+
+    @Override public void forEachValueInDoc(int docId, DoubleValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, LongValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, MissingDoubleValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, MissingLongValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            proc.onMissing(docId);
+            return;
+        }
+        proc.onValue(docId, directValues.get(loc));
+    }
+
+    @Override public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
+        proc.onOrdinal(docId, ordinals.get(docId));
+    }
+
+    @Override public double[] doubleValues(int docId) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return DoubleFieldData.EMPTY_DOUBLE_ARRAY;
+        }
+        double[] ret = doublesValuesCache.get().get();
+        ret[0] = directValues.get(loc);
+        return ret;
+    }
+
+    @Override public int value(int docId) {
+        return directValues.get(ordinals.get(docId));
+    }
+
+    @Override public int[] values(int docId) {
+        int loc = ordinals.get(docId);
+        if (loc == 0) {
+            return EMPTY_INT_ARRAY;
+        }
+        int[] ret = valuesCache.get().get();
+        ret[0] = directValues.get(loc);
+        return ret;
+    }
+}
\ No newline at end of file
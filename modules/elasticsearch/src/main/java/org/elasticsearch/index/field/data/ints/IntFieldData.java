@@ -26,6 +26,7 @@ import org.elasticsearch.common.trove.list.array.TIntArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 
@@ -47,10 +48,24 @@ public abstract class IntFieldData extends NumericFieldData<IntDocFieldData> {
         return RamUsage.NUM_BYTES_INT * values.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
     }
 
-    public final int[] values() {
+    public int[] values() {
         return this.values;
     }
 
+    /**
+     * The number of values, the first one is reserved for docs with no value. Ordinals index into them.
+     */
+    public int numValues() {
+        return values.length;
+    }
+
+    /**
+     * The value of the provided ordinal.
+     */
+    public int valueByOrdinal(int ordinal) {
+        return values[ordinal];
+    }
+
     abstract public int value(int docId);
 
     abstract public int[] values(int docId);
@@ -141,7 +156,7 @@ public abstract class IntFieldData extends NumericFieldData<IntDocFieldData> {
             return new SingleValueIntFieldData(field, ordinals, terms.toArray());
         }
 
-        @Override public IntFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public IntFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueIntFieldData(field, ordinals, terms.toArray());
         }
     }
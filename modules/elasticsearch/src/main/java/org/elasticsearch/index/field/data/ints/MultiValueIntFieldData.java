@@ -19,9 +19,9 @@
 
 package org.elasticsearch.index.field.data.ints;
 
-import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.thread.ThreadLocals;
 import org.elasticsearch.index.field.data.doubles.DoubleFieldData;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 /**
  * @author kimchy (shay.banon)
@@ -51,19 +51,16 @@ public class MultiValueIntFieldData extends IntFieldData {
     };
 
     // order with value 0 indicates no value
-    private final int[][] ordinals;
+    private final MultiValueOrdinals ordinals;
 
-    public MultiValueIntFieldData(String fieldName, int[][] ordinals, int[] values) {
+    public MultiValueIntFieldData(String fieldName, MultiValueOrdinals ordinals, int[] values) {
         super(fieldName, values);
         this.ordinals = ordinals;
     }
 
     @Override protected long computeSizeInBytes() {
         long size = super.computeSizeInBytes();
-        size += RamUsage.NUM_BYTES_ARRAY_HEADER; // for the top level array
-        for (int[] ordinal : ordinals) {
-            size += RamUsage.NUM_BYTES_INT * ordinal.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
-        }
+        size += ordinals.sizeInBytes();
         return size;
     }
 
@@ -72,101 +69,86 @@ public class MultiValueIntFieldData extends IntFieldData {
     }
 
     @Override public boolean hasValue(int docId) {
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                return true;
-            }
-        }
-        return false;
+        return ordinals.firstOrdinal(docId) != 0;
     }
 
     @Override public void forEachValueInDoc(int docId, StringValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, Integer.toString(values[loc]));
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, Integer.toString(values[loc]));
         }
     }
 
     @Override public void forEachValueInDoc(int docId, DoubleValueInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                proc.onValue(docId, values[loc]);
-            }
+        int length = ordinals.numValues(docId);
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, LongValueInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                proc.onValue(docId, values[loc]);
-            }
+        int length = ordinals.numValues(docId);
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, MissingDoubleValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, values[loc]);
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, MissingLongValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, values[loc]);
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, ValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, values[loc]);
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            proc.onOrdinal(docId, ordinal[docId]);
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
+            proc.onOrdinal(docId, 0);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            proc.onOrdinal(docId, ordinals.ordinal(docId, i));
         }
     }
 
     @Override public double[] doubleValues(int docId) {
-        int length = 0;
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                length++;
-            }
-        }
+        int length = ordinals.numValues(docId);
         if (length == 0) {
             return DoubleFieldData.EMPTY_DOUBLE_ARRAY;
         }
@@ -176,33 +158,23 @@ public class MultiValueIntFieldData extends IntFieldData {
         } else {
             doubles = new double[length];
         }
-        int i = 0;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                doubles[i++] = values[loc];
-            }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            doubles[i] = values[loc];
         }
         return doubles;
     }
 
     @Override public int value(int docId) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                return values[loc];
-            }
+        int loc = ordinals.firstOrdinal(docId);
+        if (loc != 0) {
+            return values[loc];
         }
         return 0;
     }
 
     @Override public int[] values(int docId) {
-        int length = 0;
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                length++;
-            }
-        }
+        int length = ordinals.numValues(docId);
         if (length == 0) {
             return EMPTY_INT_ARRAY;
         }
@@ -212,12 +184,9 @@ public class MultiValueIntFieldData extends IntFieldData {
         } else {
             ints = new int[length];
         }
-        int i = 0;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                ints[i++] = values[loc];
-            }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            ints[i] = values[loc];
         }
         return ints;
     }
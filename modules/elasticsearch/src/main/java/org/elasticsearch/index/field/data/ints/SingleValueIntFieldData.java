@@ -21,6 +21,7 @@ package org.elasticsearch.index.field.data.ints;
 
 import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.thread.ThreadLocals;
+import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.doubles.DoubleFieldData;
 
 /**
@@ -53,6 +54,10 @@ public class SingleValueIntFieldData extends IntFieldData {
                 RamUsage.NUM_BYTES_INT * ordinals.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
     }
 
+    @Override public FieldData direct() {
+        return new DirectSingleValueIntFieldData(fieldName(), ordinals, values);
+    }
+
     @Override public boolean multiValued() {
         return false;
     }
@@ -29,6 +29,7 @@ import org.elasticsearch.common.trove.list.array.TLongArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 
@@ -57,10 +58,24 @@ public abstract class LongFieldData extends NumericFieldData<LongDocFieldData> {
         return RamUsage.NUM_BYTES_LONG * values.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
     }
 
-    public final long[] values() {
+    public long[] values() {
         return this.values;
     }
 
+    /**
+     * The number of values, the first one is reserved for docs with no value. Ordinals index into them.
+     */
+    public int numValues() {
+        return values.length;
+    }
+
+    /**
+     * The value of the provided ordinal.
+     */
+    public long valueByOrdinal(int ordinal) {
+        return values[ordinal];
+    }
+
     abstract public long value(int docId);
 
     abstract public long[] values(int docId);
@@ -171,7 +186,7 @@ public abstract class LongFieldData extends NumericFieldData<LongDocFieldData> {
             return new SingleValueLongFieldData(field, ordinals, terms.toArray());
         }
 
-        @Override public LongFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public LongFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueLongFieldData(field, ordinals, terms.toArray());
         }
     }
@@ -19,11 +19,11 @@
 
 package org.elasticsearch.index.field.data.longs;
 
-import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.joda.time.DateTimeZone;
 import org.elasticsearch.common.joda.time.MutableDateTime;
 import org.elasticsearch.common.thread.ThreadLocals;
 import org.elasticsearch.index.field.data.doubles.DoubleFieldData;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 /**
  * @author kimchy (shay.banon)
@@ -67,19 +67,16 @@ public class MultiValueLongFieldData extends LongFieldData {
     };
 
     // order with value 0 indicates no value
-    private final int[][] ordinals;
+    private final MultiValueOrdinals ordinals;
 
-    public MultiValueLongFieldData(String fieldName, int[][] ordinals, long[] values) {
+    public MultiValueLongFieldData(String fieldName, MultiValueOrdinals ordinals, long[] values) {
         super(fieldName, values);
         this.ordinals = ordinals;
     }
 
     @Override protected long computeSizeInBytes() {
         long size = super.computeSizeInBytes();
-        size += RamUsage.NUM_BYTES_ARRAY_HEADER; // for the top level array
-        for (int[] ordinal : ordinals) {
-            size += RamUsage.NUM_BYTES_INT * ordinal.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
-        }
+        size += ordinals.sizeInBytes();
         return size;
     }
 
@@ -88,122 +85,105 @@ public class MultiValueLongFieldData extends LongFieldData {
     }
 
     @Override public boolean hasValue(int docId) {
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                return true;
-            }
-        }
-        return false;
+        return ordinals.firstOrdinal(docId) != 0;
     }
 
     @Override public void forEachValueInDoc(int docId, StringValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, Long.toString(values[loc]));
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, Long.toString(values[loc]));
         }
     }
 
     @Override public void forEachValueInDoc(int docId, DoubleValueInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                proc.onValue(docId, values[loc]);
-            }
+        int length = ordinals.numValues(docId);
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, LongValueInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                proc.onValue(docId, values[loc]);
-            }
+        int length = ordinals.numValues(docId);
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, MissingDoubleValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, values[loc]);
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, MissingLongValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, values[loc]);
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            proc.onOrdinal(docId, ordinal[docId]);
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
+            proc.onOrdinal(docId, 0);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            proc.onOrdinal(docId, ordinals.ordinal(docId, i));
         }
     }
 
     @Override public void forEachValueInDoc(int docId, ValueInDocProc proc) {
-        boolean found = false;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                found = true;
-                proc.onValue(docId, values[loc]);
-            }
-        }
-        if (!found) {
+        int length = ordinals.numValues(docId);
+        if (length == 0) {
             proc.onMissing(docId);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            proc.onValue(docId, values[loc]);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, DateValueInDocProc proc) {
         MutableDateTime dateTime = dateTimeCache.get().get();
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                dateTime.setMillis(values[loc]);
-                proc.onValue(docId, dateTime);
-            }
+        int length = ordinals.numValues(docId);
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            dateTime.setMillis(values[loc]);
+            proc.onValue(docId, dateTime);
         }
     }
 
     @Override public void forEachValueInDoc(int docId, MutableDateTime dateTime, DateValueInDocProc proc) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                dateTime.setMillis(values[loc]);
-                proc.onValue(docId, dateTime);
-            }
+        int length = ordinals.numValues(docId);
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            dateTime.setMillis(values[loc]);
+            proc.onValue(docId, dateTime);
         }
     }
 
     @Override public MutableDateTime[] dates(int docId) {
-        int length = 0;
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                length++;
-            }
-        }
+        int length = ordinals.numValues(docId);
         if (length == 0) {
             return EMPTY_DATETIME_ARRAY;
         }
@@ -216,23 +196,15 @@ public class MultiValueLongFieldData extends LongFieldData {
                 dates[i] = new MutableDateTime();
             }
         }
-        int i = 0;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                dates[i++].setMillis(values[loc]);
-            }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            dates[i].setMillis(values[loc]);
         }
         return dates;
     }
 
     @Override public double[] doubleValues(int docId) {
-        int length = 0;
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                length++;
-            }
-        }
+        int length = ordinals.numValues(docId);
         if (length == 0) {
             return DoubleFieldData.EMPTY_DOUBLE_ARRAY;
         }
@@ -242,33 +214,23 @@ public class MultiValueLongFieldData extends LongFieldData {
         } else {
             doubles = new double[length];
         }
-        int i = 0;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                doubles[i++] = values[loc];
-            }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            doubles[i] = values[loc];
         }
         return doubles;
     }
 
     @Override public long value(int docId) {
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                return values[loc];
-            }
+        int loc = ordinals.firstOrdinal(docId);
+        if (loc != 0) {
+            return values[loc];
         }
         return 0;
     }
 
     @Override public long[] values(int docId) {
-        int length = 0;
-        for (int[] ordinal : ordinals) {
-            if (ordinal[docId] != 0) {
-                length++;
-            }
-        }
+        int length = ordinals.numValues(docId);
         if (length == 0) {
             return EMPTY_LONG_ARRAY;
         }
@@ -278,12 +240,9 @@ public class MultiValueLongFieldData extends LongFieldData {
         } else {
             longs = new long[length];
         }
-        int i = 0;
-        for (int[] ordinal : ordinals) {
-            int loc = ordinal[docId];
-            if (loc != 0) {
-                longs[i++] = values[loc];
-            }
+        for (int i = 0; i < length; i++) {
+            int loc = ordinals.ordinal(docId, i);
+            longs[i] = values[loc];
         }
         return longs;
     }
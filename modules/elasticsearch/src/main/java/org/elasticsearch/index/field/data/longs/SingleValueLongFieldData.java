@@ -23,6 +23,7 @@ import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.joda.time.DateTimeZone;
 import org.elasticsearch.common.joda.time.MutableDateTime;
 import org.elasticsearch.common.thread.ThreadLocals;
+import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.doubles.DoubleFieldData;
 
 /**
@@ -63,6 +64,10 @@ public class SingleValueLongFieldData extends LongFieldData {
                 RamUsage.NUM_BYTES_INT * ordinals.length + RamUsage.NUM_BYTES_ARRAY_HEADER;
     }
 
+    @Override public FieldData direct() {
+        return new DirectSingleValueLongFieldData(fieldName(), ordinals, values);
+    }
+
     @Override public boolean multiValued() {
         return false;
     }
@@ -26,6 +26,7 @@ import org.elasticsearch.common.trove.list.array.TShortArrayList;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.NumericFieldData;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 
@@ -141,7 +142,7 @@ public abstract class ShortFieldData extends NumericFieldData<ShortDocFieldData>
             return new SingleValueShortFieldData(field, ordinals, terms.toArray());
         }
 
-        @Override public ShortFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public ShortFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueShortFieldData(field, ordinals, terms.toArray());
         }
     }
@@ -24,6 +24,7 @@ import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -102,7 +103,7 @@ public abstract class StringFieldData extends FieldData<StringDocFieldData> {
             return new SingleValueStringFieldData(field, ordinals, terms.toArray(new String[terms.size()]));
         }
 
-        @Override public StringFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public StringFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueStringFieldData(field, ordinals, terms.toArray(new String[terms.size()]));
         }
     }
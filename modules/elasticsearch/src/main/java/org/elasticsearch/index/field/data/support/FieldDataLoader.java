@@ -27,7 +27,6 @@ import org.apache.lucene.util.StringHelper;
 import org.elasticsearch.index.field.data.FieldData;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 /**
  * @author kimchy (shay.banon)
@@ -40,8 +39,9 @@ public class FieldDataLoader {
         loader.init();
 
         field = StringHelper.intern(field);
-        ArrayList<int[]> ordinals = new ArrayList<int[]>();
-        ordinals.add(new int[reader.maxDoc()]);
+        int[] firstOrdinals = new int[reader.maxDoc()];
+        // only allocated once a doc with more than one value is found
+        int[] numValues = null;
 
         int t = 1;  // current term number
 
@@ -55,21 +55,13 @@ public class FieldDataLoader {
                 termDocs.seek(termEnum);
                 while (termDocs.next()) {
                     int doc = termDocs.doc();
-                    boolean found = false;
-                    for (int i = 0; i < ordinals.size(); i++) {
-                        int[] ordinal = ordinals.get(i);
-                        if (ordinal[doc] == 0) {
-                            // we found a spot, use it
-                            ordinal[doc] = t;
-                            found = true;
-                            break;
+                    if (firstOrdinals[doc] == 0) {
+                        firstOrdinals[doc] = t;
+                    } else {
+                        if (numValues == null) {
+                            numValues = new int[reader.maxDoc()];
                         }
-                    }
-                    if (!found) {
-                        // did not find one, increase by one and redo
-                        int[] ordinal = new int[reader.maxDoc()];
-                        ordinals.add(ordinal);
-                        ordinal[doc] = t;
+                        numValues[doc] = numValues[doc] == 0 ? 2 : numValues[doc] + 1;
                     }
                 }
                 t++;
@@ -85,15 +77,34 @@ public class FieldDataLoader {
             termEnum.close();
         }
 
-        if (ordinals.size() == 1) {
-            return loader.buildSingleValue(field, ordinals.get(0));
-        } else {
-            int[][] nativeOrdinals = new int[ordinals.size()][];
-            for (int i = 0; i < nativeOrdinals.length; i++) {
-                nativeOrdinals[i] = ordinals.get(i);
-            }
-            return loader.buildMultiValue(field, nativeOrdinals);
+        if (numValues == null) {
+            return loader.buildSingleValue(field, firstOrdinals);
+        }
+
+        // the max ordinal is the last term number assigned
+        int maxOrdinal = t - 1;
+        MultiValueOrdinals.Builder builder = new MultiValueOrdinals.Builder(firstOrdinals, numValues, maxOrdinal);
+        firstOrdinals = null;
+        // now that the number of values of each doc is known, go over the terms again and add the ordinals of the
+        // multi valued docs straight into the packed ordinals, instead of keeping them all around per value slot
+        t = 1;
+        termDocs = reader.termDocs();
+        termEnum = reader.terms(new Term(field));
+        try {
+            do {
+                Term term = termEnum.term();
+                if (term == null || term.field() != field || t > maxOrdinal) break;
+                termDocs.seek(termEnum);
+                while (termDocs.next()) {
+                    builder.addOrdinal(termDocs.doc(), t);
+                }
+                t++;
+            } while (termEnum.next());
+        } finally {
+            termDocs.close();
+            termEnum.close();
         }
+        return loader.buildMultiValue(field, builder.build());
     }
 
     public static interface TypeLoader<T extends FieldData> {
@@ -104,7 +115,7 @@ public class FieldDataLoader {
 
         T buildSingleValue(String fieldName, int[] ordinals);
 
-        T buildMultiValue(String fieldName, int[][] ordinals);
+        T buildMultiValue(String fieldName, MultiValueOrdinals ordinals);
     }
 
     public static abstract class FreqsTypeLoader<T extends FieldData> implements TypeLoader<T> {
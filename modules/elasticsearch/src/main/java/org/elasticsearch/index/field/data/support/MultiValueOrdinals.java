@@ -0,0 +1,157 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.support;
+
+import org.elasticsearch.common.RamUsage;
+
+/**
+ * The ordinals of a multi valued field, bit packed based on the max ordinal.
+ *
+ * <p>Each doc has one entry in a packed array. Docs with no value or a single value store the ordinal
+ * itself (<tt>0</tt> meaning no value). Docs with more than one value store <tt>maxOrdinal + 1 + multiDoc</tt>,
+ * pointing at the offsets of their ordinals in a separate packed array holding only the values of multi
+ * valued docs. The ordinals of a doc are in ascending order.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class MultiValueOrdinals {
+
+    /**
+     * Builds the ordinals once the first ordinal and the number of values of each doc are known, without keeping
+     * the ordinals of multi valued docs around: they are added (in ascending order per doc) straight into the
+     * packed arrays.
+     */
+    public static class Builder {
+
+        private final int maxOrdinal;
+
+        private final PackedIntArray docs;
+
+        private final PackedIntArray multiOffsets;
+
+        private final PackedIntArray multiOrdinals;
+
+        // the next offset of each multi valued doc in the multi ordinals
+        private final int[] nextOffsets;
+
+        /**
+         * The first ordinals are only used by the constructor. The number of values array (where <tt>0</tt> and
+         * <tt>1</tt> both mean a single value at most) is reused by the builder.
+         */
+        public Builder(int[] firstOrdinals, int[] numValues, int maxOrdinal) {
+            this.maxOrdinal = maxOrdinal;
+            int maxDoc = firstOrdinals.length;
+            int multiDocs = 0;
+            int multiValues = 0;
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if (numValues[docId] > 1) {
+                    multiDocs++;
+                    multiValues += numValues[docId];
+                }
+            }
+
+            this.docs = new PackedIntArray(maxDoc, PackedIntArray.bitsRequired(maxOrdinal + multiDocs));
+            this.multiOffsets = new PackedIntArray(multiDocs + 1, PackedIntArray.bitsRequired(multiValues));
+            this.multiOrdinals = new PackedIntArray(multiValues, PackedIntArray.bitsRequired(maxOrdinal));
+            this.nextOffsets = numValues;
+            int multiDoc = 0;
+            int offset = 0;
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if (numValues[docId] <= 1) {
+                    docs.set(docId, firstOrdinals[docId]);
+                    nextOffsets[docId] = -1;
+                    continue;
+                }
+                docs.set(docId, maxOrdinal + 1 + multiDoc);
+                multiOffsets.set(multiDoc++, offset);
+                int docNumValues = numValues[docId];
+                nextOffsets[docId] = offset;
+                offset += docNumValues;
+            }
+            multiOffsets.set(multiDoc, offset);
+        }
+
+        /**
+         * Adds an ordinal of a doc, ordinals of single valued docs are ignored (they are already known).
+         */
+        public void addOrdinal(int docId, int ordinal) {
+            int offset = nextOffsets[docId];
+            if (offset == -1) {
+                return;
+            }
+            multiOrdinals.set(offset, ordinal);
+            nextOffsets[docId] = offset + 1;
+        }
+
+        public MultiValueOrdinals build() {
+            return new MultiValueOrdinals(docs, maxOrdinal, multiOffsets, multiOrdinals);
+        }
+    }
+
+    private final PackedIntArray docs;
+
+    private final int maxOrdinal;
+
+    private final PackedIntArray multiOffsets;
+
+    private final PackedIntArray multiOrdinals;
+
+    private MultiValueOrdinals(PackedIntArray docs, int maxOrdinal, PackedIntArray multiOffsets, PackedIntArray multiOrdinals) {
+        this.docs = docs;
+        this.maxOrdinal = maxOrdinal;
+        this.multiOffsets = multiOffsets;
+        this.multiOrdinals = multiOrdinals;
+    }
+
+    /**
+     * The number of values the doc has.
+     */
+    public int numValues(int docId) {
+        int value = docs.get(docId);
+        if (value <= maxOrdinal) {
+            return value == 0 ? 0 : 1;
+        }
+        int multiDoc = value - maxOrdinal - 1;
+        return multiOffsets.get(multiDoc + 1) - multiOffsets.get(multiDoc);
+    }
+
+    /**
+     * The first (smallest) ordinal of the doc, <tt>0</tt> if it has no value.
+     */
+    public int firstOrdinal(int docId) {
+        return ordinal(docId, 0);
+    }
+
+    /**
+     * The <tt>index</tt> ordinal of the doc, <tt>index</tt> must be smaller than {@link #numValues(int)}
+     * (or <tt>0</tt>).
+     */
+    public int ordinal(int docId, int index) {
+        int value = docs.get(docId);
+        if (value <= maxOrdinal) {
+            return value;
+        }
+        return multiOrdinals.get(multiOffsets.get(value - maxOrdinal - 1) + index);
+    }
+
+    public long sizeInBytes() {
+        return RamUsage.NUM_BYTES_OBJECT_REF * 3 + RamUsage.NUM_BYTES_INT + docs.sizeInBytes() + multiOffsets.sizeInBytes() + multiOrdinals.sizeInBytes();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.support;
+
+import org.elasticsearch.common.RamUsage;
+
+/**
+ * A fixed size array of non negative ints, each stored using the same number of bits.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class PackedIntArray {
+
+    /**
+     * Returns the number of bits required to store values in the range <tt>[0, maxValue]</tt>.
+     */
+    public static int bitsRequired(int maxValue) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+
+    private final long[] blocks;
+
+    private final int size;
+
+    private final int bitsPerValue;
+
+    private final long mask;
+
+    public PackedIntArray(int size, int bitsPerValue) {
+        if (bitsPerValue < 1 || bitsPerValue > 32) {
+            throw new IllegalArgumentException("bits per value must be between 1 and 32, got [" + bitsPerValue + "]");
+        }
+        this.size = size;
+        this.bitsPerValue = bitsPerValue;
+        this.mask = (1l << bitsPerValue) - 1;
+        this.blocks = new long[(int) (((long) size * bitsPerValue + 63) >>> 6)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int bitsPerValue() {
+        return bitsPerValue;
+    }
+
+    public int get(int index) {
+        long bitIndex = (long) index * bitsPerValue;
+        int block = (int) (bitIndex >>> 6);
+        int shift = (int) (bitIndex & 63);
+        long value = blocks[block] >>> shift;
+        if (shift + bitsPerValue > 64) {
+            value |= blocks[block + 1] << (64 - shift);
+        }
+        return (int) (value & mask);
+    }
+
+    public void set(int index, int value) {
+        long bitIndex = (long) index * bitsPerValue;
+        int block = (int) (bitIndex >>> 6);
+        int shift = (int) (bitIndex & 63);
+        long v = value & mask;
+        blocks[block] = (blocks[block] & ~(mask << shift)) | (v << shift);
+        if (shift + bitsPerValue > 64) {
+            int written = 64 - shift;
+            blocks[block + 1] = (blocks[block + 1] & ~(mask >>> written)) | (v >>> written);
+        }
+    }
+
+    public long sizeInBytes() {
+        return RamUsage.NUM_BYTES_ARRAY_HEADER + blocks.length * RamUsage.NUM_BYTES_LONG;
+    }
+}
@@ -37,12 +37,18 @@ public class CommitPoint {
         private final String physicalName;
         private final long length;
         private final String checksum;
+        private final String contentChecksum;
 
         public FileInfo(String name, String physicalName, long length, String checksum) {
+            this(name, physicalName, length, checksum, null);
+        }
+
+        public FileInfo(String name, String physicalName, long length, String checksum, String contentChecksum) {
             this.name = name;
             this.physicalName = physicalName;
             this.length = length;
             this.checksum = checksum;
+            this.contentChecksum = contentChecksum;
         }
 
         public String name() {
@@ -61,6 +67,15 @@ public class CommitPoint {
             return checksum;
         }
 
+        /**
+         * The checksum of the actual content of the file, computed while it was streamed to the gateway. Unlike
+         * {@link #checksum()}, which is the store checksum of the bytes written to the file (and is not computed
+         * for the segments files), it can be verified when the file is streamed back.
+         */
+        @Nullable public String contentChecksum() {
+            return contentChecksum;
+        }
+
         public boolean isSame(StoreFileMetaData md) {
             if (checksum == null || md.checksum() == null) {
                 return false;
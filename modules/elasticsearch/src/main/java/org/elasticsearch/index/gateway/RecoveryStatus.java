@@ -179,5 +179,19 @@ public class RecoveryStatus {
         public void addCurrentFilesSize(long updatedSize) {
             this.currentFilesSize.addAndGet(updatedSize);
         }
+
+        /**
+         * The bytes per sec the index files have been recovered at so far.
+         */
+        public long throughput() {
+            long took = time;
+            if (took == 0 && startTime > 0) {
+                took = System.currentTimeMillis() - startTime;
+            }
+            if (took <= 0) {
+                return 0;
+            }
+            return currentFilesSize.get() * 1000 / took;
+        }
     }
 }
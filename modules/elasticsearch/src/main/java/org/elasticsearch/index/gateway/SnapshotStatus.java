@@ -19,6 +19,8 @@
 
 package org.elasticsearch.index.gateway;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * @author kimchy (shay.banon)
  */
@@ -88,6 +90,7 @@ public class SnapshotStatus {
 
         private int numberOfFiles;
         private long totalSize;
+        private AtomicLong currentFilesSize = new AtomicLong();
 
         public long startTime() {
             return this.startTime;
@@ -117,6 +120,28 @@ public class SnapshotStatus {
         public long totalSize() {
             return totalSize;
         }
+
+        public long currentFilesSize() {
+            return this.currentFilesSize.get();
+        }
+
+        public void addCurrentFilesSize(long updatedSize) {
+            this.currentFilesSize.addAndGet(updatedSize);
+        }
+
+        /**
+         * The bytes per sec the index files have been snapshotted at so far.
+         */
+        public long throughput() {
+            long took = time;
+            if (took == 0 && startTime > 0) {
+                took = System.currentTimeMillis() - startTime;
+            }
+            if (took <= 0) {
+                return 0;
+            }
+            return currentFilesSize.get() * 1000 / took;
+        }
     }
 
     public static class Translog {
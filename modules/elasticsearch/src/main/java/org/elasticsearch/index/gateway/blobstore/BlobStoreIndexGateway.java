@@ -22,6 +22,7 @@ package org.elasticsearch.index.gateway.blobstore;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStore;
+import org.elasticsearch.common.io.RateLimiter;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.gateway.Gateway;
@@ -45,6 +46,8 @@ public abstract class BlobStoreIndexGateway extends AbstractIndexComponent imple
 
     protected ByteSizeValue chunkSize;
 
+    protected int concurrentStreams;
+
     protected BlobStoreIndexGateway(Index index, @IndexSettings Settings indexSettings, Gateway gateway) {
         super(index, indexSettings);
 
@@ -56,6 +59,7 @@ public abstract class BlobStoreIndexGateway extends AbstractIndexComponent imple
         this.blobStore = this.gateway.blobStore();
 
         this.chunkSize = componentSettings.getAsBytesSize("chunk_size", this.gateway.chunkSize());
+        this.concurrentStreams = componentSettings.getAsInt("concurrent_streams", 5);
 
         this.indexPath = this.gateway.basePath().add("indices").add(index.name());
     }
@@ -72,6 +76,21 @@ public abstract class BlobStoreIndexGateway extends AbstractIndexComponent imple
         return this.chunkSize;
     }
 
+    /**
+     * The number of files each shard snapshots or recovers concurrently.
+     */
+    public int concurrentStreams() {
+        return this.concurrentStreams;
+    }
+
+    public RateLimiter snapshotRateLimiter() {
+        return gateway.snapshotRateLimiter();
+    }
+
+    public RateLimiter restoreRateLimiter() {
+        return gateway.restoreRateLimiter();
+    }
+
     public BlobPath shardPath(int shardId) {
         return indexPath.add(Integer.toString(shardId));
     }
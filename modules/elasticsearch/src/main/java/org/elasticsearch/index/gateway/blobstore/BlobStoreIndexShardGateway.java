@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.gateway.blobstore;
 
+import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IndexInput;
@@ -30,7 +31,9 @@ import org.elasticsearch.common.collect.Iterables;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.io.FastByteArrayInputStream;
 import org.elasticsearch.common.io.FastByteArrayOutputStream;
+import org.elasticsearch.common.io.RateLimiter;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.lucene.Directories;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.lucene.store.ThreadSafeInputStreamIndexInput;
 import org.elasticsearch.common.settings.Settings;
@@ -49,14 +52,17 @@ import org.elasticsearch.index.translog.TranslogStreams;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Adler32;
+import java.util.zip.Checksum;
 
 /**
  * @author kimchy (shay.banon)
@@ -77,6 +83,12 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
     protected final ImmutableBlobContainer blobContainer;
 
+    protected final int concurrentStreams;
+
+    protected final RateLimiter snapshotRateLimiter;
+
+    protected final RateLimiter restoreRateLimiter;
+
     private volatile RecoveryStatus recoveryStatus;
 
     private volatile SnapshotStatus lastSnapshotStatus;
@@ -99,6 +111,10 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
         this.blobContainer = blobStore.immutableBlobContainer(shardPath);
 
+        this.concurrentStreams = Math.max(1, blobStoreIndexGateway.concurrentStreams());
+        this.snapshotRateLimiter = blobStoreIndexGateway.snapshotRateLimiter();
+        this.restoreRateLimiter = blobStoreIndexGateway.restoreRateLimiter();
+
         this.recoveryStatus = new RecoveryStatus();
     }
 
@@ -184,9 +200,8 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         final SnapshotIndexCommit snapshotIndexCommit = snapshot.indexCommit();
         final Translog.Snapshot translogSnapshot = snapshot.translogSnapshot();
 
-        final CountDownLatch indexLatch = new CountDownLatch(snapshotIndexCommit.getFiles().length);
-        final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
         final List<CommitPoint.FileInfo> indexCommitPointFiles = Lists.newArrayList();
+        final List<CommitPoint.FileInfo> filesToSnapshot = Lists.newArrayList();
 
         int indexNumberOfFiles = 0;
         long indexTotalFilesSize = 0;
@@ -204,7 +219,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
             }
 
             CommitPoint.FileInfo fileInfo = commitPoints.findPhysicalIndexFile(fileName);
-            if (fileInfo == null || !fileInfo.isSame(md) || !commitPointFileExistsInBlobs(fileInfo, blobs)) {
+            if (fileInfo == null || !isSame(fileInfo, md) || !commitPointFileExistsInBlobs(fileInfo, blobs)) {
                 // commit point file does not exists in any commit point, or has different length, or does not fully exists in the listed blobs
                 snapshotRequired = true;
             }
@@ -212,30 +227,15 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
             if (snapshotRequired) {
                 indexNumberOfFiles++;
                 indexTotalFilesSize += md.length();
-                // create a new FileInfo
-                try {
-                    CommitPoint.FileInfo snapshotFileInfo = new CommitPoint.FileInfo(fileNameFromGeneration(++generation), fileName, md.length(), md.checksum());
-                    indexCommitPointFiles.add(snapshotFileInfo);
-                    snapshotFile(snapshotIndexCommit.getDirectory(), snapshotFileInfo, indexLatch, failures);
-                } catch (IOException e) {
-                    failures.add(e);
-                    indexLatch.countDown();
-                }
+                // create a new FileInfo, its content checksum is added once it is snapshotted
+                filesToSnapshot.add(new CommitPoint.FileInfo(fileNameFromGeneration(++generation), fileName, md.length(), md.checksum()));
             } else {
                 indexCommitPointFiles.add(fileInfo);
-                indexLatch.countDown();
             }
         }
         currentSnapshotStatus.index().files(indexNumberOfFiles, indexTotalFilesSize);
 
-        try {
-            indexLatch.await();
-        } catch (InterruptedException e) {
-            failures.add(e);
-        }
-        if (!failures.isEmpty()) {
-            throw new IndexShardGatewaySnapshotFailedException(shardId(), "Failed to perform snapshot (index files)", failures.get(failures.size() - 1));
-        }
+        indexCommitPointFiles.addAll(snapshotFiles(snapshotIndexCommit.getDirectory(), filesToSnapshot));
 
         currentSnapshotStatus.index().time(System.currentTimeMillis() - currentSnapshotStatus.index().startTime());
 
@@ -536,8 +536,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
             } catch (Exception e) {
                 // no file
             }
-            // we don't compute checksum for segments, so always recover them
-            if (!fileName.startsWith("segments") && md != null && fileInfo.isSame(md)) {
+            if (md != null && isSame(fileInfo, md)) {
                 numberOfFiles++;
                 totalSize += md.length();
                 numberOfReusedFiles++;
@@ -570,9 +569,11 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 
         final CountDownLatch latch = new CountDownLatch(filesToRecover.size());
         final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        final Queue<CommitPoint.FileInfo> pendingFiles = new ConcurrentLinkedQueue<CommitPoint.FileInfo>(filesToRecover);
 
-        for (final CommitPoint.FileInfo fileToRecover : filesToRecover) {
-            recoverFile(fileToRecover, blobs, latch, failures);
+        // each stream recovers its files one after the other, so we only stream concurrent_streams files at a time
+        for (int i = 0; i < Math.min(concurrentStreams, filesToRecover.size()); i++) {
+            recoverNextFile(pendingFiles, blobs, latch, failures);
         }
 
         try {
@@ -612,7 +613,28 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         }
     }
 
-    private void recoverFile(final CommitPoint.FileInfo fileInfo, final ImmutableMap<String, BlobMetaData> blobs, final CountDownLatch latch, final List<Throwable> failures) {
+    private void recoverNextFile(final Queue<CommitPoint.FileInfo> pendingFiles, final ImmutableMap<String, BlobMetaData> blobs,
+                                 final CountDownLatch latch, final List<Throwable> failures) {
+        CommitPoint.FileInfo fileInfo;
+        while ((fileInfo = pendingFiles.poll()) != null) {
+            if (!failures.isEmpty()) {
+                // the recovery is going to fail anyhow, no need to recover the rest of the files
+                latch.countDown();
+                continue;
+            }
+            if (recoverFile(fileInfo, pendingFiles, blobs, latch, failures)) {
+                // the next file will be recovered once this one is done
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts recovering the file, returning <tt>true</tt> if it is being streamed, and <tt>false</tt> if the
+     * file was already handled (counted down).
+     */
+    private boolean recoverFile(final CommitPoint.FileInfo fileInfo, final Queue<CommitPoint.FileInfo> pendingFiles, final ImmutableMap<String, BlobMetaData> blobs,
+                                final CountDownLatch latch, final List<Throwable> failures) {
         final IndexOutput indexOutput;
         try {
             // we create an output with no checksum, this is because the pure binary data of the file is not
@@ -621,7 +643,7 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         } catch (IOException e) {
             failures.add(e);
             latch.countDown();
-            return;
+            return false;
         }
 
         String firstFileToRecover = fileInfo.name();
@@ -632,19 +654,30 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
         if (!blobs.containsKey(firstFileToRecover)) {
             // no file, what to do, what to do?
             logger.warn("no file [{}]/[{}] to recover, ignoring it", fileInfo.name(), fileInfo.physicalName());
+            try {
+                indexOutput.close();
+            } catch (IOException e) {
+                // ignore
+            }
             latch.countDown();
-            return;
+            return false;
         }
-        final AtomicInteger partIndex = new AtomicInteger();
 
         blobContainer.readBlob(firstFileToRecover, new BlobContainer.ReadBlobListener() {
+            // parts are read one after the other, so the checksum is of the whole file content
+            private final Checksum digest = new Adler32();
+
+            private int partIndex = 0;
+
             @Override public synchronized void onPartial(byte[] data, int offset, int size) throws IOException {
+                restoreRateLimiter.pause(size);
+                digest.update(data, offset, size);
                 recoveryStatus.index().addCurrentFilesSize(size);
                 indexOutput.writeBytes(data, offset, size);
             }
 
             @Override public synchronized void onCompleted() {
-                int part = partIndex.incrementAndGet();
+                int part = ++partIndex;
                 String partName = fileInfo.name() + ".part" + part;
                 if (blobs.containsKey(partName)) {
                     // continue with the new part
@@ -654,6 +687,17 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                     // we are done...
                     try {
                         indexOutput.close();
+                        if (fileInfo.contentChecksum() != null) {
+                            String checksum = Long.toString(digest.getValue(), Character.MAX_RADIX);
+                            if (!checksum.equals(fileInfo.contentChecksum())) {
+                                try {
+                                    store.directory().deleteFile(fileInfo.physicalName());
+                                } catch (IOException e) {
+                                    // ignore
+                                }
+                                throw new CorruptIndexException("checksum mismatch while recovering [" + fileInfo.name() + "]/[" + fileInfo.physicalName() + "], expected [" + fileInfo.contentChecksum() + "], got [" + checksum + "]");
+                            }
+                        }
                         // write the checksum
                         if (fileInfo.checksum() != null) {
                             store.writeChecksum(fileInfo.physicalName(), fileInfo.checksum());
@@ -665,13 +709,16 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
                     }
                 }
                 latch.countDown();
+                recoverNextFile(pendingFiles, blobs, latch, failures);
             }
 
             @Override public void onFailure(Throwable t) {
                 failures.add(t);
                 latch.countDown();
+                recoverNextFile(pendingFiles, blobs, latch, failures);
             }
         });
+        return true;
     }
 
     private void snapshotTranslog(Translog.Snapshot snapshot, CommitPoint.FileInfo fileInfo) throws IOException {
@@ -707,77 +754,219 @@ public abstract class BlobStoreIndexShardGateway extends AbstractIndexShardCompo
 //        }
     }
 
-    private void snapshotFile(Directory dir, final CommitPoint.FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures) throws IOException {
-        long chunkBytes = Long.MAX_VALUE;
-        if (chunkSize != null) {
-            chunkBytes = chunkSize.bytes();
+    /**
+     * Snapshots the provided files, at most concurrent_streams files at a time, returning them with the checksum
+     * of their content computed while they were streamed.
+     */
+    private List<CommitPoint.FileInfo> snapshotFiles(Directory dir, List<CommitPoint.FileInfo> filesToSnapshot) throws IndexShardGatewaySnapshotFailedException {
+        final CountDownLatch latch = new CountDownLatch(filesToSnapshot.size());
+        final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        final Queue<CommitPoint.FileInfo> pendingFiles = new ConcurrentLinkedQueue<CommitPoint.FileInfo>(filesToSnapshot);
+        final Queue<CommitPoint.FileInfo> snapshottedFiles = new ConcurrentLinkedQueue<CommitPoint.FileInfo>();
+
+        for (int i = 0; i < Math.min(concurrentStreams, filesToSnapshot.size()); i++) {
+            new FileSnapshot(dir, pendingFiles, snapshottedFiles, latch, failures).snapshotNextFile();
         }
 
-        long totalLength = fileInfo.length();
-        long numberOfChunks = totalLength / chunkBytes;
-        if (totalLength % chunkBytes > 0) {
-            numberOfChunks++;
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            failures.add(e);
         }
-        if (numberOfChunks == 0) {
-            numberOfChunks++;
+        if (!failures.isEmpty()) {
+            throw new IndexShardGatewaySnapshotFailedException(shardId(), "Failed to perform snapshot (index files)", failures.get(failures.size() - 1));
         }
+        return Lists.newArrayList(snapshottedFiles);
+    }
 
-        final long fNumberOfChunks = numberOfChunks;
-        final AtomicLong counter = new AtomicLong(numberOfChunks);
-        for (long i = 0; i < fNumberOfChunks; i++) {
-            final long partNumber = i;
+    /**
+     * A single snapshot stream, writing the chunks of a file one after the other (so the checksum of its content can be
+     * computed while streaming it), and moving on to the next pending file once done.
+     */
+    private class FileSnapshot implements ImmutableBlobContainer.WriterListener {
 
-            IndexInput indexInput = null;
-            try {
-                indexInput = dir.openInput(fileInfo.physicalName());
-                indexInput.seek(partNumber * chunkBytes);
-                InputStreamIndexInput is = new ThreadSafeInputStreamIndexInput(indexInput, chunkBytes);
-
-                String blobName = fileInfo.name();
-                if (fNumberOfChunks > 1) {
-                    // if we do chunks, then all of them are in the form of "[xxx].part[N]".
-                    blobName += ".part" + partNumber;
+        private final Directory dir;
+
+        private final Queue<CommitPoint.FileInfo> pendingFiles;
+
+        private final Queue<CommitPoint.FileInfo> snapshottedFiles;
+
+        private final CountDownLatch latch;
+
+        private final List<Throwable> failures;
+
+        private CommitPoint.FileInfo fileInfo;
+
+        private IndexInput indexInput;
+
+        private Checksum digest;
+
+        private long chunkBytes;
+
+        private long numberOfChunks;
+
+        private long partNumber;
+
+        FileSnapshot(Directory dir, Queue<CommitPoint.FileInfo> pendingFiles, Queue<CommitPoint.FileInfo> snapshottedFiles,
+                     CountDownLatch latch, List<Throwable> failures) {
+            this.dir = dir;
+            this.pendingFiles = pendingFiles;
+            this.snapshottedFiles = snapshottedFiles;
+            this.latch = latch;
+            this.failures = failures;
+        }
+
+        synchronized void snapshotNextFile() {
+            while ((fileInfo = pendingFiles.poll()) != null) {
+                if (!failures.isEmpty()) {
+                    // the snapshot is going to fail anyhow, no need to snapshot the rest of the files
+                    latch.countDown();
+                    continue;
+                }
+                try {
+                    startFile();
+                    // the next file will be snapshotted once this one is done
+                    return;
+                } catch (Exception e) {
+                    closeInput();
+                    failures.add(e);
+                    latch.countDown();
                 }
+            }
+        }
 
-                final IndexInput fIndexInput = indexInput;
-                blobContainer.writeBlob(blobName, is, is.actualSizeToRead(), new ImmutableBlobContainer.WriterListener() {
-                    @Override public void onCompleted() {
-                        try {
-                            fIndexInput.close();
-                        } catch (IOException e) {
-                            // ignore
-                        }
-                        if (counter.decrementAndGet() == 0) {
-                            latch.countDown();
-                        }
-                    }
+        private void startFile() throws IOException {
+            chunkBytes = Long.MAX_VALUE;
+            if (chunkSize != null) {
+                chunkBytes = chunkSize.bytes();
+            }
 
-                    @Override public void onFailure(Throwable t) {
-                        try {
-                            fIndexInput.close();
-                        } catch (IOException e) {
-                            // ignore
-                        }
-                        failures.add(t);
-                        if (counter.decrementAndGet() == 0) {
-                            latch.countDown();
-                        }
-                    }
-                });
-            } catch (Exception e) {
-                if (indexInput != null) {
-                    try {
-                        indexInput.close();
-                    } catch (IOException e1) {
-                        // ignore
-                    }
+            long totalLength = fileInfo.length();
+            numberOfChunks = totalLength / chunkBytes;
+            if (totalLength % chunkBytes > 0) {
+                numberOfChunks++;
+            }
+            if (numberOfChunks == 0) {
+                numberOfChunks++;
+            }
+
+            partNumber = 0;
+            digest = new Adler32();
+            indexInput = dir.openInput(fileInfo.physicalName());
+            writePart();
+        }
+
+        private void writePart() throws IOException {
+            indexInput.seek(partNumber * chunkBytes);
+            InputStreamIndexInput is = new ThreadSafeInputStreamIndexInput(indexInput, chunkBytes);
+
+            String blobName = fileInfo.name();
+            if (numberOfChunks > 1) {
+                // if we do chunks, then all of them are in the form of "[xxx].part[N]".
+                blobName += ".part" + partNumber;
+            }
+
+            blobContainer.writeBlob(blobName, new SnapshotInputStream(is, digest, snapshotRateLimiter, currentSnapshotStatus.index()), is.actualSizeToRead(), this);
+        }
+
+        @Override public synchronized void onCompleted() {
+            if (++partNumber < numberOfChunks) {
+                try {
+                    writePart();
+                } catch (Exception e) {
+                    onFailure(e);
                 }
-                failures.add(e);
-                latch.countDown();
+                return;
+            }
+            closeInput();
+            snapshottedFiles.add(new CommitPoint.FileInfo(fileInfo.name(), fileInfo.physicalName(), fileInfo.length(), fileInfo.checksum(),
+                    Long.toString(digest.getValue(), Character.MAX_RADIX)));
+            latch.countDown();
+            snapshotNextFile();
+        }
+
+        @Override public synchronized void onFailure(Throwable t) {
+            closeInput();
+            failures.add(t);
+            latch.countDown();
+            snapshotNextFile();
+        }
+
+        private void closeInput() {
+            if (indexInput != null) {
+                try {
+                    indexInput.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                indexInput = null;
             }
         }
     }
 
+    /**
+     * Computes the checksum of the content streamed to the blob store, throttling it and reporting its progress.
+     */
+    private static class SnapshotInputStream extends InputStream {
+
+        private final InputStream is;
+
+        private final Checksum digest;
+
+        private final RateLimiter rateLimiter;
+
+        private final SnapshotStatus.Index indexStatus;
+
+        SnapshotInputStream(InputStream is, Checksum digest, RateLimiter rateLimiter, SnapshotStatus.Index indexStatus) {
+            this.is = is;
+            this.digest = digest;
+            this.rateLimiter = rateLimiter;
+            this.indexStatus = indexStatus;
+        }
+
+        @Override public int read() throws IOException {
+            int b = is.read();
+            if (b != -1) {
+                digest.update(b);
+                rateLimiter.pause(1);
+                indexStatus.addCurrentFilesSize(1);
+            }
+            return b;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            int read = is.read(b, off, len);
+            if (read > 0) {
+                digest.update(b, off, read);
+                rateLimiter.pause(read);
+                indexStatus.addCurrentFilesSize(read);
+            }
+            return read;
+        }
+
+        @Override public void close() throws IOException {
+            is.close();
+        }
+    }
+
+    /**
+     * Is the file in the commit point the same as the one in the store. Files the store does not compute a
+     * checksum for (the segments files) are compared on the checksum of their content.
+     */
+    private boolean isSame(CommitPoint.FileInfo fileInfo, StoreFileMetaData md) {
+        if (fileInfo.isSame(md)) {
+            return true;
+        }
+        if (md.checksum() != null || fileInfo.contentChecksum() == null || fileInfo.length() != md.length()) {
+            return false;
+        }
+        try {
+            return fileInfo.contentChecksum().equals(Directories.contentChecksum(store.directory(), md.name(), md.length()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     private boolean commitPointExistsInBlobs(CommitPoint commitPoint, ImmutableMap<String, BlobMetaData> blobs) {
         for (CommitPoint.FileInfo fileInfo : Iterables.concat(commitPoint.indexFiles(), commitPoint.translogFiles())) {
             if (!commitPointFileExistsInBlobs(fileInfo, blobs)) {
@@ -0,0 +1,372 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.NumericTokenStream;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.AbstractField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Fieldable;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lucene.all.AllEntries;
+import org.elasticsearch.common.lucene.all.AllField;
+import org.elasticsearch.common.lucene.uid.UidField;
+import org.elasticsearch.index.mapper.xcontent.NumberFieldMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Writes and reads an already parsed document (the lucene fields it ended up with) in a compact binary
+ * form, so a replica can apply an operation resolved on the primary without parsing its source again.
+ *
+ * <p>Only documents built from the field types the mappers produce can be written, see {@link #canWrite(DocumentMapper, ParsedDocument)}.
+ * When reading, <tt>null</tt> is returned if the document can't be safely rebuilt using the local mappings, in which
+ * case the source should be parsed.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class ParsedDocumentStreams {
+
+    private static final byte STRING = 0;
+    private static final byte BINARY = 1;
+    private static final byte SOURCE = 2;
+    private static final byte UID = 3;
+    private static final byte NUMERIC = 4;
+    private static final byte ALL = 5;
+
+    private static final int STORED = 1;
+    private static final int INDEXED = 1 << 1;
+    private static final int TOKENIZED = 1 << 2;
+    private static final int OMIT_NORMS = 1 << 3;
+    private static final int OMIT_TF = 1 << 4;
+    private static final int TERM_VECTOR = 1 << 5;
+    private static final int TERM_VECTOR_POSITIONS = 1 << 6;
+    private static final int TERM_VECTOR_OFFSETS = 1 << 7;
+
+    private static final byte NUMERIC_INT = 0;
+    private static final byte NUMERIC_LONG = 1;
+    private static final byte NUMERIC_FLOAT = 2;
+    private static final byte NUMERIC_DOUBLE = 3;
+
+    private ParsedDocumentStreams() {
+
+    }
+
+    /**
+     * Can the parsed document be written and later on rebuilt without parsing it again.
+     */
+    public static boolean canWrite(DocumentMapper docMapper, ParsedDocument doc) {
+        if (doc.mappersAdded()) {
+            return false;
+        }
+        // a custom analyzer was set on the document (_analyzer), which we can't rebuild on the other side
+        if (doc.analyzer() != docMapper.mappers().indexAnalyzer()) {
+            return false;
+        }
+        for (Fieldable field : doc.doc().getFields()) {
+            if (field instanceof UidField || field instanceof AllField || field instanceof NumberFieldMapper.CustomNumericField) {
+                continue;
+            }
+            if (field.getClass() != Field.class) {
+                return false;
+            }
+            if (!field.isBinary() && field.stringValue() == null) {
+                // reader or token stream based field
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the parsed document. The request source is the source the document was parsed from, which the
+     * other side already has, and is not written again when the document uses it as is.
+     */
+    public static void writeParsedDocument(StreamOutput out, ParsedDocument doc, byte[] requestSource) throws IOException {
+        out.writeUTF(doc.uid());
+        out.writeUTF(doc.id());
+        out.writeUTF(doc.type());
+        writeOptionalUTF(out, doc.routing());
+        writeOptionalUTF(out, doc.parent());
+        byte[] source = doc.source();
+        if (source == requestSource) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeVInt(source.length);
+            out.writeBytes(source);
+        }
+
+        Document document = doc.doc();
+        out.writeFloat(document.getBoost());
+        List<Fieldable> fields = document.getFields();
+        out.writeVInt(fields.size());
+        for (Fieldable field : fields) {
+            if (field instanceof UidField) {
+                out.writeByte(UID);
+                writeHeader(out, field);
+            } else if (field instanceof AllField) {
+                out.writeByte(ALL);
+                writeHeader(out, field);
+                List<AllEntries.Entry> entries = ((AllField) field).allEntries().entries();
+                out.writeVInt(entries.size());
+                for (AllEntries.Entry entry : entries) {
+                    out.writeUTF(entry.name());
+                    out.writeUTF(entry.reader().toString());
+                    out.writeFloat(entry.boost());
+                }
+            } else if (field instanceof NumberFieldMapper.CustomNumericField) {
+                NumberFieldMapper.CustomNumericField numericField = (NumberFieldMapper.CustomNumericField) field;
+                out.writeByte(NUMERIC);
+                writeHeader(out, field);
+                out.writeVInt(numericField.precisionStep());
+                Number number = numericField.numericValue();
+                if (number instanceof Long) {
+                    out.writeByte(NUMERIC_LONG);
+                    out.writeLong(number.longValue());
+                } else if (number instanceof Float) {
+                    out.writeByte(NUMERIC_FLOAT);
+                    out.writeFloat(number.floatValue());
+                } else if (number instanceof Double) {
+                    out.writeByte(NUMERIC_DOUBLE);
+                    out.writeDouble(number.doubleValue());
+                } else {
+                    out.writeByte(NUMERIC_INT);
+                    out.writeInt(number.intValue());
+                }
+                if (field.isStored()) {
+                    writeBinary(out, field);
+                }
+            } else if (field.isBinary()) {
+                if (field.getBinaryValue() == source && field.getBinaryOffset() == 0 && field.getBinaryLength() == source.length) {
+                    out.writeByte(SOURCE);
+                    writeHeader(out, field);
+                } else {
+                    out.writeByte(BINARY);
+                    writeHeader(out, field);
+                    writeBinary(out, field);
+                }
+            } else {
+                out.writeByte(STRING);
+                writeHeader(out, field);
+                out.writeUTF(field.stringValue());
+            }
+        }
+    }
+
+    /**
+     * Reads a parsed document written using {@link #writeParsedDocument(StreamOutput, ParsedDocument, byte[])}, returning
+     * <tt>null</tt> if it can't be rebuilt using the provided document mapper.
+     */
+    @Nullable public static ParsedDocument readParsedDocument(StreamInput in, DocumentMapper docMapper, byte[] requestSource) throws IOException {
+        String uid = in.readUTF();
+        String id = in.readUTF();
+        String type = in.readUTF();
+        String routing = readOptionalUTF(in);
+        String parent = readOptionalUTF(in);
+        byte[] source = requestSource;
+        if (in.readBoolean()) {
+            source = new byte[in.readVInt()];
+            in.readFully(source);
+        }
+
+        Analyzer analyzer = docMapper.mappers().indexAnalyzer();
+        Document document = new Document();
+        document.setBoost(in.readFloat());
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            byte kind = in.readByte();
+            String name = in.readUTF();
+            int flags = in.readByte() & 0xFF;
+            float boost = in.readFloat();
+            if ((flags & INDEXED) != 0 && (flags & TOKENIZED) != 0 && kind != NUMERIC && kind != UID && kind != ALL) {
+                // the analyzer is resolved by field name, make sure we know about it
+                if (docMapper.mappers().indexName(name) == null) {
+                    return null;
+                }
+            }
+            AbstractField field;
+            switch (kind) {
+                case UID:
+                    field = new UidField(name, uid, 0);
+                    break;
+                case ALL:
+                    AllEntries allEntries = new AllEntries();
+                    int entries = in.readVInt();
+                    for (int j = 0; j < entries; j++) {
+                        allEntries.addText(in.readUTF(), in.readUTF(), in.readFloat());
+                    }
+                    Analyzer allAnalyzer = docMapper.allFieldMapper().indexAnalyzer();
+                    if (allAnalyzer == null) {
+                        allAnalyzer = analyzer;
+                    }
+                    field = new AllField(name, (flags & STORED) != 0 ? Field.Store.YES : Field.Store.NO, termVector(flags), allEntries, allAnalyzer);
+                    break;
+                case NUMERIC:
+                    int precisionStep = in.readVInt();
+                    byte numericType = in.readByte();
+                    Number number;
+                    if (numericType == NUMERIC_LONG) {
+                        number = in.readLong();
+                    } else if (numericType == NUMERIC_FLOAT) {
+                        number = in.readFloat();
+                    } else if (numericType == NUMERIC_DOUBLE) {
+                        number = in.readDouble();
+                    } else {
+                        number = in.readInt();
+                    }
+                    byte[] stored = null;
+                    if ((flags & STORED) != 0) {
+                        stored = readBinary(in);
+                    }
+                    field = new NumericField(name, (flags & INDEXED) != 0, number, precisionStep, stored);
+                    break;
+                case SOURCE:
+                    field = new Field(name, source);
+                    break;
+                case BINARY:
+                    field = new Field(name, readBinary(in));
+                    break;
+                case STRING:
+                    field = new Field(name, in.readUTF(), (flags & STORED) != 0 ? Field.Store.YES : Field.Store.NO,
+                            Field.Index.toIndex((flags & INDEXED) != 0, (flags & TOKENIZED) != 0, (flags & OMIT_NORMS) != 0), termVector(flags));
+                    break;
+                default:
+                    throw new IOException("Unknown parsed document field kind [" + kind + "]");
+            }
+            field.setOmitNorms((flags & OMIT_NORMS) != 0);
+            field.setOmitTermFreqAndPositions((flags & OMIT_TF) != 0);
+            field.setBoost(boost);
+            document.add(field);
+        }
+        return new ParsedDocument(uid, id, type, routing, document, analyzer, source, false).parent(parent);
+    }
+
+    private static void writeHeader(StreamOutput out, Fieldable field) throws IOException {
+        out.writeUTF(field.name());
+        int flags = 0;
+        if (field.isStored()) flags |= STORED;
+        if (field.isIndexed()) flags |= INDEXED;
+        if (field.isTokenized()) flags |= TOKENIZED;
+        if (field.getOmitNorms()) flags |= OMIT_NORMS;
+        if (field.getOmitTermFreqAndPositions()) flags |= OMIT_TF;
+        if (field.isTermVectorStored()) flags |= TERM_VECTOR;
+        if (field.isStorePositionWithTermVector()) flags |= TERM_VECTOR_POSITIONS;
+        if (field.isStoreOffsetWithTermVector()) flags |= TERM_VECTOR_OFFSETS;
+        out.writeByte((byte) flags);
+        out.writeFloat(field.getBoost());
+    }
+
+    private static Field.TermVector termVector(int flags) {
+        return Field.TermVector.toTermVector((flags & TERM_VECTOR) != 0, (flags & TERM_VECTOR_OFFSETS) != 0, (flags & TERM_VECTOR_POSITIONS) != 0);
+    }
+
+    private static void writeBinary(StreamOutput out, Fieldable field) throws IOException {
+        out.writeVInt(field.getBinaryLength());
+        out.writeBytes(field.getBinaryValue(), field.getBinaryOffset(), field.getBinaryLength());
+    }
+
+    private static byte[] readBinary(StreamInput in) throws IOException {
+        byte[] value = new byte[in.readVInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    private static void writeOptionalUTF(StreamOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readOptionalUTF(StreamInput in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+        return null;
+    }
+
+    /**
+     * A numeric field rebuilt from its resolved value, indexed using a numeric token stream with the same
+     * precision step it was indexed with on the primary.
+     */
+    static class NumericField extends AbstractField {
+
+        private final Number number;
+
+        private final int precisionStep;
+
+        NumericField(String name, boolean indexed, Number number, int precisionStep, @Nullable byte[] stored) {
+            this.name = name;
+            this.number = number;
+            this.precisionStep = precisionStep;
+            fieldsData = stored;
+
+            isIndexed = indexed;
+            isTokenized = indexed;
+            omitTermFreqAndPositions = true;
+            omitNorms = true;
+
+            if (stored != null) {
+                isStored = true;
+                isBinary = true;
+                binaryLength = stored.length;
+                binaryOffset = 0;
+            }
+
+            setStoreTermVector(Field.TermVector.NO);
+        }
+
+        public Number numericValue() {
+            return number;
+        }
+
+        @Override public String stringValue() {
+            return null;
+        }
+
+        @Override public Reader readerValue() {
+            return null;
+        }
+
+        @Override public TokenStream tokenStreamValue() {
+            if (!isIndexed) {
+                return null;
+            }
+            NumericTokenStream tokenStream = new NumericTokenStream(precisionStep);
+            if (number instanceof Long) {
+                return tokenStream.setLongValue(number.longValue());
+            } else if (number instanceof Float) {
+                return tokenStream.setFloatValue(number.floatValue());
+            } else if (number instanceof Double) {
+                return tokenStream.setDoubleValue(number.doubleValue());
+            }
+            return tokenStream.setIntValue(number.intValue());
+        }
+    }
+}
@@ -268,6 +268,10 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
             this.number = number;
         }
 
+        @Override public Number numericValue() {
+            return number;
+        }
+
         @Override public TokenStream tokenStreamValue() {
             if (isIndexed) {
                 return mapper.popCachedStream().setIntValue(number);
@@ -265,6 +265,10 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
             this.number = number;
         }
 
+        @Override public Number numericValue() {
+            return number;
+        }
+
         @Override public TokenStream tokenStreamValue() {
             if (isIndexed) {
                 return mapper.popCachedStream().setDoubleValue(number);
@@ -265,6 +265,10 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
             this.number = number;
         }
 
+        @Override public Number numericValue() {
+            return number;
+        }
+
         @Override public TokenStream tokenStreamValue() {
             if (isIndexed) {
                 return mapper.popCachedStream().setFloatValue(number);
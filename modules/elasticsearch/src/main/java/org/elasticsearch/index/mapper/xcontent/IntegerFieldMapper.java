@@ -269,6 +269,10 @@ public class IntegerFieldMapper extends NumberFieldMapper<Integer> {
             this.number = number;
         }
 
+        @Override public Number numericValue() {
+            return number;
+        }
+
         @Override public TokenStream tokenStreamValue() {
             if (isIndexed) {
                 return mapper.popCachedStream().setIntValue(number);
@@ -268,6 +268,10 @@ public class LongFieldMapper extends NumberFieldMapper<Long> {
             this.number = number;
         }
 
+        @Override public Number numericValue() {
+            return number;
+        }
+
         @Override public TokenStream tokenStreamValue() {
             if (isIndexed) {
                 return mapper.popCachedStream().setLongValue(number);
@@ -235,6 +235,18 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
             setStoreTermVector(Field.TermVector.NO);
         }
 
+        /**
+         * The numeric value of the field.
+         */
+        public abstract Number numericValue();
+
+        /**
+         * The precision step the numeric value is indexed with.
+         */
+        public int precisionStep() {
+            return mapper.precisionStep();
+        }
+
         @Override public String stringValue() {
             return null;
         }
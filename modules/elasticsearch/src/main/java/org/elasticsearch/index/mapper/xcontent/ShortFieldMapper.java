@@ -268,6 +268,10 @@ public class ShortFieldMapper extends NumberFieldMapper<Short> {
             this.number = number;
         }
 
+        @Override public Number numericValue() {
+            return number;
+        }
+
         @Override public TokenStream tokenStreamValue() {
             if (isIndexed) {
                 return mapper.popCachedStream().setIntValue(number);
@@ -27,6 +27,7 @@ import org.elasticsearch.common.unit.DistanceUnit;
 import org.elasticsearch.index.field.data.FieldData;
 import org.elasticsearch.index.field.data.FieldDataType;
 import org.elasticsearch.index.field.data.support.FieldDataLoader;
+import org.elasticsearch.index.field.data.support.MultiValueOrdinals;
 import org.elasticsearch.index.search.geo.GeoDistance;
 import org.elasticsearch.index.search.geo.GeoHashUtils;
 
@@ -175,7 +176,7 @@ public abstract class GeoPointFieldData extends FieldData<GeoPointDocFieldData>
             return new SingleValueGeoPointFieldData(field, ordinals, lat.toArray(), lon.toArray());
         }
 
-        @Override public GeoPointFieldData buildMultiValue(String field, int[][] ordinals) {
+        @Override public GeoPointFieldData buildMultiValue(String field, MultiValueOrdinals ordinals) {
             return new MultiValueGeoPointFieldData(field, ordinals, lat.toArray(), lon.toArray());
         }
     }
@@ -22,6 +22,8 @@ package org.elasticsearch.index.percolator;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermEnum;
 import org.apache.lucene.index.memory.CustomMemoryIndex;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
@@ -33,6 +35,8 @@ import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.collect.Maps;
+import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.FastByteArrayOutputStream;
 import org.elasticsearch.common.io.FastStringReader;
@@ -61,8 +65,11 @@ import org.elasticsearch.indices.IndicesService;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.elasticsearch.index.mapper.SourceToParse.*;
 
@@ -166,7 +173,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     private final IndexCache indexCache;
 
-    private volatile ImmutableMap<String, Query> queries = ImmutableMap.of();
+    private volatile IndexedQueries queries = IndexedQueries.EMPTY;
 
 
     private IndicesService indicesService;
@@ -185,9 +192,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     }
 
     public synchronized void close() {
-        ImmutableMap<String, Query> old = queries;
-        queries = ImmutableMap.of();
-        old.clear();
+        queries = IndexedQueries.EMPTY;
     }
 
     public void addQuery(String name, QueryBuilder queryBuilder) throws ElasticSearchException {
@@ -238,15 +243,15 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     public synchronized void addQuery(String name, Query query) {
         Preconditions.checkArgument(query != null, "query must be provided for percolate request");
-        this.queries = MapBuilder.newMapBuilder(queries).put(name, query).immutableMap();
+        this.queries = queries.add(ImmutableMap.of(name, query));
     }
 
     public synchronized void removeQuery(String name) {
-        this.queries = MapBuilder.newMapBuilder(queries).remove(name).immutableMap();
+        this.queries = queries.remove(name);
     }
 
     public synchronized void addQueries(Map<String, Query> queries) {
-        this.queries = MapBuilder.newMapBuilder(this.queries).putAll(queries).immutableMap();
+        this.queries = this.queries.add(queries);
     }
 
     public Response percolate(final SourceRequest request) throws ElasticSearchException {
@@ -338,18 +343,27 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
         final IndexSearcher searcher = memoryIndex.createSearcher();
 
+        // only the queries that might match the doc are executed
+        IndexedQueries queries = this.queries;
+        Collection<String> candidates;
+        try {
+            candidates = queries.candidates(searcher.getIndexReader());
+        } catch (IOException e) {
+            throw new PercolatorException(index, "failed to extract the doc terms", e);
+        }
+
         List<String> matches = new ArrayList<String>();
         if (request.query() == null) {
             Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-            for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            for (String name : candidates) {
                 try {
-                    searcher.search(entry.getValue(), collector);
+                    searcher.search(queries.queries.get(name), collector);
                 } catch (IOException e) {
-                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                    logger.warn("[" + name + "] failed to execute query", e);
                 }
 
                 if (collector.exists()) {
-                    matches.add(entry.getKey());
+                    matches.add(name);
                 }
             }
         } else {
@@ -363,7 +377,7 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             IndexShard percolatorShard = percolatorIndex.shard(0);
             Engine.Searcher percolatorSearcher = percolatorShard.searcher();
             try {
-                percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries, searcher, percolatorIndex, matches));
+                percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries.queries, candidates, searcher, percolatorIndex, matches));
             } catch (IOException e) {
                 logger.warn("failed to execute", e);
             } finally {
@@ -381,13 +395,15 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         private final IndexService percolatorIndex;
         private final List<String> matches;
         private final ImmutableMap<String, Query> queries;
+        private final Collection<String> candidates;
         private final ESLogger logger;
 
         private final Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
 
-        QueryCollector(ESLogger logger, ImmutableMap<String, Query> queries, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
+        QueryCollector(ESLogger logger, ImmutableMap<String, Query> queries, Collection<String> candidates, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
             this.logger = logger;
             this.queries = queries;
+            this.candidates = candidates;
             this.searcher = searcher;
             this.percolatorIndex = percolatorIndex;
             this.matches = matches;
@@ -404,6 +420,10 @@ public class PercolatorExecutor extends AbstractIndexComponent {
                 return;
             }
             String id = Uid.idFromUid(uid);
+            if (!candidates.contains(id)) {
+                // can't match the doc
+                return;
+            }
             Query query = queries.get(id);
             if (query == null) {
                 // log???
@@ -429,4 +449,115 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             return true;
         }
     }
+
+    /**
+     * The registered queries, along with an index from the terms (one of which) a query requires in order to
+     * match to the query names, allowing to only execute the queries that might match a doc. Immutable, changes
+     * create a new copy, sharing the unchanged parts.
+     */
+    static class IndexedQueries {
+
+        static final IndexedQueries EMPTY = new IndexedQueries(ImmutableMap.<String, Query>of(), ImmutableMap.<Term, Set<String>>of(), Collections.<String>emptySet());
+
+        final ImmutableMap<String, Query> queries;
+
+        // the term -> query names index, the sets are never modified once created
+        private final Map<Term, Set<String>> termQueries;
+
+        // queries we could not extract the terms from, always executed
+        private final Set<String> unindexedQueries;
+
+        private IndexedQueries(ImmutableMap<String, Query> queries, Map<Term, Set<String>> termQueries, Set<String> unindexedQueries) {
+            this.queries = queries;
+            this.termQueries = termQueries;
+            this.unindexedQueries = unindexedQueries;
+        }
+
+        IndexedQueries add(Map<String, Query> added) {
+            IndexedQueries indexedQueries = this;
+            for (String name : added.keySet()) {
+                if (queries.containsKey(name)) {
+                    indexedQueries = indexedQueries.remove(name);
+                }
+            }
+            Map<Term, Set<String>> termQueries = Maps.newHashMap(indexedQueries.termQueries);
+            Set<String> unindexedQueries = indexedQueries.unindexedQueries;
+            boolean unindexedCopied = false;
+            for (Map.Entry<String, Query> entry : added.entrySet()) {
+                Set<Term> terms = QueryTermsExtractor.extract(entry.getValue());
+                if (terms == null) {
+                    if (!unindexedCopied) {
+                        unindexedQueries = Sets.newHashSet(unindexedQueries);
+                        unindexedCopied = true;
+                    }
+                    unindexedQueries.add(entry.getKey());
+                    continue;
+                }
+                for (Term term : terms) {
+                    Set<String> names = termQueries.get(term);
+                    // copy on write, the set might be shared with the current index
+                    names = names == null ? Sets.<String>newHashSet() : Sets.newHashSet(names);
+                    names.add(entry.getKey());
+                    termQueries.put(term, names);
+                }
+            }
+            return new IndexedQueries(MapBuilder.newMapBuilder(indexedQueries.queries).putAll(added).immutableMap(), termQueries, unindexedQueries);
+        }
+
+        IndexedQueries remove(String name) {
+            Query query = queries.get(name);
+            if (query == null) {
+                return this;
+            }
+            ImmutableMap<String, Query> queries = MapBuilder.newMapBuilder(this.queries).remove(name).immutableMap();
+            Set<Term> terms = QueryTermsExtractor.extract(query);
+            if (terms == null) {
+                Set<String> unindexedQueries = Sets.newHashSet(this.unindexedQueries);
+                unindexedQueries.remove(name);
+                return new IndexedQueries(queries, termQueries, unindexedQueries);
+            }
+            Map<Term, Set<String>> termQueries = Maps.newHashMap(this.termQueries);
+            for (Term term : terms) {
+                Set<String> names = termQueries.get(term);
+                if (names == null) {
+                    continue;
+                }
+                names = Sets.newHashSet(names);
+                names.remove(name);
+                if (names.isEmpty()) {
+                    termQueries.remove(term);
+                } else {
+                    termQueries.put(term, names);
+                }
+            }
+            return new IndexedQueries(queries, termQueries, unindexedQueries);
+        }
+
+        /**
+         * The names of the queries that might match the doc indexed in the provided reader.
+         */
+        Collection<String> candidates(IndexReader reader) throws IOException {
+            if (termQueries.isEmpty()) {
+                return unindexedQueries;
+            }
+            Set<String> candidates = Sets.newHashSet(unindexedQueries);
+            // positioned on the first term, unlike terms() which is not for the memory index
+            TermEnum termEnum = reader.terms(new Term(""));
+            try {
+                do {
+                    Term term = termEnum.term();
+                    if (term == null) {
+                        break;
+                    }
+                    Set<String> names = termQueries.get(term);
+                    if (names != null) {
+                        candidates.addAll(names);
+                    }
+                } while (termEnum.next());
+            } finally {
+                termEnum.close();
+            }
+            return candidates;
+        }
+    }
 }
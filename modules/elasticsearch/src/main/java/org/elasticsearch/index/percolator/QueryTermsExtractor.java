@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.spans.*;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.collect.ImmutableSet;
+import org.elasticsearch.common.collect.Sets;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Extracts from a query a set of terms, at least one of which a document must have in order to match the
+ * query. Used to only run percolator queries that might match a document.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class QueryTermsExtractor {
+
+    private QueryTermsExtractor() {
+
+    }
+
+    /**
+     * Returns the terms, one of which is required for the query to match, or <tt>null</tt> if they can't be
+     * extracted (for example, for range or match all queries) and the query must always be executed.
+     */
+    @Nullable public static Set<Term> extract(Query query) {
+        if (query instanceof TermQuery) {
+            return ImmutableSet.of(((TermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            // all the terms are required, pick the longest, most likely the most selective
+            Term[] terms = ((PhraseQuery) query).getTerms();
+            if (terms.length == 0) {
+                return null;
+            }
+            return ImmutableSet.of(longestTerm(terms));
+        } else if (query instanceof MultiPhraseQuery) {
+            List<Term[]> termArrays = ((MultiPhraseQuery) query).getTermArrays();
+            if (termArrays.isEmpty()) {
+                return null;
+            }
+            return ImmutableSet.copyOf(termArrays.get(0));
+        } else if (query instanceof BooleanQuery) {
+            return extract((BooleanQuery) query);
+        } else if (query instanceof DisjunctionMaxQuery) {
+            return union((DisjunctionMaxQuery) query);
+        } else if (query instanceof FilteredQuery) {
+            return extract(((FilteredQuery) query).getQuery());
+        } else if (query instanceof FunctionScoreQuery) {
+            return extract(((FunctionScoreQuery) query).getSubQuery());
+        } else if (query instanceof ConstantScoreQuery) {
+            Filter filter = ((ConstantScoreQuery) query).getFilter();
+            if (filter instanceof TermFilter) {
+                return ImmutableSet.of(((TermFilter) filter).getTerm());
+            }
+            return null;
+        } else if (query instanceof SpanTermQuery) {
+            return ImmutableSet.of(((SpanTermQuery) query).getTerm());
+        } else if (query instanceof SpanNearQuery) {
+            return smallest(((SpanNearQuery) query).getClauses());
+        } else if (query instanceof SpanOrQuery) {
+            return union(Arrays.asList(((SpanOrQuery) query).getClauses()));
+        } else if (query instanceof SpanFirstQuery) {
+            return extract(((SpanFirstQuery) query).getMatch());
+        } else if (query instanceof SpanNotQuery) {
+            return extract(((SpanNotQuery) query).getInclude());
+        }
+        return null;
+    }
+
+    private static Set<Term> extract(BooleanQuery query) {
+        Set<Term> required = null;
+        boolean hasRequired = false;
+        Set<Term> optional = Sets.newHashSet();
+        boolean optionalExtractable = true;
+        for (BooleanClause clause : query.getClauses()) {
+            if (clause.isProhibited()) {
+                continue;
+            }
+            Set<Term> clauseTerms = extract(clause.getQuery());
+            if (clause.isRequired()) {
+                hasRequired = true;
+                // any of the required clauses will do, use the one with the least terms
+                if (clauseTerms != null && (required == null || clauseTerms.size() < required.size())) {
+                    required = clauseTerms;
+                }
+            } else if (clauseTerms == null) {
+                optionalExtractable = false;
+            } else {
+                optional.addAll(clauseTerms);
+            }
+        }
+        if (hasRequired) {
+            // null if none of the required clauses could be extracted
+            return required;
+        }
+        if (!optionalExtractable || optional.isEmpty()) {
+            return null;
+        }
+        return optional;
+    }
+
+    private static Set<Term> union(Iterable<? extends Query> queries) {
+        Set<Term> terms = Sets.newHashSet();
+        for (Query query : queries) {
+            Set<Term> queryTerms = extract(query);
+            if (queryTerms == null) {
+                return null;
+            }
+            terms.addAll(queryTerms);
+        }
+        return terms.isEmpty() ? null : terms;
+    }
+
+    private static Set<Term> smallest(SpanQuery[] clauses) {
+        Set<Term> smallest = null;
+        for (SpanQuery clause : clauses) {
+            Set<Term> clauseTerms = extract(clause);
+            if (clauseTerms != null && (smallest == null || clauseTerms.size() < smallest.size())) {
+                smallest = clauseTerms;
+            }
+        }
+        return smallest;
+    }
+
+    private static Term longestTerm(Term[] terms) {
+        Term longest = terms[0];
+        for (int i = 1; i < terms.length; i++) {
+            if (terms[i].text().length() > longest.text().length()) {
+                longest = terms[i];
+            }
+        }
+        return longest;
+    }
+}
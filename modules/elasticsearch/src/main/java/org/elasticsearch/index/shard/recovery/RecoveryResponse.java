@@ -36,6 +36,8 @@ class RecoveryResponse implements Streamable {
     List<Long> phase1FileSizes = Lists.newArrayList();
     List<String> phase1ExistingFileNames = Lists.newArrayList();
     List<Long> phase1ExistingFileSizes = Lists.newArrayList();
+    List<String> phase1ResumedFileNames = Lists.newArrayList();
+    long phase1ResumedTotalSize;
     long phase1TotalSize;
     long phase1ExistingTotalSize;
     long phase1Time;
@@ -72,6 +74,12 @@ class RecoveryResponse implements Streamable {
         for (int i = 0; i < size; i++) {
             phase1ExistingFileSizes.add(in.readVLong());
         }
+        size = in.readVInt();
+        phase1ResumedFileNames = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            phase1ResumedFileNames.add(in.readUTF());
+        }
+        phase1ResumedTotalSize = in.readVLong();
 
         phase1TotalSize = in.readVLong();
         phase1ExistingTotalSize = in.readVLong();
@@ -101,6 +109,11 @@ class RecoveryResponse implements Streamable {
         for (long size : phase1ExistingFileSizes) {
             out.writeVLong(size);
         }
+        out.writeVInt(phase1ResumedFileNames.size());
+        for (String name : phase1ResumedFileNames) {
+            out.writeUTF(name);
+        }
+        out.writeVLong(phase1ResumedTotalSize);
 
         out.writeVLong(phase1TotalSize);
         out.writeVLong(phase1ExistingTotalSize);
@@ -23,9 +23,12 @@ import org.apache.lucene.store.IndexInput;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.collect.Sets;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.VoidStreamable;
+import org.elasticsearch.common.lucene.Directories;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
@@ -46,9 +49,11 @@ import org.elasticsearch.transport.*;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -76,6 +81,7 @@ public class RecoverySource extends AbstractComponent {
 
     private final int translogOps;
     private final ByteSizeValue translogSize;
+    private final int translogConcurrentRequests;
 
     private final ExecutorService concurrentStreamPool;
 
@@ -91,10 +97,11 @@ public class RecoverySource extends AbstractComponent {
         this.fileChunkSize = componentSettings.getAsBytesSize("file_chunk_size", new ByteSizeValue(100, ByteSizeUnit.KB));
         this.translogOps = componentSettings.getAsInt("translog_ops", 1000);
         this.translogSize = componentSettings.getAsBytesSize("translog_size", new ByteSizeValue(100, ByteSizeUnit.KB));
+        this.translogConcurrentRequests = Math.max(1, componentSettings.getAsInt("translog_concurrent_requests", 4));
         this.compress = componentSettings.getAsBoolean("compress", true);
 
-        logger.debug("using concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], translog_concurrent_requests [{}], and compress [{}]",
+                concurrentStreams, fileChunkSize, translogSize, translogOps, translogConcurrentRequests, compress);
 
         transportService.registerHandler(Actions.START_RECOVERY, new StartRecoveryTransportRequestHandler());
     }
@@ -108,18 +115,46 @@ public class RecoverySource extends AbstractComponent {
         logger.trace("[{}][{}] starting recovery to {}, mark_as_relocated {}", request.shardId().index().name(), request.shardId().id(), request.targetNode(), request.markAsRelocated());
         final RecoveryResponse response = new RecoveryResponse();
         shard.recover(new Engine.RecoveryHandler() {
+
+            // the order of the translog operations requests, across phase2 and phase3
+            private long translogSequence = 0;
+
             @Override public void phase1(final SnapshotIndexCommit snapshot) throws ElasticSearchException {
                 long totalSize = 0;
                 long existingTotalSize = 0;
                 try {
                     StopWatch stopWatch = new StopWatch().start();
 
+                    final Map<String, Long> resumeOffsets = Maps.newHashMap();
                     for (String name : snapshot.getFiles()) {
                         StoreFileMetaData md = shard.store().metaData(name);
                         boolean useExisting = false;
-                        if (request.existingFiles().containsKey(name)) {
-                            // we don't compute checksum for segments, so always recover them
-                            if (!name.startsWith("segments") && md.isSame(request.existingFiles().get(name))) {
+                        StoreFileMetaData existingMd = request.existingFiles().get(name);
+                        boolean sameContent = false;
+                        if (existingMd != null && !md.isSame(existingMd) && existingMd.checksum() == null && existingMd.length() <= md.length()
+                                && request.existingContentChecksums().containsKey(name)) {
+                            // no store checksum (segments files, or files an interrupted recovery did not finish), compare
+                            // the content of the existing file with the same length prefix of ours
+                            String contentChecksum = Directories.contentChecksum(snapshot.getDirectory(), name, existingMd.length());
+                            if (contentChecksum.equals(request.existingContentChecksums().get(name))) {
+                                if (existingMd.length() == md.length()) {
+                                    // same content, reuse it even though there is no checksum to compare (segments files)
+                                    sameContent = true;
+                                } else {
+                                    // resume recovering the file from where the interrupted recovery stopped, the resumed
+                                    // bytes are accounted as existing ones
+                                    resumeOffsets.put(name, existingMd.length());
+                                    response.phase1ResumedFileNames.add(name);
+                                    response.phase1ResumedTotalSize += existingMd.length();
+                                    existingTotalSize += existingMd.length();
+                                    if (logger.isTraceEnabled()) {
+                                        logger.trace("[{}][{}] recovery [phase1] to {}: resuming [{}] from [{}], size [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, existingMd.length(), md.length());
+                                    }
+                                }
+                            }
+                        }
+                        if (existingMd != null) {
+                            if (sameContent || md.isSame(existingMd)) {
                                 response.phase1ExistingFileNames.add(name);
                                 response.phase1ExistingFileSizes.add(md.length());
                                 existingTotalSize += md.length();
@@ -130,7 +165,7 @@ public class RecoverySource extends AbstractComponent {
                             }
                         }
                         if (!useExisting) {
-                            if (request.existingFiles().containsKey(name)) {
+                            if (request.existingFiles().containsKey(name) && !resumeOffsets.containsKey(name)) {
                                 logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], exists in local store, but is different: remote [{}], local [{}]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, request.existingFiles().get(name), md);
                             } else {
                                 logger.trace("[{}][{}] recovery [phase1] to {}: recovering [{}], does not exists in remote", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name);
@@ -162,6 +197,11 @@ public class RecoverySource extends AbstractComponent {
                                     indexInput = snapshot.getDirectory().openInput(name);
                                     long len = indexInput.length();
                                     long readCount = 0;
+                                    Long resumeOffset = resumeOffsets.get(name);
+                                    if (resumeOffset != null) {
+                                        indexInput.seek(resumeOffset);
+                                        readCount = resumeOffset;
+                                    }
                                     while (readCount < len) {
                                         if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                                             throw new IndexShardClosedException(shard.shardId());
@@ -250,34 +290,60 @@ public class RecoverySource extends AbstractComponent {
             }
 
             private int sendSnapshot(Translog.Snapshot snapshot) throws ElasticSearchException {
+                // the operations are streamed without waiting for each request to be acknowledged, the target applies
+                // them in sequence order, and we bound the number of requests in flight
+                final Semaphore inFlight = new Semaphore(translogConcurrentRequests);
+                final AtomicReference<TransportException> lastException = new AtomicReference<TransportException>();
                 int ops = 0;
                 long size = 0;
                 int totalOperations = 0;
                 List<Translog.Operation> operations = Lists.newArrayList();
-                while (snapshot.hasNext()) {
-                    if (shard.state() == IndexShardState.CLOSED) {
-                        throw new IndexShardClosedException(request.shardId());
+                try {
+                    while (snapshot.hasNext() && lastException.get() == null) {
+                        if (shard.state() == IndexShardState.CLOSED) {
+                            throw new IndexShardClosedException(request.shardId());
+                        }
+                        Translog.Operation operation = snapshot.next();
+                        operations.add(operation);
+                        ops += 1;
+                        size += operation.estimateSize();
+                        totalOperations++;
+                        if (ops >= translogOps || size >= translogSize.bytes()) {
+                            sendOperations(operations, inFlight, lastException);
+                            ops = 0;
+                            size = 0;
+                            operations = Lists.newArrayList();
+                        }
                     }
-                    Translog.Operation operation = snapshot.next();
-                    operations.add(operation);
-                    ops += 1;
-                    size += operation.estimateSize();
-                    totalOperations++;
-                    if (ops >= translogOps || size >= translogSize.bytes()) {
-                        RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.shardId(), operations);
-                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(compress).withLowType(), VoidTransportResponseHandler.INSTANCE_SAME).txGet();
-                        ops = 0;
-                        size = 0;
-                        operations.clear();
+                    // send the leftover
+                    if (!operations.isEmpty() && lastException.get() == null) {
+                        sendOperations(operations, inFlight, lastException);
                     }
+                } finally {
+                    // wait for all the requests in flight to be acknowledged
+                    inFlight.acquireUninterruptibly(translogConcurrentRequests);
+                    inFlight.release(translogConcurrentRequests);
                 }
-                // send the leftover
-                if (!operations.isEmpty()) {
-                    RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.shardId(), operations);
-                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(compress).withLowType(), VoidTransportResponseHandler.INSTANCE_SAME).txGet();
+                if (lastException.get() != null) {
+                    throw lastException.get();
                 }
                 return totalOperations;
             }
+
+            private void sendOperations(List<Translog.Operation> operations, final Semaphore inFlight, final AtomicReference<TransportException> lastException) {
+                inFlight.acquireUninterruptibly();
+                RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.shardId(), translogSequence++, operations);
+                transportService.sendRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(compress).withLowType(), new VoidTransportResponseHandler(ThreadPool.Names.SAME) {
+                    @Override public void handleResponse(VoidStreamable response) {
+                        inFlight.release();
+                    }
+
+                    @Override public void handleException(TransportException exp) {
+                        lastException.set(exp);
+                        inFlight.release();
+                    }
+                });
+            }
         });
         return response;
     }
@@ -52,6 +52,8 @@ public class RecoveryStatus {
 
     volatile Stage stage = Stage.INIT;
     volatile long currentTranslogOperations = 0;
+    final Object translogMutex = new Object();
+    long translogSequence = 0;
     AtomicLong currentFilesSize = new AtomicLong();
 
     public long startTime() {
@@ -20,12 +20,15 @@
 package org.elasticsearch.index.shard.recovery;
 
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.VoidStreamable;
+import org.elasticsearch.common.lucene.Directories;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
@@ -36,6 +39,7 @@ import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.*;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndexMissingException;
 import org.elasticsearch.indices.IndicesLifecycle;
@@ -166,6 +170,8 @@ public class RecoveryTarget extends AbstractComponent {
         try {
             logger.trace("[{}][{}] starting recovery from {}", request.shardId().index().name(), request.shardId().id(), request.sourceNode());
 
+            request.existingContentChecksums(existingContentChecksums(shard, request));
+
             StopWatch stopWatch = new StopWatch().start();
             RecoveryResponse recoveryStatus = transportService.submitRequest(request.sourceNode(), RecoverySource.Actions.START_RECOVERY, request, new FutureTransportResponseHandler<RecoveryResponse>() {
                 @Override public RecoveryResponse newInstance() {
@@ -186,6 +192,7 @@ public class RecoveryTarget extends AbstractComponent {
                         .append(", took [").append(timeValueMillis(recoveryStatus.phase1Time)).append("], throttling_wait [").append(timeValueMillis(recoveryStatus.phase1ThrottlingWaitTime)).append(']')
                         .append("\n");
                 sb.append("         : reusing_files   [").append(recoveryStatus.phase1ExistingFileNames.size()).append("] with total_size of [").append(new ByteSizeValue(recoveryStatus.phase1ExistingTotalSize)).append("]\n");
+                sb.append("         : resumed_files   [").append(recoveryStatus.phase1ResumedFileNames.size()).append("] with reused_size of [").append(new ByteSizeValue(recoveryStatus.phase1ResumedTotalSize)).append("]\n");
                 sb.append("   phase2: recovered [").append(recoveryStatus.phase2Operations).append("]").append(" transaction log operations")
                         .append(", took [").append(timeValueMillis(recoveryStatus.phase2Time)).append("]")
                         .append("\n");
@@ -273,6 +280,30 @@ public class RecoveryTarget extends AbstractComponent {
         }
     }
 
+    /**
+     * Computes the content checksum of the existing files that have no store checksum, segments files and files
+     * an interrupted recovery did not finish, so the source can reuse them, or resume recovering them. Only done
+     * for files the store can append to, since the source can't tell if it can reuse the file or has to resume it.
+     */
+    private Map<String, String> existingContentChecksums(InternalIndexShard shard, StartRecoveryRequest request) {
+        Map<String, String> contentChecksums = Maps.newHashMap();
+        for (StoreFileMetaData existingMd : request.existingFiles().values()) {
+            if (existingMd.checksum() != null) {
+                continue;
+            }
+            try {
+                // the file might have changed since the request was created (retry), only use it if it did not
+                StoreFileMetaData md = shard.store().metaData(existingMd.name());
+                if (md != null && md.length() == existingMd.length() && shard.store().canAppend(existingMd.name())) {
+                    contentChecksums.put(existingMd.name(), Directories.contentChecksum(shard.store().directory(), existingMd.name(), existingMd.length()));
+                }
+            } catch (Exception e) {
+                // ignore, the file will be recovered
+            }
+        }
+        return contentChecksums;
+    }
+
     class PrepareForTranslogOperationsRequestHandler extends BaseTransportRequestHandler<RecoveryPrepareForTranslogOperationsRequest> {
 
         @Override public RecoveryPrepareForTranslogOperationsRequest newInstance() {
@@ -292,6 +323,9 @@ public class RecoveryTarget extends AbstractComponent {
                 throw new IndexShardClosedException(shard.shardId());
             }
             onGoingRecovery.stage = RecoveryStatus.Stage.TRANSLOG;
+            synchronized (onGoingRecovery.translogMutex) {
+                onGoingRecovery.translogSequence = 0;
+            }
 
             shard.performRecoveryPrepareForTranslog();
             channel.sendResponse(VoidStreamable.INSTANCE);
@@ -336,16 +370,31 @@ public class RecoveryTarget extends AbstractComponent {
 
         @Override public void messageReceived(RecoveryTranslogOperationsRequest request, TransportChannel channel) throws Exception {
             InternalIndexShard shard = (InternalIndexShard) indicesService.indexServiceSafe(request.shardId().index().name()).shardSafe(request.shardId().id());
-            for (Translog.Operation operation : request.operations()) {
-                shard.performRecoveryOperation(operation);
-            }
-
             RecoveryStatus onGoingRecovery = onGoingRecoveries.get(shard.shardId());
             if (onGoingRecovery == null) {
                 // shard is getting closed on us
                 throw new IndexShardClosedException(shard.shardId());
             }
-            onGoingRecovery.currentTranslogOperations += request.operations().size();
+            // the source does not wait for a request to be acknowledged before sending the next one, apply them in order
+            synchronized (onGoingRecovery.translogMutex) {
+                while (onGoingRecovery.translogSequence != request.sequence()) {
+                    if (shard.state() == IndexShardState.CLOSED || onGoingRecoveries.get(shard.shardId()) != onGoingRecovery) {
+                        // shard is getting closed on us
+                        throw new IndexShardClosedException(shard.shardId());
+                    }
+                    onGoingRecovery.translogMutex.wait(100);
+                }
+                try {
+                    for (Translog.Operation operation : request.operations()) {
+                        shard.performRecoveryOperation(operation);
+                    }
+                    onGoingRecovery.currentTranslogOperations += request.operations().size();
+                } finally {
+                    // move on even on failure, the source fails the recovery, and the requests after it must not wait for it
+                    onGoingRecovery.translogSequence++;
+                    onGoingRecovery.translogMutex.notifyAll();
+                }
+            }
 
             channel.sendResponse(VoidStreamable.INSTANCE);
         }
@@ -439,6 +488,27 @@ public class RecoveryTarget extends AbstractComponent {
                 onGoingRecovery.openIndexOutputs.put(request.name(), indexOutput);
             } else {
                 indexOutput = onGoingRecovery.openIndexOutputs.get(request.name());
+                if (indexOutput == null) {
+                    // first request of a resumed file, append to what an interrupted recovery already wrote
+                    indexOutput = shard.store().createOutputForAppend(request.name());
+                    if (indexOutput == null || indexOutput.getFilePointer() != request.position()) {
+                        if (indexOutput != null) {
+                            try {
+                                indexOutput.close();
+                            } catch (IOException e) {
+                                // ignore
+                            }
+                        }
+                        // delete it, so the next recovery will recover it from scratch
+                        try {
+                            shard.store().directory().deleteFile(request.name());
+                        } catch (Exception e) {
+                            // ignore
+                        }
+                        throw new ElasticSearchIllegalStateException("failed to resume recovering [" + request.name() + "] from [" + request.position() + "]");
+                    }
+                    onGoingRecovery.openIndexOutputs.put(request.name(), indexOutput);
+                }
             }
             if (indexOutput == null) {
                 // shard is getting closed on us
@@ -36,13 +36,15 @@ import java.util.List;
 class RecoveryTranslogOperationsRequest implements Streamable {
 
     private ShardId shardId;
+    private long sequence;
     private List<Translog.Operation> operations;
 
     RecoveryTranslogOperationsRequest() {
     }
 
-    RecoveryTranslogOperationsRequest(ShardId shardId, List<Translog.Operation> operations) {
+    RecoveryTranslogOperationsRequest(ShardId shardId, long sequence, List<Translog.Operation> operations) {
         this.shardId = shardId;
+        this.sequence = sequence;
         this.operations = operations;
     }
 
@@ -50,12 +52,21 @@ class RecoveryTranslogOperationsRequest implements Streamable {
         return shardId;
     }
 
+    /**
+     * The order of the operations in the recovery, several requests are sent without waiting for each other, and
+     * are applied in this order.
+     */
+    public long sequence() {
+        return sequence;
+    }
+
     public List<Translog.Operation> operations() {
         return operations;
     }
 
     @Override public void readFrom(StreamInput in) throws IOException {
         shardId = ShardId.readShardId(in);
+        sequence = in.readVLong();
         int size = in.readVInt();
         operations = Lists.newArrayListWithExpectedSize(size);
         for (int i = 0; i < size; i++) {
@@ -65,6 +76,7 @@ class RecoveryTranslogOperationsRequest implements Streamable {
 
     @Override public void writeTo(StreamOutput out) throws IOException {
         shardId.writeTo(out);
+        out.writeVLong(sequence);
         out.writeVInt(operations.size());
         for (Translog.Operation operation : operations) {
             TranslogStreams.writeTranslogOperation(out, operation);
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.shard.recovery;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -45,6 +46,8 @@ public class StartRecoveryRequest implements Streamable {
 
     private Map<String, StoreFileMetaData> existingFiles;
 
+    private Map<String, String> existingContentChecksums = ImmutableMap.of();
+
     StartRecoveryRequest() {
     }
 
@@ -85,6 +88,18 @@ public class StartRecoveryRequest implements Streamable {
         return existingFiles;
     }
 
+    /**
+     * The content checksums of the existing files that have no store checksum, for example, files that were
+     * partially recovered by an interrupted recovery (which can then be resumed), or the segments files.
+     */
+    public Map<String, String> existingContentChecksums() {
+        return existingContentChecksums;
+    }
+
+    void existingContentChecksums(Map<String, String> existingContentChecksums) {
+        this.existingContentChecksums = existingContentChecksums;
+    }
+
     @Override public void readFrom(StreamInput in) throws IOException {
         shardId = ShardId.readShardId(in);
         sourceNode = DiscoveryNode.readNode(in);
@@ -96,6 +111,11 @@ public class StartRecoveryRequest implements Streamable {
             StoreFileMetaData md = StoreFileMetaData.readStoreFileMetaData(in);
             existingFiles.put(md.name(), md);
         }
+        size = in.readVInt();
+        existingContentChecksums = Maps.newHashMapWithExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            existingContentChecksums.put(in.readUTF(), in.readUTF());
+        }
     }
 
     @Override public void writeTo(StreamOutput out) throws IOException {
@@ -107,5 +127,10 @@ public class StartRecoveryRequest implements Streamable {
         for (StoreFileMetaData md : existingFiles.values()) {
             md.writeTo(out);
         }
+        out.writeVInt(existingContentChecksums.size());
+        for (Map.Entry<String, String> entry : existingContentChecksums.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
     }
 }
@@ -361,6 +361,11 @@ public class InternalIndexShard extends AbstractIndexShardComponent implements I
         }
     }
 
+    @Override public Engine.GetResult get(Engine.Get get) throws ElasticSearchException {
+        readAllowed();
+        return engine.get(get);
+    }
+
     @Override public long count(float minScore, byte[] querySource, @Nullable String queryParserName, String... types) throws ElasticSearchException {
         return count(minScore, querySource, 0, querySource.length, queryParserName, types);
     }
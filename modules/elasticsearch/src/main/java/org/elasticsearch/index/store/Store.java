@@ -39,6 +39,17 @@ public interface Store extends IndexShardComponent {
 
     IndexOutput createOutputWithNoChecksum(String name) throws IOException;
 
+    /**
+     * Opens an output (with no checksum) that appends to the end of an existing file, its file pointer starting
+     * at the current length of the file. Returns <tt>null</tt> if the store can't append to the file.
+     */
+    IndexOutput createOutputForAppend(String name) throws IOException;
+
+    /**
+     * Can {@link #createOutputForAppend(String)} append to the file.
+     */
+    boolean canAppend(String name) throws IOException;
+
     void writeChecksum(String name, String checksum) throws IOException;
 
     StoreFileMetaData metaData(String name) throws IOException;
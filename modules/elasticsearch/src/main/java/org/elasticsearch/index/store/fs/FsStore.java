@@ -34,6 +34,7 @@ import org.elasticsearch.index.store.support.AbstractStore;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 
 /**
  * @author kimchy (shay.banon)
@@ -42,6 +43,9 @@ public abstract class FsStore extends AbstractStore {
 
     public static final boolean DEFAULT_SUGGEST_USE_COMPOUND_FILE = false;
 
+    // the extensions of the files kept in memory (and not on the file system)
+    private ImmutableSet<String> memoryExtensions = ImmutableSet.of();
+
     public FsStore(ShardId shardId, @IndexSettings Settings indexSettings, IndexStore indexStore) {
         super(shardId, indexSettings, indexStore);
     }
@@ -57,6 +61,20 @@ public abstract class FsStore extends AbstractStore {
 
     public abstract FSDirectory fsDirectory();
 
+    @Override public boolean canAppend(String name) throws IOException {
+        if (memoryExtensions.contains(SwitchDirectory.getExtension(name))) {
+            return false;
+        }
+        return new File(fsDirectory().getFile(), name).isFile();
+    }
+
+    @Override protected IndexOutput openOutputForAppend(String name) throws IOException {
+        if (!canAppend(name)) {
+            return null;
+        }
+        return new AppendingFsIndexOutput(new File(fsDirectory().getFile(), name));
+    }
+
     protected LockFactory buildLockFactory() throws IOException {
         String fsLock = componentSettings.get("fs_lock", "native");
         LockFactory lockFactory = new NoLockFactory();
@@ -111,6 +129,52 @@ public abstract class FsStore extends AbstractStore {
             }
         }
 
-        return new Tuple<SwitchDirectory, Boolean>(new SwitchDirectory(ImmutableSet.copyOf(primaryExtensions), memDir, fsDirectory, true), forceUseCompound);
+        this.memoryExtensions = ImmutableSet.copyOf(primaryExtensions);
+        return new Tuple<SwitchDirectory, Boolean>(new SwitchDirectory(memoryExtensions, memDir, fsDirectory, true), forceUseCompound);
+    }
+
+    /**
+     * An output writing at the end of an existing file, Lucene always truncates files when creating an output.
+     */
+    static class AppendingFsIndexOutput extends BufferedIndexOutput {
+
+        private final RandomAccessFile file;
+
+        private final long start;
+
+        AppendingFsIndexOutput(File path) throws IOException {
+            this.file = new RandomAccessFile(path, "rw");
+            this.start = file.length();
+            file.seek(start);
+        }
+
+        @Override protected void flushBuffer(byte[] b, int offset, int len) throws IOException {
+            file.write(b, offset, len);
+        }
+
+        @Override public long getFilePointer() {
+            return start + super.getFilePointer();
+        }
+
+        @Override public void seek(long pos) throws IOException {
+            super.seek(pos - start);
+            file.seek(pos);
+        }
+
+        @Override public long length() throws IOException {
+            return file.length();
+        }
+
+        @Override public void setLength(long length) throws IOException {
+            file.setLength(length);
+        }
+
+        @Override public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                file.close();
+            }
+        }
     }
 }
@@ -192,6 +192,24 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
         return ((StoreDirectory) directory()).createOutput(name, false);
     }
 
+    @Override public IndexOutput createOutputForAppend(String name) throws IOException {
+        return ((StoreDirectory) directory()).createOutputForAppend(name);
+    }
+
+    /**
+     * Can the underlying storage append to the file, <tt>false</tt> by default.
+     */
+    @Override public boolean canAppend(String name) throws IOException {
+        return false;
+    }
+
+    /**
+     * Opens an output appending to the file in the underlying storage, <tt>null</tt> (the default) if not supported.
+     */
+    protected IndexOutput openOutputForAppend(String name) throws IOException {
+        return null;
+    }
+
     @Override public void writeChecksum(String name, String checksum) throws IOException {
         // update the metadata to include the checksum and write a new checksums file
         synchronized (mutex) {
@@ -324,6 +342,22 @@ public abstract class AbstractStore extends AbstractIndexShardComponent implemen
             return new StoreIndexOutput(out, name, computeChecksum);
         }
 
+        public IndexOutput createOutputForAppend(String name) throws IOException {
+            if (!filesMetadata.containsKey(name)) {
+                return null;
+            }
+            IndexOutput out = openOutputForAppend(name);
+            if (out == null) {
+                return null;
+            }
+            synchronized (mutex) {
+                StoreFileMetaData metaData = new StoreFileMetaData(name, -1, -1, null);
+                filesMetadata = MapBuilder.newMapBuilder(filesMetadata).put(name, metaData).immutableMap();
+                files = filesMetadata.keySet().toArray(new String[filesMetadata.size()]);
+            }
+            return new StoreIndexOutput(out, name, false);
+        }
+
         @Override public IndexInput openInput(String name) throws IOException {
             return delegate.openInput(name);
         }
@@ -73,9 +73,15 @@ public interface Translog extends IndexShardComponent {
     void newTranslog(long id) throws TranslogException;
 
     /**
-     * Adds a create operation to the transaction log.
+     * Adds a create operation to the transaction log, returning the location it was written to.
      */
-    void add(Operation operation) throws TranslogException;
+    Location add(Operation operation) throws TranslogException;
+
+    /**
+     * Reads back the operation written at the provided location, or <tt>null</tt> if the location
+     * does not belong to the current transaction log anymore.
+     */
+    @Nullable Operation read(Location location);
 
     /**
      * Snapshots the current transaction log allowing to safely iterate over the snapshot.
@@ -106,6 +112,21 @@ public interface Translog extends IndexShardComponent {
      */
     void close(boolean delete);
 
+    /**
+     * The location of an operation within a transaction log.
+     */
+    static class Location {
+        public final long translogId;
+        public final long translogLocation;
+        public final int size;
+
+        public Location(long translogId, long translogLocation, int size) {
+            this.translogId = translogId;
+            this.translogLocation = translogLocation;
+            this.size = size;
+        }
+    }
+
     /**
      * A snapshot of the transaction log, allows to iterate over all the transaction log operations.
      */
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
 import org.elasticsearch.common.settings.Settings;
@@ -31,6 +32,7 @@ import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
 import org.elasticsearch.index.translog.TranslogStreams;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -46,6 +48,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private final boolean useStream;
 
+    private final boolean groupCommit;
+
     private final Object mutex = new Object();
 
     private boolean syncOnEachOperation = false;
@@ -59,11 +63,19 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private RafReference raf;
 
+    // group commit state, guarded by the groupCommitMutex
+    private final Object groupCommitMutex = new Object();
+    private BytesStreamOutput groupCommitBuffer = new BytesStreamOutput();
+    private BytesStreamOutput groupCommitSpareBuffer = new BytesStreamOutput();
+    private GroupCommitBatch groupCommitBatch = new GroupCommitBatch();
+    private boolean groupCommitFlushing = false;
+
     @Inject public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, NodeEnvironment nodeEnv) {
         super(shardId, indexSettings);
         this.location = new File(nodeEnv.shardLocation(shardId), "translog");
         this.location.mkdirs();
         this.useStream = componentSettings.getAsBoolean("use_stream", false);
+        this.groupCommit = componentSettings.getAsBoolean("group_commit", true);
     }
 
     public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location) {
@@ -71,10 +83,15 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     }
 
     public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location, boolean useStream) {
+        this(shardId, indexSettings, location, useStream, true);
+    }
+
+    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location, boolean useStream, boolean groupCommit) {
         super(shardId, indexSettings);
         this.location = location;
         this.location.mkdirs();
         this.useStream = useStream;
+        this.groupCommit = groupCommit;
     }
 
     public File location() {
@@ -154,9 +171,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         }
     }
 
-    @Override public void add(Operation operation) throws TranslogException {
+    @Override public Location add(Operation operation) throws TranslogException {
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
         try {
-            BytesStreamOutput out = CachedStreamOutput.cachedBytes();
+            BytesStreamOutput out = cachedEntry.cachedBytes();
             out.writeInt(0); // marker for the size...
             TranslogStreams.writeTranslogOperation(out, operation);
             out.flush();
@@ -165,6 +183,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
             out.seek(0);
             out.writeInt(size - 4);
 
+            if (syncOnEachOperation && groupCommit) {
+                return new Location(id, groupCommit(out.unsafeByteArray(), size), size);
+            }
+
             long position = lastPosition.getAndAdd(size);
             // use channel#write and not raf#write since it allows for concurrent writes
             // with regards to positions
@@ -176,9 +198,118 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 lastWrittenPosition.getAndAdd(size);
                 operationCounter.incrementAndGet();
             }
+            return new Location(id, position, size);
         } catch (Exception e) {
             throw new TranslogException(shardId, "Failed to write operation [" + operation + "]", e);
+        } finally {
+            CachedStreamOutput.pushEntry(cachedEntry);
+        }
+    }
+
+    @Override public Operation read(Location location) {
+        RafReference raf;
+        synchronized (mutex) {
+            if (this.raf == null || location.translogId != id) {
+                return null;
+            }
+            raf = this.raf;
+            raf.increaseRefCount();
+        }
+        try {
+            // skip the size header, we know the size from the location
+            ByteBuffer buffer = ByteBuffer.allocate(location.size - 4);
+            long position = location.translogLocation + 4;
+            while (buffer.hasRemaining()) {
+                int read = raf.channel().read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("read past EOF, location [" + location.translogLocation + "], size [" + location.size + "]");
+                }
+                position += read;
+            }
+            return TranslogStreams.readTranslogOperation(new BytesStreamInput(buffer.array()));
+        } catch (Exception e) {
+            throw new TranslogException(shardId, "Failed to read operation at [" + location.translogLocation + "]", e);
+        } finally {
+            raf.decreaseRefCount(false);
+        }
+    }
+
+    /**
+     * Appends the serialized operation to the shared group commit buffer, and waits till it has been
+     * written and fsync'ed. The first thread to find no write in progress becomes the writer, and writes
+     * and fsync's everything buffered so far (including operations added while the previous batch was
+     * being synced) in one go, releasing all the threads waiting on that batch together.
+     *
+     * <p>Returns the position the operation was written at.
+     */
+    private long groupCommit(byte[] data, int size) throws IOException {
+        GroupCommitBatch batch;
+        BytesStreamOutput buffer;
+        long position;
+        synchronized (groupCommitMutex) {
+            batch = groupCommitBatch;
+            // positions are allocated under the group commit mutex, so the batch is a continuous region
+            position = lastPosition.getAndAdd(size);
+            if (batch.operations == 0) {
+                batch.position = position;
+            }
+            groupCommitBuffer.writeBytes(data, 0, size);
+            batch.operations++;
+            boolean interrupted = false;
+            try {
+                while (!batch.done && groupCommitFlushing) {
+                    try {
+                        groupCommitMutex.wait();
+                    } catch (InterruptedException e) {
+                        // the operation is already buffered, we must wait for it to be written
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (batch.done) {
+                if (batch.failure != null) {
+                    throw new IOException("Failed to write group commit batch", batch.failure);
+                }
+                return position;
+            }
+            // no one is writing, we become the writer for the current batch, and open a new one
+            groupCommitFlushing = true;
+            buffer = groupCommitBuffer;
+            groupCommitBuffer = groupCommitSpareBuffer;
+            groupCommitBatch = new GroupCommitBatch();
         }
+
+        Throwable failure = null;
+        int batchSize = buffer.size();
+        try {
+            raf.channel().write(ByteBuffer.wrap(buffer.unsafeByteArray(), 0, batchSize), batch.position);
+            raf.channel().force(false);
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        synchronized (groupCommitMutex) {
+            if (failure == null) {
+                synchronized (mutex) {
+                    lastWrittenPosition.getAndAdd(batchSize);
+                    operationCounter.addAndGet(batch.operations);
+                }
+            }
+            buffer.reset();
+            groupCommitSpareBuffer = buffer;
+            batch.failure = failure;
+            batch.done = true;
+            groupCommitFlushing = false;
+            groupCommitMutex.notifyAll();
+        }
+        if (failure != null) {
+            throw new IOException("Failed to write group commit batch", failure);
+        }
+        return position;
     }
 
     @Override public Snapshot snapshot() throws TranslogException {
@@ -246,4 +377,11 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
             }
         }
     }
+
+    static class GroupCommitBatch {
+        long position;
+        int operations;
+        boolean done;
+        Throwable failure;
+    }
 }
@@ -24,6 +24,8 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.recovery.RecoverySource;
 import org.elasticsearch.index.shard.recovery.RecoveryTarget;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
+import org.elasticsearch.indices.cache.field.data.IndicesFieldDataCache;
+import org.elasticsearch.indices.cache.filter.IndicesFilterCache;
 import org.elasticsearch.indices.cluster.IndicesClusterStateService;
 import org.elasticsearch.indices.memory.IndexingMemoryBufferController;
 import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData;
@@ -49,6 +51,8 @@ public class IndicesModule extends AbstractModule {
 
         bind(IndicesClusterStateService.class).asEagerSingleton();
         bind(IndexingMemoryBufferController.class).asEagerSingleton();
+        bind(IndicesFilterCache.class).asEagerSingleton();
+        bind(IndicesFieldDataCache.class).asEagerSingleton();
         bind(IndicesAnalysisService.class).asEagerSingleton();
         bind(TransportNodesListShardStoreMetaData.class).asEagerSingleton();
     }
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.field.data;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.LruMemoryBudget;
+import org.elasticsearch.index.field.data.FieldData;
+
+/**
+ * A node level memory budget for field data, shared by all the indices allocated on the node that use the
+ * <tt>lru</tt> field data cache. Once the cached field data goes over <tt>indices.cache.field.data.size</tt>
+ * (defaults to <tt>20%</tt> of the heap), the least recently used field data is evicted, regardless of the index
+ * it belongs to. Eviction goes down to <tt>clean_ratio</tt> (defaults to <tt>0.9</tt>) of the budget, so once it is
+ * full, the least recently used entries are not looked up again on each newly cached field data.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class IndicesFieldDataCache extends AbstractComponent {
+
+    private final LruMemoryBudget<Entry> budget;
+
+    @Inject public IndicesFieldDataCache(Settings settings) {
+        super(settings);
+
+        ByteSizeValue size = LruMemoryBudget.parseSize(componentSettings.get("size", "20%"));
+        float cleanRatio = componentSettings.getAsFloat("clean_ratio", 0.9f);
+        this.budget = new LruMemoryBudget<Entry>(size, cleanRatio);
+
+        logger.debug("using [node] field data budget with size [{}], clean_ratio [{}]", size, cleanRatio);
+    }
+
+    public ByteSizeValue size() {
+        return budget.size();
+    }
+
+    /**
+     * The total size of the field data cached on the node.
+     */
+    public long sizeInBytes() {
+        return budget.sizeInBytes();
+    }
+
+    public long count() {
+        return budget.count();
+    }
+
+    public long evictions() {
+        return budget.evictions();
+    }
+
+    public void touch(Entry entry) {
+        budget.touch(entry);
+    }
+
+    public void add(Entry entry) {
+        budget.add(entry);
+    }
+
+    /**
+     * Removes the entry from the budget, called when the owning cache removes it (the reader is closed, or the
+     * cache is cleared). Returns <tt>false</tt> if it has already been removed.
+     */
+    public boolean remove(Entry entry) {
+        return budget.remove(entry);
+    }
+
+    /**
+     * Notified when an entry is evicted from the node level budget, so the owning cache can drop it.
+     */
+    public static interface Listener {
+
+        void onEviction(Entry entry);
+    }
+
+    /**
+     * Cached field data of a field for a specific segment.
+     */
+    public static class Entry extends LruMemoryBudget.Entry {
+
+        private final Listener listener;
+
+        private final Object readerKey;
+
+        private final String fieldName;
+
+        private final FieldData fieldData;
+
+        public Entry(Listener listener, Object readerKey, String fieldName, FieldData fieldData) {
+            super(fieldData.sizeInBytes());
+            this.listener = listener;
+            this.readerKey = readerKey;
+            this.fieldName = fieldName;
+            this.fieldData = fieldData;
+        }
+
+        public Object readerKey() {
+            return this.readerKey;
+        }
+
+        public String fieldName() {
+            return this.fieldName;
+        }
+
+        public FieldData fieldData() {
+            return this.fieldData;
+        }
+
+        @Override protected void onEviction() {
+            listener.onEviction(this);
+        }
+    }
+}
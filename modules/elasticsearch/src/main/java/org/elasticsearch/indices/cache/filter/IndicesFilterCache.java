@@ -0,0 +1,156 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter;
+
+import org.apache.lucene.search.Filter;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.DocSet;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.LruMemoryBudget;
+
+/**
+ * A node level memory budget for cached filters, shared by all the indices allocated on the node that use the
+ * <tt>node</tt> filter cache. Once the cached filters go over <tt>indices.cache.filter.size</tt> (defaults to
+ * <tt>20%</tt> of the heap), the least recently used ones are evicted, regardless of the index they belong to.
+ *
+ * <p>A filter is only admitted into the cache once it has been executed <tt>min_frequency</tt> times on the same
+ * segment, or, when it is expensive to build (took more than <tt>min_cost</tt>), on its first execution.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class IndicesFilterCache extends AbstractComponent {
+
+    private final LruMemoryBudget<Entry> budget;
+
+    private final int minFrequency;
+
+    private final TimeValue minCost;
+
+    @Inject public IndicesFilterCache(Settings settings) {
+        super(settings);
+
+        ByteSizeValue size = LruMemoryBudget.parseSize(componentSettings.get("size", "20%"));
+        // once the budget is exceeded, we evict down to this ratio so we won't evict on each new cached filter
+        this.budget = new LruMemoryBudget<Entry>(size, componentSettings.getAsFloat("clean_ratio", 0.9f));
+        this.minFrequency = componentSettings.getAsInt("min_frequency", 2);
+        this.minCost = componentSettings.getAsTime("min_cost", TimeValue.timeValueMillis(5));
+
+        logger.debug("using [node] filter cache with size [{}], min_frequency [{}], min_cost [{}]", size, minFrequency, minCost);
+    }
+
+    public ByteSizeValue size() {
+        return budget.size();
+    }
+
+    /**
+     * The total size of the filters cached on the node.
+     */
+    public long sizeInBytes() {
+        return budget.sizeInBytes();
+    }
+
+    public long count() {
+        return budget.count();
+    }
+
+    public long evictions() {
+        return budget.evictions();
+    }
+
+    /**
+     * Should a filter that has been executed <tt>frequency</tt> times on a segment, and took <tt>costNanos</tt> to
+     * build the last time, be cached.
+     */
+    public boolean shouldCache(int frequency, long costNanos) {
+        return frequency >= minFrequency || costNanos >= minCost.nanos();
+    }
+
+    /**
+     * Can a filter of the provided size be cached at all, filters larger than the whole budget can't.
+     */
+    public boolean canCache(long sizeInBytes) {
+        return budget.fits(sizeInBytes);
+    }
+
+    public void touch(Entry entry) {
+        budget.touch(entry);
+    }
+
+    public void add(Entry entry) {
+        budget.add(entry);
+    }
+
+    /**
+     * Removes the entry from the budget, called when the owning cache removes it (the reader is closed, or the
+     * cache is cleared). Returns <tt>false</tt> if it has already been removed.
+     */
+    public boolean remove(Entry entry) {
+        return budget.remove(entry);
+    }
+
+    /**
+     * Notified when an entry is evicted from the node level cache, so the owning cache can drop it.
+     */
+    public static interface Listener {
+
+        void onEviction(Entry entry);
+    }
+
+    /**
+     * A cached filter doc set for a specific segment.
+     */
+    public static class Entry extends LruMemoryBudget.Entry {
+
+        private final Listener listener;
+
+        private final Object readerKey;
+
+        private final Filter filter;
+
+        private final DocSet docSet;
+
+        public Entry(Listener listener, Object readerKey, Filter filter, DocSet docSet) {
+            super(docSet.sizeInBytes());
+            this.listener = listener;
+            this.readerKey = readerKey;
+            this.filter = filter;
+            this.docSet = docSet;
+        }
+
+        public Object readerKey() {
+            return this.readerKey;
+        }
+
+        public Filter filter() {
+            return this.filter;
+        }
+
+        public DocSet docSet() {
+            return this.docSet;
+        }
+
+        @Override protected void onEviction() {
+            listener.onEviction(this);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.memory;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * How the {@link IndexingMemoryBufferController} currently splits the indexing buffer between the shards
+ * allocated on the node.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class IndexingBufferStats implements Streamable, Serializable, ToXContent {
+
+    public static class ShardIndexingBuffer implements Streamable, Serializable {
+
+        private String index;
+
+        private int shardId;
+
+        private boolean inactive;
+
+        private double operationsRate;
+
+        private long bufferSize;
+
+        ShardIndexingBuffer() {
+        }
+
+        public ShardIndexingBuffer(String index, int shardId, boolean inactive, double operationsRate, long bufferSize) {
+            this.index = index;
+            this.shardId = shardId;
+            this.inactive = inactive;
+            this.operationsRate = operationsRate;
+            this.bufferSize = bufferSize;
+        }
+
+        public String index() {
+            return index;
+        }
+
+        public String getIndex() {
+            return index();
+        }
+
+        public int shardId() {
+            return shardId;
+        }
+
+        public int getShardId() {
+            return shardId();
+        }
+
+        public boolean inactive() {
+            return inactive;
+        }
+
+        public boolean isInactive() {
+            return inactive();
+        }
+
+        /**
+         * The (smoothed) number of indexing operations per second done on the shard.
+         */
+        public double operationsRate() {
+            return operationsRate;
+        }
+
+        public double getOperationsRate() {
+            return operationsRate();
+        }
+
+        /**
+         * The indexing buffer size assigned to the shard.
+         */
+        public ByteSizeValue bufferSize() {
+            return new ByteSizeValue(bufferSize);
+        }
+
+        public ByteSizeValue getBufferSize() {
+            return bufferSize();
+        }
+
+        @Override public void readFrom(StreamInput in) throws IOException {
+            index = in.readUTF();
+            shardId = in.readVInt();
+            inactive = in.readBoolean();
+            operationsRate = in.readDouble();
+            bufferSize = in.readVLong();
+        }
+
+        @Override public void writeTo(StreamOutput out) throws IOException {
+            out.writeUTF(index);
+            out.writeVInt(shardId);
+            out.writeBoolean(inactive);
+            out.writeDouble(operationsRate);
+            out.writeVLong(bufferSize);
+        }
+    }
+
+    private long totalSize;
+
+    private ShardIndexingBuffer[] shards;
+
+    IndexingBufferStats() {
+    }
+
+    public IndexingBufferStats(long totalSize, ShardIndexingBuffer[] shards) {
+        this.totalSize = totalSize;
+        this.shards = shards;
+    }
+
+    /**
+     * The total indexing buffer size divided between the shards.
+     */
+    public ByteSizeValue totalSize() {
+        return new ByteSizeValue(totalSize);
+    }
+
+    public ByteSizeValue getTotalSize() {
+        return totalSize();
+    }
+
+    /**
+     * The sum of the indexing buffer sizes currently assigned to the shards.
+     */
+    public ByteSizeValue allocatedSize() {
+        long allocatedSize = 0;
+        for (ShardIndexingBuffer shard : shards) {
+            allocatedSize += shard.bufferSize;
+        }
+        return new ByteSizeValue(allocatedSize);
+    }
+
+    public ByteSizeValue getAllocatedSize() {
+        return allocatedSize();
+    }
+
+    public ShardIndexingBuffer[] shards() {
+        return shards;
+    }
+
+    public ShardIndexingBuffer[] getShards() {
+        return shards();
+    }
+
+    @Override public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject("indexing_buffer");
+        builder.field("total_size", totalSize().toString());
+        builder.field("total_size_in_bytes", totalSize);
+        ByteSizeValue allocatedSize = allocatedSize();
+        builder.field("allocated_size", allocatedSize.toString());
+        builder.field("allocated_size_in_bytes", allocatedSize.bytes());
+        builder.startArray("shards");
+        for (ShardIndexingBuffer shard : shards) {
+            builder.startObject();
+            builder.field("index", shard.index);
+            builder.field("shard", shard.shardId);
+            builder.field("inactive", shard.inactive);
+            builder.field("operations_rate", shard.operationsRate);
+            builder.field("buffer_size", shard.bufferSize().toString());
+            builder.field("buffer_size_in_bytes", shard.bufferSize);
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    public static IndexingBufferStats readIndexingBufferStats(StreamInput in) throws IOException {
+        IndexingBufferStats stats = new IndexingBufferStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override public void readFrom(StreamInput in) throws IOException {
+        totalSize = in.readVLong();
+        shards = new ShardIndexingBuffer[in.readVInt()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new ShardIndexingBuffer();
+            shards[i].readFrom(in);
+        }
+    }
+
+    @Override public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(totalSize);
+        out.writeVInt(shards.length);
+        for (ShardIndexingBuffer shard : shards) {
+            shard.writeTo(out);
+        }
+    }
+}
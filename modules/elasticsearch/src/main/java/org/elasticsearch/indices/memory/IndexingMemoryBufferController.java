@@ -20,6 +20,7 @@
 package org.elasticsearch.indices.memory;
 
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.collect.Maps;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -38,10 +39,17 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledFuture;
 
 /**
+ * Splits the node level indexing buffer between the active shards allocated on the node. Each active shard gets
+ * at least <tt>min_shard_index_buffer_size</tt>, and the rest is divided in proportion to the (smoothed) rate of
+ * indexing operations done on each shard (taken from both the engine and the translog), bounded by <tt>max_shard_index_buffer_size</tt>. Shards that had no
+ * operations for <tt>shard_inactive_time</tt> are marked as inactive and get a minimal buffer.
+ *
  * @author kimchy (shay.banon)
  */
 public class IndexingMemoryBufferController extends AbstractLifecycleComponent<IndexingMemoryBufferController> {
@@ -59,6 +67,8 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
     private final TimeValue inactiveTime;
     private final TimeValue interval;
 
+    private final float rateWeight;
+
     private final Listener listener = new Listener();
 
     private final Map<ShardId, ShardIndexingStatus> shardsIndicesStatus = Maps.newHashMap();
@@ -96,10 +106,13 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
         this.maxShardIndexBufferSize = componentSettings.getAsBytesSize("max_shard_index_buffer_size", new ByteSizeValue(512, ByteSizeUnit.MB));
 
         this.inactiveTime = componentSettings.getAsTime("shard_inactive_time", TimeValue.timeValueMinutes(30));
-        // we need to have this relatively small to move a shard from inactive to active fast (enough)
-        this.interval = componentSettings.getAsTime("interval", TimeValue.timeValueSeconds(30));
+        // we need to have this relatively small to move a shard from inactive to active fast (enough), and to follow
+        // changes in the indexing rate of the shards
+        this.interval = componentSettings.getAsTime("interval", TimeValue.timeValueSeconds(5));
+        // how much weight the last interval rate has over the previous (smoothed) rate
+        this.rateWeight = componentSettings.getAsFloat("rate_weight", 0.5f);
 
-        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime);
+        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}], interval [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime, this.interval);
 
     }
 
@@ -120,6 +133,19 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
     @Override protected void doClose() throws ElasticSearchException {
     }
 
+    public IndexingBufferStats stats() {
+        synchronized (mutex) {
+            List<IndexingBufferStats.ShardIndexingBuffer> shards = Lists.newArrayList();
+            for (Map.Entry<ShardId, ShardIndexingStatus> entry : shardsIndicesStatus.entrySet()) {
+                ShardIndexingStatus status = entry.getValue();
+                long bufferSize = status.inactive ? Engine.INACTIVE_SHARD_INDEXING_BUFFER.bytes() : (status.bufferSize == null ? 0 : status.bufferSize.bytes());
+                shards.add(new IndexingBufferStats.ShardIndexingBuffer(entry.getKey().index().name(), entry.getKey().id(), status.inactive,
+                        status.rate == -1 ? 0 : status.rate, bufferSize));
+            }
+            return new IndexingBufferStats(indexingBuffer.bytes(), shards.toArray(new IndexingBufferStats.ShardIndexingBuffer[shards.size()]));
+        }
+    }
+
     class ShardsIndicesStatusChecker implements Runnable {
         @Override public void run() {
             synchronized (mutex) {
@@ -132,6 +158,18 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
                         if (status == null) { // not added yet
                             continue;
                         }
+
+                        // update the indexing rate, based on the operations done on the engine and added to the translog
+                        // since the last check
+                        long operations = ((InternalIndexShard) indexShard).engine().indexingOperations();
+                        if (status.operations != -1 && time > status.operationsTime) {
+                            long operationsSince = operationsSinceLastCheck(status, operations, translog.currentId(), translog.numberOfOperations());
+                            double rate = ((double) operationsSince) * 1000 / (time - status.operationsTime);
+                            status.rate = status.rate == -1 ? rate : (rateWeight * rate) + ((1 - rateWeight) * status.rate);
+                        }
+                        status.operations = operations;
+                        status.operationsTime = time;
+
                         // check if it is deemed to be inactive (sam translogId and numberOfOperations over a long period of time)
                         if (status.translogId == translog.currentId() && translog.numberOfOperations() == 0) {
                             if (status.time == -1) { // first time
@@ -142,6 +180,7 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
                                 if ((time - status.time) > inactiveTime.millis()) {
                                     // inactive for this amount of time, mark it
                                     status.inactive = true;
+                                    status.bufferSize = null;
                                     activeInactiveStatusChanges = true;
                                     logger.debug("marking shard [{}][{}] as inactive (inactive_time[{}]), setting size to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), inactiveTime, Engine.INACTIVE_SHARD_INDEXING_BUFFER);
                                     ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(Engine.INACTIVE_SHARD_INDEXING_BUFFER);
@@ -159,9 +198,7 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
                         status.translogNumberOfOperations = translog.numberOfOperations();
                     }
                 }
-                if (activeInactiveStatusChanges) {
-                    calcAndSetShardIndexingBuffer("shards became active/inactive");
-                }
+                calcAndSetShardIndexingBuffer(activeInactiveStatusChanges ? "shards became active/inactive" : "indexing rates changed", activeInactiveStatusChanges);
             }
         }
     }
@@ -170,61 +207,142 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
 
         @Override public void afterIndexShardCreated(IndexShard indexShard) {
             synchronized (mutex) {
-                calcAndSetShardIndexingBuffer("created_shard[" + indexShard.shardId().index().name() + "][" + indexShard.shardId().id() + "]");
                 shardsIndicesStatus.put(indexShard.shardId(), new ShardIndexingStatus());
+                calcAndSetShardIndexingBuffer("created_shard[" + indexShard.shardId().index().name() + "][" + indexShard.shardId().id() + "]", true);
             }
         }
 
         @Override public void afterIndexShardClosed(ShardId shardId, boolean delete) {
             synchronized (mutex) {
-                calcAndSetShardIndexingBuffer("removed_shard[" + shardId.index().name() + "][" + shardId.id() + "]");
                 shardsIndicesStatus.remove(shardId);
+                calcAndSetShardIndexingBuffer("removed_shard[" + shardId.index().name() + "][" + shardId.id() + "]", true);
             }
         }
     }
 
 
-    private void calcAndSetShardIndexingBuffer(String reason) {
-        int shardsCount = countShards();
-        if (shardsCount == 0) {
-            return;
-        }
-        ByteSizeValue shardIndexingBufferSize = calcShardIndexingBuffer(shardsCount);
-        if (shardIndexingBufferSize == null) {
-            return;
-        }
-        if (shardIndexingBufferSize.bytes() < minShardIndexBufferSize.bytes()) {
-            shardIndexingBufferSize = minShardIndexBufferSize;
-        }
-        if (shardIndexingBufferSize.bytes() > maxShardIndexBufferSize.bytes()) {
-            shardIndexingBufferSize = maxShardIndexBufferSize;
-        }
-        logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards, each shard set to [{}]", reason, indexingBuffer, shardsCount, shardIndexingBufferSize);
+    /**
+     * Recalculates the indexing buffer of each active shard. Unless forced, a shard buffer is only updated when
+     * it changed noticeably, so small fluctuations in the indexing rates won't cause constant updates.
+     */
+    private void calcAndSetShardIndexingBuffer(String reason, boolean force) {
+        List<IndexShard> activeShards = Lists.newArrayList();
         for (IndexService indexService : indicesService) {
             for (IndexShard indexShard : indexService) {
                 ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
                 if (status == null || !status.inactive) {
-                    ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(shardIndexingBufferSize);
+                    activeShards.add(indexShard);
                 }
             }
         }
+        if (activeShards.isEmpty()) {
+            return;
+        }
+        double[] rates = new double[activeShards.size()];
+        for (int i = 0; i < rates.length; i++) {
+            ShardIndexingStatus status = shardsIndicesStatus.get(activeShards.get(i).shardId());
+            rates[i] = (status == null || status.rate == -1) ? 0 : status.rate;
+        }
+        long[] bufferSizes = calcShardIndexingBuffers(indexingBuffer.bytes(), minShardIndexBufferSize.bytes(), maxShardIndexBufferSize.bytes(), rates);
+
+        boolean changed = false;
+        for (int i = 0; i < bufferSizes.length; i++) {
+            IndexShard indexShard = activeShards.get(i);
+            ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
+            ByteSizeValue current = status == null ? null : status.bufferSize;
+            if (!force && current != null && Math.abs(current.bytes() - bufferSizes[i]) <= (current.bytes() / 10)) {
+                continue;
+            }
+            ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(bufferSizes[i]);
+            if (status != null) {
+                status.bufferSize = shardIndexingBufferSize;
+            }
+            if (logger.isTraceEnabled()) {
+                logger.trace("setting shard [{}][{}] indexing buffer to [{}], indexing rate [{}] ops/s", indexShard.shardId().index().name(), indexShard.shardId().id(), shardIndexingBufferSize, rates[i]);
+            }
+            ((InternalIndexShard) indexShard).engine().updateIndexingBufferSize(shardIndexingBufferSize);
+            changed = true;
+        }
+        if (changed) {
+            logger.debug("recalculated shard indexing buffer (reason={}), total is [{}] with [{}] active shards", reason, indexingBuffer, activeShards.size());
+        }
     }
 
-    private ByteSizeValue calcShardIndexingBuffer(int shardsCount) {
-        return new ByteSizeValue(indexingBuffer.bytes() / shardsCount);
+    /**
+     * The number of operations done on a shard since the last check, the larger of the engine operations and the
+     * operations added to the translog. The translog only counts the operations since the last flush, so if it was
+     * flushed in between, its current number of operations is used.
+     */
+    static long operationsSinceLastCheck(ShardIndexingStatus status, long operations, long translogId, int translogNumberOfOperations) {
+        long translogOperations;
+        if (status.translogId == translogId && status.translogNumberOfOperations != -1) {
+            translogOperations = translogNumberOfOperations - status.translogNumberOfOperations;
+        } else {
+            translogOperations = translogNumberOfOperations;
+        }
+        return Math.max(operations - status.operations, translogOperations);
     }
 
-    private int countShards() {
-        int shardsCount = 0;
-        for (IndexService indexService : indicesService) {
-            for (IndexShard indexShard : indexService) {
-                ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
-                if (status == null || !status.inactive) {
-                    shardsCount++;
+    /**
+     * Splits the total buffer between the shards, each getting at least the min buffer size, and the rest divided
+     * in proportion to the shards indexing rates, with no shard getting more than the max buffer size. If there is
+     * no indexing going on at all, the buffer is split evenly.
+     */
+    static long[] calcShardIndexingBuffers(long total, long min, long max, double[] rates) {
+        long[] sizes = new long[rates.length];
+        if (sizes.length == 0) {
+            return sizes;
+        }
+        long even = total / sizes.length;
+        if (even <= min) {
+            Arrays.fill(sizes, min);
+            return sizes;
+        }
+        double totalRate = 0;
+        for (double rate : rates) {
+            totalRate += rate;
+        }
+        if (totalRate <= 0) {
+            Arrays.fill(sizes, Math.min(even, max));
+            return sizes;
+        }
+
+        Arrays.fill(sizes, min);
+        long remaining = total - (min * sizes.length);
+        boolean[] capped = new boolean[sizes.length];
+        // hand out the remaining in proportion to the rates, shards hitting the max give their excess back to the others
+        boolean newlyCapped = true;
+        while (newlyCapped && remaining > 0 && totalRate > 0) {
+            newlyCapped = false;
+            for (int i = 0; i < sizes.length; i++) {
+                if (!capped[i] && min + (long) (remaining * (rates[i] / totalRate)) >= max) {
+                    capped[i] = true;
+                    newlyCapped = true;
+                    sizes[i] = max;
+                    remaining -= (max - min);
+                    totalRate -= rates[i];
+                }
+            }
+        }
+        int uncapped = 0;
+        for (boolean c : capped) {
+            if (!c) {
+                uncapped++;
+            }
+        }
+        if (remaining > 0 && uncapped > 0) {
+            for (int i = 0; i < sizes.length; i++) {
+                if (!capped[i]) {
+                    if (totalRate > 0) {
+                        sizes[i] = min + (long) (remaining * (rates[i] / totalRate));
+                    } else {
+                        // all the indexing shards got the max, split what is left evenly between the others
+                        sizes[i] = Math.min(max, min + (remaining / uncapped));
+                    }
                 }
             }
         }
-        return shardsCount;
+        return sizes;
     }
 
     static class ShardIndexingStatus {
@@ -232,5 +350,10 @@ public class IndexingMemoryBufferController extends AbstractLifecycleComponent<I
         int translogNumberOfOperations = -1;
         boolean inactive = false;
         long time = -1; // contains the first time we saw this shard with no operations done on it
+
+        long operations = -1; // the number of engine operations the last time we checked
+        long operationsTime = -1;
+        double rate = -1; // the smoothed indexing operations per second
+        ByteSizeValue bufferSize; // the buffer size last set on an active shard
     }
 }
@@ -38,6 +38,7 @@ import org.elasticsearch.common.component.LifecycleComponent;
 import org.elasticsearch.common.inject.Injector;
 import org.elasticsearch.common.inject.Injectors;
 import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.common.io.BytesRecycler;
 import org.elasticsearch.common.io.CachedStreams;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
@@ -118,6 +119,8 @@ public final class InternalNode implements Node {
         this.settings = pluginsService.updatedSettings();
         this.environment = tuple.v2();
 
+        BytesRecycler.configure(settings);
+
         ModulesBuilder modules = new ModulesBuilder();
         modules.add(new PluginsModule(settings, pluginsService));
         modules.add(new SettingsModule(settings));
@@ -310,6 +313,7 @@ public final class InternalNode implements Node {
 
         CacheRecycler.clear();
         CachedStreams.clear();
+        BytesRecycler.clear();
         ThreadLocals.clearReferencesThreadLocals();
 
         if (logger.isTraceEnabled()) {
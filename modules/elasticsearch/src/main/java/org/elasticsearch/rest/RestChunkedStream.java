@@ -0,0 +1,47 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+/**
+ * The content of a chunked response started using {@link StreamingRestChannel#startChunkedResponse(RestStatus, String)}.
+ *
+ * @author kimchy (shay.banon)
+ */
+public interface RestChunkedStream {
+
+    /**
+     * Writes a chunk. The listener is notified once the chunk has been written to the underlying
+     * connection (and not just queued), allowing to produce the next chunk only when the client keeps
+     * up. The bytes should not be modified until the listener is notified.
+     */
+    void write(byte[] bytes, int offset, int length, WriteListener listener);
+
+    /**
+     * Ends the response.
+     */
+    void close();
+
+    static interface WriteListener {
+
+        void onWritten();
+
+        void onFailure(Throwable t);
+    }
+}
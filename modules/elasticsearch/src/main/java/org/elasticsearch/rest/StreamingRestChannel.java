@@ -0,0 +1,34 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+/**
+ * A {@link RestChannel} that can stream a response in chunks, without building the whole
+ * content in memory before sending it.
+ *
+ * @author kimchy (shay.banon)
+ */
+public interface StreamingRestChannel extends RestChannel {
+
+    /**
+     * Starts a chunked response, the returned stream is used to write its content.
+     */
+    RestChunkedStream startChunkedResponse(RestStatus status, String contentType);
+}
@@ -80,6 +80,12 @@ public class RestNodesStatsAction extends BaseRestHandler {
                         if (nodeStats.transport() != null) {
                             nodeStats.transport().toXContent(builder, request);
                         }
+                        if (nodeStats.bytesRecycler() != null) {
+                            nodeStats.bytesRecycler().toXContent(builder, request);
+                        }
+                        if (nodeStats.indexingBuffer() != null) {
+                            nodeStats.indexingBuffer().toXContent(builder, request);
+                        }
 
                         builder.endObject();
                     }
@@ -0,0 +1,227 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.SearchOperationThreading;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+import static org.elasticsearch.rest.RestRequest.Method.*;
+import static org.elasticsearch.rest.RestStatus.*;
+import static org.elasticsearch.rest.action.support.RestXContentBuilder.*;
+
+/**
+ * Exports all the hits matching a search request, streaming them as a chunked response with
+ * one hit (as json) per line. The hits are scanned internally (<tt>scan</tt> search type) and each
+ * round is only executed once the previous one has been written to the client, so memory stays
+ * bounded by a single round (<tt>size</tt> hits per shard) regardless of the number of hits.
+ * If some shards fail to start the scan, the request fails with an <tt>error</tt>, and if a failure happens
+ * once streaming started, a last line with an <tt>error</tt> field is written.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class RestExportAction extends BaseRestHandler {
+
+    private final TimeValue defaultKeepAlive;
+
+    @Inject public RestExportAction(Settings settings, Client client, RestController controller) {
+        super(settings, client);
+        this.defaultKeepAlive = componentSettings.getAsTime("keep_alive", TimeValue.timeValueMinutes(5));
+        controller.registerHandler(GET, "/_export", this);
+        controller.registerHandler(POST, "/_export", this);
+        controller.registerHandler(GET, "/{index}/_export", this);
+        controller.registerHandler(POST, "/{index}/_export", this);
+        controller.registerHandler(GET, "/{index}/{type}/_export", this);
+        controller.registerHandler(POST, "/{index}/{type}/_export", this);
+    }
+
+    @Override public void handleRequest(final RestRequest request, final RestChannel channel) {
+        final Scroll scroll;
+        SearchRequest searchRequest;
+        try {
+            if (!(channel instanceof StreamingRestChannel)) {
+                throw new ElasticSearchIllegalArgumentException("export is not supported over [" + channel.getClass().getSimpleName() + "], it requires streaming responses");
+            }
+            searchRequest = RestSearchAction.parseSearchRequest(request);
+            searchRequest.searchType(SearchType.SCAN);
+            scroll = new Scroll(request.paramAsTime("scroll", defaultKeepAlive));
+            searchRequest.scroll(scroll);
+            searchRequest.listenerThreaded(false);
+            searchRequest.operationThreading(SearchOperationThreading.SINGLE_THREAD);
+        } catch (Exception e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("failed to parse export request parameters", e);
+            }
+            try {
+                XContentBuilder builder = restContentBuilder(request);
+                channel.sendResponse(new XContentRestResponse(request, BAD_REQUEST, builder.startObject().field("error", e.getMessage()).endObject()));
+            } catch (IOException e1) {
+                logger.error("Failed to send failure response", e1);
+            }
+            return;
+        }
+        client.search(searchRequest, new ActionListener<SearchResponse>() {
+            @Override public void onResponse(SearchResponse response) {
+                if (response.failedShards() > 0) {
+                    // do not export partial results, nothing has been streamed yet so fail the request
+                    try {
+                        XContentBuilder builder = restContentBuilder(request);
+                        builder.startObject().field("error", response.shardFailures()[0].reason()).endObject();
+                        channel.sendResponse(new XContentRestResponse(request, INTERNAL_SERVER_ERROR, builder));
+                    } catch (IOException e) {
+                        logger.error("Failed to send failure response", e);
+                    }
+                    return;
+                }
+                // only start the stream once the scan started, so failures so far get a proper status
+                RestChunkedStream stream = ((StreamingRestChannel) channel).startChunkedResponse(OK, XContentType.JSON.restContentType());
+                new Export(request, stream, scroll, response.scrollId()).next();
+            }
+
+            @Override public void onFailure(Throwable e) {
+                try {
+                    channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                } catch (IOException e1) {
+                    logger.error("Failed to send failure response", e1);
+                }
+            }
+        });
+    }
+
+    private class Export implements ActionListener<SearchResponse> {
+
+        private final RestRequest request;
+
+        private final RestChunkedStream stream;
+
+        private final Scroll scroll;
+
+        // reused across rounds, the next round only starts once the previous one has been written
+        private final BytesStreamOutput out = new BytesStreamOutput();
+
+        private String scrollId;
+
+        private Export(RestRequest request, RestChunkedStream stream, Scroll scroll, String scrollId) {
+            this.request = request;
+            this.stream = stream;
+            this.scroll = scroll;
+            this.scrollId = scrollId;
+        }
+
+        void next() {
+            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId).scroll(scroll);
+            scrollRequest.listenerThreaded(false);
+            scrollRequest.operationThreading(SearchOperationThreading.SINGLE_THREAD);
+            client.searchScroll(scrollRequest, this);
+        }
+
+        @Override public void onResponse(SearchResponse response) {
+            SearchHit[] hits = response.hits().hits();
+            if (hits.length == 0) {
+                stream.close();
+                return;
+            }
+            scrollId = response.scrollId();
+            out.reset();
+            try {
+                for (SearchHit hit : hits) {
+                    XContentBuilder builder = XContentFactory.jsonBuilder();
+                    hit.toXContent(builder, request);
+                    out.writeBytes(builder.unsafeBytes(), 0, builder.unsafeBytesLength());
+                    out.writeByte((byte) '\n');
+                }
+                if (response.failedShards() > 0) {
+                    // do not silently export partial results, end it with the failure
+                    writeError(response.shardFailures()[0].reason());
+                    stream.write(out.unsafeByteArray(), 0, out.size(), new ClosingListener());
+                    return;
+                }
+            } catch (Exception e) {
+                onFailure(e);
+                return;
+            }
+            stream.write(out.unsafeByteArray(), 0, out.size(), new NextRoundListener());
+        }
+
+        @Override public void onFailure(Throwable e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("failed to export [{}]", e, scrollId);
+            }
+            try {
+                out.reset();
+                writeError(ExceptionsHelper.detailedMessage(e));
+                stream.write(out.unsafeByteArray(), 0, out.size(), new ClosingListener());
+            } catch (Exception e1) {
+                logger.error("Failed to write export failure", e1);
+                stream.close();
+            }
+        }
+
+        private void writeError(String error) throws IOException {
+            XContentBuilder builder = XContentFactory.jsonBuilder();
+            builder.startObject().field("error", error).endObject();
+            out.writeBytes(builder.unsafeBytes(), 0, builder.unsafeBytesLength());
+            out.writeByte((byte) '\n');
+        }
+
+        private class NextRoundListener implements RestChunkedStream.WriteListener {
+
+            @Override public void onWritten() {
+                next();
+            }
+
+            @Override public void onFailure(Throwable t) {
+                // the client went away, stop scanning and let the scroll expire
+                if (logger.isDebugEnabled()) {
+                    logger.debug("failed to write export response, stopping [{}]", t, scrollId);
+                }
+            }
+        }
+
+        private class ClosingListener implements RestChunkedStream.WriteListener {
+
+            @Override public void onWritten() {
+                stream.close();
+            }
+
+            @Override public void onFailure(Throwable t) {
+                // the client went away, nothing more to write
+            }
+        }
+    }
+}
@@ -118,7 +118,7 @@ public class RestSearchAction extends BaseRestHandler {
         });
     }
 
-    private SearchRequest parseSearchRequest(RestRequest request) {
+    static SearchRequest parseSearchRequest(RestRequest request) {
         String[] indices = RestActions.splitIndices(request.param("index"));
         SearchRequest searchRequest = new SearchRequest(indices);
         // get the content, and put it in the body
@@ -149,7 +149,7 @@ public class RestSearchAction extends BaseRestHandler {
         return searchRequest;
     }
 
-    private SearchSourceBuilder parseSearchSource(RestRequest request) {
+    static SearchSourceBuilder parseSearchSource(RestRequest request) {
         SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
         String queryString = request.param("q");
         if (queryString != null) {
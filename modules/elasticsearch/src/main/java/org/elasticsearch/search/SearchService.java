@@ -19,22 +19,29 @@
 
 package org.elasticsearch.search;
 
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.common.BytesWrap;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.collect.ImmutableMap;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+import org.elasticsearch.common.util.concurrent.DynamicExecutors;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.query.result.QueryResultCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -45,6 +52,7 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.dfs.CachedDfSource;
 import org.elasticsearch.search.dfs.DfsPhase;
 import org.elasticsearch.search.dfs.DfsSearchResult;
+import org.elasticsearch.search.facet.InternalFacets;
 import org.elasticsearch.search.fetch.*;
 import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchRequest;
@@ -55,6 +63,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -84,6 +93,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final ScheduledFuture keepAliveReaper;
 
+    private final int segmentConcurrency;
+
+    private final ExecutorService segmentExecutor;
+
 
     private final AtomicLong idGenerator = new AtomicLong();
 
@@ -108,6 +121,16 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         // we can have 5 minutes here, since we make sure to clean with search requests and when shard/index closes
         this.defaultKeepAlive = componentSettings.getAsTime("default_keep_alive", timeValueMinutes(5)).millis();
 
+        // the number of slices the segments of a shard are collected concurrently in by a single search, 1 to disable
+        this.segmentConcurrency = componentSettings.getAsInt("segment_concurrency", 1);
+        if (segmentConcurrency > 1) {
+            int segmentPoolSize = componentSettings.getAsInt("segment_pool_size", Runtime.getRuntime().availableProcessors());
+            this.segmentExecutor = DynamicExecutors.newScalingThreadPool(0, segmentPoolSize, timeValueSeconds(60).millis(), EsExecutors.daemonThreadFactory(settings, "[search_segment]"));
+            logger.debug("using segment_concurrency [{}], segment_pool_size [{}]", segmentConcurrency, segmentPoolSize);
+        } else {
+            this.segmentExecutor = null;
+        }
+
         Map<String, SearchParseElement> elementParsers = new HashMap<String, SearchParseElement>();
         elementParsers.putAll(dfsPhase.parseElements());
         elementParsers.putAll(queryPhase.parseElements());
@@ -131,6 +154,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     @Override protected void doClose() throws ElasticSearchException {
         keepAliveReaper.cancel(false);
         indicesService.indicesLifecycle().removeListener(indicesLifecycleListener);
+        if (segmentExecutor != null) {
+            segmentExecutor.shutdownNow();
+        }
     }
 
     public void releaseContextsForIndex(Index index) {
@@ -219,7 +245,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         activeContexts.put(context.id(), context);
         try {
             contextProcessing(context);
-            queryPhase.execute(context);
+            loadOrExecuteQueryPhase(request, context);
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
@@ -277,7 +303,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         activeContexts.put(context.id(), context);
         contextProcessing(context);
         try {
-            queryPhase.execute(context);
+            loadOrExecuteQueryPhase(request, context);
             shortcutDocIdsToLoad(context);
             fetchPhase.execute(context);
             if (context.scroll() == null) {
@@ -364,6 +390,55 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
+    /**
+     * Requests that don't return any hits (count, or facets only) are served from the query result cache if enabled,
+     * they are cached by the request and the reader they executed on.
+     */
+    private void loadOrExecuteQueryPhase(InternalSearchRequest request, SearchContext context) throws ElasticSearchException {
+        QueryResultCache queryResultCache = context.queryResultCache();
+        if (!queryResultCache.enabled() || context.scroll() != null || (context.searchType() != SearchType.COUNT && context.size() != 0)) {
+            queryPhase.execute(context);
+            return;
+        }
+        IndexReader reader = context.searcher().getIndexReader();
+        try {
+            BytesStreamOutput out = new BytesStreamOutput();
+            out.writeByte(context.searchType().id());
+            out.writeVInt(context.from());
+            out.writeVInt(context.size());
+            out.writeVInt(request.types().length);
+            for (String type : request.types()) {
+                out.writeUTF(type);
+            }
+            out.writeVInt(request.sourceLength());
+            if (request.sourceLength() > 0) {
+                out.writeBytes(request.source(), request.sourceOffset(), request.sourceLength());
+            }
+            out.writeVInt(request.extraSourceLength());
+            if (request.extraSourceLength() > 0) {
+                out.writeBytes(request.extraSource(), request.extraSourceOffset(), request.extraSourceLength());
+            }
+            BytesWrap key = new BytesWrap(out.copiedByteArray());
+
+            byte[] cachedResult = queryResultCache.get(reader, key);
+            if (cachedResult != null) {
+                QuerySearchResult result = QuerySearchResult.readQuerySearchResult(new BytesStreamInput(cachedResult));
+                context.queryResult().topDocs(result.topDocs());
+                context.queryResult().facets((InternalFacets) result.facets());
+                return;
+            }
+
+            queryPhase.execute(context);
+            if (!context.queryResult().searchTimedOut()) {
+                out.reset();
+                context.queryResult().writeTo(out);
+                queryResultCache.put(reader, key, out.copiedByteArray());
+            }
+        } catch (IOException e) {
+            throw new QueryPhaseExecutionException(context, "Failed to load or cache the query result", e);
+        }
+    }
+
     private SearchContext findContext(long id) throws SearchContextMissingException {
         SearchContext context = activeContexts.get(id);
         if (context == null) {
@@ -384,6 +459,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         SearchContext.setCurrent(context);
         try {
             context.scroll(request.scroll());
+            context.searcher().slices(segmentExecutor, segmentConcurrency);
 
             parseSource(context, request.source(), request.sourceOffset(), request.sourceLength());
             parseSource(context, request.extraSource(), request.extraSourceOffset(), request.extraSourceLength());
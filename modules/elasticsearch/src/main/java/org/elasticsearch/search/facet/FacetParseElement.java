@@ -22,13 +22,16 @@ package org.elasticsearch.search.facet;
 import org.apache.lucene.search.Filter;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.query.xcontent.XContentIndexQueryParser;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchParseException;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.SearchContext;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -62,6 +65,9 @@ public class FacetParseElement implements SearchParseElement {
         XContentParser.Token token;
 
         List<FacetCollector> facetCollectors = null;
+        List<FacetCollector[]> sliceCollectors = null;
+
+        int numberOfSlices = context.searcher().numberOfSlices();
 
         String topLevelFieldName = null;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
@@ -69,6 +75,8 @@ public class FacetParseElement implements SearchParseElement {
                 topLevelFieldName = parser.currentName();
             } else if (token == XContentParser.Token.START_OBJECT) {
                 FacetCollector facet = null;
+                FacetProcessor facetProcessor = null;
+                byte[] facetSource = null;
                 String scope = ContextIndexSearcher.Scopes.MAIN;
                 String facetFieldName = null;
                 Filter filter = null;
@@ -81,11 +89,17 @@ public class FacetParseElement implements SearchParseElement {
                             XContentIndexQueryParser indexQueryParser = (XContentIndexQueryParser) context.queryParser();
                             filter = indexQueryParser.parseInnerFilter(parser);
                         } else {
-                            FacetProcessor facetProcessor = facetProcessors.processor(facetFieldName);
+                            facetProcessor = facetProcessors.processor(facetFieldName);
                             if (facetProcessor == null) {
                                 throw new SearchParseException(context, "No facet type found for [" + facetFieldName + "]");
                             }
-                            facet = facetProcessor.parse(topLevelFieldName, parser, context);
+                            if (numberOfSlices > 1) {
+                                // we might need to create a collector per slice, keep the facet source around
+                                facetSource = XContentFactory.contentBuilder(parser.contentType()).copyCurrentStructure(parser).copiedBytes();
+                                facet = parseFacet(facetProcessor, topLevelFieldName, parser.contentType(), facetSource, context);
+                            } else {
+                                facet = facetProcessor.parse(topLevelFieldName, parser, context);
+                            }
                         }
                     } else if (token.isValue()) {
                         if ("global".equals(facetFieldName)) {
@@ -99,21 +113,48 @@ public class FacetParseElement implements SearchParseElement {
                         }
                     }
                 }
+                FacetCollector[] facetSlices = null;
+                if (facetSource != null && ContextIndexSearcher.Scopes.MAIN.equals(scope)) {
+                    facetSlices = new FacetCollector[numberOfSlices];
+                    facetSlices[0] = facet;
+                    for (int i = 1; i < numberOfSlices; i++) {
+                        facetSlices[i] = parseFacet(facetProcessor, topLevelFieldName, parser.contentType(), facetSource, context);
+                    }
+                }
+
                 if (filter != null) {
                     if (cacheFilter) {
                         filter = context.filterCache().cache(filter);
                     }
                     facet.setFilter(filter);
+                    if (facetSlices != null) {
+                        for (int i = 1; i < facetSlices.length; i++) {
+                            facetSlices[i].setFilter(filter);
+                        }
+                    }
                 }
 
                 if (facetCollectors == null) {
                     facetCollectors = Lists.newArrayList();
+                    sliceCollectors = Lists.newArrayList();
                 }
                 facetCollectors.add(facet);
-                context.searcher().addCollector(scope, facet);
+                sliceCollectors.add(facetSlices);
+                context.searcher().addCollector(scope, facet, facetSlices);
             }
         }
 
-        context.facets(new SearchContextFacets(facetCollectors));
+        context.facets(new SearchContextFacets(facetCollectors, sliceCollectors));
+    }
+
+    private FacetCollector parseFacet(FacetProcessor facetProcessor, String facetName, XContentType contentType, byte[] facetSource, SearchContext context) throws IOException {
+        XContentParser parser = XContentFactory.xContent(contentType).createParser(facetSource);
+        try {
+            // move to the start object of the facet
+            parser.nextToken();
+            return facetProcessor.parse(facetName, parser, context);
+        } finally {
+            parser.close();
+        }
     }
 }
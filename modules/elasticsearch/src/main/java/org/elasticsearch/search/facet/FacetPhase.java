@@ -47,9 +47,12 @@ public class FacetPhase implements SearchPhase {
 
     private final FacetBinaryParseElement facetBinaryParseElement;
 
-    @Inject public FacetPhase(FacetParseElement facetParseElement, FacetBinaryParseElement facetBinaryParseElement) {
+    private final FacetProcessors facetProcessors;
+
+    @Inject public FacetPhase(FacetParseElement facetParseElement, FacetBinaryParseElement facetBinaryParseElement, FacetProcessors facetProcessors) {
         this.facetParseElement = facetParseElement;
         this.facetBinaryParseElement = facetBinaryParseElement;
+        this.facetProcessors = facetProcessors;
     }
 
     @Override public Map<String, ? extends SearchParseElement> parseElements() {
@@ -117,8 +120,19 @@ public class FacetPhase implements SearchPhase {
 
         List<Facet> facets = Lists.newArrayListWithCapacity(2);
         if (contextFacets.facetCollectors() != null) {
-            for (FacetCollector facetCollector : contextFacets.facetCollectors()) {
-                facets.add(facetCollector.facet());
+            for (int i = 0; i < contextFacets.facetCollectors().size(); i++) {
+                FacetCollector[] sliceCollectors = contextFacets.sliceCollectors(i);
+                if (sliceCollectors == null) {
+                    facets.add(contextFacets.facetCollectors().get(i).facet());
+                } else {
+                    // reduce the facets collected on each slice of the segments
+                    List<Facet> sliceFacets = Lists.newArrayListWithCapacity(sliceCollectors.length);
+                    for (FacetCollector sliceCollector : sliceCollectors) {
+                        sliceFacets.add(sliceCollector.facet());
+                    }
+                    Facet facet = sliceFacets.get(0);
+                    facets.add(facetProcessors.processor(facet.type()).reduce(facet.name(), sliceFacets));
+                }
             }
         }
         context.queryResult().facets(new InternalFacets(facets));
@@ -28,11 +28,32 @@ public class SearchContextFacets {
 
     private final List<FacetCollector> facetCollectors;
 
+    private final List<FacetCollector[]> sliceCollectors;
+
     public SearchContextFacets(List<FacetCollector> facetCollectors) {
+        this(facetCollectors, null);
+    }
+
+    /**
+     * @param sliceCollectors Index aligned with the facet collectors, the per slice collectors of each facet
+     *                        (starting with the facet collector itself), or <tt>null</tt> if not collected in slices.
+     */
+    public SearchContextFacets(List<FacetCollector> facetCollectors, List<FacetCollector[]> sliceCollectors) {
         this.facetCollectors = facetCollectors;
+        this.sliceCollectors = sliceCollectors;
     }
 
     public List<FacetCollector> facetCollectors() {
         return facetCollectors;
     }
+
+    /**
+     * The per slice collectors of the facet collector at the provided index, <tt>null</tt> if it was not sliced.
+     */
+    public FacetCollector[] sliceCollectors(int index) {
+        if (sliceCollectors == null) {
+            return null;
+        }
+        return sliceCollectors.get(index);
+    }
 }
@@ -118,7 +118,7 @@ public class TermsDoubleOrdinalsFacetCollector extends AbstractFacetCollector {
     @Override protected void doSetNextReader(IndexReader reader, int docBase) throws IOException {
         if (current != null) {
             missing += current.counts[0];
-            if (current.values.length > 1) {
+            if (current.numValues > 1) {
                 aggregators.add(current);
             }
         }
@@ -134,7 +134,7 @@ public class TermsDoubleOrdinalsFacetCollector extends AbstractFacetCollector {
         if (current != null) {
             missing += current.counts[0];
             // if we have values for this one, add it
-            if (current.values.length > 1) {
+            if (current.numValues > 1) {
                 aggregators.add(current);
             }
         }
@@ -211,15 +211,18 @@ public class TermsDoubleOrdinalsFacetCollector extends AbstractFacetCollector {
 
     public static class ReaderAggregator implements FieldData.OrdinalInDocProc {
 
-        final double[] values;
+        final DoubleFieldData fieldData;
+        final int numValues;
         final int[] counts;
 
         int position = 0;
         double current;
 
         public ReaderAggregator(DoubleFieldData fieldData) {
-            this.values = fieldData.values();
-            this.counts = CacheRecycler.popIntArray(fieldData.values().length);
+            // read the values by ordinal, so direct field data does not get copied to the heap
+            this.fieldData = fieldData;
+            this.numValues = fieldData.numValues();
+            this.counts = CacheRecycler.popIntArray(numValues);
         }
 
         @Override public void onOrdinal(int docId, int ordinal) {
@@ -227,10 +230,10 @@ public class TermsDoubleOrdinalsFacetCollector extends AbstractFacetCollector {
         }
 
         public boolean nextPosition() {
-            if (++position >= values.length) {
+            if (++position >= numValues) {
                 return false;
             }
-            current = values[position];
+            current = fieldData.valueByOrdinal(position);
             return true;
         }
     }
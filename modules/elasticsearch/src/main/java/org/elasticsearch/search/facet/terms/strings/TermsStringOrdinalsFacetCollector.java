@@ -124,7 +124,7 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
             }
         }
         fieldData = (StringFieldData) fieldDataCache.cache(fieldDataType, reader, indexFieldName);
-        current = new ReaderAggregator(fieldData);
+        current = new ReaderAggregator(fieldData, minCount < 0);
     }
 
     @Override protected void doCollect(int doc) throws IOException {
@@ -170,6 +170,20 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
                 } while (agg != null && value.equals(agg.current));
 
                 if (count > minCount) {
+                    // check against the least competitive entry before resolving the term into an entry
+                    if (ordered.size() == size) {
+                        TermsFacet.Entry bottom = ordered.top();
+                        if (comparatorType == TermsFacet.ComparatorType.COUNT && count < bottom.count()) {
+                            continue;
+                        }
+                        if (comparatorType == TermsFacet.ComparatorType.REVERSE_COUNT && count > bottom.count()) {
+                            continue;
+                        }
+                        if (comparatorType == TermsFacet.ComparatorType.TERM) {
+                            // terms are merged in order, so all the next ones will sort after the ones we have
+                            break;
+                        }
+                    }
                     if (excluded != null && excluded.contains(value)) {
                         continue;
                     }
@@ -205,10 +219,14 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
             } while (agg != null && value.equals(agg.current));
 
             if (count > minCount) {
-                if (excluded == null || !excluded.contains(value)) {
-                    InternalStringTermsFacet.StringEntry entry = new InternalStringTermsFacet.StringEntry(value, count);
-                    ordered.add(entry);
+                if (excluded != null && excluded.contains(value)) {
+                    continue;
+                }
+                if (matcher != null && !matcher.reset(value).matches()) {
+                    continue;
                 }
+                InternalStringTermsFacet.StringEntry entry = new InternalStringTermsFacet.StringEntry(value, count);
+                ordered.add(entry);
             }
         }
         return new InternalStringTermsFacet(facetName, comparatorType, size, ordered, missing);
@@ -218,13 +236,15 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
 
         final String[] values;
         final int[] counts;
+        final boolean allTerms;
 
         int position = 0;
         String current;
 
-        public ReaderAggregator(StringFieldData fieldData) {
+        public ReaderAggregator(StringFieldData fieldData, boolean allTerms) {
             this.values = fieldData.values();
-            this.counts = CacheRecycler.popIntArray(fieldData.values().length);
+            this.counts = CacheRecycler.popIntArray(values.length);
+            this.allTerms = allTerms;
         }
 
         @Override public void onOrdinal(int docId, int ordinal) {
@@ -232,9 +252,12 @@ public class TermsStringOrdinalsFacetCollector extends AbstractFacetCollector {
         }
 
         public boolean nextPosition() {
-            if (++position >= values.length) {
-                return false;
-            }
+            // only terms that were counted take part in the merge, unless all terms are requested
+            do {
+                if (++position >= values.length) {
+                    return false;
+                }
+            } while (!allTerms && counts[position] == 0);
             current = values[position];
             return true;
         }
@@ -28,11 +28,20 @@ import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.MultiCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.search.controller.ScoreDocQueue;
+import org.elasticsearch.search.controller.ShardFieldDoc;
+import org.elasticsearch.search.controller.ShardScoreDoc;
 import org.elasticsearch.search.dfs.CachedDfSource;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author kimchy (shay.banon)
@@ -53,8 +62,16 @@ public class ContextIndexSearcher extends ExtendedIndexSearcher {
 
     private Map<String, List<Collector>> scopeCollectors;
 
+    // per scope, the collectors to use for each slice (index aligned with scopeCollectors, null if it can't be sliced)
+    private Map<String, List<Collector[]>> scopeSliceCollectors;
+
     private String processingScope;
 
+    private ExecutorService sliceExecutor;
+
+    // the sub readers (by index) each slice collects, null when searching sequentially
+    private int[][] slices;
+
     public ContextIndexSearcher(SearchContext searchContext, Engine.Searcher searcher) {
         super(searcher.searcher());
         this.searchContext = searchContext;
@@ -65,19 +82,86 @@ public class ContextIndexSearcher extends ExtendedIndexSearcher {
         this.dfSource = dfSource;
     }
 
+    /**
+     * Enables collecting the segments concurrently, split into up to <tt>concurrency</tt> slices of roughly
+     * the same number of docs, each slice executed on the provided executor. A no op if there is a single segment.
+     */
+    public void slices(ExecutorService executor, int concurrency) {
+        final IndexReader[] readers = subReaders;
+        int numberOfSlices = Math.min(concurrency, readers.length);
+        if (executor == null || numberOfSlices <= 1) {
+            return;
+        }
+        // assign the largest segments first, each to the slice with the least docs so far
+        Integer[] order = new Integer[readers.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override public int compare(Integer o1, Integer o2) {
+                return readers[o2].maxDoc() - readers[o1].maxDoc();
+            }
+        });
+        List<List<Integer>> assigned = Lists.newArrayListWithCapacity(numberOfSlices);
+        long[] sliceDocs = new long[numberOfSlices];
+        for (int i = 0; i < numberOfSlices; i++) {
+            assigned.add(Lists.<Integer>newArrayList());
+        }
+        for (Integer readerIndex : order) {
+            int slice = 0;
+            for (int i = 1; i < numberOfSlices; i++) {
+                if (sliceDocs[i] < sliceDocs[slice]) {
+                    slice = i;
+                }
+            }
+            assigned.get(slice).add(readerIndex);
+            sliceDocs[slice] += readers[readerIndex].maxDoc();
+        }
+        this.slices = new int[numberOfSlices][];
+        for (int i = 0; i < numberOfSlices; i++) {
+            List<Integer> readerIndices = assigned.get(i);
+            slices[i] = new int[readerIndices.size()];
+            for (int j = 0; j < slices[i].length; j++) {
+                slices[i][j] = readerIndices.get(j);
+            }
+            Arrays.sort(slices[i]);
+        }
+        this.sliceExecutor = executor;
+    }
+
+    /**
+     * The number of slices the segments are collected in, <tt>1</tt> when searching sequentially.
+     */
+    public int numberOfSlices() {
+        return slices == null ? 1 : slices.length;
+    }
+
     public void addCollector(String scope, Collector collector) {
+        addCollector(scope, collector, null);
+    }
+
+    /**
+     * Adds a collector to the scope, with optional per slice collectors ({@link #numberOfSlices()} of them, the
+     * first being the collector itself) that are used when the scope is collected concurrently. Once
+     * collected, the results of all the slice collectors should be reduced.
+     */
+    public void addCollector(String scope, Collector collector, Collector[] sliceCollectors) {
         if (scopeCollectors == null) {
             scopeCollectors = Maps.newHashMap();
+            scopeSliceCollectors = Maps.newHashMap();
         }
         List<Collector> collectors = scopeCollectors.get(scope);
         if (collectors == null) {
             collectors = Lists.newArrayList();
             scopeCollectors.put(scope, collectors);
+            scopeSliceCollectors.put(scope, Lists.<Collector[]>newArrayList());
         }
         collectors.add(collector);
+        scopeSliceCollectors.get(scope).add(sliceCollectors);
     }
 
     public List<Collector> removeCollectors(String scope) {
+        scopeSliceCollectors.remove(scope);
         return scopeCollectors.remove(scope);
     }
 
@@ -100,6 +184,7 @@ public class ContextIndexSearcher extends ExtendedIndexSearcher {
         // do it again)
         if (scopeCollectors != null) {
             scopeCollectors.remove(processingScope);
+            scopeSliceCollectors.remove(processingScope);
         }
         this.processingScope = Scopes.NA;
     }
@@ -125,6 +210,54 @@ public class ContextIndexSearcher extends ExtendedIndexSearcher {
         return query.weight(dfSource);
     }
 
+    /**
+     * Executes the query, collecting each slice with its own collector (<tt>collectors</tt> holds
+     * {@link #numberOfSlices()} collectors). If the segments can't be collected concurrently, the first
+     * collector collects all of them.
+     */
+    public void search(Query query, Collector[] collectors) throws IOException {
+        Weight weight = createWeight(query);
+        if (!canSearchSlices(null)) {
+            search(weight, null, collectors[0]);
+            return;
+        }
+        searchSlices(weight, collectors);
+    }
+
+    @Override public TopDocs search(Weight weight, Filter filter, int nDocs) throws IOException {
+        if (!canSearchSlices(filter)) {
+            return super.search(weight, filter, nDocs);
+        }
+        int limit = reader.maxDoc();
+        if (limit == 0) {
+            limit = 1;
+        }
+        nDocs = Math.min(nDocs, limit);
+
+        TopScoreDocCollector[] collectors = new TopScoreDocCollector[slices.length];
+        for (int i = 0; i < collectors.length; i++) {
+            collectors[i] = TopScoreDocCollector.create(nDocs, !weight.scoresDocsOutOfOrder());
+        }
+        searchSlices(weight, collectors);
+
+        ScoreDocQueue queue = new ScoreDocQueue(nDocs);
+        int totalHits = 0;
+        float maxScore = Float.NaN;
+        for (TopScoreDocCollector collector : collectors) {
+            TopDocs topDocs = collector.topDocs();
+            totalHits += topDocs.totalHits;
+            maxScore = maxScore(maxScore, topDocs.getMaxScore());
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                queue.insertWithOverflow(new ShardScoreDoc(searchContext.shardTarget(), scoreDoc.doc, scoreDoc.score));
+            }
+        }
+        ScoreDoc[] scoreDocs = new ScoreDoc[queue.size()];
+        for (int i = scoreDocs.length - 1; i >= 0; i--) {
+            scoreDocs[i] = queue.pop();
+        }
+        return new TopDocs(totalHits, scoreDocs, maxScore);
+    }
+
     // override from the Searcher to allow to control if scores will be tracked or not
     // LUCENE MONITOR - We override the logic here to apply our own flags for track scores
     @Override public TopFieldDocs search(Weight weight, Filter filter, int nDocs,
@@ -135,13 +268,61 @@ public class ContextIndexSearcher extends ExtendedIndexSearcher {
         }
         nDocs = Math.min(nDocs, limit);
 
-        TopFieldCollector collector = TopFieldCollector.create(sort, nDocs,
-                fillFields, searchContext.trackScores(), searchContext.trackScores(), !weight.scoresDocsOutOfOrder());
-        search(weight, filter, collector);
-        return (TopFieldDocs) collector.topDocs();
+        if (!canSearchSlices(filter)) {
+            TopFieldCollector collector = TopFieldCollector.create(sort, nDocs,
+                    fillFields, searchContext.trackScores(), searchContext.trackScores(), !weight.scoresDocsOutOfOrder());
+            search(weight, filter, collector);
+            return (TopFieldDocs) collector.topDocs();
+        }
+
+        // the sort values are needed to merge the slices top docs, so always fill them
+        TopFieldCollector[] collectors = new TopFieldCollector[slices.length];
+        for (int i = 0; i < collectors.length; i++) {
+            collectors[i] = TopFieldCollector.create(sort, nDocs,
+                    true, searchContext.trackScores(), searchContext.trackScores(), !weight.scoresDocsOutOfOrder());
+        }
+        searchSlices(weight, collectors);
+
+        SortField[] fields = null;
+        ShardFieldDocSortedHitQueue queue = null;
+        int totalHits = 0;
+        float maxScore = Float.NaN;
+        for (TopFieldCollector collector : collectors) {
+            TopFieldDocs topDocs = (TopFieldDocs) collector.topDocs();
+            if (queue == null) {
+                fields = topDocs.fields;
+                queue = new ShardFieldDocSortedHitQueue(fields, nDocs);
+            }
+            totalHits += topDocs.totalHits;
+            maxScore = maxScore(maxScore, topDocs.getMaxScore());
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                queue.insertWithOverflow(new ShardFieldDoc(searchContext.shardTarget(), scoreDoc.doc, scoreDoc.score, ((FieldDoc) scoreDoc).fields));
+            }
+        }
+        ScoreDoc[] scoreDocs = new ScoreDoc[queue.size()];
+        for (int i = scoreDocs.length - 1; i >= 0; i--) {
+            scoreDocs[i] = queue.pop();
+        }
+        return new TopFieldDocs(totalHits, scoreDocs, fields, maxScore);
     }
 
     @Override public void search(Weight weight, Filter filter, Collector collector) throws IOException {
+        collector = wrapCollector(collector, scopeCollectors == null ? null : scopeCollectors.get(processingScope));
+
+        // we only compute the doc id set once since within a context, we execute the same query always...
+        if (searchContext.timeout() != null) {
+            searchContext.queryResult().searchTimedOut(false);
+            try {
+                super.search(weight, filter, collector);
+            } catch (TimeLimitingCollector.TimeExceededException e) {
+                searchContext.queryResult().searchTimedOut(true);
+            }
+        } else {
+            super.search(weight, filter, collector);
+        }
+    }
+
+    private Collector wrapCollector(Collector collector, List<Collector> collectors) {
         if (searchContext.parsedFilter() != null && Scopes.MAIN.equals(processingScope)) {
             // this will only get applied to the actual search collector and not
             // to any scoped collectors, also, it will only be applied to the main collector
@@ -151,27 +332,128 @@ public class ContextIndexSearcher extends ExtendedIndexSearcher {
         if (searchContext.timeout() != null) {
             collector = new TimeLimitingCollector(collector, searchContext.timeout().millis());
         }
-        if (scopeCollectors != null) {
-            List<Collector> collectors = scopeCollectors.get(processingScope);
-            if (collectors != null && !collectors.isEmpty()) {
-                collector = new MultiCollector(collector, collectors.toArray(new Collector[collectors.size()]));
-            }
+        if (collectors != null && !collectors.isEmpty()) {
+            collector = new MultiCollector(collector, collectors.toArray(new Collector[collectors.size()]));
         }
         // apply the minimum score after multi collector so we filter facets as well
         if (searchContext.minimumScore() != null) {
             collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
         }
+        return collector;
+    }
 
-        // we only compute the doc id set once since within a context, we execute the same query always...
+    /**
+     * Slices can be collected concurrently only when all the collectors of the processed scope provide per slice
+     * collectors, and no script is used (the search lookup scripts work against is not thread safe).
+     */
+    private boolean canSearchSlices(Filter filter) {
+        if (slices == null || filter != null || searchContext.hasLookup()) {
+            return false;
+        }
+        if (scopeCollectors == null || !scopeCollectors.containsKey(processingScope)) {
+            return true;
+        }
+        for (Collector[] sliceCollectors : scopeSliceCollectors.get(processingScope)) {
+            if (sliceCollectors == null || sliceCollectors.length != slices.length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void searchSlices(final Weight weight, Collector[] collectors) throws IOException {
+        List<Collector[]> sliceScopeCollectors = scopeSliceCollectors == null ? null : scopeSliceCollectors.get(processingScope);
+        final Collector[] sliceCollectors = new Collector[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            List<Collector> scoped = null;
+            if (sliceScopeCollectors != null) {
+                scoped = Lists.newArrayListWithCapacity(sliceScopeCollectors.size());
+                for (Collector[] scopeCollector : sliceScopeCollectors) {
+                    scoped.add(scopeCollector[i]);
+                }
+            }
+            sliceCollectors[i] = wrapCollector(collectors[i], scoped);
+        }
+
+        List<Future<Boolean>> futures = Lists.newArrayListWithCapacity(slices.length - 1);
+        for (int i = 1; i < slices.length; i++) {
+            final int slice = i;
+            futures.add(sliceExecutor.submit(new Callable<Boolean>() {
+                @Override public Boolean call() throws Exception {
+                    return searchSlice(weight, slices[slice], sliceCollectors[slice]);
+                }
+            }));
+        }
+        boolean timedOut = false;
+        Throwable failure = null;
+        // the current thread collects the first slice
+        try {
+            timedOut = searchSlice(weight, slices[0], sliceCollectors[0]);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        // always wait for all the slices, they work against the reader of this searcher
+        boolean interrupted = false;
+        for (Future<Boolean> future : futures) {
+            while (true) {
+                try {
+                    timedOut |= future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IOException("Failed to search segments", failure);
+        }
         if (searchContext.timeout() != null) {
-            searchContext.queryResult().searchTimedOut(false);
-            try {
-                super.search(weight, filter, collector);
-            } catch (TimeLimitingCollector.TimeExceededException e) {
-                searchContext.queryResult().searchTimedOut(true);
+            searchContext.queryResult().searchTimedOut(timedOut);
+        }
+    }
+
+    /**
+     * Collects the slice, returning <tt>true</tt> if it timed out.
+     */
+    private boolean searchSlice(Weight weight, int[] slice, Collector collector) throws IOException {
+        try {
+            for (int readerIndex : slice) {
+                collector.setNextReader(subReaders[readerIndex], docStarts[readerIndex]);
+                Scorer scorer = weight.scorer(subReaders[readerIndex], !collector.acceptsDocsOutOfOrder(), true);
+                if (scorer != null) {
+                    scorer.score(collector);
+                }
             }
-        } else {
-            super.search(weight, filter, collector);
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            return true;
+        }
+        return false;
+    }
+
+    private static float maxScore(float maxScore, float score) {
+        if (Float.isNaN(score)) {
+            return maxScore;
+        }
+        if (Float.isNaN(maxScore)) {
+            return score;
         }
+        return Math.max(maxScore, score);
     }
-}
\ No newline at end of file
+}
@@ -30,8 +30,10 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.field.data.FieldDataCache;
+import org.elasticsearch.index.cache.field.data.support.PrefetchingFieldDataCache;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.query.result.QueryResultCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.query.IndexQueryParser;
@@ -89,6 +91,8 @@ public class SearchContext implements Releasable {
 
     private final ContextIndexSearcher searcher;
 
+    private FieldDataCache fieldDataCache;
+
     private final DfsSearchResult dfsResult;
 
     private final QuerySearchResult queryResult;
@@ -296,13 +300,21 @@ public class SearchContext implements Releasable {
     }
 
     public FieldDataCache fieldDataCache() {
-        return indexService.cache().fieldData();
+        if (fieldDataCache == null) {
+            // loading a field for one segment of the searcher loads it for the others in the background
+            fieldDataCache = new PrefetchingFieldDataCache(indexService.cache().fieldData(), searcher.getSubReaders());
+        }
+        return fieldDataCache;
     }
 
     public IdCache idCache() {
         return indexService.cache().idCache();
     }
 
+    public QueryResultCache queryResultCache() {
+        return indexService.cache().queryResult();
+    }
+
     public TimeValue timeout() {
         return timeout;
     }
@@ -477,6 +489,13 @@ public class SearchContext implements Releasable {
         return searchLookup;
     }
 
+    /**
+     * Returns <tt>true</tt> if a lookup was created for this context, i.e. scripts are used by the request.
+     */
+    public boolean hasLookup() {
+        return searchLookup != null;
+    }
+
     public DfsSearchResult dfsResult() {
         return dfsResult;
     }
@@ -95,6 +95,13 @@ public class SourceLookup implements Map {
         this.docId = -1;
     }
 
+    /**
+     * Sets an already loaded source, for example one read from the transaction log.
+     */
+    public void setNextSource(Map<String, Object> source) {
+        this.source = source;
+    }
+
     public void setNextDocId(int docId) {
         if (this.docId == docId) { // if we are called with the same docId, don't invalidate source
             return;
@@ -192,13 +192,12 @@ public class QueryPhase implements SearchPhase {
             }
 
             if (searchContext.searchType() == SearchType.COUNT) {
-                CountCollector countCollector = new CountCollector();
-                try {
-                    searchContext.searcher().search(query, countCollector);
-                } catch (ScanCollector.StopCollectingException e) {
-                    // all is well
+                CountCollector[] countCollectors = new CountCollector[searchContext.searcher().numberOfSlices()];
+                for (int i = 0; i < countCollectors.length; i++) {
+                    countCollectors[i] = new CountCollector();
                 }
-                topDocs = countCollector.topDocs();
+                searchContext.searcher().search(query, countCollectors);
+                topDocs = CountCollector.topDocs(countCollectors);
             } else if (searchContext.searchType() == SearchType.SCAN) {
                 ScanCollector scanCollector = new ScanCollector(searchContext.from(), searchContext.size());
                 try {
@@ -240,7 +239,11 @@ public class QueryPhase implements SearchPhase {
             return true;
         }
 
-        public TopDocs topDocs() {
+        public static TopDocs topDocs(CountCollector[] collectors) {
+            int totalHits = 0;
+            for (CountCollector collector : collectors) {
+                totalHits += collector.totalHits;
+            }
             return new TopDocs(totalHits, EMPTY, 0);
         }
 
@@ -54,6 +54,7 @@ public class ThreadPool extends AbstractComponent {
         public static final String MANAGEMENT = "management";
         public static final String MERGE = "merge";
         public static final String SNAPSHOT = "snapshot";
+        public static final String FIELD_DATA = "field_data";
     }
 
     private final ImmutableMap<String, Executor> executors;
@@ -79,6 +80,7 @@ public class ThreadPool extends AbstractComponent {
         executors.put(Names.MANAGEMENT, build(Names.MANAGEMENT, "scaling", groupSettings.get(Names.MANAGEMENT), settingsBuilder().put("keep_alive", "30s").put("size", 20).build()));
         executors.put(Names.MERGE, build(Names.MERGE, "scaling", groupSettings.get(Names.MERGE), settingsBuilder().put("keep_alive", "30s").put("size", 20).build()));
         executors.put(Names.SNAPSHOT, build(Names.SNAPSHOT, "scaling", groupSettings.get(Names.SNAPSHOT), ImmutableSettings.Builder.EMPTY_SETTINGS));
+        executors.put(Names.FIELD_DATA, build(Names.FIELD_DATA, "scaling", groupSettings.get(Names.FIELD_DATA), settingsBuilder().put("keep_alive", "60s").put("size", Runtime.getRuntime().availableProcessors()).build()));
         executors.put(Names.SAME, MoreExecutors.sameThreadExecutor());
         this.executors = ImmutableMap.copyOf(executors);
         this.scheduler = Executors.newScheduledThreadPool(1, EsExecutors.daemonThreadFactory(settings, "[scheduler]"));
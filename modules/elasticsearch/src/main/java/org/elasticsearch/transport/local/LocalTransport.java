@@ -135,23 +135,29 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
     }
 
     @Override public <T extends Streamable> void sendRequest(final DiscoveryNode node, final long requestId, final String action, final Streamable message, TransportRequestOptions options) throws IOException, TransportException {
-        HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesBytes();
+        final byte[] data;
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+        try {
+            HandlesStreamOutput stream = cachedEntry.cachedHandlesBytes();
+
+            stream.writeLong(requestId);
+            byte status = 0;
+            status = TransportStreams.statusSetRequest(status);
+            stream.writeByte(status); // 0 for request, 1 for response.
 
-        stream.writeLong(requestId);
-        byte status = 0;
-        status = TransportStreams.statusSetRequest(status);
-        stream.writeByte(status); // 0 for request, 1 for response.
+            stream.writeUTF(action);
+            message.writeTo(stream);
 
-        stream.writeUTF(action);
-        message.writeTo(stream);
+            data = ((BytesStreamOutput) stream.wrappedOut()).copiedByteArray();
+        } finally {
+            CachedStreamOutput.pushEntry(cachedEntry);
+        }
 
         final LocalTransport targetTransport = connectedNodes.get(node);
         if (targetTransport == null) {
             throw new NodeNotConnectedException(node, "Node not connected");
         }
 
-        final byte[] data = ((BytesStreamOutput) stream.wrappedOut()).copiedByteArray();
-
         transportServiceAdapter.sent(data.length);
 
         threadPool.cached().execute(new Runnable() {
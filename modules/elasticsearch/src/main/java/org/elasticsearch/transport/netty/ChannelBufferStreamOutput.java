@@ -0,0 +1,171 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.collect.Lists;
+import org.elasticsearch.common.io.BytesRecycler;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.netty.buffer.ChannelBuffer;
+import org.elasticsearch.common.netty.buffer.ChannelBuffers;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link StreamOutput} writing into pages taken from the {@link BytesRecycler}, exposed as a (composite)
+ * {@link ChannelBuffer} without copying them. The first <tt>reserved</tt> bytes are left for a header, which
+ * can be set once the size of the data is known. Once the buffer has been written, the pages should be
+ * {@link #release() released} back to the recycler.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class ChannelBufferStreamOutput extends StreamOutput {
+
+    private final int pageSize;
+
+    private final int reserved;
+
+    private final List<byte[]> pages = Lists.newArrayList();
+
+    private byte[] page;
+
+    private int pagePosition;
+
+    private int size;
+
+    public ChannelBufferStreamOutput(int pageSize, int reserved) {
+        if (reserved > pageSize) {
+            throw new IllegalArgumentException("reserved [" + reserved + "] must fit in a page [" + pageSize + "]");
+        }
+        this.pageSize = pageSize;
+        this.reserved = reserved;
+        this.page = BytesRecycler.acquire(pageSize);
+        this.pages.add(page);
+        this.pagePosition = reserved;
+        this.size = reserved;
+    }
+
+    /**
+     * The size of the data written, including the reserved bytes.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override public void writeByte(byte b) throws IOException {
+        if (pagePosition == page.length) {
+            nextPage();
+        }
+        page[pagePosition++] = b;
+        size++;
+    }
+
+    @Override public void writeBytes(byte[] b, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (pagePosition == page.length) {
+                nextPage();
+            }
+            int toCopy = Math.min(length, page.length - pagePosition);
+            System.arraycopy(b, offset, page, pagePosition, toCopy);
+            pagePosition += toCopy;
+            offset += toCopy;
+            length -= toCopy;
+            size += toCopy;
+        }
+    }
+
+    /**
+     * Sets an int within the reserved bytes.
+     */
+    public void setInt(int index, int value) {
+        byte[] header = pages.get(0);
+        header[index++] = ((byte) (value >> 24));
+        header[index++] = ((byte) (value >> 16));
+        header[index++] = ((byte) (value >> 8));
+        header[index] = ((byte) (value));
+    }
+
+    /**
+     * Sets a long within the reserved bytes.
+     */
+    public void setLong(int index, long value) {
+        setInt(index, (int) (value >> 32));
+        setInt(index + 4, (int) value);
+    }
+
+    /**
+     * Sets a byte within the reserved bytes.
+     */
+    public void setByte(int index, byte value) {
+        pages.get(0)[index] = value;
+    }
+
+    /**
+     * A buffer wrapping the pages written so far (including the reserved bytes).
+     */
+    public ChannelBuffer buffer() {
+        if (pages.size() == 1) {
+            return ChannelBuffers.wrappedBuffer(page, 0, pagePosition);
+        }
+        ChannelBuffer[] buffers = new ChannelBuffer[pages.size()];
+        for (int i = 0; i < buffers.length - 1; i++) {
+            buffers[i] = ChannelBuffers.wrappedBuffer(pages.get(i));
+        }
+        buffers[buffers.length - 1] = ChannelBuffers.wrappedBuffer(page, 0, pagePosition);
+        return ChannelBuffers.wrappedBuffer(buffers);
+    }
+
+    /**
+     * Releases the pages back to the recycler, the stream (and buffers created from it) can no longer be used.
+     */
+    public void release() {
+        for (byte[] page : pages) {
+            BytesRecycler.release(page);
+        }
+        pages.clear();
+        page = null;
+    }
+
+    @Override public void flush() throws IOException {
+        // nothing to do here
+    }
+
+    @Override public void close() throws IOException {
+        // nothing to do here, pages are released explicitly once written
+    }
+
+    /**
+     * Resets the stream back to just after the reserved bytes.
+     */
+    @Override public void reset() throws IOException {
+        for (int i = 1; i < pages.size(); i++) {
+            BytesRecycler.release(pages.get(i));
+        }
+        page = pages.get(0);
+        pages.subList(1, pages.size()).clear();
+        pagePosition = reserved;
+        size = reserved;
+    }
+
+    private void nextPage() {
+        page = BytesRecycler.acquire(pageSize);
+        pages.add(page);
+        pagePosition = 0;
+    }
+}
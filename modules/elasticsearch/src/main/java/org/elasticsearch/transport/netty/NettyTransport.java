@@ -27,12 +27,12 @@ import org.elasticsearch.common.collect.ImmutableList;
 import org.elasticsearch.common.collect.Lists;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.CachedStreamOutput;
+import org.elasticsearch.common.io.stream.HandlesStreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.netty.OpenChannelsHandler;
 import org.elasticsearch.common.netty.bootstrap.ClientBootstrap;
 import org.elasticsearch.common.netty.bootstrap.ServerBootstrap;
-import org.elasticsearch.common.netty.buffer.ChannelBuffer;
-import org.elasticsearch.common.netty.buffer.ChannelBuffers;
 import org.elasticsearch.common.netty.channel.*;
 import org.elasticsearch.common.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.elasticsearch.common.netty.channel.socket.nio.NioServerSocketChannelFactory;
@@ -47,6 +47,7 @@ import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -120,6 +121,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     final int connectionsPerNodeMed;
     final int connectionsPerNodeHigh;
 
+    final ByteSizeValue bufferPageSize;
+
     private final ThreadPool threadPool;
 
     private volatile OpenChannelsHandler serverOpenChannels;
@@ -167,6 +170,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.connectionsPerNodeLow = componentSettings.getAsInt("connections_per_node.low", 2);
         this.connectionsPerNodeMed = componentSettings.getAsInt("connections_per_node.med", 7);
         this.connectionsPerNodeHigh = componentSettings.getAsInt("connections_per_node.high", 1);
+        this.bufferPageSize = componentSettings.getAsBytesSize("buffer_page_size", new ByteSizeValue(16, ByteSizeUnit.KB));
     }
 
     public Settings settings() {
@@ -427,10 +431,30 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             options.withCompress(true);
         }
 
-        byte[] data = TransportStreams.buildRequest(requestId, action, message, options);
+        byte status = 0;
+        status = TransportStreams.statusSetRequest(status);
+        if (options.compress()) {
+            status = TransportStreams.statusSetCompress(status);
+        }
 
-        ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(data);
-        ChannelFuture channelFuture = targetChannel.write(buffer);
+        ChannelBufferStreamOutput stream = newStream();
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+        try {
+            HandlesStreamOutput handles = handlesStream(cachedEntry, stream, options.compress());
+            handles.writeUTF(action);
+            message.writeTo(handles);
+            handles.flush();
+            handles.cleanHandles();
+        } catch (IOException e) {
+            stream.release();
+            throw e;
+        } catch (RuntimeException e) {
+            stream.release();
+            throw e;
+        } finally {
+            CachedStreamOutput.pushEntry(cachedEntry);
+        }
+        ChannelFuture channelFuture = write(targetChannel, stream, requestId, status);
         // We handle close connection exception in the #exceptionCaught method, which is the main reason we want to add this future
 //        channelFuture.addListener(new ChannelFutureListener() {
 //            @Override public void operationComplete(ChannelFuture future) throws Exception {
@@ -445,6 +469,37 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 //        });
     }
 
+    /**
+     * A new stream writing into recycled pages, with room reserved for the message header.
+     */
+    ChannelBufferStreamOutput newStream() {
+        return new ChannelBufferStreamOutput((int) bufferPageSize.bytes(), TransportStreams.HEADER_SIZE);
+    }
+
+    HandlesStreamOutput handlesStream(CachedStreamOutput.Entry cachedEntry, ChannelBufferStreamOutput stream, boolean compress) throws IOException {
+        if (compress) {
+            return cachedEntry.cachedHandlesLzf(stream);
+        }
+        return cachedEntry.cachedHandles(stream);
+    }
+
+    /**
+     * Sets the header in the reserved space of the stream and writes its pages, as is, to the channel. The
+     * pages are released back to the recycler once the write has completed.
+     */
+    ChannelFuture write(Channel channel, final ChannelBufferStreamOutput stream, long requestId, byte status) {
+        stream.setInt(0, stream.size() - 4); // the size, without the size header itself
+        stream.setLong(4, requestId);
+        stream.setByte(12, status);
+        ChannelFuture channelFuture = channel.write(stream.buffer());
+        channelFuture.addListener(new ChannelFutureListener() {
+            @Override public void operationComplete(ChannelFuture future) throws Exception {
+                stream.release();
+            }
+        });
+        return channelFuture;
+    }
+
     @Override public boolean nodeConnected(DiscoveryNode node) {
         return connectedNodes.containsKey(node);
     }
@@ -20,11 +20,9 @@
 package org.elasticsearch.transport.netty;
 
 import org.elasticsearch.common.io.ThrowableObjectOutputStream;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.CachedStreamOutput;
+import org.elasticsearch.common.io.stream.HandlesStreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
-import org.elasticsearch.common.netty.buffer.ChannelBuffer;
-import org.elasticsearch.common.netty.buffer.ChannelBuffers;
 import org.elasticsearch.common.netty.channel.Channel;
 import org.elasticsearch.transport.NotSerializableTransportException;
 import org.elasticsearch.transport.RemoteTransportException;
@@ -40,8 +38,6 @@ import java.io.NotSerializableException;
  */
 public class NettyTransportChannel implements TransportChannel {
 
-    private static final byte[] LENGTH_PLACEHOLDER = new byte[4];
-
     private final NettyTransport transport;
 
     private final String action;
@@ -69,39 +65,56 @@ public class NettyTransportChannel implements TransportChannel {
         if (transport.compress) {
             options.withCompress(true);
         }
-        byte[] data = TransportStreams.buildResponse(requestId, message, options);
-        ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(data);
-        channel.write(buffer);
-    }
+        byte status = 0;
+        status = TransportStreams.statusSetResponse(status);
+        if (options.compress()) {
+            status = TransportStreams.statusSetCompress(status);
+        }
 
-    @Override public void sendResponse(Throwable error) throws IOException {
-        BytesStreamOutput stream;
+        ChannelBufferStreamOutput stream = transport.newStream();
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
         try {
-            stream = CachedStreamOutput.cachedBytes();
-            writeResponseExceptionHeader(stream);
-            RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()), action, error);
-            ThrowableObjectOutputStream too = new ThrowableObjectOutputStream(stream);
-            too.writeObject(tx);
-            too.close();
-        } catch (NotSerializableException e) {
-            stream = CachedStreamOutput.cachedBytes();
-            writeResponseExceptionHeader(stream);
-            RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()), action, new NotSerializableTransportException(error));
-            ThrowableObjectOutputStream too = new ThrowableObjectOutputStream(stream);
-            too.writeObject(tx);
-            too.close();
+            HandlesStreamOutput handles = transport.handlesStream(cachedEntry, stream, options.compress());
+            message.writeTo(handles);
+            handles.flush();
+            handles.cleanHandles();
+        } catch (IOException e) {
+            stream.release();
+            throw e;
+        } catch (RuntimeException e) {
+            stream.release();
+            throw e;
+        } finally {
+            CachedStreamOutput.pushEntry(cachedEntry);
         }
-        ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(stream.copiedByteArray());
-        buffer.setInt(0, buffer.writerIndex() - 4); // update real size.
-        channel.write(buffer);
+        transport.write(channel, stream, requestId, status);
     }
 
-    private void writeResponseExceptionHeader(BytesStreamOutput stream) throws IOException {
-        stream.writeBytes(LENGTH_PLACEHOLDER);
-        stream.writeLong(requestId);
+    @Override public void sendResponse(Throwable error) throws IOException {
+        ChannelBufferStreamOutput stream = transport.newStream();
+        try {
+            try {
+                RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()), action, error);
+                ThrowableObjectOutputStream too = new ThrowableObjectOutputStream(stream);
+                too.writeObject(tx);
+                too.close();
+            } catch (NotSerializableException e) {
+                stream.reset();
+                RemoteTransportException tx = new RemoteTransportException(transport.nodeName(), transport.wrapAddress(channel.getLocalAddress()), action, new NotSerializableTransportException(error));
+                ThrowableObjectOutputStream too = new ThrowableObjectOutputStream(stream);
+                too.writeObject(tx);
+                too.close();
+            }
+        } catch (IOException e) {
+            stream.release();
+            throw e;
+        } catch (RuntimeException e) {
+            stream.release();
+            throw e;
+        }
         byte status = 0;
         status = TransportStreams.statusSetResponse(status);
         status = TransportStreams.statusSetError(status);
-        stream.writeByte(status);
+        transport.write(channel, stream, requestId, status);
     }
 }
@@ -19,12 +19,6 @@
 
 package org.elasticsearch.transport.support;
 
-import org.elasticsearch.common.io.stream.*;
-import org.elasticsearch.transport.TransportRequestOptions;
-import org.elasticsearch.transport.TransportResponseOptions;
-
-import java.io.IOException;
-
 /**
  * @author kimchy (shay.banon)
  */
@@ -95,59 +89,4 @@ public class TransportStreams {
         value |= STATUS_COMPRESS;
         return value;
     }
-
-    public static byte[] buildRequest(final long requestId, final String action, final Streamable message, TransportRequestOptions options) throws IOException {
-        byte status = 0;
-        status = TransportStreams.statusSetRequest(status);
-
-        BytesStreamOutput wrapped;
-        if (options.compress()) {
-            status = TransportStreams.statusSetCompress(status);
-            HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesLzfBytes();
-            stream.writeUTF(action);
-            message.writeTo(stream);
-            stream.flush();
-            wrapped = ((BytesStreamOutput) ((LZFStreamOutput) stream.wrappedOut()).wrappedOut());
-            stream.cleanHandles();
-        } else {
-            HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesBytes();
-            stream.writeUTF(action);
-            message.writeTo(stream);
-            stream.flush();
-            wrapped = ((BytesStreamOutput) stream.wrappedOut());
-            stream.cleanHandles();
-        }
-
-        byte[] data = new byte[HEADER_SIZE + wrapped.size()];
-        TransportStreams.writeHeader(data, wrapped.size(), requestId, status);
-        System.arraycopy(wrapped.unsafeByteArray(), 0, data, HEADER_SIZE, wrapped.size());
-
-        return data;
-    }
-
-    public static byte[] buildResponse(final long requestId, Streamable message, TransportResponseOptions options) throws IOException {
-        byte status = 0;
-        status = TransportStreams.statusSetResponse(status);
-
-        BytesStreamOutput wrapped;
-        if (options.compress()) {
-            status = TransportStreams.statusSetCompress(status);
-            HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesLzfBytes();
-            message.writeTo(stream);
-            stream.flush();
-            wrapped = ((BytesStreamOutput) ((LZFStreamOutput) stream.wrappedOut()).wrappedOut());
-        } else {
-            HandlesStreamOutput stream = CachedStreamOutput.cachedHandlesBytes();
-            message.writeTo(stream);
-            stream.flush();
-            wrapped = ((BytesStreamOutput) stream.wrappedOut());
-        }
-
-
-        byte[] data = new byte[HEADER_SIZE + wrapped.size()];
-        TransportStreams.writeHeader(data, wrapped.size(), requestId, status);
-        System.arraycopy(wrapped.unsafeByteArray(), 0, data, HEADER_SIZE, wrapped.size());
-
-        return data;
-    }
 }
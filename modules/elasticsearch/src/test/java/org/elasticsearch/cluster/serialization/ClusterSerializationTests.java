@@ -20,6 +20,7 @@
 package org.elasticsearch.cluster.serialization;
 
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -34,6 +35,7 @@ import static org.elasticsearch.cluster.ClusterState.*;
 import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
 import static org.elasticsearch.cluster.metadata.MetaData.*;
 import static org.elasticsearch.cluster.routing.RoutingBuilders.*;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.*;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -88,6 +90,62 @@ public class ClusterSerializationTests {
         assertThat(target.prettyPrint(), equalTo(source.prettyPrint()));
     }
 
+    @Test public void testClusterStateDiffSerialization() throws Exception {
+        MetaData metaData = newMetaDataBuilder()
+                .put(newIndexMetaDataBuilder("test1").numberOfShards(5).numberOfReplicas(1))
+                .put(newIndexMetaDataBuilder("test2").numberOfShards(5).numberOfReplicas(1))
+                .put(newIndexMetaDataBuilder("test3").numberOfShards(1).numberOfReplicas(0))
+                .build();
+
+        RoutingTable routingTable = routingTable()
+                .add(indexRoutingTable("test1").initializeEmpty(metaData.index("test1")))
+                .add(indexRoutingTable("test2").initializeEmpty(metaData.index("test2")))
+                .add(indexRoutingTable("test3").initializeEmpty(metaData.index("test3")))
+                .build();
+
+        DiscoveryNodes nodes = DiscoveryNodes.newNodesBuilder().put(newNode("node1")).put(newNode("node2")).put(newNode("node3")).localNodeId("node1").masterNodeId("node1").build();
+
+        ClusterState previous = newClusterStateBuilder().nodes(nodes).metaData(metaData).routingTable(routingTable).version(1).build();
+        ShardsAllocation strategy = new ShardsAllocation();
+        previous = newClusterStateBuilder().state(previous).routingTable(strategy.reroute(previous).routingTable()).version(2).build();
+        ClusterState received = ClusterState.Builder.fromBytes(ClusterState.Builder.toBytes(previous), newNode("node2"));
+
+        // start the shards of test1, update the meta data of test2, and delete test3
+        RoutingTable newRoutingTable = strategy.applyStartedShards(previous, previous.routingTable().index("test1").shardsWithState(INITIALIZING)).routingTable();
+        newRoutingTable = routingTable().routingTable(newRoutingTable).remove("test3").build();
+        MetaData newMetaData = newMetaDataBuilder().metaData(metaData)
+                .put(newIndexMetaDataBuilder(metaData.index("test2")).numberOfReplicas(2))
+                .remove("test3")
+                .build();
+        ClusterState current = newClusterStateBuilder().state(previous).metaData(newMetaData).routingTable(newRoutingTable).version(3).build();
+
+        BytesStreamOutput outStream = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previous, current, outStream);
+        ClusterState applied = ClusterState.Builder.readDiffFrom(new BytesStreamInput(outStream.copiedByteArray()), received, newNode("node2"));
+
+        assertThat(applied.version(), equalTo(3l));
+        assertThat(applied.routingTable().prettyPrint(), equalTo(current.routingTable().prettyPrint()));
+        assertThat(applied.metaData().indices().size(), equalTo(2));
+        assertThat(applied.metaData().index("test3"), nullValue());
+        assertThat(applied.metaData().index("test2").numberOfReplicas(), equalTo(2));
+        // unchanged index meta data is reused, and not sent
+        assertThat(applied.metaData().index("test1"), sameInstance(received.metaData().index("test1")));
+        assertThat(applied.routingTable().index("test2"), sameInstance(received.routingTable().index("test2")));
+        assertThat(applied.nodes().localNodeId(), equalTo("node2"));
+
+        BytesStreamOutput fullStream = new BytesStreamOutput();
+        ClusterState.Builder.writeTo(current, fullStream);
+        assertThat(outStream.size(), lessThan(fullStream.size()));
+
+        // a diff can't be applied on another version
+        try {
+            ClusterState.Builder.readDiffFrom(new BytesStreamInput(outStream.copiedByteArray()), applied, newNode("node2"));
+            assert false : "diff should not be applied on another version";
+        } catch (IncompatibleClusterStateVersionException e) {
+            // all is well
+        }
+    }
+
     private DiscoveryNode newNode(String nodeId) {
         return new DiscoveryNode(nodeId, DummyTransportAddress.INSTANCE);
     }
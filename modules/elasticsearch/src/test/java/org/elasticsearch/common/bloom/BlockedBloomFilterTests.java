@@ -0,0 +1,109 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bloom;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.UUID;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class BlockedBloomFilterTests {
+
+    @Test public void testFalsePositiveProbability() throws Exception {
+        int numElements = 10000;
+        BlockedBloomFilter filter = BloomFilterFactory.getBlockedFilter(numElements, 0.01);
+        for (int i = 0; i < numElements; i++) {
+            byte[] key = UUID.randomBase64UUID().getBytes("UTF8");
+            filter.add(key, 0, key.length);
+            assertThat(filter.isPresent(key, 0, key.length), equalTo(true));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < numElements; i++) {
+            byte[] key = UUID.randomBase64UUID().getBytes("UTF8");
+            if (filter.isPresent(key, 0, key.length)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives, lessThan(numElements / 100 * 2));
+        assertThat(filter.falsePositiveProbability(), lessThan(0.02));
+    }
+
+    @Test public void testWriteAndRead() throws Exception {
+        BlockedBloomFilter filter = BloomFilterFactory.getBlockedFilter(100, 0.01);
+        for (int i = 0; i < 100; i++) {
+            byte[] key = Integer.toString(i).getBytes("UTF8");
+            filter.add(key, 0, key.length);
+        }
+        RAMDirectory dir = new RAMDirectory();
+        IndexOutput output = dir.createOutput("filter");
+        filter.writeTo(output, 42);
+        output.close();
+
+        IndexInput input = dir.openInput("filter");
+        BlockedBloomFilter readFilter = BlockedBloomFilter.readFrom(input, 42);
+        input.close();
+        assertThat(readFilter.hashCount(), equalTo(filter.hashCount()));
+        assertThat(readFilter.numBlocks(), equalTo(filter.numBlocks()));
+        for (int i = 0; i < 100; i++) {
+            byte[] key = Integer.toString(i).getBytes("UTF8");
+            assertThat(readFilter.isPresent(key, 0, key.length), equalTo(true));
+        }
+
+        // a filter built from a different source is rejected
+        input = dir.openInput("filter");
+        try {
+            BlockedBloomFilter.readFrom(input, 43);
+            assert false : "filter of a different source should fail to read";
+        } catch (IOException e) {
+            // all is well
+        } finally {
+            input.close();
+        }
+
+        // corrupt one of the words of the filter
+        input = dir.openInput("filter");
+        byte[] bytes = new byte[(int) input.length()];
+        input.readBytes(bytes, 0, bytes.length);
+        input.close();
+        bytes[bytes.length - 9] ^= 0x1;
+        output = dir.createOutput("filter");
+        output.writeBytes(bytes, bytes.length);
+        output.close();
+        input = dir.openInput("filter");
+        try {
+            BlockedBloomFilter.readFrom(input, 42);
+            assert false : "corrupted filter should fail to read";
+        } catch (IOException e) {
+            // all is well
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class BytesRecyclerTests {
+
+    @Test public void testSizeClasses() {
+        assertThat(BytesRecycler.sizeClass(1), equalTo(10));
+        assertThat(BytesRecycler.sizeClass(1024), equalTo(10));
+        assertThat(BytesRecycler.sizeClass(1025), equalTo(11));
+        assertThat(BytesRecycler.sizeClass(65535), equalTo(16));
+        assertThat(BytesRecycler.sizeClass(65536), equalTo(16));
+
+        assertThat(BytesRecycler.acquire(10).length, equalTo(1024));
+        assertThat(BytesRecycler.acquire(3000).length, equalTo(4096));
+        assertThat(BytesRecycler.acquire(BytesRecycler.MAX_SIZE + 1).length, equalTo(BytesRecycler.MAX_SIZE + 1));
+    }
+
+    @Test public void testAcquireRelease() {
+        BytesRecycler.clear();
+        byte[] bytes = BytesRecycler.acquire(2000);
+        BytesRecycler.release(bytes);
+        assertThat(BytesRecycler.stats().count(), equalTo(1l));
+        assertThat(BytesRecycler.stats().size().bytes(), equalTo(2048l));
+
+        long misses = BytesRecycler.stats().missCount();
+        assertThat(BytesRecycler.acquire(1500), sameInstance(bytes));
+        assertThat(BytesRecycler.stats().missCount(), equalTo(misses));
+        assertThat(BytesRecycler.stats().count(), equalTo(0l));
+
+        // not one of the size classes
+        BytesRecycler.release(new byte[1500]);
+        BytesRecycler.release(new byte[BytesRecycler.MAX_SIZE * 2]);
+        assertThat(BytesRecycler.stats().count(), equalTo(0l));
+    }
+
+    @Test public void testBudget() {
+        ByteSizeValue budget = BytesRecycler.budget();
+        try {
+            BytesRecycler.clear();
+            BytesRecycler.budget(new ByteSizeValue(4096));
+            long drops = BytesRecycler.stats().dropCount();
+            BytesRecycler.release(new byte[2048]);
+            BytesRecycler.release(new byte[2048]);
+            BytesRecycler.release(new byte[2048]);
+            assertThat(BytesRecycler.stats().count(), equalTo(2l));
+            assertThat(BytesRecycler.stats().dropCount(), equalTo(drops + 1));
+
+            BytesRecycler.budget(new ByteSizeValue(2048));
+            assertThat(BytesRecycler.stats().count(), equalTo(1l));
+        } finally {
+            BytesRecycler.budget(budget);
+        }
+    }
+}
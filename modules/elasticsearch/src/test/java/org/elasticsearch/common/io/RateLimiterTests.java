@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.io;
+
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class RateLimiterTests {
+
+    @Test public void testUnlimited() {
+        RateLimiter rateLimiter = new RateLimiter(null);
+        assertThat(rateLimiter.enabled(), equalTo(false));
+        assertThat(rateLimiter.pause(Long.MAX_VALUE / 2), equalTo(0l));
+
+        rateLimiter = new RateLimiter(new ByteSizeValue(0));
+        assertThat(rateLimiter.enabled(), equalTo(false));
+    }
+
+    @Test public void testSharedLimit() throws Exception {
+        // 1mb/sec, shared by 4 threads each streaming 128k, should take ~500ms
+        final RateLimiter rateLimiter = new RateLimiter(new ByteSizeValue(1024 * 1024));
+        assertThat(rateLimiter.enabled(), equalTo(true));
+        // use up the initial slot, so idle time does not count
+        rateLimiter.pause(1);
+
+        final CountDownLatch latch = new CountDownLatch(4);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            new Thread() {
+                @Override public void run() {
+                    for (int j = 0; j < 16; j++) {
+                        rateLimiter.pause(8 * 1024);
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+        assertThat(latch.await(10, TimeUnit.SECONDS), equalTo(true));
+        long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat(took, greaterThanOrEqualTo(450l));
+        assertThat(took, lessThan(3000l));
+    }
+}
@@ -34,7 +34,8 @@ import static org.hamcrest.Matchers.*;
 public class BytesStreamsTests {
 
     @Test public void testSimpleStreams() throws Exception {
-        BytesStreamOutput out = CachedStreamOutput.cachedBytes();
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+        BytesStreamOutput out = cachedEntry.cachedBytes();
         out.writeBoolean(false);
         out.writeByte((byte) 1);
         out.writeShort((short) -1);
@@ -59,5 +60,26 @@ public class BytesStreamsTests {
         assertThat(in.readDouble(), closeTo(2.2, 0.0001));
         assertThat(in.readUTF(), equalTo("hello"));
         assertThat(in.readUTF(), equalTo("goodbye"));
+        CachedStreamOutput.pushEntry(cachedEntry);
+    }
+
+    @Test public void testCachedStreamsGrowAndTrim() throws Exception {
+        CachedStreamOutput.Entry cachedEntry = CachedStreamOutput.popEntry();
+        BytesStreamOutput out = cachedEntry.cachedBytes();
+        for (int i = 0; i < 100000; i++) {
+            out.writeInt(i);
+        }
+        assertThat(out.size(), equalTo(400000));
+        assertThat(out.unsafeByteArray().length, greaterThan(CachedStreamOutput.MAX_RETAINED_SIZE));
+
+        BytesStreamInput in = new BytesStreamInput(out.copiedByteArray());
+        for (int i = 0; i < 100000; i++) {
+            assertThat(in.readInt(), equalTo(i));
+        }
+        CachedStreamOutput.pushEntry(cachedEntry);
+
+        // the large buffer is not retained by the pooled entry
+        assertThat(out.size(), equalTo(0));
+        assertThat(out.unsafeByteArray().length, lessThanOrEqualTo(CachedStreamOutput.MAX_RETAINED_SIZE));
     }
 }
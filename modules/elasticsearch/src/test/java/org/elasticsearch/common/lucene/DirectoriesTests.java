@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene;
+
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class DirectoriesTests {
+
+    @Test public void testContentChecksumOfPrefix() throws IOException {
+        RAMDirectory dir = new RAMDirectory();
+        byte[] content = new byte[20000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        writeFile(dir, "full", content, content.length);
+        writeFile(dir, "partial", content, 10000);
+
+        assertThat(Directories.contentChecksum(dir, "full", 10000), equalTo(Directories.contentChecksum(dir, "partial", 10000)));
+        assertThat(Directories.contentChecksum(dir, "full", content.length), not(equalTo(Directories.contentChecksum(dir, "partial", 10000))));
+
+        content[500] = (byte) (content[500] + 1);
+        writeFile(dir, "changed", content, 10000);
+        assertThat(Directories.contentChecksum(dir, "changed", 10000), not(equalTo(Directories.contentChecksum(dir, "partial", 10000))));
+    }
+
+    private void writeFile(RAMDirectory dir, String name, byte[] content, int length) throws IOException {
+        IndexOutput output = dir.createOutput(name);
+        output.writeBytes(content, length);
+        output.close();
+    }
+}
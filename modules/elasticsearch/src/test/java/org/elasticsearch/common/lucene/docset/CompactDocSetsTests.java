@@ -0,0 +1,166 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.OpenBitSet;
+import org.elasticsearch.common.collect.ImmutableList;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class CompactDocSetsTests {
+
+    private final Random random = new Random(0);
+
+    private OpenBitSet randomSet(int maxDoc, double density) {
+        OpenBitSet set = new OpenBitSet(maxDoc);
+        for (int i = 0; i < maxDoc; i++) {
+            if (random.nextDouble() < density) {
+                set.fastSet(i);
+            }
+        }
+        return set;
+    }
+
+    @Test public void testRepresentationByCardinality() {
+        int maxDoc = 100000;
+        assertThat(DocSets.compact(new OpenBitSet(maxDoc), maxDoc), sameInstance(DocSet.EMPTY_DOC_SET));
+        assertThat(DocSets.compact(randomSet(maxDoc, 0.001), maxDoc), instanceOf(SortedIntDocSet.class));
+        assertThat(DocSets.compact(randomSet(maxDoc, 0.5), maxDoc), instanceOf(OpenBitDocSet.class));
+
+        // clustered docs (for example, a type filter when docs of a type were indexed together)
+        OpenBitSet clustered = new OpenBitSet(maxDoc);
+        clustered.set(10000, 60000);
+        clustered.fastSet(70001);
+        DocSet docSet = DocSets.compact(clustered, maxDoc);
+        assertThat(docSet, instanceOf(CompressedBitDocSet.class));
+        assertThat(docSet.sizeInBytes(), lessThan(new OpenBitDocSet(clustered).sizeInBytes() / 10));
+    }
+
+    @Test public void testSameDocs() throws IOException {
+        int maxDoc = 20000;
+        for (double density : new double[]{0.0005, 0.005, 0.02, 0.1, 0.5, 0.99}) {
+            OpenBitSet set = randomSet(maxDoc, density);
+            // add some full and empty words
+            set.set(1000, 1700);
+            set.clear(5000, 9000);
+            assertSameDocs(set, new SortedIntDocSet(docs(set)), maxDoc);
+            assertSameDocs(set, new CompressedBitDocSet(set, maxDoc), maxDoc);
+            assertSameDocs(set, DocSets.compact(set, maxDoc), maxDoc);
+        }
+    }
+
+    @Test public void testAnd() throws IOException {
+        int maxDoc = 20000;
+        OpenBitSet sparse = randomSet(maxDoc, 0.001);
+        OpenBitSet sparse2 = randomSet(maxDoc, 0.01);
+        OpenBitSet dense = randomSet(maxDoc, 0.5);
+        sparse2.union(sparse);
+
+        OpenBitSet expected = (OpenBitSet) sparse.clone();
+        expected.and(sparse2);
+        expected.and(dense);
+        assertSameDocs(expected, new AndDocSet(ImmutableList.<DocSet>of(new SortedIntDocSet(docs(sparse)), new SortedIntDocSet(docs(sparse2)), new OpenBitDocSet(dense))), maxDoc);
+        assertSameDocs(expected, new AndDocSet(ImmutableList.<DocSet>of(new OpenBitDocSet(dense), new CompressedBitDocSet(sparse2, maxDoc), new SortedIntDocSet(docs(sparse)))), maxDoc);
+    }
+
+    @Test public void testOr() throws IOException {
+        int maxDoc = 20000;
+        OpenBitSet sparse = randomSet(maxDoc, 0.001);
+        OpenBitSet sparse2 = randomSet(maxDoc, 0.005);
+        OpenBitSet dense = randomSet(maxDoc, 0.3);
+
+        OpenBitSet expected = (OpenBitSet) sparse.clone();
+        expected.union(sparse2);
+        assertSameDocs(expected, new OrDocSet(ImmutableList.<DocSet>of(new SortedIntDocSet(docs(sparse)), new SortedIntDocSet(docs(sparse2)), new SortedIntDocSet(docs(sparse)))), maxDoc);
+
+        expected.union(dense);
+        assertSameDocs(expected, new OrDocSet(ImmutableList.<DocSet>of(new SortedIntDocSet(docs(sparse)), new CompressedBitDocSet(sparse2, maxDoc), new OpenBitDocSet(dense))), maxDoc);
+    }
+
+    @Test public void testNot() throws IOException {
+        int maxDoc = 20000;
+        OpenBitSet sparse = randomSet(maxDoc, 0.01);
+        sparse.set(0, 3);
+        sparse.set(maxDoc - 3, maxDoc);
+
+        OpenBitSet expected = (OpenBitSet) sparse.clone();
+        expected.flip(0, maxDoc);
+        assertSameDocs(expected, new NotDocSet(new SortedIntDocSet(docs(sparse)), maxDoc), maxDoc);
+        assertSameDocs(expected, new NotDocSet(new CompressedBitDocSet(sparse, maxDoc), maxDoc), maxDoc);
+    }
+
+    private static int[] docs(OpenBitSet set) {
+        int[] docs = new int[(int) set.cardinality()];
+        int i = 0;
+        for (int doc = set.nextSetBit(0); doc != -1; doc = set.nextSetBit(doc + 1)) {
+            docs[i++] = doc;
+        }
+        return docs;
+    }
+
+    private void assertSameDocs(OpenBitSet expected, DocSet docSet, int maxDoc) throws IOException {
+        for (int i = 0; i < maxDoc; i++) {
+            assertThat("doc " + i, docSet.get(i), equalTo(expected.fastGet(i)));
+        }
+
+        DocIdSetIterator it = docSet.iterator();
+        for (int doc = expected.nextSetBit(0); doc != -1; doc = expected.nextSetBit(doc + 1)) {
+            assertThat(it.nextDoc(), equalTo(doc));
+            assertThat(it.docID(), equalTo(doc));
+        }
+        assertThat(it.nextDoc(), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+
+        // advance by random steps
+        it = docSet.iterator();
+        int target = 0;
+        while (true) {
+            target += 1 + random.nextInt(200);
+            int expectedDoc = target < maxDoc ? expected.nextSetBit(target) : -1;
+            int doc = it.advance(target);
+            if (expectedDoc == -1) {
+                assertThat(doc, equalTo(DocIdSetIterator.NO_MORE_DOCS));
+                break;
+            }
+            assertThat(doc, equalTo(expectedDoc));
+            target = doc;
+            // mix in a nextDoc every once in a while
+            if (random.nextBoolean()) {
+                int next = expected.nextSetBit(doc + 1);
+                doc = it.nextDoc();
+                if (next == -1) {
+                    assertThat(doc, equalTo(DocIdSetIterator.NO_MORE_DOCS));
+                    break;
+                }
+                assertThat(doc, equalTo(next));
+                target = doc;
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.bloom;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.bloom.BloomFilter;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.bloom.simple.SimpleBloomCache;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class SimpleBloomCacheTests {
+
+    @Test public void testPersistedFilters() throws Exception {
+        ThreadPool threadPool = new ThreadPool();
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc().add(field("_uid", "type#" + i, Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        }
+        indexWriter.commit();
+        for (int i = 100; i < 200; i++) {
+            indexWriter.addDocument(doc().add(field("_uid", "type#" + i, Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        }
+        indexWriter.commit();
+
+        IndexReader reader = IndexReader.open(dir, true);
+        IndexReader[] segmentReaders = reader.getSequentialSubReaders();
+        assertThat(segmentReaders.length, equalTo(2));
+
+        SimpleBloomCache bloomCache = new SimpleBloomCache(new Index("test"), EMPTY_SETTINGS, threadPool);
+        BloomFilter filter = bloomCache.filter(segmentReaders[0], "_uid", false);
+        assertThat(isPresent(filter, "type#1"), equalTo(true));
+        assertThat(isPresent(filter, "type#150"), equalTo(false));
+        String fileName = ((SegmentReader) segmentReaders[0]).getSegmentName() + "._uid" + SimpleBloomCache.BLOOM_FILE_EXTENSION;
+        assertThat(dir.fileExists(fileName), equalTo(true));
+        assertThat(bloomCache.sizeInBytes(), greaterThan(0l));
+
+        // a new cache loads it from the persisted file
+        long fileModified = dir.fileModified(fileName);
+        bloomCache = new SimpleBloomCache(new Index("test"), EMPTY_SETTINGS, threadPool);
+        filter = bloomCache.filter(segmentReaders[0], "_uid", false);
+        assertThat(isPresent(filter, "type#1"), equalTo(true));
+        assertThat(dir.fileModified(fileName), equalTo(fileModified));
+        reader.close();
+
+        // once the segment is merged away, its filter file gets deleted after the next commit
+        indexWriter.optimize();
+        indexWriter.commit();
+        bloomCache.deleteUnusedFilters(dir);
+        assertThat(dir.fileExists(fileName), equalTo(false));
+        reader = IndexReader.open(dir, true);
+        filter = bloomCache.filter(reader.getSequentialSubReaders()[0], "_uid", false);
+        assertThat(isPresent(filter, "type#1"), equalTo(true));
+        assertThat(isPresent(filter, "type#150"), equalTo(true));
+
+        reader.close();
+        indexWriter.close();
+        threadPool.shutdown();
+    }
+
+    @Test public void testFilterOfRolledBackSegmentIsNotReused() throws Exception {
+        ThreadPool threadPool = new ThreadPool();
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.commit();
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc().add(field("_uid", "type#" + i, Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        }
+
+        // build (and persist) the filter of an uncommitted segment, and keep a copy of it
+        SimpleBloomCache bloomCache = new SimpleBloomCache(new Index("test"), EMPTY_SETTINGS, threadPool);
+        IndexReader reader = indexWriter.getReader();
+        SegmentReader segmentReader = (SegmentReader) reader.getSequentialSubReaders()[0];
+        bloomCache.filter(segmentReader, "_uid", false);
+        String fileName = segmentReader.getSegmentName() + "._uid" + SimpleBloomCache.BLOOM_FILE_EXTENSION;
+        assertThat(dir.fileExists(fileName), equalTo(true));
+        byte[] staleFilter = readFile(dir, fileName);
+        reader.close();
+
+        // roll it back, the filter is dropped on start
+        indexWriter.rollback();
+        indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, false, IndexWriter.MaxFieldLength.UNLIMITED);
+        bloomCache.deleteUnusedFilters(dir);
+        assertThat(dir.fileExists(fileName), equalTo(false));
+
+        // a new segment gets the same name, even if the stale filter is still around, it is not used for it
+        for (int i = 100; i < 150; i++) {
+            indexWriter.addDocument(doc().add(field("_uid", "type#" + i, Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        }
+        reader = indexWriter.getReader();
+        segmentReader = (SegmentReader) reader.getSequentialSubReaders()[0];
+        assertThat(segmentReader.getSegmentName() + "._uid" + SimpleBloomCache.BLOOM_FILE_EXTENSION, equalTo(fileName));
+        IndexOutput output = dir.createOutput(fileName);
+        output.writeBytes(staleFilter, staleFilter.length);
+        output.close();
+
+        bloomCache = new SimpleBloomCache(new Index("test"), EMPTY_SETTINGS, threadPool);
+        BloomFilter filter = bloomCache.filter(segmentReader, "_uid", false);
+        assertThat(isPresent(filter, "type#120"), equalTo(true));
+        assertThat(isPresent(filter, "type#1"), equalTo(false));
+
+        reader.close();
+        indexWriter.close();
+        threadPool.shutdown();
+    }
+
+    private byte[] readFile(RAMDirectory dir, String fileName) throws Exception {
+        IndexInput input = dir.openInput(fileName);
+        byte[] bytes = new byte[(int) input.length()];
+        input.readBytes(bytes, 0, bytes.length);
+        input.close();
+        return bytes;
+    }
+
+    private boolean isPresent(BloomFilter filter, String key) throws Exception {
+        byte[] bytes = key.getBytes("UTF8");
+        return filter.isPresent(bytes, 0, bytes.length);
+    }
+}
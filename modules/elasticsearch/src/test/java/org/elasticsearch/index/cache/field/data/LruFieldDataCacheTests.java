@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.field.data;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.field.data.lru.LruFieldDataCache;
+import org.elasticsearch.index.field.data.FieldData;
+import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.indices.cache.field.data.IndicesFieldDataCache;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class LruFieldDataCacheTests {
+
+    @Test public void testLruEviction() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc()
+                    .add(field("field1", "value" + i))
+                    .add(field("field2", "value" + i))
+                    .add(field("field3", "value" + i)).build());
+        }
+        IndexReader reader = indexWriter.getReader();
+
+        // figure out the size of a single field, and allow for two of them
+        long fieldSize = FieldData.load(FieldDataType.DefaultTypes.STRING, reader, "field1").sizeInBytes();
+        LruFieldDataCache cache = new LruFieldDataCache(new Index("test"), settingsBuilder().put("index.cache.field.max_size", (fieldSize * 2) + "b").build(), new IndicesFieldDataCache(EMPTY_SETTINGS));
+
+        FieldData field1 = cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        assertThat(cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1"), sameInstance(field1));
+        assertThat(cache.misses(), equalTo(1l));
+        assertThat(cache.hits(), equalTo(1l));
+
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field2");
+        assertThat(cache.evictions(), equalTo(0l));
+        assertThat(cache.sizeInBytes(), equalTo(fieldSize * 2));
+
+        // field1 was used more recently than field2
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field3");
+        assertThat(cache.evictions(), equalTo(1l));
+        assertThat(cache.sizeInBytes(), equalTo(fieldSize * 2));
+        assertThat(cache.sizeInBytes("field2"), equalTo(0l));
+        assertThat(cache.sizeInBytes("field1"), equalTo(fieldSize));
+        assertThat(cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1"), sameInstance(field1));
+        assertThat(cache.misses(), equalTo(3l));
+        assertThat(cache.hits(), equalTo(3l));
+
+        cache.clear(reader);
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+
+        cache.close();
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test public void testNoEvictionsWithinMaxSize() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.addDocument(doc().add(field("field1", "value")).add(field("field2", "value")).build());
+        IndexReader reader = indexWriter.getReader();
+
+        LruFieldDataCache cache = new LruFieldDataCache(new Index("test"), EMPTY_SETTINGS, new IndicesFieldDataCache(EMPTY_SETTINGS));
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field2");
+        assertThat(cache.evictions(), equalTo(0l));
+        assertThat(cache.sizeInBytes(), greaterThan(0l));
+
+        cache.close();
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test public void testNodeLevelBudgetSharedByIndices() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc()
+                    .add(field("field1", "value" + i))
+                    .add(field("field2", "value" + i)).build());
+        }
+        IndexReader reader = indexWriter.getReader();
+
+        // the node allows for two fields, across all the indices
+        long fieldSize = FieldData.load(FieldDataType.DefaultTypes.STRING, reader, "field1").sizeInBytes();
+        IndicesFieldDataCache indicesFieldDataCache = new IndicesFieldDataCache(settingsBuilder().put("indices.cache.field.data.size", (fieldSize * 2) + "b").put("indices.cache.field.data.clean_ratio", 1).build());
+        LruFieldDataCache cache1 = new LruFieldDataCache(new Index("test1"), EMPTY_SETTINGS, indicesFieldDataCache);
+        LruFieldDataCache cache2 = new LruFieldDataCache(new Index("test2"), EMPTY_SETTINGS, indicesFieldDataCache);
+
+        FieldData field1 = cache1.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        cache2.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        assertThat(indicesFieldDataCache.sizeInBytes(), equalTo(fieldSize * 2));
+        assertThat(indicesFieldDataCache.evictions(), equalTo(0l));
+
+        // field1 of the first index was used more recently than the one of the second index
+        assertThat(cache1.cache(FieldDataType.DefaultTypes.STRING, reader, "field1"), sameInstance(field1));
+        cache1.cache(FieldDataType.DefaultTypes.STRING, reader, "field2");
+        assertThat(indicesFieldDataCache.sizeInBytes(), equalTo(fieldSize * 2));
+        assertThat(indicesFieldDataCache.evictions(), equalTo(1l));
+        assertThat(cache2.evictions(), equalTo(1l));
+        assertThat(cache2.sizeInBytes(), equalTo(0l));
+        assertThat(cache1.sizeInBytes(), equalTo(fieldSize * 2));
+        assertThat(cache1.cache(FieldDataType.DefaultTypes.STRING, reader, "field1"), sameInstance(field1));
+
+        // closing an index releases its part of the budget
+        cache1.close();
+        assertThat(indicesFieldDataCache.sizeInBytes(), equalTo(0l));
+        assertThat(indicesFieldDataCache.count(), equalTo(0l));
+
+        cache2.close();
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test public void testEvictDownToCleanRatio() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc()
+                    .add(field("field1", "value" + i))
+                    .add(field("field2", "value" + i))
+                    .add(field("field3", "value" + i))
+                    .add(field("field4", "value" + i)).build());
+        }
+        IndexReader reader = indexWriter.getReader();
+
+        // room for three fields, evicting down to two of them
+        long fieldSize = FieldData.load(FieldDataType.DefaultTypes.STRING, reader, "field1").sizeInBytes();
+        IndicesFieldDataCache indicesFieldDataCache = new IndicesFieldDataCache(settingsBuilder().put("indices.cache.field.data.size", (fieldSize * 3) + "b").put("indices.cache.field.data.clean_ratio", 0.7).build());
+        LruFieldDataCache cache = new LruFieldDataCache(new Index("test"), EMPTY_SETTINGS, indicesFieldDataCache);
+
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field2");
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field3");
+        assertThat(indicesFieldDataCache.evictions(), equalTo(0l));
+
+        // going over the budget evicts both field1 and field2, so the next field can be added without evicting
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field4");
+        assertThat(indicesFieldDataCache.evictions(), equalTo(2l));
+        assertThat(indicesFieldDataCache.sizeInBytes(), equalTo(fieldSize * 2));
+        cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+        assertThat(indicesFieldDataCache.evictions(), equalTo(2l));
+
+        cache.close();
+        reader.close();
+        indexWriter.close();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.cache.field.data;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.field.data.resident.ResidentFieldDataCache;
+import org.elasticsearch.index.field.data.FieldData;
+import org.elasticsearch.index.field.data.FieldDataType;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class ResidentFieldDataCacheTests {
+
+    @Test public void testLoadOnOtherSegments() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.addDocument(doc().add(field("field1", "value1")).add(field("field2", "value1")).build());
+        indexWriter.commit();
+        indexWriter.addDocument(doc().add(field("field1", "value2")).add(field("field2", "value2")).build());
+        IndexReader reader = indexWriter.getReader();
+        IndexReader[] segments = reader.getSequentialSubReaders();
+        assertThat(segments.length, equalTo(2));
+
+        ThreadPool threadPool = new ThreadPool();
+        ResidentFieldDataCache cache = new ResidentFieldDataCache(new Index("test"), EMPTY_SETTINGS, threadPool);
+        // no readers to prefetch for, only loaded for the first segment
+        cache.cache(FieldDataType.DefaultTypes.STRING, segments[0], "field1");
+        assertThat(cache.fieldsStats().get("field1").loadCount(), equalTo(1l));
+        // field2 will be loaded for the first segment in the background as well
+        cache.cache(FieldDataType.DefaultTypes.STRING, segments[1], "field2", segments);
+        FieldData field2 = cache.cache(FieldDataType.DefaultTypes.STRING, segments[0], "field2");
+        assertThat(field2.hasValue(0), equalTo(true));
+        assertThat(cache.cache(FieldDataType.DefaultTypes.STRING, segments[0], "field2"), sameInstance(field2));
+
+        assertThat(cache.misses(), lessThanOrEqualTo(3l));
+        assertThat(cache.fieldsStats().get("field1").loadCount(), equalTo(1l));
+        assertThat(cache.fieldsStats().get("field2").loadCount(), equalTo(2l));
+        assertThat(cache.fieldsStats().get("field2").sizeInBytes(), equalTo(cache.sizeInBytes("field2")));
+
+        long field2Size = cache.sizeInBytes("field2");
+        cache.clear(segments[0]);
+        assertThat(cache.sizeInBytes("field2"), equalTo(field2Size - field2.sizeInBytes()));
+
+        cache.close();
+        threadPool.shutdownNow();
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test public void testConcurrentRequestsLoadOnce() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 1000; i++) {
+            indexWriter.addDocument(doc().add(field("field1", "value" + i)).build());
+        }
+        final IndexReader reader = indexWriter.getReader();
+
+        ThreadPool threadPool = new ThreadPool();
+        final ResidentFieldDataCache cache = new ResidentFieldDataCache(new Index("test"), EMPTY_SETTINGS, threadPool);
+        final int numberOfThreads = 5;
+        final CyclicBarrier barrier = new CyclicBarrier(numberOfThreads);
+        final CountDownLatch latch = new CountDownLatch(numberOfThreads);
+        final FieldData[] results = new FieldData[numberOfThreads];
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        for (int i = 0; i < numberOfThreads; i++) {
+            final int index = i;
+            new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        barrier.await();
+                        results[index] = cache.cache(FieldDataType.DefaultTypes.STRING, reader, "field1");
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertThat(failure.get(), nullValue());
+        for (FieldData result : results) {
+            assertThat(result, sameInstance(results[0]));
+        }
+        assertThat(cache.fieldsStats().get("field1").loadCount(), equalTo(1l));
+
+        cache.close();
+        threadPool.shutdownNow();
+        reader.close();
+        indexWriter.close();
+    }
+}
@@ -26,18 +26,23 @@ import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.docset.SortedIntDocSet;
 import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.filter.node.NodeFilterCache;
 import org.elasticsearch.index.cache.filter.none.NoneFilterCache;
 import org.elasticsearch.index.cache.filter.soft.SoftFilterCache;
 import org.elasticsearch.index.cache.filter.weak.WeakFilterCache;
 import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.indices.cache.filter.IndicesFilterCache;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
 
 import static org.elasticsearch.common.lucene.DocumentBuilder.*;
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
@@ -59,6 +64,107 @@ public class FilterCacheTests {
         verifyCache(new WeakFilterCache(new Index("test"), EMPTY_SETTINGS, new IndexSettingsService(new Index("test"), EMPTY_SETTINGS)));
     }
 
+    @Test public void testNodeCache() throws Exception {
+        verifyCache(new NodeFilterCache(new Index("test"), EMPTY_SETTINGS, new IndicesFilterCache(EMPTY_SETTINGS)));
+    }
+
+    @Test public void testNodeCacheAdmission() throws Exception {
+        NodeFilterCache filterCache = new NodeFilterCache(new Index("test"), EMPTY_SETTINGS, new IndicesFilterCache(EMPTY_SETTINGS));
+        IndexWriter indexWriter = createIndex();
+        IndexSearcher searcher = new IndexSearcher(indexWriter.getReader());
+
+        Filter cachedFilter = filterCache.cache(new TermFilter(new Term("id", "1")));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(cachedFilter), -1), equalTo(1l));
+        // only cached on its second execution
+        assertThat(filterCache.count(), equalTo(0l));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(cachedFilter), -1), equalTo(1l));
+        assertThat(filterCache.count(), equalTo(1l));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(cachedFilter), -1), equalTo(1l));
+        assertThat(filterCache.hits(), equalTo(1l));
+        assertThat(filterCache.misses(), equalTo(2l));
+
+        filterCache.clear();
+        assertThat(filterCache.count(), equalTo(0l));
+        assertThat(filterCache.sizeInBytes(), equalTo(0l));
+        indexWriter.close();
+    }
+
+    @Test public void testNodeCacheEvictsLeastRecentlyUsedAcrossIndices() throws Exception {
+        long entrySize = new SortedIntDocSet(new int[1]).sizeInBytes();
+        Settings settings = settingsBuilder()
+                .put("indices.cache.filter.size", (entrySize * 3) + "b")
+                .put("indices.cache.filter.min_frequency", 1)
+                .put("indices.cache.filter.clean_ratio", 1.0f)
+                .build();
+        IndicesFilterCache indicesFilterCache = new IndicesFilterCache(settings);
+        NodeFilterCache filterCache1 = new NodeFilterCache(new Index("test1"), EMPTY_SETTINGS, indicesFilterCache);
+        NodeFilterCache filterCache2 = new NodeFilterCache(new Index("test2"), EMPTY_SETTINGS, indicesFilterCache);
+        IndexWriter indexWriter = createIndex();
+        IndexSearcher searcher = new IndexSearcher(indexWriter.getReader());
+
+        Filter filter1 = filterCache1.cache(new TermFilter(new Term("id", "1")));
+        Filter filter2 = filterCache1.cache(new TermFilter(new Term("id", "2")));
+        Filter filter3 = filterCache2.cache(new TermFilter(new Term("id", "3")));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(filter1), -1), equalTo(1l));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(filter2), -1), equalTo(1l));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(filter3), -1), equalTo(1l));
+        assertThat(indicesFilterCache.sizeInBytes(), equalTo(entrySize * 3));
+
+        // make filter1 recently used, filter2 is now the least recently used one
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(filter1), -1), equalTo(1l));
+        assertThat(filterCache1.hits(), equalTo(1l));
+
+        Filter filter4 = filterCache2.cache(new TermFilter(new Term("id", "4")));
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(filter4), -1), equalTo(1l));
+
+        assertThat(indicesFilterCache.sizeInBytes(), equalTo(entrySize * 3));
+        assertThat(indicesFilterCache.evictions(), equalTo(1l));
+        assertThat(filterCache1.evictions(), equalTo(1l));
+        assertThat(filterCache1.count(), equalTo(1l));
+        assertThat(filterCache2.evictions(), equalTo(0l));
+        assertThat(filterCache2.count(), equalTo(2l));
+
+        // the evicted filter gets cached again, evicting filter3
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(filter2), -1), equalTo(1l));
+        assertThat(filterCache1.count(), equalTo(2l));
+        assertThat(filterCache2.count(), equalTo(1l));
+
+        filterCache1.close();
+        assertThat(indicesFilterCache.sizeInBytes(), equalTo(entrySize));
+        indexWriter.close();
+    }
+
+    @Test public void testNodeCacheReleasesFilterCachedWhileReaderIsCleared() throws Exception {
+        Settings settings = settingsBuilder().put("indices.cache.filter.min_frequency", 1).build();
+        IndicesFilterCache indicesFilterCache = new IndicesFilterCache(settings);
+        final NodeFilterCache filterCache = new NodeFilterCache(new Index("test"), EMPTY_SETTINGS, indicesFilterCache);
+        IndexWriter indexWriter = createIndex();
+        IndexSearcher searcher = new IndexSearcher(indexWriter.getReader());
+
+        // clears the reader from the cache while the filter is being built, like a concurrent reader close would
+        Filter cachedFilter = filterCache.cache(new TermFilter(new Term("id", "1")) {
+            @Override public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+                filterCache.clear(reader);
+                return super.getDocIdSet(reader);
+            }
+        });
+        assertThat(Lucene.count(searcher, new ConstantScoreQuery(cachedFilter), -1), equalTo(1l));
+        assertThat(filterCache.count(), equalTo(0l));
+        assertThat(indicesFilterCache.count(), equalTo(0l));
+        assertThat(indicesFilterCache.sizeInBytes(), equalTo(0l));
+        indexWriter.close();
+    }
+
+    private IndexWriter createIndex() throws IOException {
+        IndexWriter indexWriter = new IndexWriter(new RAMDirectory(), Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        for (int i = 0; i < 100; i++) {
+            indexWriter.addDocument(doc()
+                    .add(field("id", Integer.toString(i)))
+                    .build());
+        }
+        return indexWriter;
+    }
+
     private void verifyCache(FilterCache filterCache) throws Exception {
         Directory dir = new RAMDirectory();
         IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.packed.PackedIdCache;
+import org.elasticsearch.index.cache.id.simple.SimpleIdCache;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.Builder.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class PackedIdCacheTests {
+
+    @Test public void testParentChildLookups() throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        // enough parents so the parent ordinals do not fit in a byte
+        for (int i = 0; i < 300; i++) {
+            indexWriter.addDocument(doc().add(field("_uid", "parent#" + i, Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        }
+        indexWriter.commit();
+        for (int i = 0; i < 600; i++) {
+            indexWriter.addDocument(doc()
+                    .add(field("_uid", "child#" + i, Field.Store.NO, Field.Index.NOT_ANALYZED))
+                    .add(field("_parent", "parent#" + (i % 300), Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        }
+        indexWriter.addDocument(doc().add(field("_uid", "parent#deleted", Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        indexWriter.deleteDocuments(new Term("_uid", "parent#deleted"));
+        indexWriter.commit();
+
+        IndexReader reader = IndexReader.open(dir, true);
+        IndexReader[] subReaders = reader.getSequentialSubReaders();
+        assertThat(subReaders.length, equalTo(2));
+
+        PackedIdCache idCache = new PackedIdCache(new Index("test"), EMPTY_SETTINGS);
+        idCache.refresh(subReaders);
+
+        IdReaderCache parents = idCache.reader(subReaders[0]);
+        IdReaderCache children = idCache.reader(subReaders[1]);
+        assertThat(parents.docById("parent", new BytesWrap("0")), equalTo(0));
+        assertThat(parents.docById("parent", new BytesWrap("299")), equalTo(299));
+        assertThat(parents.docById("parent", new BytesWrap("300")), equalTo(-1));
+        assertThat(parents.docById("child", new BytesWrap("0")), equalTo(-1));
+        assertThat(parents.parentIdByDoc("parent", 0), nullValue());
+
+        for (int i = 0; i < 600; i++) {
+            assertThat(children.docById("child", new BytesWrap(Integer.toString(i))), equalTo(i));
+            BytesWrap parentId = children.parentIdByDoc("parent", i);
+            assertThat(parentId, equalTo(new BytesWrap(Integer.toString(i % 300))));
+            // the parent id is created once per ordinal and shared
+            assertThat(children.parentIdByDoc("parent", i), sameInstance(parentId));
+            if (i >= 300) {
+                assertThat(children.parentIdByDoc("parent", i - 300), sameInstance(parentId));
+            }
+            // the parent lives in the other segment
+            assertThat(children.docById("parent", parentId), equalTo(-1));
+            assertThat(parents.docById("parent", parentId), equalTo(i % 300));
+        }
+        assertThat(children.docById("parent", new BytesWrap("deleted")), equalTo(-1));
+        assertThat(children.parentIdByDoc("child", 0), nullValue());
+
+        long sizeInBytes = idCache.sizeInBytes();
+        assertThat(sizeInBytes, greaterThan(0l));
+
+        SimpleIdCache simpleIdCache = new SimpleIdCache(new Index("test"), EMPTY_SETTINGS);
+        simpleIdCache.refresh(subReaders);
+        assertThat(sizeInBytes, lessThan(simpleIdCache.sizeInBytes()));
+
+        // a new segment only loads the new one, the existing ones are reused
+        indexWriter.addDocument(doc()
+                .add(field("_uid", "child#600", Field.Store.NO, Field.Index.NOT_ANALYZED))
+                .add(field("_parent", "parent#1", Field.Store.NO, Field.Index.NOT_ANALYZED)).build());
+        indexWriter.commit();
+        IndexReader newReader = reader.reopen();
+        IndexReader[] newSubReaders = newReader.getSequentialSubReaders();
+        assertThat(newSubReaders.length, equalTo(3));
+        idCache.refresh(newSubReaders);
+        assertThat(idCache.reader(newSubReaders[0]), sameInstance(parents));
+        assertThat(idCache.reader(newSubReaders[1]), sameInstance(children));
+        assertThat(idCache.reader(newSubReaders[2]).parentIdByDoc("parent", 0), equalTo(new BytesWrap("1")));
+        assertThat(idCache.sizeInBytes(), greaterThan(sizeInBytes));
+
+        newReader.close();
+        reader.close();
+        indexWriter.close();
+    }
+}
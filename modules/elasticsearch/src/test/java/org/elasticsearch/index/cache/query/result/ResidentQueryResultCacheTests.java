@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.query.result;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.BytesWrap;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.query.result.resident.ResidentQueryResultCache;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.lucene.DocumentBuilder.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class ResidentQueryResultCacheTests {
+
+    @Test public void testEvictDownToCleanRatio() throws Exception {
+        IndexWriter indexWriter = new IndexWriter(new RAMDirectory(), Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.addDocument(doc().add(field("id", "1")).build());
+        IndexReader reader = indexWriter.getReader();
+
+        // each result takes 10 bytes, its 2 bytes key and 8 bytes result
+        Settings settings = settingsBuilder()
+                .put("index.cache.query.result.max_size", "100b")
+                .put("index.cache.query.result.clean_ratio", 0.5f)
+                .build();
+        ResidentQueryResultCache cache = new ResidentQueryResultCache(new Index("test"), settings);
+        for (int i = 0; i < 10; i++) {
+            cache.put(reader, new BytesWrap("k" + i), new byte[8]);
+        }
+        assertThat(cache.sizeInBytes(), equalTo(100l));
+        assertThat(cache.evictions(), equalTo(0l));
+
+        // make k0 recently used
+        assertThat(cache.get(reader, new BytesWrap("k0")), notNullValue());
+
+        cache.put(reader, new BytesWrap("kA"), new byte[8]);
+        assertThat(cache.evictions(), equalTo(6l));
+        assertThat(cache.count(), equalTo(5l));
+        assertThat(cache.sizeInBytes(), equalTo(50l));
+        assertThat(cache.get(reader, new BytesWrap("k0")), notNullValue());
+        assertThat(cache.get(reader, new BytesWrap("k1")), nullValue());
+        assertThat(cache.get(reader, new BytesWrap("kA")), notNullValue());
+
+        cache.clear(reader);
+        assertThat(cache.count(), equalTo(0l));
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+
+        cache.close();
+        reader.close();
+        indexWriter.close();
+    }
+
+    @Test public void testResultLargerThanMaxSizeIsNotCached() throws Exception {
+        IndexWriter indexWriter = new IndexWriter(new RAMDirectory(), Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+        indexWriter.addDocument(doc().add(field("id", "1")).build());
+        IndexReader reader = indexWriter.getReader();
+
+        ResidentQueryResultCache cache = new ResidentQueryResultCache(new Index("test"), settingsBuilder().put("index.cache.query.result.max_size", "10b").build());
+        cache.put(reader, new BytesWrap("k0"), new byte[9]);
+        assertThat(cache.count(), equalTo(0l));
+        assertThat(cache.get(reader, new BytesWrap("k0")), nullValue());
+
+        cache.close();
+        reader.close();
+        indexWriter.close();
+    }
+}
@@ -278,6 +278,76 @@ public abstract class AbstractSimpleEngineTests {
         searchResult.release();
     }
 
+    @Test public void testRealtimeGet() throws Exception {
+        // create a document
+        ParsedDocument doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.create(new Engine.Create(null, newUid("1"), doc));
+
+        // its not refreshed, but a realtime get should find it in the translog
+        Engine.GetResult getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.version(), equalTo(1l));
+        assertThat(getResult.source(), equalTo(B_1));
+        assertThat(getResult.docIdAndVersion(), nullValue());
+        getResult.release();
+
+        // a non realtime get should not see it
+        getResult = engine.get(new Engine.Get(false, newUid("1")));
+        assertThat(getResult.exists(), equalTo(false));
+        getResult.release();
+
+        // now do an update, realtime get should return the latest source
+        doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test1")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+        engine.index(new Engine.Index(null, newUid("1"), doc));
+
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.version(), equalTo(2l));
+        assertThat(getResult.source(), equalTo(B_2));
+        getResult.release();
+
+        // flush, the document should now be loaded from the index
+        engine.flush(new Engine.Flush());
+
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.source(), nullValue());
+        assertThat(getResult.docIdAndVersion(), notNullValue());
+        getResult.release();
+
+        // delete it, realtime get should not find it, even though not refreshed
+        engine.delete(new Engine.Delete("test", "1", newUid("1")));
+
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(false));
+        getResult.release();
+
+        // index it again, and delete it by query, realtime get should not find it
+        doc = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
+        engine.index(new Engine.Index(null, newUid("1"), doc));
+        doc = new ParsedDocument("2", "2", "test", null, doc().add(uidField("2")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_2, false);
+        engine.index(new Engine.Index(null, newUid("2"), doc));
+        engine.delete(new Engine.DeleteByQuery(new TermQuery(newUid("1")), B_1, null));
+
+        getResult = engine.get(new Engine.Get(true, newUid("1")));
+        assertThat(getResult.exists(), equalTo(false));
+        getResult.release();
+
+        // not deleted by the query, indexed before it, so loaded from the index
+        getResult = engine.get(new Engine.Get(true, newUid("2")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.docIdAndVersion(), notNullValue());
+        getResult.release();
+
+        // indexed after the delete by query, served from the translog again
+        doc = new ParsedDocument("3", "3", "test", null, doc().add(uidField("3")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_3, false);
+        engine.index(new Engine.Index(null, newUid("3"), doc));
+        getResult = engine.get(new Engine.Get(true, newUid("3")));
+        assertThat(getResult.exists(), equalTo(true));
+        assertThat(getResult.source(), equalTo(B_3));
+        getResult.release();
+    }
+
     @Test public void testSimpleSnapshot() throws Exception {
         // create a document
         ParsedDocument doc1 = new ParsedDocument("1", "1", "test", null, doc().add(uidField("1")).add(field("value", "test")).build(), Lucene.STANDARD_ANALYZER, B_1, false);
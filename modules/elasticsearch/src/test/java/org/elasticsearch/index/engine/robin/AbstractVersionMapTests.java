@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine.robin;
+
+import org.elasticsearch.index.translog.Translog;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public abstract class AbstractVersionMapTests {
+
+    protected abstract VersionMap create();
+
+    @Test public void testSimple() {
+        VersionMap versionMap = create();
+        assertThat(versionMap.get("1"), nullValue());
+
+        versionMap.put("1", new RobinEngine.VersionValue(1, false, 10, new Translog.Location(1, 100, 20)));
+        RobinEngine.VersionValue versionValue = versionMap.get("1");
+        assertThat(versionValue.version(), equalTo(1l));
+        assertThat(versionValue.delete(), equalTo(false));
+        assertThat(versionValue.time(), equalTo(10l));
+        assertThat(versionValue.translogLocation().translogId, equalTo(1l));
+        assertThat(versionValue.translogLocation().translogLocation, equalTo(100l));
+        assertThat(versionValue.translogLocation().size, equalTo(20));
+        assertThat(versionMap.get("2"), nullValue());
+        assertThat(versionMap.size(), equalTo(1));
+
+        versionMap.put("1", new RobinEngine.VersionValue(2, true, 20, null));
+        versionValue = versionMap.get("1");
+        assertThat(versionValue.version(), equalTo(2l));
+        assertThat(versionValue.delete(), equalTo(true));
+        assertThat(versionValue.time(), equalTo(20l));
+        assertThat(versionValue.translogLocation(), nullValue());
+        assertThat(versionMap.size(), equalTo(1));
+
+        versionMap.clear();
+        assertThat(versionMap.get("1"), nullValue());
+        assertThat(versionMap.size(), equalTo(0));
+    }
+
+    @Test public void testPrune() {
+        VersionMap versionMap = create();
+        versionMap.put("index", new RobinEngine.VersionValue(1, false, 100, null));
+        versionMap.put("old_delete", new RobinEngine.VersionValue(2, true, 10, null));
+        versionMap.put("new_delete", new RobinEngine.VersionValue(3, true, 90, null));
+
+        versionMap.prune(100, 50);
+        assertThat(versionMap.size(), equalTo(1));
+        assertThat(versionMap.get("index"), nullValue());
+        assertThat(versionMap.get("old_delete"), nullValue());
+        assertThat(versionMap.get("new_delete").version(), equalTo(3l));
+
+        versionMap.put("index", new RobinEngine.VersionValue(4, false, 100, null));
+        versionMap.prune(100, Long.MAX_VALUE);
+        assertThat(versionMap.size(), equalTo(1));
+        assertThat(versionMap.get("index"), nullValue());
+        assertThat(versionMap.get("new_delete").version(), equalTo(3l));
+    }
+
+    @Test public void testManyVersions() {
+        VersionMap versionMap = create();
+        Map<String, Long> expected = new HashMap<String, Long>();
+        for (int i = 0; i < 100000; i++) {
+            String uid = "type#" + (i % 50000);
+            versionMap.put(uid, new RobinEngine.VersionValue(i, (i % 3) == 0, i, new Translog.Location(i, i, i)));
+            expected.put(uid, (long) i);
+        }
+        assertThat(versionMap.size(), equalTo(expected.size()));
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            RobinEngine.VersionValue versionValue = versionMap.get(entry.getKey());
+            assertThat(versionValue.version(), equalTo(entry.getValue()));
+            assertThat(versionValue.delete(), equalTo((entry.getValue() % 3) == 0));
+            assertThat(versionValue.translogLocation().translogLocation, equalTo(entry.getValue()));
+        }
+
+        versionMap.prune(100000, Long.MAX_VALUE);
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            RobinEngine.VersionValue versionValue = versionMap.get(entry.getKey());
+            if ((entry.getValue() % 3) == 0) {
+                assertThat(versionValue.version(), equalTo(entry.getValue()));
+            } else {
+                assertThat(versionValue, nullValue());
+            }
+        }
+    }
+}
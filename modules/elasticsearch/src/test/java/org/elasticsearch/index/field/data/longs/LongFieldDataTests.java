@@ -24,7 +24,9 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.field.data.FieldData;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
@@ -158,4 +160,69 @@ public class LongFieldDataTests {
         assertThat(values.get(1), equalTo(104l));
         assertThat(values.get(2), equalTo(105l));
     }
-}
\ No newline at end of file
+
+    @Test public void directFieldDataTests() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter indexWriter = new IndexWriter(dir, Lucene.STANDARD_ANALYZER, true, IndexWriter.MaxFieldLength.UNLIMITED);
+
+        indexWriter.addDocument(doc()
+                .add(new NumericField("svalue").setLongValue(4))
+                .add(new NumericField("mvalue").setLongValue(104))
+                .build());
+
+        indexWriter.addDocument(doc()
+                .add(new NumericField("mvalue").setLongValue(104))
+                .add(new NumericField("mvalue").setLongValue(105))
+                .build());
+
+        indexWriter.addDocument(doc()
+                .add(new NumericField("svalue").setLongValue(7))
+                .build());
+
+        IndexReader reader = indexWriter.getReader();
+
+        LongFieldData heapFieldData = LongFieldData.load(reader, "svalue");
+        LongFieldData sFieldData = (LongFieldData) heapFieldData.direct();
+        assertThat(sFieldData, instanceOf(DirectSingleValueLongFieldData.class));
+        assertThat(sFieldData.fieldName(), equalTo("svalue"));
+        assertThat(sFieldData.multiValued(), equalTo(false));
+        assertThat(sFieldData.sizeInBytes(), equalTo(heapFieldData.sizeInBytes() - 2 * RamUsage.NUM_BYTES_ARRAY_HEADER));
+
+        assertThat(sFieldData.hasValue(0), equalTo(true));
+        assertThat(sFieldData.value(0), equalTo(4l));
+        assertThat(sFieldData.date(0).getMillis(), equalTo(4l));
+        assertThat(sFieldData.values(0).length, equalTo(1));
+        assertThat(sFieldData.values(0)[0], equalTo(4l));
+        assertThat(sFieldData.dates(0)[0].getMillis(), equalTo(4l));
+        assertThat(sFieldData.docFieldData(0).getValue(), equalTo(4l));
+
+        assertThat(sFieldData.hasValue(1), equalTo(false));
+        assertThat(sFieldData.values(1).length, equalTo(0));
+
+        assertThat(sFieldData.hasValue(2), equalTo(true));
+        assertThat(sFieldData.value(2), equalTo(7l));
+        assertThat(sFieldData.doubleValues(2)[0], equalTo(7d));
+
+        assertThat(sFieldData.values(), equalTo(heapFieldData.values()));
+        assertThat(sFieldData.numValues(), equalTo(heapFieldData.numValues()));
+        for (int ordinal = 0; ordinal < heapFieldData.numValues(); ordinal++) {
+            assertThat(sFieldData.valueByOrdinal(ordinal), equalTo(heapFieldData.valueByOrdinal(ordinal)));
+        }
+
+        final ArrayList<Long> values = new ArrayList<Long>();
+        sFieldData.forEachValue(new LongFieldData.ValueProc() {
+            @Override public void onValue(long value) {
+                values.add(value);
+            }
+        });
+        assertThat(values.size(), equalTo(2));
+        assertThat(values.get(0), equalTo(4l));
+        assertThat(values.get(1), equalTo(7l));
+
+        // multi valued field data has no direct version
+        LongFieldData mFieldData = LongFieldData.load(reader, "mvalue");
+        assertThat(mFieldData.direct(), sameInstance((FieldData) mFieldData));
+
+        indexWriter.close();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.field.data.support;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class MultiValueOrdinalsTests {
+
+    @Test public void testPackedIntArray() {
+        assertThat(PackedIntArray.bitsRequired(0), equalTo(1));
+        assertThat(PackedIntArray.bitsRequired(1), equalTo(1));
+        assertThat(PackedIntArray.bitsRequired(2), equalTo(2));
+        assertThat(PackedIntArray.bitsRequired(255), equalTo(8));
+        assertThat(PackedIntArray.bitsRequired(256), equalTo(9));
+        assertThat(PackedIntArray.bitsRequired(Integer.MAX_VALUE), equalTo(31));
+
+        Random random = new Random();
+        for (int bits = 1; bits <= 32; bits++) {
+            int size = 1000;
+            PackedIntArray array = new PackedIntArray(size, bits);
+            int[] expected = new int[size];
+            long mask = (1l << bits) - 1;
+            for (int i = 0; i < size; i++) {
+                expected[i] = (int) (random.nextLong() & mask);
+                array.set(i, expected[i]);
+            }
+            // override a few to check set clears the previous bits
+            for (int i = 0; i < size; i += 7) {
+                expected[i] = (int) (random.nextLong() & mask);
+                array.set(i, expected[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                assertThat("bits [" + bits + "], index [" + i + "]", array.get(i), equalTo(expected[i]));
+            }
+        }
+    }
+
+    @Test public void testMultiValueOrdinals() {
+        // doc 0: 1, doc 1: 2 3, doc 2: none, doc 3: 1 2 4, doc 4: 4
+        int[][] ordinals = new int[][]{
+                {1, 2, 0, 1, 4},
+                {0, 3, 0, 2, 0},
+                {0, 0, 0, 4, 0}
+        };
+        MultiValueOrdinals multiValueOrdinals = build(ordinals, 4);
+
+        assertThat(multiValueOrdinals.numValues(0), equalTo(1));
+        assertThat(multiValueOrdinals.firstOrdinal(0), equalTo(1));
+
+        assertThat(multiValueOrdinals.numValues(1), equalTo(2));
+        assertThat(multiValueOrdinals.firstOrdinal(1), equalTo(2));
+        assertThat(multiValueOrdinals.ordinal(1, 1), equalTo(3));
+
+        assertThat(multiValueOrdinals.numValues(2), equalTo(0));
+        assertThat(multiValueOrdinals.firstOrdinal(2), equalTo(0));
+
+        assertThat(multiValueOrdinals.numValues(3), equalTo(3));
+        assertThat(multiValueOrdinals.ordinal(3, 0), equalTo(1));
+        assertThat(multiValueOrdinals.ordinal(3, 1), equalTo(2));
+        assertThat(multiValueOrdinals.ordinal(3, 2), equalTo(4));
+
+        assertThat(multiValueOrdinals.numValues(4), equalTo(1));
+        assertThat(multiValueOrdinals.firstOrdinal(4), equalTo(4));
+    }
+
+    @Test public void testRandomMultiValueOrdinals() {
+        Random random = new Random();
+        int maxDoc = 10000;
+        int maxOrdinal = 5000;
+        int slots = 5;
+        int[][] ordinals = new int[slots][maxDoc];
+        for (int docId = 0; docId < maxDoc; docId++) {
+            int numValues = random.nextInt(slots + 1);
+            int ordinal = 0;
+            for (int i = 0; i < numValues; i++) {
+                ordinal += 1 + random.nextInt(maxOrdinal / slots);
+                ordinals[i][docId] = ordinal;
+            }
+        }
+        MultiValueOrdinals multiValueOrdinals = build(ordinals, maxOrdinal);
+        for (int docId = 0; docId < maxDoc; docId++) {
+            int numValues = 0;
+            while (numValues < slots && ordinals[numValues][docId] != 0) {
+                numValues++;
+            }
+            assertThat(multiValueOrdinals.numValues(docId), equalTo(numValues));
+            assertThat(multiValueOrdinals.firstOrdinal(docId), equalTo(ordinals[0][docId]));
+            for (int i = 0; i < numValues; i++) {
+                assertThat(multiValueOrdinals.ordinal(docId, i), equalTo(ordinals[i][docId]));
+            }
+        }
+        assertThat(multiValueOrdinals.sizeInBytes(), lessThan((long) slots * maxDoc * 4));
+    }
+
+    /**
+     * Builds the ordinals out of the per "value slot" ordinals, where <tt>ordinals[i][docId]</tt> is the
+     * i-th ordinal of the doc (<tt>0</tt> if it has less than <tt>i + 1</tt> values).
+     */
+    private static MultiValueOrdinals build(int[][] ordinals, int maxOrdinal) {
+        int maxDoc = ordinals[0].length;
+        int[] numValues = new int[maxDoc];
+        for (int[] ordinal : ordinals) {
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if (ordinal[docId] != 0) {
+                    numValues[docId]++;
+                }
+            }
+        }
+        MultiValueOrdinals.Builder builder = new MultiValueOrdinals.Builder(ordinals[0], numValues, maxOrdinal);
+        for (int[] ordinal : ordinals) {
+            for (int docId = 0; docId < maxDoc; docId++) {
+                if (ordinal[docId] != 0) {
+                    builder.addOrdinal(docId, ordinal[docId]);
+                }
+            }
+        }
+        return builder.build();
+    }
+}
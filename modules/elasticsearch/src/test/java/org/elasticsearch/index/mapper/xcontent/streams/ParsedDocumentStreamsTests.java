@@ -0,0 +1,204 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.mapper.xcontent.streams;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Fieldable;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TermEnum;
+import org.apache.lucene.index.TermPositions;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.ParsedDocumentStreams;
+import org.elasticsearch.index.mapper.xcontent.MapperTests;
+import org.elasticsearch.index.mapper.xcontent.XContentDocumentMapper;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class ParsedDocumentStreamsTests {
+
+    private static String mapping() throws Exception {
+        return XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("_source").field("compress", true).field("compress_threshold", 10).endObject()
+                .startObject("_all").field("store", "yes").field("term_vector", "with_positions_offsets").endObject()
+                .startObject("properties")
+                .startObject("name").field("type", "string").field("store", "yes").field("boost", 2.0f).endObject()
+                .startObject("tag").field("type", "string").field("index", "not_analyzed").field("omit_term_freq_and_positions", true).endObject()
+                .startObject("int").field("type", "integer").field("store", "yes").endObject()
+                .startObject("long").field("type", "long").field("precision_step", 8).endObject()
+                .startObject("float").field("type", "float").endObject()
+                .startObject("double").field("type", "double").field("store", "yes").endObject()
+                .startObject("date").field("type", "date").endObject()
+                .startObject("flag").field("type", "boolean").endObject()
+                .startObject("bin").field("type", "binary").endObject()
+                .endObject().endObject().endObject().string();
+    }
+
+    private static byte[] source() throws Exception {
+        return XContentFactory.jsonBuilder().startObject()
+                .field("name", "the quick brown fox")
+                .field("tag", "Some Tag")
+                .field("int", 12)
+                .field("long", 123456789012L)
+                .field("float", 1.5f)
+                .field("double", -2.25d)
+                .field("date", "2011-05-01")
+                .field("flag", true)
+                .field("bin", new byte[]{1, 2, 3})
+                .endObject().copiedBytes();
+    }
+
+    @Test public void testParsedDocumentRoundTrip() throws Exception {
+        XContentDocumentMapper docMapper = MapperTests.newParser().parse(mapping());
+        byte[] source = source();
+        ParsedDocument doc = docMapper.parse("type", "1", source);
+        assertThat(ParsedDocumentStreams.canWrite(docMapper, doc), equalTo(true));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        ParsedDocumentStreams.writeParsedDocument(out, doc, source);
+
+        // read it using a mapper of its own, like a replica would
+        XContentDocumentMapper replicaDocMapper = MapperTests.newParser().parse(mapping());
+        ParsedDocument replicaDoc = ParsedDocumentStreams.readParsedDocument(new BytesStreamInput(out.copiedByteArray()), replicaDocMapper, source);
+        assertThat(replicaDoc, notNullValue());
+        assertThat(replicaDoc.uid(), equalTo(doc.uid()));
+        assertThat(replicaDoc.id(), equalTo("1"));
+        assertThat(replicaDoc.type(), equalTo("type"));
+        // the source got compressed, so it has to be sent along
+        assertThat(replicaDoc.source(), not(sameInstance(source)));
+        assertThat(replicaDoc.source(), equalTo(doc.source()));
+
+        List<Fieldable> fields = doc.doc().getFields();
+        List<Fieldable> replicaFields = replicaDoc.doc().getFields();
+        assertThat(replicaFields.size(), equalTo(fields.size()));
+        for (int i = 0; i < fields.size(); i++) {
+            Fieldable field = fields.get(i);
+            Fieldable replicaField = replicaFields.get(i);
+            assertThat(replicaField.name(), equalTo(field.name()));
+            assertThat(replicaField.isStored(), equalTo(field.isStored()));
+            assertThat(replicaField.isIndexed(), equalTo(field.isIndexed()));
+            assertThat(replicaField.isTokenized(), equalTo(field.isTokenized()));
+            assertThat(replicaField.getOmitNorms(), equalTo(field.getOmitNorms()));
+            assertThat(replicaField.getOmitTermFreqAndPositions(), equalTo(field.getOmitTermFreqAndPositions()));
+            assertThat(replicaField.isTermVectorStored(), equalTo(field.isTermVectorStored()));
+            assertThat(replicaField.getBoost(), equalTo(field.getBoost()));
+        }
+
+        assertThat(indexedTerms(replicaDoc), equalTo(indexedTerms(doc)));
+    }
+
+    @Test public void testSourceNotWrittenWhenSameAsRequest() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties").startObject("name").field("type", "string").endObject().endObject()
+                .endObject().endObject().string();
+        XContentDocumentMapper docMapper = MapperTests.newParser().parse(mapping);
+        byte[] source = XContentFactory.jsonBuilder().startObject().field("name", "value").endObject().copiedBytes();
+        ParsedDocument doc = docMapper.parse("type", "1", source);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        ParsedDocumentStreams.writeParsedDocument(out, doc, source);
+
+        ParsedDocument replicaDoc = ParsedDocumentStreams.readParsedDocument(new BytesStreamInput(out.copiedByteArray()), docMapper, source);
+        assertThat(replicaDoc.source(), sameInstance(source));
+        assertThat(replicaDoc.doc().getFieldable("_source").getBinaryValue(), sameInstance(source));
+        assertThat(indexedTerms(replicaDoc), equalTo(indexedTerms(doc)));
+    }
+
+    @Test public void testCanNotWriteWhenMappersAdded() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").endObject().endObject().string();
+        XContentDocumentMapper docMapper = MapperTests.newParser().parse(mapping);
+        byte[] source = XContentFactory.jsonBuilder().startObject().field("name", "value").endObject().copiedBytes();
+        ParsedDocument doc = docMapper.parse("type", "1", source);
+        assertThat(doc.mappersAdded(), equalTo(true));
+        assertThat(ParsedDocumentStreams.canWrite(docMapper, doc), equalTo(false));
+    }
+
+    @Test public void testUnknownFieldOnRead() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").endObject().endObject().string();
+        XContentDocumentMapper docMapper = MapperTests.newParser().parse(mapping);
+        byte[] source = XContentFactory.jsonBuilder().startObject().field("name", "value").endObject().copiedBytes();
+        docMapper.parse("type", "1", source);
+        // second time around, the mapping is already there
+        ParsedDocument doc = docMapper.parse("type", "1", source);
+        assertThat(ParsedDocumentStreams.canWrite(docMapper, doc), equalTo(true));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        ParsedDocumentStreams.writeParsedDocument(out, doc, source);
+
+        // a mapper that has not seen the dynamic field yet
+        XContentDocumentMapper replicaDocMapper = MapperTests.newParser().parse(mapping);
+        assertThat(ParsedDocumentStreams.readParsedDocument(new BytesStreamInput(out.copiedByteArray()), replicaDocMapper, source), nullValue());
+    }
+
+    private static String indexedTerms(ParsedDocument doc) throws Exception {
+        RAMDirectory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        writer.addDocument(doc.doc(), doc.analyzer());
+        writer.close();
+
+        StringBuilder sb = new StringBuilder();
+        IndexReader reader = IndexReader.open(dir, true);
+        TermEnum termEnum = reader.terms();
+        TermPositions termPositions = reader.termPositions();
+        while (termEnum.next()) {
+            sb.append(termEnum.term()).append(':');
+            termPositions.seek(termEnum);
+            while (termPositions.next()) {
+                sb.append(termPositions.freq());
+                for (int i = 0; i < termPositions.freq(); i++) {
+                    sb.append(',').append(termPositions.nextPosition());
+                }
+            }
+            sb.append('\n');
+        }
+        Document stored = reader.document(0);
+        for (Fieldable field : (List<Fieldable>) stored.getFields()) {
+            sb.append(field.name()).append('=');
+            if (field.isBinary()) {
+                for (int i = 0; i < field.getBinaryLength(); i++) {
+                    sb.append(field.getBinaryValue()[field.getBinaryOffset() + i]).append(' ');
+                }
+            } else {
+                sb.append(field.stringValue());
+            }
+            sb.append('\n');
+        }
+        for (String field : reader.getFieldNames(IndexReader.FieldOption.ALL)) {
+            byte[] norms = reader.norms(field);
+            sb.append(field).append(" norms ").append(norms == null ? "none" : Byte.toString(norms[0])).append('\n');
+        }
+        reader.close();
+        return sb.toString();
+    }
+}
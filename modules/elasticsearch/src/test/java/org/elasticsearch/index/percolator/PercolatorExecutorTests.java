@@ -120,4 +120,40 @@ public class PercolatorExecutorTests {
         assertThat(percolate.matches(), hasSize(1));
         assertThat(percolate.matches(), hasItems("test1"));
     }
+
+    @Test public void testOnlyCandidateQueriesMatch() throws Exception {
+        byte[] source = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                .field("field1", 5)
+                .field("field3", "the quick brown fox")
+                .endObject().endObject().copiedBytes();
+
+        // introduce the mappings, so the range queries are parsed as numeric ones
+        PercolatorExecutor.Response percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+        assertThat(percolate.matches(), hasSize(0));
+
+        percolatorExecutor.addQuery("term", termQuery("field3", "quick"));
+        percolatorExecutor.addQuery("term_no_match", termQuery("field3", "slow"));
+        percolatorExecutor.addQuery("phrase", queryString("field3:\"brown fox\""));
+        percolatorExecutor.addQuery("phrase_no_match", queryString("field3:\"fox brown\""));
+        percolatorExecutor.addQuery("bool", boolQuery().should(termQuery("field3", "slow")).should(termQuery("field3", "fox")));
+        percolatorExecutor.addQuery("bool_no_match", boolQuery().must(termQuery("field3", "quick")).must(termQuery("field3", "dog")));
+        percolatorExecutor.addQuery("range", rangeQuery("field1").from(1).to(10));
+        percolatorExecutor.addQuery("range_no_match", rangeQuery("field1").from(10).to(20));
+
+        percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+        assertThat(percolate.matches(), hasSize(4));
+        assertThat(percolate.matches(), hasItems("term", "phrase", "bool", "range"));
+
+        // replace a query, the old terms should not be candidates anymore
+        percolatorExecutor.addQuery("term", termQuery("field3", "dog"));
+        percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+        assertThat(percolate.matches(), hasSize(3));
+        assertThat(percolate.matches(), hasItems("phrase", "bool", "range"));
+
+        for (String name : new String[]{"term", "term_no_match", "phrase", "phrase_no_match", "bool", "bool_no_match", "range", "range_no_match"}) {
+            percolatorExecutor.removeQuery(name);
+        }
+        percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+        assertThat(percolate.matches(), hasSize(0));
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class QueryTermsExtractorTests {
+
+    @Test public void testTermAndPhraseQueries() {
+        Set<Term> terms = QueryTermsExtractor.extract(new TermQuery(new Term("field", "value")));
+        assertThat(terms, hasSize(1));
+        assertThat(terms, hasItem(new Term("field", "value")));
+
+        PhraseQuery phraseQuery = new PhraseQuery();
+        phraseQuery.add(new Term("field", "a"));
+        phraseQuery.add(new Term("field", "longest"));
+        phraseQuery.add(new Term("field", "bb"));
+        terms = QueryTermsExtractor.extract(phraseQuery);
+        assertThat(terms, hasSize(1));
+        assertThat(terms, hasItem(new Term("field", "longest")));
+
+        terms = QueryTermsExtractor.extract(new ConstantScoreQuery(new TermFilter(new Term("field", "value"))));
+        assertThat(terms, hasItem(new Term("field", "value")));
+
+        terms = QueryTermsExtractor.extract(new FilteredQuery(new TermQuery(new Term("field", "value")), new TermFilter(new Term("field", "other"))));
+        assertThat(terms, hasSize(1));
+        assertThat(terms, hasItem(new Term("field", "value")));
+
+        terms = QueryTermsExtractor.extract(new SpanNearQuery(new SpanQuery[]{new SpanTermQuery(new Term("field", "a")), new SpanTermQuery(new Term("field", "b"))}, 2, true));
+        assertThat(terms, hasSize(1));
+    }
+
+    @Test public void testBooleanQuery() {
+        // only optional clauses, any of them
+        BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.SHOULD);
+        query.add(new TermQuery(new Term("field", "b")), BooleanClause.Occur.SHOULD);
+        query.add(new TermQuery(new Term("field", "c")), BooleanClause.Occur.MUST_NOT);
+        Set<Term> terms = QueryTermsExtractor.extract(query);
+        assertThat(terms, hasSize(2));
+        assertThat(terms, hasItems(new Term("field", "a"), new Term("field", "b")));
+
+        // an optional clause that can't be extracted, can't use the others
+        query.add(new MatchAllDocsQuery(), BooleanClause.Occur.SHOULD);
+        assertThat(QueryTermsExtractor.extract(query), nullValue());
+
+        // a required clause is enough
+        BooleanQuery phrases = new BooleanQuery();
+        phrases.add(new TermQuery(new Term("field", "x")), BooleanClause.Occur.SHOULD);
+        phrases.add(new TermQuery(new Term("field", "y")), BooleanClause.Occur.SHOULD);
+        query = new BooleanQuery();
+        query.add(NumericRangeQuery.newIntRange("num", 1, 10, true, true), BooleanClause.Occur.MUST);
+        query.add(phrases, BooleanClause.Occur.MUST);
+        query.add(new TermQuery(new Term("field", "z")), BooleanClause.Occur.MUST);
+        terms = QueryTermsExtractor.extract(query);
+        assertThat(terms, hasSize(1));
+        assertThat(terms, hasItem(new Term("field", "z")));
+
+        // only negative clauses
+        query = new BooleanQuery();
+        query.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.MUST_NOT);
+        assertThat(QueryTermsExtractor.extract(query), nullValue());
+    }
+
+    @Test public void testUnsupportedQueries() {
+        assertThat(QueryTermsExtractor.extract(new MatchAllDocsQuery()), nullValue());
+        assertThat(QueryTermsExtractor.extract(new PrefixQuery(new Term("field", "val"))), nullValue());
+        assertThat(QueryTermsExtractor.extract(NumericRangeQuery.newIntRange("num", 1, 10, true, true)), nullValue());
+    }
+}
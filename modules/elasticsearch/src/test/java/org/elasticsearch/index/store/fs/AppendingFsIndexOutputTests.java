@@ -0,0 +1,98 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.store.fs;
+
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class AppendingFsIndexOutputTests {
+
+    private File dir;
+
+    @BeforeMethod public void createDir() {
+        dir = new File("work/test/appending-output");
+        FileSystemUtils.deleteRecursively(dir);
+        dir.mkdirs();
+    }
+
+    @AfterMethod public void deleteDir() {
+        FileSystemUtils.deleteRecursively(dir);
+    }
+
+    @Test public void testResumeFromOffset() throws Exception {
+        SimpleFSDirectory directory = new SimpleFSDirectory(dir);
+        IndexOutput output = directory.createOutput("test");
+        for (int i = 0; i < 100; i++) {
+            output.writeByte((byte) i);
+        }
+        output.close();
+
+        FsStore.AppendingFsIndexOutput appending = new FsStore.AppendingFsIndexOutput(new File(dir, "test"));
+        assertThat(appending.getFilePointer(), equalTo(100l));
+        for (int i = 100; i < 200; i++) {
+            appending.writeByte((byte) i);
+        }
+        assertThat(appending.getFilePointer(), equalTo(200l));
+        appending.close();
+
+        assertThat(directory.fileLength("test"), equalTo(200l));
+        IndexInput input = directory.openInput("test");
+        for (int i = 0; i < 200; i++) {
+            assertThat(input.readByte(), equalTo((byte) i));
+        }
+        input.close();
+        directory.close();
+    }
+
+    @Test public void testSeekKeepsAbsolutePosition() throws Exception {
+        SimpleFSDirectory directory = new SimpleFSDirectory(dir);
+        IndexOutput output = directory.createOutput("test");
+        output.writeBytes(new byte[50], 50);
+        output.close();
+
+        FsStore.AppendingFsIndexOutput appending = new FsStore.AppendingFsIndexOutput(new File(dir, "test"));
+        appending.writeBytes(new byte[50], 50);
+        appending.seek(60);
+        assertThat(appending.getFilePointer(), equalTo(60l));
+        appending.writeByte((byte) 1);
+        assertThat(appending.getFilePointer(), equalTo(61l));
+        appending.close();
+
+        assertThat(directory.fileLength("test"), equalTo(100l));
+        IndexInput input = directory.openInput("test");
+        input.seek(60);
+        assertThat(input.readByte(), equalTo((byte) 1));
+        input.close();
+        directory.close();
+    }
+}
@@ -117,6 +117,20 @@ public abstract class AbstractSimpleTranslogTests {
         snapshot.release();
     }
 
+    @Test public void testReadLocation() {
+        Translog.Location location1 = translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        Translog.Location location2 = translog.add(new Translog.Index("test", "2", new byte[]{2}));
+        Translog.Location location3 = translog.add(new Translog.Delete(newUid("3")));
+
+        assertThat(((Translog.Create) translog.read(location1)).source(), equalTo(new byte[]{1}));
+        assertThat(((Translog.Index) translog.read(location2)).source(), equalTo(new byte[]{2}));
+        assertThat(((Translog.Delete) translog.read(location3)).uid(), equalTo(newUid("3")));
+
+        // once a new translog is created, the locations are no longer valid
+        translog.newTranslog();
+        assertThat(translog.read(location1), nullValue());
+    }
+
     @Test public void testSnapshot() {
         Translog.Snapshot snapshot = translog.snapshot();
         assertThat(snapshot, translogSize(0));
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.memory;
+
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.indices.memory.IndexingMemoryBufferController.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class IndexingMemoryBufferControllerTests {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test public void testEvenSplitWithNoIndexing() {
+        long[] sizes = calcShardIndexingBuffers(100 * MB, 4 * MB, 512 * MB, new double[]{0, 0, 0, 0});
+        assertThat(sizes.length, equalTo(4));
+        for (long size : sizes) {
+            assertThat(size, equalTo(25 * MB));
+        }
+    }
+
+    @Test public void testMinWhenBufferTooSmall() {
+        long[] sizes = calcShardIndexingBuffers(10 * MB, 4 * MB, 512 * MB, new double[]{100, 0, 0, 0});
+        for (long size : sizes) {
+            assertThat(size, equalTo(4 * MB));
+        }
+    }
+
+    @Test public void testSplitInProportionToRates() {
+        long[] sizes = calcShardIndexingBuffers(100 * MB, 4 * MB, 512 * MB, new double[]{300, 100, 0, 0});
+        assertThat(sizes[2], equalTo(4 * MB));
+        assertThat(sizes[3], equalTo(4 * MB));
+        // 84mb left after the min sizes, 3/4 of it goes to the first shard
+        assertThat(sizes[0], equalTo(4 * MB + 63 * MB));
+        assertThat(sizes[1], equalTo(4 * MB + 21 * MB));
+        assertThat(sizes[0] + sizes[1] + sizes[2] + sizes[3], lessThanOrEqualTo(100 * MB));
+    }
+
+    @Test public void testMaxBoundsGivesExcessToOthers() {
+        long[] sizes = calcShardIndexingBuffers(100 * MB, 4 * MB, 40 * MB, new double[]{1000, 10, 10, 0});
+        assertThat(sizes[0], equalTo(40 * MB));
+        assertThat(sizes[3], equalTo(4 * MB));
+        // the rest is split evenly between the two other indexing shards
+        assertThat(sizes[1], equalTo(4 * MB + 24 * MB));
+        assertThat(sizes[2], equalTo(4 * MB + 24 * MB));
+    }
+
+    @Test public void testAllIndexingShardsCapped() {
+        long[] sizes = calcShardIndexingBuffers(100 * MB, 4 * MB, 20 * MB, new double[]{1000, 1000, 0, 0});
+        assertThat(sizes[0], equalTo(20 * MB));
+        assertThat(sizes[1], equalTo(20 * MB));
+        assertThat(sizes[2], equalTo(20 * MB));
+        assertThat(sizes[3], equalTo(20 * MB));
+
+        sizes = calcShardIndexingBuffers(100 * MB, 4 * MB, 40 * MB, new double[]{1000, 1000, 0, 0});
+        assertThat(sizes[0], equalTo(40 * MB));
+        assertThat(sizes[1], equalTo(40 * MB));
+        assertThat(sizes[2], equalTo(10 * MB));
+        assertThat(sizes[3], equalTo(10 * MB));
+    }
+
+    @Test public void testOperationsFromEngineAndTranslog() {
+        ShardIndexingStatus status = new ShardIndexingStatus();
+        status.operations = 100;
+        status.translogId = 1;
+        status.translogNumberOfOperations = 50;
+        // the engine saw more operations
+        assertThat(operationsSinceLastCheck(status, 130, 1, 60), equalTo(30l));
+        // the translog saw more operations (for example, not counted as engine operations)
+        assertThat(operationsSinceLastCheck(status, 110, 1, 90), equalTo(40l));
+        // flushed in between, only the operations of the new translog are known
+        assertThat(operationsSinceLastCheck(status, 100, 2, 25), equalTo(25l));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import org.elasticsearch.common.io.BytesRecycler;
+import org.elasticsearch.common.netty.buffer.ChannelBuffer;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+@Test
+public class ChannelBufferStreamOutputTests {
+
+    @Test public void testWriteAcrossPages() throws Exception {
+        ChannelBufferStreamOutput out = new ChannelBufferStreamOutput(1024, 13);
+        out.writeInt(-1);
+        out.writeLong(-3);
+        out.writeUTF("hello world, spanning several pages");
+        byte[] bytes = new byte[3000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        out.writeBytes(bytes);
+
+        out.setInt(0, out.size() - 4);
+        out.setLong(4, Long.MAX_VALUE - 1);
+        out.setByte(12, (byte) 3);
+
+        ChannelBuffer buffer = out.buffer();
+        assertThat(buffer.readableBytes(), equalTo(out.size()));
+
+        ChannelBufferStreamInput in = new ChannelBufferStreamInput(buffer, buffer.readableBytes());
+        assertThat(in.readInt(), equalTo(out.size() - 4));
+        assertThat(in.readLong(), equalTo(Long.MAX_VALUE - 1));
+        assertThat(in.readByte(), equalTo((byte) 3));
+        assertThat(in.readInt(), equalTo(-1));
+        assertThat(in.readLong(), equalTo(-3l));
+        assertThat(in.readUTF(), equalTo("hello world, spanning several pages"));
+        byte[] read = new byte[bytes.length];
+        in.readBytes(read, 0, read.length);
+        assertThat(in.available(), equalTo(0));
+        assertThat(read, equalTo(bytes));
+
+        int pages = (out.size() + 1023) / 1024;
+        assertThat(pages, greaterThan(1));
+        long pooled = BytesRecycler.stats().count();
+        out.release();
+        assertThat(BytesRecycler.stats().count(), equalTo(pooled + pages));
+    }
+
+    @Test public void testReset() throws Exception {
+        ChannelBufferStreamOutput out = new ChannelBufferStreamOutput(1024, 13);
+        out.writeBytes(new byte[3000]);
+        long pooled = BytesRecycler.stats().count();
+        out.reset();
+        assertThat(out.size(), equalTo(13));
+        assertThat(BytesRecycler.stats().count(), equalTo(pooled + 2));
+
+        out.writeInt(7);
+        ChannelBufferStreamInput in = new ChannelBufferStreamInput(out.buffer(), out.size());
+        in.skip(13);
+        assertThat(in.readInt(), equalTo(7));
+
+        out.release();
+        assertThat(BytesRecycler.stats().count(), equalTo(pooled + 3));
+    }
+}
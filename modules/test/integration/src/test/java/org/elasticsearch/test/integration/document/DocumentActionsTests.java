@@ -34,6 +34,7 @@ import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.support.broadcast.BroadcastOperationThreading;
 import org.elasticsearch.action.support.replication.ReplicationType;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.common.Unicode;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -306,6 +307,33 @@ public class DocumentActionsTests extends AbstractNodesTests {
         }
     }
 
+    @Test public void testBulkWithExistingMapping() throws Exception {
+        createIndex();
+        ClusterHealthResponse clusterHealth = client1.admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        // introduce the mappings first, so the bulk items are applied on the replicas without parsing them again
+        client1.prepareIndex("test", "type1", "0").setSource(XContentFactory.jsonBuilder().startObject().field("name", "first").field("num", 0).endObject()).setRefresh(true).execute().actionGet();
+
+        BulkRequestBuilder bulkRequest = client1.prepareBulk();
+        for (int i = 1; i <= 10; i++) {
+            bulkRequest.add(client1.prepareIndex("test", "type1", Integer.toString(i)).setSource(XContentFactory.jsonBuilder().startObject().field("name", "test bulk " + i).field("num", i).endObject()));
+        }
+        BulkResponse bulkResponse = bulkRequest.setRefresh(true).execute().actionGet();
+        assertThat(bulkResponse.hasFailures(), equalTo(false));
+
+        // each count goes to a different shard copy, make sure they are all the same
+        for (int i = 0; i < 5; i++) {
+            CountResponse countResponse = client1.prepareCount("test").setQuery(termQuery("name", "bulk")).execute().actionGet();
+            assertThat("cycle #" + i, countResponse.count(), equalTo(10l));
+            countResponse = client1.prepareCount("test").setQuery(rangeQuery("num").from(5).to(10)).execute().actionGet();
+            assertThat("cycle #" + i, countResponse.count(), equalTo(6l));
+            countResponse = client1.prepareCount("test").setQuery(queryString("bulk")).execute().actionGet();
+            assertThat("cycle #" + i, countResponse.count(), equalTo(10l));
+        }
+    }
+
     private XContentBuilder source(String id, String nameValue) throws IOException {
         return XContentFactory.jsonBuilder().startObject().startObject("type1").field("id", id).field("name", nameValue).endObject().endObject();
     }
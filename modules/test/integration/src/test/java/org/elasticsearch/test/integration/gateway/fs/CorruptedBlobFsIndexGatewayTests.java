@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.gateway.fs;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.ImmutableBlobContainer;
+import org.elasticsearch.common.blobstore.fs.AbstractFsBlobContainer;
+import org.elasticsearch.gateway.Gateway;
+import org.elasticsearch.index.gateway.CommitPoint;
+import org.elasticsearch.index.gateway.CommitPoints;
+import org.elasticsearch.index.gateway.IndexGateway;
+import org.elasticsearch.index.gateway.IndexShardGateway;
+import org.elasticsearch.index.gateway.IndexShardGatewayRecoveryException;
+import org.elasticsearch.index.gateway.RecoveryStatus;
+import org.elasticsearch.index.gateway.blobstore.BlobStoreIndexGateway;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.elasticsearch.client.Requests.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class CorruptedBlobFsIndexGatewayTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() throws Exception {
+        node("server1").stop();
+        // since we store (by default) the index snapshot under the gateway, resetting it will reset the index data as well
+        ((InternalNode) node("server1")).injector().getInstance(Gateway.class).reset();
+        closeAllNodes();
+    }
+
+    @BeforeMethod public void buildNode1() throws Exception {
+        buildNode("server1");
+        // since we store (by default) the index snapshot under the gateway, resetting it will reset the index data as well
+        ((InternalNode) node("server1")).injector().getInstance(Gateway.class).reset();
+        closeAllNodes();
+    }
+
+    @Test public void testCorruptedBlobFailsRecovery() throws Exception {
+        startNode("server1");
+        client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+
+        client("server1").admin().indices().prepareCreate("test").execute().actionGet();
+        for (int i = 0; i < 100; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("value", "test" + i).execute().actionGet();
+        }
+        client("server1").admin().indices().prepareFlush("test").execute().actionGet();
+        client("server1").admin().indices().gatewaySnapshot(gatewaySnapshotRequest("test")).actionGet();
+
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+
+        IndexService indexService = ((InternalNode) node("server1")).injector().getInstance(IndicesService.class).indexServiceSafe("test");
+        BlobStoreIndexGateway indexGateway = (BlobStoreIndexGateway) indexService.injector().getInstance(IndexGateway.class);
+        IndexShardGateway shardGateway = indexService.shardInjectorSafe(0).getInstance(IndexShardGateway.class);
+        Store store = ((InternalIndexShard) indexService.shardSafe(0)).store();
+
+        // find the largest index file of the latest commit point
+        BlobPath shardPath = indexGateway.shardPath(0);
+        ImmutableBlobContainer blobContainer = indexGateway.blobStore().immutableBlobContainer(shardPath);
+        CommitPoint commitPoint = null;
+        for (String blobName : blobContainer.listBlobs().keySet()) {
+            if (blobName.startsWith("commit-")) {
+                CommitPoint current = CommitPoints.fromXContent(blobContainer.readBlobFully(blobName));
+                if (commitPoint == null || current.version() > commitPoint.version()) {
+                    commitPoint = current;
+                }
+            }
+        }
+        assertThat(commitPoint, notNullValue());
+        CommitPoint.FileInfo fileInfo = null;
+        for (CommitPoint.FileInfo indexFile : commitPoint.indexFiles()) {
+            if (fileInfo == null || indexFile.length() > fileInfo.length()) {
+                fileInfo = indexFile;
+            }
+        }
+        assertThat(fileInfo.contentChecksum(), notNullValue());
+
+        // flip a byte in the middle of the blob, keeping its length
+        File blobFile = new File(((AbstractFsBlobContainer) blobContainer).filePath(), fileInfo.name());
+        if (!blobFile.exists()) {
+            blobFile = new File(((AbstractFsBlobContainer) blobContainer).filePath(), fileInfo.name() + ".part0");
+        }
+        RandomAccessFile raf = new RandomAccessFile(blobFile, "rw");
+        long position = raf.length() / 2;
+        raf.seek(position);
+        int b = raf.read();
+        raf.seek(position);
+        raf.write(~b);
+        raf.close();
+
+        // remove the local copy so it is recovered from the (corrupted) blob
+        store.directory().deleteFile(fileInfo.physicalName());
+
+        try {
+            shardGateway.recover(new RecoveryStatus());
+            assert false : "recovery should fail on a corrupted blob";
+        } catch (IndexShardGatewayRecoveryException e) {
+            // failed to recover commit point -> failed to recover index -> checksum mismatch
+            assertThat(e.getCause(), instanceOf(IndexShardGatewayRecoveryException.class));
+            assertThat(e.getCause().getCause(), instanceOf(CorruptIndexException.class));
+        }
+
+        // the partially recovered file is removed
+        assertThat(store.directory().fileExists(fileInfo.physicalName()), equalTo(false));
+    }
+}
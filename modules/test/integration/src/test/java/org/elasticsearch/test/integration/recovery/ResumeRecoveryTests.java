@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.recovery;
+
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.recovery.RecoveryStatus;
+import org.elasticsearch.index.shard.service.InternalIndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.elasticsearch.client.Requests.*;
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Peer recovery onto a node that already holds (some of) the shard files.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class ResumeRecoveryTests extends AbstractNodesTests {
+
+    @AfterMethod public void closeNodes() {
+        closeAllNodes();
+    }
+
+    @Test public void testReuseIdenticalFiles() throws Exception {
+        prepareSource(settingsBuilder().build());
+        startNode("server2");
+
+        // copy everything, including the checksums, the segments file has no checksum and is compared by content
+        copyShardFiles(false);
+
+        startReplicaAndWaitForGreen();
+
+        RecoveryStatus recoveryStatus = peerRecoveryStatus("server2");
+        assertThat(recoveryStatus.phase1TotalSize(), greaterThan(0l));
+        assertThat(recoveryStatus.phase1ExistingTotalSize(), equalTo(recoveryStatus.phase1TotalSize()));
+        assertThat(recoveryStatus.currentFilesSize(), equalTo(0l));
+
+        assertDocsOnTarget();
+    }
+
+    @Test public void testResumePartiallyRecoveredFile() throws Exception {
+        prepareSource(settingsBuilder().build());
+        startNode("server2");
+
+        // leave the checksums out so the target has to compare content, and cut the largest file in half
+        copyShardFiles(true);
+        File largest = null;
+        for (File file : shardIndexLocation("server2").listFiles()) {
+            if (largest == null || file.length() > largest.length()) {
+                largest = file;
+            }
+        }
+        long length = largest.length();
+        long truncatedLength = length / 2;
+        RandomAccessFile raf = new RandomAccessFile(largest, "rw");
+        raf.setLength(truncatedLength);
+        raf.close();
+
+        startReplicaAndWaitForGreen();
+
+        RecoveryStatus recoveryStatus = peerRecoveryStatus("server2");
+        assertThat(recoveryStatus.currentFilesSize(), equalTo(length - truncatedLength));
+        assertThat(recoveryStatus.phase1ExistingTotalSize(), equalTo(recoveryStatus.phase1TotalSize() - recoveryStatus.currentFilesSize()));
+        assertThat(largest.length(), equalTo(length));
+
+        assertDocsOnTarget();
+    }
+
+    @Test public void testPipelinedTranslogAppliedInOrder() throws Exception {
+        Settings settings = settingsBuilder()
+                .put("index.shard.recovery.translog_ops", 1)
+                .put("index.shard.recovery.translog_concurrent_requests", 8)
+                .build();
+        startNode("server1", settings);
+        // wait for the cluster state to be recovered before creating the index
+        client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+
+        // no flush, all the updates of the doc are replayed from the translog, one operation per request
+        for (int i = 0; i < 100; i++) {
+            client("server1").prepareIndex("test", "type1", "1").setSource("value", i).execute().actionGet();
+        }
+
+        startNode("server2", settings);
+        startReplicaAndWaitForGreen();
+
+        closeNode("server1");
+        ClusterHealthResponse clusterHealth = client("server2").admin().cluster().health(clusterHealthRequest().waitForYellowStatus().waitForNodes("1")).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+
+        GetResponse getResponse = client("server2").prepareGet("test", "type1", "1").execute().actionGet();
+        assertThat(getResponse.exists(), equalTo(true));
+        assertThat(getResponse.version(), equalTo(100l));
+        assertThat(getResponse.sourceAsMap().get("value"), equalTo((Object) 99));
+    }
+
+    private void prepareSource(Settings settings) {
+        startNode("server1", settings);
+        // wait for the cluster state to be recovered before creating the index
+        client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        client("server1").admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0))
+                .execute().actionGet();
+        client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus()).actionGet();
+        for (int i = 0; i < 100; i++) {
+            client("server1").prepareIndex("test", "type1", Integer.toString(i)).setSource("value", "test" + i).execute().actionGet();
+        }
+        client("server1").admin().indices().prepareFlush("test").execute().actionGet();
+    }
+
+    private void startReplicaAndWaitForGreen() {
+        client("server1").admin().indices().prepareUpdateSettings("test")
+                .setSettings(settingsBuilder().put("index.number_of_replicas", 1))
+                .execute().actionGet();
+        ClusterHealthResponse clusterHealth = client("server1").admin().cluster().health(clusterHealthRequest().waitForGreenStatus().waitForNodes("2")).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        assertThat(clusterHealth.status(), equalTo(ClusterHealthStatus.GREEN));
+    }
+
+    private void assertDocsOnTarget() {
+        closeNode("server1");
+        ClusterHealthResponse clusterHealth = client("server2").admin().cluster().health(clusterHealthRequest().waitForYellowStatus().waitForNodes("1")).actionGet();
+        assertThat(clusterHealth.timedOut(), equalTo(false));
+        client("server2").admin().indices().prepareRefresh().execute().actionGet();
+        assertThat(client("server2").prepareCount("test").setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(100l));
+    }
+
+    private void copyShardFiles(boolean skipChecksums) throws Exception {
+        File source = shardIndexLocation("server1");
+        File target = shardIndexLocation("server2");
+        target.mkdirs();
+        for (File file : source.listFiles()) {
+            if (file.getName().equals("write.lock") || (skipChecksums && file.getName().startsWith("_checksums-"))) {
+                continue;
+            }
+            Streams.copy(file, new File(target, file.getName()));
+        }
+    }
+
+    private File shardIndexLocation(String node) {
+        NodeEnvironment nodeEnvironment = ((InternalNode) node(node)).injector().getInstance(NodeEnvironment.class);
+        return new File(nodeEnvironment.shardLocation(new ShardId("test", 0)), "index");
+    }
+
+    private RecoveryStatus peerRecoveryStatus(String node) {
+        IndicesService indicesService = ((InternalNode) node(node)).injector().getInstance(IndicesService.class);
+        return ((InternalIndexShard) indicesService.indexServiceSafe("test").shard(0)).peerRecoveryStatus();
+    }
+}
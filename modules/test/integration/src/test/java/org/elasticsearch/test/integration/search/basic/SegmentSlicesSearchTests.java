@@ -0,0 +1,182 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.test.integration.search.basic;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.collect.Sets;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.facet.statistical.StatisticalFacet;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+import static org.elasticsearch.index.query.xcontent.FilterBuilders.*;
+import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
+import static org.elasticsearch.search.facet.FacetBuilders.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Searches a single shard with several segments, collected concurrently in slices.
+ *
+ * @author kimchy (shay.banon)
+ */
+public class SegmentSlicesSearchTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass public void createNodes() throws Exception {
+        startNode("server1", settingsBuilder().put("search.segment_concurrency", 3));
+        client = client("server1");
+
+        client.admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("number_of_shards", 1).put("number_of_replicas", 0))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        // refresh every 20 docs, so we end up with several segments
+        for (int i = 0; i < 100; i++) {
+            // same length for all docs, with a term frequency of "value" going from 1 to 5
+            StringBuilder text = new StringBuilder();
+            for (int j = 0; j < 5; j++) {
+                text.append(j <= i % 5 ? "value " : "filler ");
+            }
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("num", i)
+                    .field("tag", "tag" + (i % 3))
+                    .field("text", text.toString())
+                    .endObject()).execute().actionGet();
+            if (i % 20 == 19) {
+                client.admin().indices().prepareRefresh().execute().actionGet();
+            }
+        }
+    }
+
+    @AfterClass public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test public void testScoreSortedSearch() throws Exception {
+        SearchResponse searchResponse = client.prepareSearch("test").setQuery(matchAllQuery()).setSize(100).execute().actionGet();
+        assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo(100l));
+        Set<String> ids = Sets.newHashSet();
+        for (SearchHit hit : searchResponse.hits()) {
+            ids.add(hit.id());
+        }
+        assertThat(ids.size(), equalTo(100));
+
+        searchResponse = client.prepareSearch("test").setQuery(termQuery("text", "value")).setSize(30).execute().actionGet();
+        assertThat(searchResponse.hits().totalHits(), equalTo(100l));
+        assertThat(searchResponse.hits().hits().length, equalTo(30));
+        for (int i = 0; i < 30; i++) {
+            SearchHit hit = searchResponse.hits().getAt(i);
+            // the docs with the highest term frequency come first
+            assertThat(Integer.parseInt(hit.id()) % 5, equalTo(4 - (i / 20)));
+            if (i > 0) {
+                assertThat(hit.score(), lessThanOrEqualTo(searchResponse.hits().getAt(i - 1).score()));
+            }
+        }
+        assertThat(searchResponse.hits().maxScore(), equalTo(searchResponse.hits().getAt(0).score()));
+    }
+
+    @Test public void testFieldSortedSearch() throws Exception {
+        SearchResponse searchResponse = client.prepareSearch("test").setQuery(matchAllQuery()).addSort("num", SortOrder.DESC).setSize(10).execute().actionGet();
+        assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo(100l));
+        for (int i = 0; i < 10; i++) {
+            assertThat(searchResponse.hits().getAt(i).id(), equalTo(Integer.toString(99 - i)));
+        }
+
+        searchResponse = client.prepareSearch("test").setQuery(matchAllQuery()).addSort("tag", SortOrder.ASC).addSort("num", SortOrder.ASC).setSize(40).execute().actionGet();
+        assertThat(searchResponse.hits().totalHits(), equalTo(100l));
+        for (int i = 0; i < 34; i++) {
+            assertThat(searchResponse.hits().getAt(i).id(), equalTo(Integer.toString(i * 3)));
+        }
+        for (int i = 34; i < 40; i++) {
+            assertThat(searchResponse.hits().getAt(i).id(), equalTo(Integer.toString((i - 34) * 3 + 1)));
+        }
+    }
+
+    @Test public void testFacets() throws Exception {
+        SearchResponse searchResponse = client.prepareSearch("test")
+                .setSearchType(SearchType.COUNT)
+                .setQuery(matchAllQuery())
+                .addFacet(termsFacet("tags").field("tag").size(10))
+                .addFacet(statisticalFacet("stats").field("num"))
+                .execute().actionGet();
+        assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo(100l));
+
+        TermsFacet tags = searchResponse.facets().facet("tags");
+        assertThat(tags.entries().size(), equalTo(3));
+        assertThat(tags.entries().get(0).term(), equalTo("tag0"));
+        assertThat(tags.entries().get(0).count(), equalTo(34));
+        assertThat(tags.entries().get(1).count(), equalTo(33));
+        assertThat(tags.entries().get(2).count(), equalTo(33));
+
+        StatisticalFacet stats = searchResponse.facets().facet("stats");
+        assertThat(stats.count(), equalTo(100l));
+        assertThat(stats.total(), equalTo(4950d));
+        assertThat(stats.min(), equalTo(0d));
+        assertThat(stats.max(), equalTo(99d));
+
+        // with a search filter, and a facet filter
+        searchResponse = client.prepareSearch("test")
+                .setQuery(matchAllQuery())
+                .setFilter(termFilter("tag", "tag1"))
+                .addFacet(termsFacet("tags").field("tag").size(10))
+                .addFacet(statisticalFacet("stats").field("num").facetFilter(rangeFilter("num").lt(50)))
+                .execute().actionGet();
+        assertThat(searchResponse.hits().totalHits(), equalTo(33l));
+        tags = searchResponse.facets().facet("tags");
+        assertThat(tags.entries().size(), equalTo(3));
+        stats = searchResponse.facets().facet("stats");
+        assertThat(stats.count(), equalTo(50l));
+        assertThat(stats.total(), equalTo(1225d));
+    }
+
+    @Test public void testScriptFacetsSearchSequentially() throws Exception {
+        SearchResponse searchResponse = client.prepareSearch("test")
+                .setSearchType(SearchType.COUNT)
+                .setQuery(matchAllQuery())
+                .addFacet(statisticalScriptFacet("stats").script("doc['num'].value"))
+                .addFacet(termsFacet("tags").field("tag").size(10))
+                .execute().actionGet();
+        assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo(100l));
+
+        StatisticalFacet stats = searchResponse.facets().facet("stats");
+        assertThat(stats.count(), equalTo(100l));
+        assertThat(stats.total(), equalTo(4950d));
+        TermsFacet tags = searchResponse.facets().facet("tags");
+        assertThat(tags.entries().get(0).count(), equalTo(34));
+    }
+}
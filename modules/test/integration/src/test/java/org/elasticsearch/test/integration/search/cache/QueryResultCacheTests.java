@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.search.cache;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.index.cache.CacheStats;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.*;
+import static org.elasticsearch.common.xcontent.XContentFactory.*;
+import static org.elasticsearch.index.query.xcontent.QueryBuilders.*;
+import static org.elasticsearch.search.facet.FacetBuilders.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class QueryResultCacheTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass public void createNodes() throws Exception {
+        startNode("node1");
+        client = client("node1");
+    }
+
+    @AfterClass public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test public void testCountAndFacetsOnlyResultsAreCached() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        client.admin().indices().prepareCreate("test").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put("index.cache.query.result.type", "resident"))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject().field("tag", "green").endObject()).execute().actionGet();
+        client.prepareIndex("test", "type1", "2").setSource(jsonBuilder().startObject().field("tag", "blue").endObject()).execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < 3; i++) {
+            SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.COUNT)
+                    .setQuery(matchAllQuery())
+                    .addFacet(termsFacet("tags").field("tag"))
+                    .execute().actionGet();
+            assertThat(searchResponse.hits().totalHits(), equalTo(2l));
+            TermsFacet facet = searchResponse.facets().facet("tags");
+            assertThat(facet.entries().size(), equalTo(2));
+        }
+        CacheStats cacheStats = cacheStats();
+        assertThat(cacheStats.queryResultCount(), equalTo(1l));
+        assertThat(cacheStats.queryResultMisses(), equalTo(1l));
+        assertThat(cacheStats.queryResultHits(), equalTo(2l));
+        assertThat(cacheStats.queryResultSizeInBytes(), greaterThan(0l));
+
+        // size 0 requests are cached as well
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client.prepareSearch("test").setSize(0)
+                    .setQuery(termQuery("tag", "green"))
+                    .execute().actionGet();
+            assertThat(searchResponse.hits().totalHits(), equalTo(1l));
+            assertThat(searchResponse.hits().hits().length, equalTo(0));
+        }
+        cacheStats = cacheStats();
+        assertThat(cacheStats.queryResultCount(), equalTo(2l));
+        assertThat(cacheStats.queryResultHits(), equalTo(3l));
+
+        // a refresh with changes invalidates the cached results
+        client.prepareIndex("test", "type1", "3").setSource(jsonBuilder().startObject().field("tag", "red").endObject()).execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+        assertThat(cacheStats().queryResultCount(), equalTo(0l));
+
+        SearchResponse searchResponse = client.prepareSearch("test").setSearchType(SearchType.COUNT)
+                .setQuery(matchAllQuery())
+                .addFacet(termsFacet("tags").field("tag"))
+                .execute().actionGet();
+        assertThat(searchResponse.hits().totalHits(), equalTo(3l));
+        TermsFacet facet = searchResponse.facets().facet("tags");
+        assertThat(facet.entries().size(), equalTo(3));
+
+        // requests that return hits are not cached
+        searchResponse = client.prepareSearch("test").setQuery(matchAllQuery()).execute().actionGet();
+        assertThat(searchResponse.hits().hits().length, equalTo(3));
+        assertThat(cacheStats().queryResultCount(), equalTo(1l));
+    }
+
+    private CacheStats cacheStats() {
+        return client.admin().cluster().prepareNodesStats().execute().actionGet().nodes()[0].indices().cache();
+    }
+}
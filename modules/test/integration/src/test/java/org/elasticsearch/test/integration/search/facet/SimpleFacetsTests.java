@@ -801,6 +801,78 @@ public class SimpleFacetsTests extends AbstractNodesTests {
         }
     }
 
+    @Test public void testTermsFacetsTopNAcrossSegments() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        // term tNN appears NN + 1 times, spread over two segments (of a single shard, so the counts are exact)
+        for (int j = 0; j < 20; j++) {
+            String tag = j < 10 ? "t0" + j : "t" + j;
+            for (int k = 0; k <= j; k++) {
+                client.prepareIndex("test", "type1").setRouting("1").setSource(jsonBuilder().startObject()
+                        .field("tag", tag)
+                        .field("num", j)
+                        .endObject()).execute().actionGet();
+            }
+            if (j == 10) {
+                client.admin().indices().prepareFlush().setRefresh(true).execute().actionGet();
+            }
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < numberOfRuns(); i++) {
+            for (String executionHint : new String[]{null, "map"}) {
+                // only t00 to t05 match, the rest of the terms have no count
+                SearchResponse searchResponse = client.prepareSearch()
+                        .setQuery(rangeQuery("num").from(0).to(5))
+                        .addFacet(termsFacet("facet1").field("tag").size(3).executionHint(executionHint))
+                        .addFacet(termsFacet("facet2").field("tag").size(3).order(TermsFacet.ComparatorType.TERM).executionHint(executionHint))
+                        .addFacet(termsFacet("facet3").field("tag").size(3).order(TermsFacet.ComparatorType.REVERSE_COUNT).executionHint(executionHint))
+                        .addFacet(termsFacet("facet4").field("tag").size(3).regex("t0[0-3]").executionHint(executionHint))
+                        .addFacet(termsFacet("facet5").field("tag").size(30).allTerms(true).executionHint(executionHint))
+                        .execute().actionGet();
+
+                TermsFacet facet = searchResponse.facets().facet("facet1");
+                assertThat(facet.entries().size(), equalTo(3));
+                assertThat(facet.entries().get(0).term(), equalTo("t05"));
+                assertThat(facet.entries().get(0).count(), equalTo(6));
+                assertThat(facet.entries().get(1).term(), equalTo("t04"));
+                assertThat(facet.entries().get(1).count(), equalTo(5));
+                assertThat(facet.entries().get(2).term(), equalTo("t03"));
+                assertThat(facet.entries().get(2).count(), equalTo(4));
+
+                facet = searchResponse.facets().facet("facet2");
+                assertThat(facet.entries().size(), equalTo(3));
+                assertThat(facet.entries().get(0).term(), equalTo("t00"));
+                assertThat(facet.entries().get(1).term(), equalTo("t01"));
+                assertThat(facet.entries().get(2).term(), equalTo("t02"));
+                assertThat(facet.entries().get(2).count(), equalTo(3));
+
+                facet = searchResponse.facets().facet("facet3");
+                assertThat(facet.entries().size(), equalTo(3));
+                assertThat(facet.entries().get(0).term(), equalTo("t00"));
+                assertThat(facet.entries().get(0).count(), equalTo(1));
+                assertThat(facet.entries().get(2).term(), equalTo("t02"));
+                assertThat(facet.entries().get(2).count(), equalTo(3));
+
+                facet = searchResponse.facets().facet("facet4");
+                assertThat(facet.entries().size(), equalTo(3));
+                assertThat(facet.entries().get(0).term(), equalTo("t03"));
+                assertThat(facet.entries().get(2).term(), equalTo("t01"));
+
+                facet = searchResponse.facets().facet("facet5");
+                assertThat(facet.entries().size(), equalTo(20));
+                assertThat(facet.entries().get(0).term(), equalTo("t05"));
+                assertThat(facet.entries().get(19).count(), equalTo(0));
+            }
+        }
+    }
+
     @Test public void testStatsFacets() throws Exception {
         try {
             client.admin().indices().prepareDelete("test").execute().actionGet();
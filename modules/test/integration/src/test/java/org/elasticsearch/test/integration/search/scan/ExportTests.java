@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elastic Search and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. Elastic Search licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.search.scan;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.collect.Sets;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.node.internal.InternalNode;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author kimchy (shay.banon)
+ */
+public class ExportTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass public void createNodes() throws Exception {
+        startNode("node1");
+        startNode("node2");
+        client = client("node1");
+    }
+
+    @AfterClass public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    @Test public void testExportStreamsAllHits() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        client.admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 3)).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        Set<String> expectedIds = Sets.newHashSet();
+        for (int i = 0; i < 500; i++) {
+            String id = Integer.toString(i);
+            expectedIds.add(id);
+            client.prepareIndex("test", "type1", id).setSource("field", i, "even", i % 2 == 0).execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        HttpURLConnection connection = open("/test/_export?size=17");
+        assertThat(connection.getResponseCode(), equalTo(200));
+        assertThat(connection.getHeaderField("Transfer-Encoding"), equalTo("chunked"));
+        Set<String> ids = Sets.newHashSet();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            Map<String, Object> hit = XContentFactory.xContent(XContentType.JSON).createParser(line).mapAndClose();
+            assertThat(hit.get("error"), nullValue());
+            assertThat(hit.get("_index"), equalTo((Object) "test"));
+            assertThat(hit.get("_source"), notNullValue());
+            String id = (String) hit.get("_id");
+            assertThat(id + " should not exists in the result set", ids.contains(id), equalTo(false));
+            ids.add(id);
+        }
+        reader.close();
+        assertThat(ids, equalTo(expectedIds));
+
+        connection = open("/test/type1/_export?q=even:true");
+        assertThat(connection.getResponseCode(), equalTo(200));
+        int count = 0;
+        reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+        while (reader.readLine() != null) {
+            count++;
+        }
+        reader.close();
+        assertThat(count, equalTo(250));
+    }
+
+    @Test public void testExportMissingIndex() throws Exception {
+        HttpURLConnection connection = open("/no_such_index/_export");
+        assertThat(connection.getResponseCode(), equalTo(404));
+    }
+
+    @Test public void testExportFailsOnShardFailures() throws Exception {
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        client.admin().indices().prepareCreate("numbers").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
+        client.admin().indices().prepareCreate("strings").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        client.prepareIndex("numbers", "type1", "1").setSource("field", 1).execute().actionGet();
+        client.prepareIndex("strings", "type1", "1").setSource("field", "value").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        // the query can't be parsed against the numeric field, so only the strings shard starts the scan
+        HttpURLConnection connection = open("/numbers,strings/_export?q=field:value");
+        assertThat(connection.getResponseCode(), equalTo(500));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getErrorStream(), "UTF-8"));
+        Map<String, Object> error = XContentFactory.xContent(XContentType.JSON).createParser(reader.readLine()).mapAndClose();
+        reader.close();
+        assertThat(error.get("error"), notNullValue());
+    }
+
+    private HttpURLConnection open(String path) throws Exception {
+        HttpServerTransport httpServerTransport = ((InternalNode) node("node1")).injector().getInstance(HttpServerTransport.class);
+        InetSocketAddress address = ((InetSocketTransportAddress) httpServerTransport.boundAddress().publishAddress()).address();
+        return (HttpURLConnection) new URL("http", address.getHostName(), address.getPort(), path).openConnection();
+    }
+}